@@ -21,6 +21,7 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -62,10 +63,17 @@ public class ConfiguredDocumentDisplayer implements DocumentDisplayer
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * Used to reuse the result of the displays which allow it.
+     */
+    @Inject
+    private Provider<DocumentDisplayerCache> cacheProvider;
+
     @Override
     public XDOM display(DocumentModelBridge data, DocumentDisplayerParameters parameters)
     {
-        return getDocumentDisplayer().display(data, parameters);
+        return this.cacheProvider.get().display(data, parameters,
+            () -> getDocumentDisplayer().display(data, parameters));
     }
 
     /**
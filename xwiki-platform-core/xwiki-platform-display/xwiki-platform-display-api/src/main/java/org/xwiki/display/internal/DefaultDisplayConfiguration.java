@@ -59,4 +59,10 @@ public int getTitleHeadingDepth()
     {
         return configurationSource.getProperty(PREFIX + "titleHeadingDepth", 2);
     }
+
+    @Override
+    public int getCacheSize()
+    {
+        return configurationSource.getProperty(PREFIX + "cache.size", 1000);
+    }
 }
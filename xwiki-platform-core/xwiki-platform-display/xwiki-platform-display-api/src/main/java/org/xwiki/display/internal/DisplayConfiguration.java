@@ -41,4 +41,10 @@
      *         document name.
      */
     int getTitleHeadingDepth();
+
+    /**
+     * @return the maximum number of document displays kept in the cache, for the displays which allow it
+     * @since 11.3RC1
+     */
+    int getCacheSize();
 }
@@ -0,0 +1,267 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.display.internal;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.localization.LocalizationContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * Keep the result of the document displays which allow it (see
+ * {@link DocumentDisplayerParameters#isCacheAllowed()}) so that the same fragment is not parsed and transformed again
+ * each time it's displayed. An entry is removed as soon as the displayed document or one of the documents it displays
+ * itself is modified.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = DocumentDisplayerCache.class)
+@Singleton
+public class DocumentDisplayerCache implements Initializable, CacheEntryListener<DocumentDisplayerCache.CachedDisplay>
+{
+    /**
+     * A cached display and the documents it depends on.
+     *
+     * @version $Id$
+     */
+    public static final class CachedDisplay
+    {
+        private final XDOM xdom;
+
+        private final Set<DocumentReference> references;
+
+        CachedDisplay(XDOM xdom, Set<DocumentReference> references)
+        {
+            this.xdom = xdom;
+            this.references = references;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private DisplayConfiguration configuration;
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
+    @Inject
+    private LocalizationContext localizationContext;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<CachedDisplay> cache;
+
+    /**
+     * The keys of the cached displays which depend on each document.
+     */
+    private final Map<DocumentReference, Set<String>> referenceMapping = new ConcurrentHashMap<>();
+
+    /**
+     * The documents used by the cacheable displays currently executed by the current thread.
+     */
+    private final ThreadLocal<Deque<Set<DocumentReference>>> displaysInProgress = new ThreadLocal<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager
+                .createNewCache(new LRUCacheConfiguration("display.cache", this.configuration.getCacheSize()));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize the document display cache", e);
+        }
+
+        this.cache.addCacheEntryListener(this);
+    }
+
+    /**
+     * Return the cached result of the display if any, or execute the passed displayer and cache its result.
+     *
+     * @param document the displayed document
+     * @param parameters the display parameters
+     * @param displayer the actual display
+     * @return the result of the display
+     */
+    public XDOM display(DocumentModelBridge document, DocumentDisplayerParameters parameters, Supplier<XDOM> displayer)
+    {
+        Deque<Set<DocumentReference>> inProgress = this.displaysInProgress.get();
+
+        // The displayed document is a dependency of all the cacheable displays in progress
+        use(Collections.singleton(document.getDocumentReference()), inProgress);
+
+        // A display executed in the context of the current document depends on much more than the displayed document
+        if (!parameters.isCacheAllowed() || !parameters.isExecutionContextIsolated()) {
+            return displayer.get();
+        }
+
+        String key = getKey(document, parameters);
+
+        CachedDisplay cachedDisplay = this.cache.get(key);
+        if (cachedDisplay != null) {
+            use(cachedDisplay.references, inProgress);
+
+            return cachedDisplay.xdom.clone();
+        }
+
+        if (inProgress == null) {
+            inProgress = new ArrayDeque<>();
+            this.displaysInProgress.set(inProgress);
+        }
+
+        Set<DocumentReference> references = ConcurrentHashMap.newKeySet();
+        references.add(document.getDocumentReference());
+        inProgress.push(references);
+
+        XDOM xdom;
+        try {
+            xdom = displayer.get();
+        } finally {
+            inProgress.pop();
+            if (inProgress.isEmpty()) {
+                this.displaysInProgress.remove();
+            }
+        }
+
+        // Callers are free to modify the returned XDOM
+        this.cache.set(key, new CachedDisplay(xdom.clone(), new HashSet<>(references)));
+
+        return xdom;
+    }
+
+    private void use(Set<DocumentReference> references, Deque<Set<DocumentReference>> inProgress)
+    {
+        if (inProgress != null) {
+            for (Set<DocumentReference> displayReferences : inProgress) {
+                displayReferences.addAll(references);
+            }
+        }
+    }
+
+    private String getKey(DocumentModelBridge document, DocumentDisplayerParameters parameters)
+    {
+        StringBuilder key = new StringBuilder();
+
+        append(key, this.serializer.serialize(document.getDocumentReference()));
+        append(key, document.getRealLanguage());
+        append(key, document.getVersion());
+        append(key, this.localizationContext.getCurrentLocale());
+        DocumentReference userReference = this.documentAccessBridge.getCurrentUserReference();
+        append(key, userReference != null ? this.serializer.serialize(userReference) : null);
+        append(key, parameters.getSectionId());
+        append(key, parameters.getTargetSyntax() != null ? parameters.getTargetSyntax().toIdString() : null);
+        append(key, parameters.isTitleDisplayed());
+        append(key, parameters.isTransformationContextIsolated());
+        append(key, parameters.isTransformationContextRestricted());
+        append(key, parameters.isContentTransformed());
+        append(key, parameters.isContentTranslated());
+
+        return key.toString();
+    }
+
+    private void append(StringBuilder key, Object element)
+    {
+        String value = element != null ? element.toString() : "";
+
+        key.append(value.length()).append(':').append(value);
+    }
+
+    /**
+     * Remove the displays which depend on the passed document.
+     *
+     * @param reference the reference of the modified document
+     */
+    public void cleanCache(DocumentReference reference)
+    {
+        Set<String> keys = this.referenceMapping.remove(reference);
+
+        if (keys != null) {
+            for (String key : keys) {
+                this.cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Remove all the entries the cache contains.
+     */
+    public void flush()
+    {
+        this.cache.removeAll();
+        this.referenceMapping.clear();
+    }
+
+    @Override
+    public void cacheEntryAdded(CacheEntryEvent<CachedDisplay> event)
+    {
+        for (DocumentReference reference : event.getEntry().getValue().references) {
+            this.referenceMapping.computeIfAbsent(reference, k -> ConcurrentHashMap.newKeySet())
+                .add(event.getEntry().getKey());
+        }
+    }
+
+    @Override
+    public void cacheEntryRemoved(CacheEntryEvent<CachedDisplay> event)
+    {
+        for (DocumentReference reference : event.getEntry().getValue().references) {
+            Set<String> keys = this.referenceMapping.get(reference);
+
+            if (keys != null) {
+                keys.remove(event.getEntry().getKey());
+
+                if (keys.isEmpty()) {
+                    this.referenceMapping.remove(reference);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void cacheEntryModified(CacheEntryEvent<CachedDisplay> event)
+    {
+        cacheEntryAdded(event);
+    }
+}
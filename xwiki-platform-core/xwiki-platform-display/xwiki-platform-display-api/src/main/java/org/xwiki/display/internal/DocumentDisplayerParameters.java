@@ -76,6 +76,12 @@ public class DocumentDisplayerParameters implements Cloneable
      */
     private Syntax targetSyntax;
 
+    /**
+     * Flag indicating if the result of the display only depends on the displayed document (and the documents it
+     * displays itself), the current user, locale and the other parameters, so that it can be reused.
+     */
+    private boolean cacheAllowed;
+
     /**
      * @return the id of the document section to display
      */
@@ -226,6 +232,26 @@ public void setTargetSyntax(Syntax targetSyntax)
         this.targetSyntax = targetSyntax;
     }
 
+    /**
+     * @return {@code true} if the result of the display can be cached and reused
+     * @since 11.3RC1
+     */
+    public boolean isCacheAllowed()
+    {
+        return this.cacheAllowed;
+    }
+
+    /**
+     * @param cacheAllowed {@code true} if the result of the display only depends on the displayed document (and the
+     *            documents it displays itself), the current user, locale and the other parameters and can thus be
+     *            cached and reused
+     * @since 11.3RC1
+     */
+    public void setCacheAllowed(boolean cacheAllowed)
+    {
+        this.cacheAllowed = cacheAllowed;
+    }
+
     @Override
     public DocumentDisplayerParameters clone()
     {
@@ -242,6 +268,7 @@ public DocumentDisplayerParameters clone()
         clone.setSectionId(sectionId);
         clone.setTitleDisplayed(titleDisplayed);
         clone.setTransformationContextIsolated(transformationContextIsolated);
+        clone.setCacheAllowed(cacheAllowed);
         return clone;
     }
 }
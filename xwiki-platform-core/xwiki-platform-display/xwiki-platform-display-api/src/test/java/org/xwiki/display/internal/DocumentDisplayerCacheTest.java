@@ -0,0 +1,189 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.display.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheEntry;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.cache.event.CacheEntryListener;
+import org.xwiki.display.internal.DocumentDisplayerCache.CachedDisplay;
+import org.xwiki.localization.LocalizationContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DocumentDisplayerCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DocumentDisplayerCacheTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    private static final DocumentReference INCLUDED_DOCUMENT = new DocumentReference("wiki", "Space", "Included");
+
+    @InjectMockComponents
+    private DocumentDisplayerCache displayerCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private DisplayConfiguration configuration;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    @MockComponent
+    private LocalizationContext localizationContext;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    private Map<String, CachedDisplay> entries = new HashMap<>();
+
+    private CacheEntryListener<CachedDisplay> listener;
+
+    @BeforeComponent
+    public void beforeComponent() throws Exception
+    {
+        Cache<CachedDisplay> cache = mock(Cache.class);
+        when(this.cacheManager.<CachedDisplay>createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+        doAnswer(invocation -> {
+            this.listener = invocation.getArgument(0);
+            return null;
+        }).when(cache).addCacheEntryListener(any());
+        when(cache.get(anyString())).then(invocation -> this.entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            this.entries.put(invocation.getArgument(0), invocation.getArgument(1));
+            this.listener.cacheEntryAdded(event(invocation.getArgument(0), invocation.getArgument(1)));
+            return null;
+        }).when(cache).set(anyString(), any());
+        doAnswer(invocation -> {
+            CachedDisplay value = this.entries.remove(invocation.<String>getArgument(0));
+            if (value != null) {
+                this.listener.cacheEntryRemoved(event(invocation.getArgument(0), value));
+            }
+            return null;
+        }).when(cache).remove(anyString());
+
+        when(this.configuration.getCacheSize()).thenReturn(10);
+        when(this.localizationContext.getCurrentLocale()).thenReturn(Locale.ENGLISH);
+        when(this.serializer.serialize(any())).then(invocation -> invocation.getArgument(0).toString());
+    }
+
+    private CacheEntryEvent<CachedDisplay> event(String key, CachedDisplay value)
+    {
+        CacheEntry<CachedDisplay> entry = mock(CacheEntry.class);
+        when(entry.getKey()).thenReturn(key);
+        when(entry.getValue()).thenReturn(value);
+        CacheEntryEvent<CachedDisplay> event = mock(CacheEntryEvent.class);
+        when(event.getEntry()).thenReturn(entry);
+
+        return event;
+    }
+
+    private DocumentModelBridge document(DocumentReference reference)
+    {
+        DocumentModelBridge document = mock(DocumentModelBridge.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+
+        return document;
+    }
+
+    private DocumentDisplayerParameters parameters(boolean cacheAllowed)
+    {
+        DocumentDisplayerParameters parameters = new DocumentDisplayerParameters();
+        parameters.setExecutionContextIsolated(true);
+        parameters.setCacheAllowed(cacheAllowed);
+
+        return parameters;
+    }
+
+    private XDOM display(DocumentModelBridge document, DocumentDisplayerParameters parameters, AtomicInteger counter)
+    {
+        return this.displayerCache.display(document, parameters, () -> {
+            counter.incrementAndGet();
+
+            // Simulate a nested include
+            this.displayerCache.display(document(INCLUDED_DOCUMENT), parameters(false),
+                () -> new XDOM(Collections.emptyList()));
+
+            return new XDOM(Collections.emptyList());
+        });
+    }
+
+    @Test
+    public void displayIsReusedUntilADependencyIsModified()
+    {
+        DocumentModelBridge document = document(DOCUMENT);
+        AtomicInteger counter = new AtomicInteger();
+
+        XDOM first = display(document, parameters(true), counter);
+        XDOM second = display(document, parameters(true), counter);
+
+        assertEquals(1, counter.get());
+        assertNotSame(first, second);
+
+        // Modifying the included document invalidates the display of the including one
+        this.displayerCache.cleanCache(INCLUDED_DOCUMENT);
+
+        display(document, parameters(true), counter);
+
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void displayIsNotReusedWhenNotAllowed()
+    {
+        DocumentModelBridge document = document(DOCUMENT);
+        AtomicInteger counter = new AtomicInteger();
+
+        display(document, parameters(false), counter);
+        display(document, parameters(false), counter);
+
+        assertEquals(2, counter.get());
+    }
+}
@@ -167,6 +167,7 @@ public List<Block> execute(DisplayMacroParameters parameters, String content, Ma
         displayParameters.setTransformationContextIsolated(displayParameters.isContentTransformed());
         displayParameters.setTargetSyntax(context.getTransformationContext().getTargetSyntax());
         displayParameters.setContentTranslated(true);
+        displayParameters.setCacheAllowed(parameters.isCached());
 
         Stack<Object> references = this.displaysBeingExecuted.get();
         if (references == null) {
@@ -45,6 +45,11 @@
      */
     private String section;
 
+    /**
+     * @see #isCached()
+     */
+    private boolean cached;
+
     /**
      * @param reference the reference to display
      * @since 3.4M1
@@ -111,4 +116,26 @@ public void setPage(String page)
         this.reference = page;
         this.type = EntityType.PAGE;
     }
+
+    /**
+     * @param cached {@code true} if the result of the display can be reused as long as the displayed page, and the
+     *            pages it displays itself, are not modified
+     * @since 11.3RC1
+     */
+    @PropertyDescription("reuse the result of the display until the displayed page is modified (only when the result"
+        + " only depends on the displayed page and the current user and locale)")
+    public void setCached(boolean cached)
+    {
+        this.cached = cached;
+    }
+
+    /**
+     * @return {@code true} if the result of the display can be reused as long as the displayed page, and the pages
+     *         it displays itself, are not modified
+     * @since 11.3RC1
+     */
+    public boolean isCached()
+    {
+        return this.cached;
+    }
 }
@@ -56,4 +56,23 @@ public boolean isGenerateInlineSourceMaps()
     {
         return configurationSource.getProperty(CONFIGURATION_PREFIX + "generateInlineSourceMaps", false);
     }
+
+    /**
+     * @return whether the compiled CSS should also be stored on disk to survive restarts
+     * @since 11.3RC1
+     */
+    public boolean isPersistentCacheEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "persistentCache", true);
+    }
+
+    /**
+     * @return whether the main skin style should be compiled again in background when a skin or a color theme is
+     *         modified, and compiled for the default skin and color theme of each wiki at startup
+     * @since 11.3RC1
+     */
+    public boolean isPrecompilationEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "precompile", true);
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
+import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
+import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
+import org.xwiki.lesscss.internal.skin.SkinReference;
+import org.xwiki.lesscss.internal.skin.SkinReferenceFactory;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Store the CSS produced by the LESS compiler in the permanent directory so that it survives restarts. The entries
+ * are stored in
+ * {@code <permanentDirectory>/cache/lesscss/<XWiki version>/<skin>/<color theme>/<resource>/<sources>.css} where the
+ * last four path elements are hashes: the last one is computed from the LESS code to compile (after the Velocity
+ * execution) and the compiler options. Each entry also lists the hash of the content of the templates imported by the
+ * LESS code so that an entry is ignored when one of them has been modified since the compilation. Only the most
+ * recently used entries of each resource are kept, and the directories of the other XWiki versions are removed when
+ * the cache is first used.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = LESSPersistentCache.class)
+@Singleton
+public class LESSPersistentCache implements Initializable
+{
+    private static final String FILE_EXTENSION = ".css";
+
+    private static final String TEMPORARY_FILE_SUFFIX = "~tmp";
+
+    private static final char LINE_SEPARATOR = '\n';
+
+    private static final char HASH_SEPARATOR = ' ';
+
+    /**
+     * The number of entries kept for each resource: the LESS code of a resource changes each time it is modified but it
+     * can also depend on the context in which it is compiled.
+     */
+    private static final int MAX_ENTRIES_PER_RESOURCE = 4;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private CurrentColorThemeGetter currentColorThemeGetter;
+
+    @Inject
+    private SkinReferenceFactory skinReferenceFactory;
+
+    @Inject
+    private ColorThemeReferenceFactory colorThemeReferenceFactory;
+
+    @Inject
+    private Less4jCompiler less4jCompiler;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The directory containing the directories of each XWiki version, or {@code null} when the cache is disabled.
+     */
+    private File rootDirectory;
+
+    /**
+     * The directory of the current XWiki version, resolved when the cache is first used.
+     */
+    private volatile File cacheDirectory;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.rootDirectory = null;
+        this.cacheDirectory = null;
+
+        File permanentDirectory = this.environment.getPermanentDirectory();
+        if (permanentDirectory != null && this.lessConfiguration.isPersistentCacheEnabled()) {
+            this.rootDirectory = new File(permanentDirectory, "cache/lesscss");
+        }
+    }
+
+    /**
+     * @param skin the skin used to compile the LESS code
+     * @param lessResourceReference the resource from which the LESS code comes
+     * @param lessCode the LESS code to compile
+     * @return the stored CSS, or null if the LESS code has not been compiled yet or if one of the templates it
+     *         imports has been modified since then
+     * @throws LESSCompilerException if the skin or the current color theme cannot be resolved
+     */
+    public String get(String skin, LESSResourceReference lessResourceReference, String lessCode)
+        throws LESSCompilerException
+    {
+        File file = getFile(skin, lessResourceReference, lessCode);
+        if (file == null || !file.exists()) {
+            return null;
+        }
+
+        String content;
+        try {
+            content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            this.logger.warn("Failed to read the compiled LESS file [{}]: {}", file, e.getMessage());
+
+            return null;
+        }
+
+        // The header lists the hash of each imported template and ends with an empty line
+        int lineStart = 0;
+        int lineEnd = content.indexOf(LINE_SEPARATOR);
+        while (lineEnd > lineStart) {
+            // Make sure the imported template is the same as the one which has been compiled
+            int separator = content.indexOf(HASH_SEPARATOR, lineStart);
+            if (separator < 0 || separator > lineEnd || !content.substring(lineStart, separator)
+                .equals(this.less4jCompiler.getSourceHash(content.substring(separator + 1, lineEnd), skin))) {
+                return null;
+            }
+
+            lineStart = lineEnd + 1;
+            lineEnd = content.indexOf(LINE_SEPARATOR, lineStart);
+        }
+
+        // Ignore truncated files
+        if (lineEnd < 0) {
+            return null;
+        }
+
+        // Keep track of the entries that are still used
+        file.setLastModified(System.currentTimeMillis());
+
+        return content.substring(lineEnd + 1);
+    }
+
+    /**
+     * @param skin the skin used to compile the LESS code
+     * @param lessResourceReference the resource from which the LESS code comes
+     * @param lessCode the LESS code which has been compiled
+     * @param css the result of the compilation
+     * @param importedSources the hash of the content of each template imported by the LESS code, indexed by template
+     *            name
+     * @throws LESSCompilerException if the skin or the current color theme cannot be resolved
+     */
+    public void set(String skin, LESSResourceReference lessResourceReference, String lessCode, String css,
+        Map<String, String> importedSources) throws LESSCompilerException
+    {
+        File file = getFile(skin, lessResourceReference, lessCode);
+        if (file == null) {
+            return;
+        }
+
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> importedSource : importedSources.entrySet()) {
+            content.append(importedSource.getValue()).append(HASH_SEPARATOR).append(importedSource.getKey())
+                .append(LINE_SEPARATOR);
+        }
+        // The header ends with an empty line
+        content.append(LINE_SEPARATOR).append(css);
+
+        Path temporaryFile =
+            new File(file.getPath() + TEMPORARY_FILE_SUFFIX + RandomStringUtils.randomAlphanumeric(8)).toPath();
+        try {
+            // Also create the parent directories
+            FileUtils.write(temporaryFile.toFile(), content, StandardCharsets.UTF_8);
+            // Readers never see a partially written file
+            Files.move(temporaryFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+            // The previous entries of the resource are most likely outdated
+            prune(file.getParentFile());
+        } catch (IOException e) {
+            this.logger.warn("Failed to store the compiled LESS file [{}]: {}", file, e.getMessage());
+        } finally {
+            FileUtils.deleteQuietly(temporaryFile.toFile());
+        }
+    }
+
+    /**
+     * Remove all the stored entries related to the specified skin.
+     *
+     * @param skin the modified skin
+     */
+    public void clearFromSkin(SkinReference skin)
+    {
+        File directory = getCacheDirectory();
+        if (directory != null) {
+            delete(new File(directory, hash(skin.serialize())));
+        }
+    }
+
+    /**
+     * Remove all the stored entries related to the specified color theme.
+     *
+     * @param colorTheme the modified color theme
+     */
+    public void clearFromColorTheme(ColorThemeReference colorTheme)
+    {
+        File directory = getCacheDirectory();
+        if (directory != null) {
+            File[] skinDirectories = directory.listFiles();
+            if (skinDirectories != null) {
+                String colorThemeDirectoryName = hash(colorTheme.serialize());
+                for (File skinDirectory : skinDirectories) {
+                    delete(new File(skinDirectory, colorThemeDirectoryName));
+                }
+            }
+        }
+    }
+
+    private File getCacheDirectory()
+    {
+        if (this.rootDirectory != null && this.cacheDirectory == null) {
+            synchronized (this) {
+                if (this.cacheDirectory == null) {
+                    XWikiContext xcontext = this.xcontextProvider.get();
+                    String directoryName =
+                        xcontext.getWiki().getVersion().replaceAll("[^a-zA-Z0-9._-]", "_");
+
+                    // The files written by the other versions of XWiki are never going to be used
+                    File[] directories = this.rootDirectory.listFiles();
+                    if (directories != null) {
+                        for (File directory : directories) {
+                            if (!directory.getName().equals(directoryName)) {
+                                delete(directory);
+                            }
+                        }
+                    }
+
+                    this.cacheDirectory = new File(this.rootDirectory, directoryName);
+                }
+            }
+        }
+
+        return this.cacheDirectory;
+    }
+
+    private void prune(File resourceDirectory)
+    {
+        File[] entries = resourceDirectory.listFiles((directory, name) -> name.endsWith(FILE_EXTENSION));
+        if (entries != null && entries.length > MAX_ENTRIES_PER_RESOURCE) {
+            // Remove the least recently used entries
+            Arrays.sort(entries, Comparator.comparingLong(File::lastModified).reversed());
+            for (int i = MAX_ENTRIES_PER_RESOURCE; i < entries.length; i++) {
+                FileUtils.deleteQuietly(entries[i]);
+            }
+        }
+    }
+
+    private File getFile(String skin, LESSResourceReference lessResourceReference, String lessCode)
+        throws LESSCompilerException
+    {
+        File directory = getCacheDirectory();
+        if (directory == null) {
+            return null;
+        }
+
+        SkinReference skinReference = this.skinReferenceFactory.createReference(skin);
+        ColorThemeReference colorThemeReference = this.colorThemeReferenceFactory
+            .createReference(this.currentColorThemeGetter.getCurrentColorTheme(true, "default"));
+
+        File skinDirectory = new File(directory, hash(skinReference.serialize()));
+        File colorThemeDirectory = new File(skinDirectory, hash(colorThemeReference.serialize()));
+        File resourceDirectory = new File(colorThemeDirectory, hash(lessResourceReference.serialize()));
+
+        String sources = String.format("%s%n%s", this.lessConfiguration.isGenerateInlineSourceMaps(), lessCode);
+
+        return new File(resourceDirectory, DigestUtils.sha256Hex(sources) + FILE_EXTENSION);
+    }
+
+    private String hash(String value)
+    {
+        return DigestUtils.sha1Hex(value);
+    }
+
+    private void delete(File directory)
+    {
+        try {
+            FileUtils.deleteDirectory(directory);
+        } catch (IOException e) {
+            this.logger.warn("Failed to clear the compiled LESS files in [{}]: {}", directory, e.getMessage());
+        }
+    }
+}
@@ -20,6 +20,8 @@
 package org.xwiki.lesscss.internal.compiler;
 
 import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
@@ -31,7 +33,9 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.LESSContext;
 import org.xwiki.lesscss.internal.cache.CachedCompilerInterface;
+import org.xwiki.lesscss.internal.cache.LESSPersistentCache;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
@@ -67,6 +71,12 @@ public class CachedLESSCompiler implements CachedCompilerInterface<String>, Init
     @Inject
     private LESSConfiguration lessConfiguration;
 
+    @Inject
+    private LESSPersistentCache persistentCache;
+
+    @Inject
+    private LESSContext lessContext;
+
     private Semaphore semaphore;
 
     @Override
@@ -105,7 +115,7 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
 
             // Compile the LESS code
             if (useLESS) {
-                return less4JCompiler.compile(lessCode, skin, lessConfiguration.isGenerateInlineSourceMaps());
+                return compileLESS(lessResourceReference, lessCode, skin);
             }
 
             // Otherwise return the raw LESS code
@@ -118,6 +128,29 @@ public String compute(LESSResourceReference lessResourceReference, boolean inclu
         }
     }
 
+    private String compileLESS(LESSResourceReference lessResourceReference, String lessCode, String skin)
+        throws Less4jException, LESSCompilerException
+    {
+        // The compiled CSS may have been stored on disk before the last restart
+        boolean usePersistentCache = !lessContext.isCacheDisabled();
+        if (usePersistentCache) {
+            String css = persistentCache.get(skin, lessResourceReference, lessCode);
+            if (css != null) {
+                return css;
+            }
+        }
+
+        Map<String, String> importedSources = new LinkedHashMap<>();
+        String css =
+            less4JCompiler.compile(lessCode, skin, lessConfiguration.isGenerateInlineSourceMaps(), importedSources);
+
+        if (usePersistentCache) {
+            persistentCache.set(skin, lessResourceReference, lessCode, css, importedSources);
+        }
+
+        return css;
+    }
+
     private String executeVelocity(String source, String skin)
     {
         // Get the XWiki object
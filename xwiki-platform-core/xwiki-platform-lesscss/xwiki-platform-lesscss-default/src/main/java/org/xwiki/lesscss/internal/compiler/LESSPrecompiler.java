@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.compiler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.lesscss.compiler.LESSCompiler;
+import org.xwiki.lesscss.compiler.LESSCompilerException;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
+import com.xpn.xwiki.web.XWikiServletRequest;
+import com.xpn.xwiki.web.XWikiServletRequestStub;
+import com.xpn.xwiki.web.XWikiServletResponseStub;
+
+/**
+ * Compile the main skin style in background so that the first request following the startup or the modification of a
+ * skin or of a color theme does not have to wait for the compilation. The compilations are executed in parallel, up to
+ * the configured number of simultaneous compilations.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = LESSPrecompiler.class)
+@Singleton
+public class LESSPrecompiler implements Initializable, Disposable
+{
+    private static final String COLOR_THEME_PARAMETER = "colorTheme";
+
+    /**
+     * The context key where the skin of the current request is kept.
+     */
+    private static final String SKIN_CONTEXT_KEY = "skin";
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    private LESSCompiler lessCompiler;
+
+    @Inject
+    private LESSResourceReferenceFactory lessResourceReferenceFactory;
+
+    @Inject
+    private EntityReferenceSerializer<String> entityReferenceSerializer;
+
+    @Inject
+    private DocumentReferenceResolver<EntityReference> documentReferenceResolver;
+
+    @Inject
+    private LESSConfiguration lessConfiguration;
+
+    @Inject
+    private Logger logger;
+
+    private ExecutorService executor;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        if (this.lessConfiguration.isPrecompilationEnabled()) {
+            this.executor = Executors.newFixedThreadPool(this.lessConfiguration.getMaximumSimultaneousCompilations(),
+                new BasicThreadFactory.Builder().namingPattern("LESS precompilation %d").daemon(true).build());
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.executor != null) {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compile in background the main style of a skin, as seen by the current request.
+     *
+     * @param skin the skin to compile, or null for the current skin
+     * @param colorTheme the color theme to use, or null for the current color theme
+     */
+    public void precompile(String skin, DocumentReference colorTheme)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        if (this.executor == null || xcontext == null || xcontext.getRequest() == null) {
+            return;
+        }
+
+        // The current request and response are recycled by the servlet container once the request is finished so the
+        // background compilation has to work on copies.
+        XWikiServletRequestStub request = new XWikiServletRequestStub(xcontext.getRequest());
+        if (colorTheme != null) {
+            request.put(COLOR_THEME_PARAMETER, this.entityReferenceSerializer.serialize(colorTheme));
+        }
+        XWikiContext backgroundContext = xcontext.clone();
+        backgroundContext.setRequest(new XWikiServletRequest(request));
+        backgroundContext.setResponse(new XWikiServletResponseStub());
+
+        execute(backgroundContext, skin != null ? skin : xcontext.getWiki().getSkin(xcontext));
+    }
+
+    /**
+     * Compile in background the main style of the default skin and color theme of a wiki, i.e. the ones seen by the
+     * users who have not chosen another skin or color theme.
+     *
+     * @param wiki the identifier of the wiki
+     */
+    public void precompileWiki(String wiki)
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        if (this.executor == null || xcontext == null) {
+            return;
+        }
+
+        // Use the preferences of the wiki home page, as seen by a guest user
+        XWikiContext backgroundContext = xcontext.clone();
+        backgroundContext.setWikiId(wiki);
+        backgroundContext.setUserReference(null);
+        backgroundContext.setRequest(new XWikiServletRequest(new XWikiServletRequestStub()));
+        backgroundContext.setResponse(new XWikiServletResponseStub());
+        backgroundContext.remove(SKIN_CONTEXT_KEY);
+        try {
+            backgroundContext.setDoc(xcontext.getWiki()
+                .getDocument(this.documentReferenceResolver.resolve(new WikiReference(wiki)), backgroundContext));
+        } catch (XWikiException e) {
+            this.logger.warn("Failed to load the home page of the wiki [{}] to precompile its skin: {}", wiki,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return;
+        }
+
+        execute(backgroundContext, null);
+    }
+
+    private void execute(XWikiContext backgroundContext, String skin)
+    {
+        LESSResourceReference style =
+            this.lessResourceReferenceFactory.createReferenceForSkinFile(CachedLESSCompiler.MAIN_SKIN_STYLE_FILENAME);
+
+        this.executor.execute(new AbstractXWikiRunnable(XWikiContext.EXECUTIONCONTEXT_KEY, backgroundContext)
+        {
+            @Override
+            protected void runInternal()
+            {
+                // The skin has to be resolved with the background context when not specified
+                String skinToCompile = skin != null ? skin : backgroundContext.getWiki().getSkin(backgroundContext);
+                try {
+                    lessCompiler.compile(style, false, true, skinToCompile, false);
+                } catch (LESSCompilerException e) {
+                    logger.warn("Failed to precompile the style of the skin [{}]: {}", skinToCompile,
+                        e.getMessage());
+                }
+            }
+        });
+    }
+}
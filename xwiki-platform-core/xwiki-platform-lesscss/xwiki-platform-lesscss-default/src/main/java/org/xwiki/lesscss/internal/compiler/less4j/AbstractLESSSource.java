@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import org.xwiki.skin.Resource;
 import org.xwiki.skin.Skin;
 import org.xwiki.template.TemplateManager;
@@ -36,6 +38,14 @@ public abstract class AbstractLESSSource extends LessSource
     protected TemplateManager templateManager;
 
     protected Skin skin;
+
+    /**
+     * The hash of the content of each imported template, indexed by template name, or {@code null} if the imported
+     * templates don't have to be collected.
+     *
+     * @since 11.3RC1
+     */
+    protected Map<String, String> importedSources;
     
     private String folder;
 
@@ -46,10 +56,24 @@ public abstract class AbstractLESSSource extends LessSource
      * @param folder the folder in which the template is located
      */
     public AbstractLESSSource(TemplateManager templateManager, Skin skin, String folder)
+    {
+        this(templateManager, skin, folder, null);
+    }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the templates
+     * @param folder the folder in which the template is located
+     * @param importedSources where to collect the hash of the content of each imported template, or {@code null}
+     * @since 11.3RC1
+     */
+    public AbstractLESSSource(TemplateManager templateManager, Skin skin, String folder,
+        Map<String, String> importedSources)
     {
         this.templateManager = templateManager;
         this.skin = skin;
         this.folder = folder;
+        this.importedSources = importedSources;
     }
     
     @Override
@@ -58,7 +82,7 @@ public LessSource relativeSource(String filename) throws FileNotFound
         String template = folder + "/" + filename;
         Resource resource = skin.getResource(template);
         if (resource != null) {
-            return new TemplateLESSSource(templateManager, skin, template);
+            return new TemplateLESSSource(templateManager, skin, template, importedSources);
         }
 
         // The file has not been found
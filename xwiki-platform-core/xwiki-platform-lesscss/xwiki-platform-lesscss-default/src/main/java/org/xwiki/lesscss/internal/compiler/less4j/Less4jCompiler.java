@@ -19,6 +19,8 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -56,15 +58,48 @@
      * @throws Less4jException if problems occur
      */
     public String compile(String lessCode, String skin, boolean inlineSourceMap) throws Less4jException
+    {
+        return compile(lessCode, skin, inlineSourceMap, null);
+    }
+
+    /**
+     * Compile the LESS code, get the included files from the skin templates and collect them.
+     * @param lessCode code to compile
+     * @param skin skin holding the templates
+     * @param inlineSourceMap whether to create inline sourcemaps in the generated css
+     * @param importedSources where to put the hash of the content of each imported template, indexed by template
+     *            name, or {@code null}
+     * @return the results of the LESS compilation
+     * @throws Less4jException if problems occur
+     * @since 11.3RC1
+     */
+    public String compile(String lessCode, String skin, boolean inlineSourceMap, Map<String, String> importedSources)
+        throws Less4jException
     {
         LessCompiler lessCompiler = new DefaultLessCompiler();
         LessCompiler.Configuration options = new LessCompiler.Configuration();
         options.setCompressing(true);
         options.getSourceMapConfiguration().setInline(inlineSourceMap);
         options.getSourceMapConfiguration().setIncludeSourcesContent(true);
-        LessSource lessSource = 
-            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin));
+        LessSource lessSource =
+            new CustomContentLESSSource(lessCode, templateManager, skinManager.getSkin(skin), importedSources);
         LessCompiler.CompilationResult lessResult = lessCompiler.compile(lessSource, options);
         return lessResult.getCss();
     }
+
+    /**
+     * @param template the name of a template imported by some LESS code
+     * @param skin skin holding the templates
+     * @return the hash of the current content of the template, as collected by
+     *         {@link #compile(String, String, boolean, Map)}, or {@code null} if the template cannot be read
+     * @since 11.3RC1
+     */
+    public String getSourceHash(String template, String skin)
+    {
+        try {
+            return new TemplateLESSSource(templateManager, skinManager.getSkin(skin), template).getContentHash();
+        } catch (LessSource.CannotReadFile e) {
+            return null;
+        }
+    }
 }
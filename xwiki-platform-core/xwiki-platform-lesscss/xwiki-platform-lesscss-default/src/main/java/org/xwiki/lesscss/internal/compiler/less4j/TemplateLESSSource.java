@@ -19,6 +19,9 @@
  */
 package org.xwiki.lesscss.internal.compiler.less4j;
 
+import java.util.Map;
+
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.lesscss.internal.compiler.CachedLESSCompiler;
 import org.xwiki.skin.Skin;
@@ -46,7 +49,20 @@ public class TemplateLESSSource extends AbstractLESSSource
      */
     public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName)
     {
-        super(templateManager, skin, getParentFolder(templateName));
+        this(templateManager, skin, templateName, null);
+    }
+
+    /**
+     * @param templateManager the template manager component
+     * @param skin the skin holding the template
+     * @param templateName the name of the template
+     * @param importedSources where to collect the hash of the content of each imported template, or {@code null}
+     * @since 11.3RC1
+     */
+    public TemplateLESSSource(TemplateManager templateManager, Skin skin, String templateName,
+        Map<String, String> importedSources)
+    {
+        super(templateManager, skin, getParentFolder(templateName), importedSources);
         this.templateName = templateName;
     }
 
@@ -62,6 +78,32 @@ private static String getParentFolder(String templateName)
 
     @Override
     public String getContent() throws FileNotFound, CannotReadFile
+    {
+        String content = readContent();
+
+        if (importedSources != null) {
+            importedSources.put(templateName, getHash(content));
+        }
+
+        return content;
+    }
+
+    /**
+     * @return the hash of the current content of the template, to compare with the one collected when it was imported
+     * @throws CannotReadFile if the template cannot be read
+     * @since 11.3RC1
+     */
+    public String getContentHash() throws CannotReadFile
+    {
+        return getHash(readContent());
+    }
+
+    private static String getHash(String content)
+    {
+        return DigestUtils.sha1Hex(content);
+    }
+
+    private String readContent() throws CannotReadFile
     {
         try {
             // We execute velocity on the main skin file only (which is included by SSX objects using LESS).
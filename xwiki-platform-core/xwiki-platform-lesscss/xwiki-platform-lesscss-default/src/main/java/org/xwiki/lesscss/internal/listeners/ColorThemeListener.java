@@ -31,9 +31,11 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.lesscss.internal.cache.ColorThemeCache;
+import org.xwiki.lesscss.internal.cache.LESSPersistentCache;
 import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReference;
 import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
+import org.xwiki.lesscss.internal.compiler.LESSPrecompiler;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
@@ -63,6 +65,12 @@ public class ColorThemeListener implements EventListener
 
     @Inject
     private ColorThemeCache colorThemeCache;
+
+    @Inject
+    private LESSPersistentCache persistentCache;
+
+    @Inject
+    private LESSPrecompiler precompiler;
     
     @Inject
     private ColorThemeReferenceFactory colorThemeReferenceFactory;
@@ -90,12 +98,14 @@ public void onEvent(Event event, Object source, Object data)
         List<BaseObject> flamingoThemeObjects = document.getXObjects(FLAMINGO_THEME_CLASS);
         if (flamingoThemeObjects != null && !flamingoThemeObjects.isEmpty()) {
             clearCacheFromColorTheme(document);
+            precompile(event, document);
             return;
         }
 
         List<BaseObject> colorThemeObjects = document.getXObjects(COLOR_THEME_CLASS);
         if (colorThemeObjects != null && !colorThemeObjects.isEmpty()) {
             clearCacheFromColorTheme(document);
+            precompile(event, document);
             return;
         }
     }
@@ -106,5 +116,13 @@ private void clearCacheFromColorTheme(XWikiDocument document)
                 colorThemeReferenceFactory.createReference(document.getDocumentReference());
         lessResourcesCache.clearFromColorTheme(colorThemeReference);
         colorThemeCache.clearFromColorTheme(colorThemeReference);
+        persistentCache.clearFromColorTheme(colorThemeReference);
+    }
+
+    private void precompile(Event event, XWikiDocument document)
+    {
+        if (!(event instanceof DocumentDeletedEvent)) {
+            precompiler.precompile(null, document.getDocumentReference());
+        }
     }
 }
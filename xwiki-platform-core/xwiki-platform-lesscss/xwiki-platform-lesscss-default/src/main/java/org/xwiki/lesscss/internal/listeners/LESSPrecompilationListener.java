@@ -0,0 +1,79 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.listeners;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.bridge.event.WikiReadyEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.lesscss.internal.compiler.LESSPrecompiler;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.event.Event;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Listener that compiles in background the main style of the default skin and color theme of each wiki when it's
+ * ready, so that the first requests don't have to wait for the compilation.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Named("lessPrecompilation")
+@Singleton
+public class LESSPrecompilationListener implements EventListener
+{
+    @Inject
+    private LESSPrecompiler precompiler;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Override
+    public String getName()
+    {
+        return "LESS Precompilation Listener";
+    }
+
+    @Override
+    public List<Event> getEvents()
+    {
+        return Arrays.<Event>asList(
+                new ApplicationReadyEvent(),
+                new WikiReadyEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof ApplicationReadyEvent) {
+            precompiler.precompileWiki(wikiDescriptorManager.getMainWikiId());
+        } else if (!wikiDescriptorManager.isMainWiki(((WikiReadyEvent) event).getWikiId())) {
+            // The main wiki is handled when the application is ready
+            precompiler.precompileWiki(((WikiReadyEvent) event).getWikiId());
+        }
+    }
+}
@@ -31,9 +31,12 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.lesscss.internal.cache.ColorThemeCache;
+import org.xwiki.lesscss.internal.cache.LESSPersistentCache;
 import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.compiler.LESSPrecompiler;
 import org.xwiki.lesscss.internal.skin.SkinReference;
 import org.xwiki.lesscss.internal.skin.SkinReferenceFactory;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
@@ -60,10 +63,19 @@ public class SkinListener implements EventListener
 
     @Inject
     private ColorThemeCache colorThemeCache;
+
+    @Inject
+    private LESSPersistentCache persistentCache;
+
+    @Inject
+    private LESSPrecompiler precompiler;
     
     @Inject
     private SkinReferenceFactory skinReferenceFactory;
 
+    @Inject
+    private EntityReferenceSerializer<String> entityReferenceSerializer;
+
     @Override
     public String getName()
     {
@@ -87,6 +99,9 @@ public void onEvent(Event event, Object source, Object data)
         List<BaseObject> skinObjects = document.getXObjects(SKIN_CLASS);
         if (skinObjects != null && !skinObjects.isEmpty()) {
             clearCacheFromSkin(document);
+            if (!(event instanceof DocumentDeletedEvent)) {
+                precompiler.precompile(entityReferenceSerializer.serialize(document.getDocumentReference()), null);
+            }
             return;
         }
     }
@@ -96,5 +111,6 @@ private void clearCacheFromSkin(XWikiDocument document)
         SkinReference skinReference = skinReferenceFactory.createReference(document.getDocumentReference());
         lessResourcesCache.clearFromSkin(skinReference);
         colorThemeCache.clearFromSkin(skinReference);
+        persistentCache.clearFromSkin(skinReference);
     }
 }
@@ -0,0 +1,229 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.cache;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.environment.Environment;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.colortheme.ColorThemeReferenceFactory;
+import org.xwiki.lesscss.internal.colortheme.CurrentColorThemeGetter;
+import org.xwiki.lesscss.internal.colortheme.NamedColorThemeReference;
+import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
+import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
+import org.xwiki.lesscss.internal.skin.FSSkinReference;
+import org.xwiki.lesscss.internal.skin.SkinReferenceFactory;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link LESSPersistentCache}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class LESSPersistentCacheTest
+{
+    private static final Map<String, String> NO_IMPORTS = Collections.emptyMap();
+
+    @Rule
+    public MockitoComponentMockingRule<LESSPersistentCache> mocker =
+        new MockitoComponentMockingRule<>(LESSPersistentCache.class);
+
+    @Rule
+    public TemporaryFolder permanentDirectory = new TemporaryFolder();
+
+    private LESSConfiguration lessConfiguration;
+
+    private XWiki xwiki;
+
+    private CurrentColorThemeGetter currentColorThemeGetter;
+
+    private LESSResourceReference resource = new LESSSkinFileResourceReference("style.less", null, null);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Environment environment = mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(permanentDirectory.getRoot());
+        lessConfiguration = mocker.getInstance(LESSConfiguration.class);
+        when(lessConfiguration.isPersistentCacheEnabled()).thenReturn(true);
+
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getVersion()).thenReturn("11.3");
+
+        SkinReferenceFactory skinReferenceFactory = mocker.getInstance(SkinReferenceFactory.class);
+        when(skinReferenceFactory.createReference("skin")).thenReturn(new FSSkinReference("skin"));
+        when(skinReferenceFactory.createReference("skin2")).thenReturn(new FSSkinReference("skin2"));
+        currentColorThemeGetter = mocker.getInstance(CurrentColorThemeGetter.class);
+        when(currentColorThemeGetter.getCurrentColorTheme(true, "default")).thenReturn("colorTheme");
+        ColorThemeReferenceFactory colorThemeReferenceFactory = mocker.getInstance(ColorThemeReferenceFactory.class);
+        when(colorThemeReferenceFactory.createReference("colorTheme"))
+            .thenReturn(new NamedColorThemeReference("colorTheme"));
+        when(colorThemeReferenceFactory.createReference("colorTheme2"))
+            .thenReturn(new NamedColorThemeReference("colorTheme2"));
+
+        // The permanent directory is only known now
+        mocker.getComponentUnderTest().initialize();
+    }
+
+    @Test
+    public void setAndGet() throws Exception
+    {
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+
+        assertEquals("CSS", mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "Other LESS code"));
+        assertNull(mocker.getComponentUnderTest().get("skin2", resource, "LESS code"));
+
+        // The entries are specific to each color theme
+        when(currentColorThemeGetter.getCurrentColorTheme(true, "default")).thenReturn("colorTheme2");
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+    }
+
+    @Test
+    public void getWhenImportedSourceIsModified() throws Exception
+    {
+        Map<String, String> importedSources = new LinkedHashMap<>();
+        importedSources.put("less/style.less.vm", "hash1");
+        importedSources.put("less/variables.less", "hash2");
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS\n\nwith empty lines", importedSources);
+
+        Less4jCompiler less4jCompiler = mocker.getInstance(Less4jCompiler.class);
+        when(less4jCompiler.getSourceHash("less/style.less.vm", "skin")).thenReturn("hash1");
+        when(less4jCompiler.getSourceHash("less/variables.less", "skin")).thenReturn("hash2");
+
+        assertEquals("CSS\n\nwith empty lines", mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+
+        when(less4jCompiler.getSourceHash("less/variables.less", "skin")).thenReturn("modified");
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+
+        // The imported template has been removed
+        when(less4jCompiler.getSourceHash("less/variables.less", "skin")).thenReturn(null);
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+    }
+
+    @Test
+    public void pruneOutdatedEntries() throws Exception
+    {
+        LESSResourceReference otherResource = new LESSSkinFileResourceReference("other.less", null, null);
+        mocker.getComponentUnderTest().set("skin", otherResource, "Other LESS code", "Other CSS", NO_IMPORTS);
+
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+        for (int i = 1; i <= 4; i++) {
+            // Make sure the entries are ordered even when the file system has a coarse time resolution
+            for (File file : FileUtils.listFiles(permanentDirectory.getRoot(), new String[] {"css"}, true)) {
+                file.setLastModified(file.lastModified() - 10000);
+            }
+            mocker.getComponentUnderTest().set("skin", resource, "LESS code " + i, "CSS " + i, NO_IMPORTS);
+        }
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals("CSS " + i, mocker.getComponentUnderTest().get("skin", resource, "LESS code " + i));
+        }
+        // The entries of the other resources are kept
+        assertEquals("Other CSS", mocker.getComponentUnderTest().get("skin", otherResource, "Other LESS code"));
+    }
+
+    @Test
+    public void purgeOtherVersions() throws Exception
+    {
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+        assertTrue(new File(permanentDirectory.getRoot(), "cache/lesscss/11.3").isDirectory());
+
+        // Restart with another version
+        when(xwiki.getVersion()).thenReturn("11.4-SNAPSHOT");
+        mocker.getComponentUnderTest().initialize();
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        assertFalse(new File(permanentDirectory.getRoot(), "cache/lesscss/11.3").exists());
+
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+        assertTrue(new File(permanentDirectory.getRoot(), "cache/lesscss/11.4-SNAPSHOT").isDirectory());
+    }
+
+    @Test
+    public void clearFromSkin() throws Exception
+    {
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+        mocker.getComponentUnderTest().set("skin2", resource, "LESS code", "CSS2", NO_IMPORTS);
+
+        mocker.getComponentUnderTest().clearFromSkin(new FSSkinReference("skin"));
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        assertEquals("CSS2", mocker.getComponentUnderTest().get("skin2", resource, "LESS code"));
+    }
+
+    @Test
+    public void clearFromColorTheme() throws Exception
+    {
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+        mocker.getComponentUnderTest().set("skin2", resource, "LESS code", "CSS2", NO_IMPORTS);
+        when(currentColorThemeGetter.getCurrentColorTheme(true, "default")).thenReturn("colorTheme2");
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS3", NO_IMPORTS);
+
+        mocker.getComponentUnderTest().clearFromColorTheme(new NamedColorThemeReference("colorTheme"));
+
+        assertEquals("CSS3", mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        when(currentColorThemeGetter.getCurrentColorTheme(true, "default")).thenReturn("colorTheme");
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+        assertNull(mocker.getComponentUnderTest().get("skin2", resource, "LESS code"));
+    }
+
+    @Test
+    public void disabled() throws Exception
+    {
+        when(lessConfiguration.isPersistentCacheEnabled()).thenReturn(false);
+        mocker.getComponentUnderTest().initialize();
+
+        mocker.getComponentUnderTest().set("skin", resource, "LESS code", "CSS", NO_IMPORTS);
+
+        assertNull(mocker.getComponentUnderTest().get("skin", resource, "LESS code"));
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.xwiki.lesscss.internal.compiler;
 
+import java.util.Collections;
+import java.util.Map;
+
 import javax.inject.Provider;
 
 import org.junit.Before;
@@ -26,6 +29,7 @@
 import org.junit.Test;
 import org.xwiki.lesscss.compiler.LESSCompilerException;
 import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.internal.cache.LESSPersistentCache;
 import org.xwiki.lesscss.internal.compiler.less4j.Less4jCompiler;
 import org.xwiki.lesscss.internal.resources.LESSSkinFileResourceReference;
 import org.xwiki.lesscss.resources.LESSResourceReference;
@@ -101,7 +105,7 @@ public void computeSkinFile() throws Exception
         when(xwiki.evaluateVelocity(eq("Some LESS content"), eq("SomeContextDocument"))).
             thenReturn("Some Velocity-rendered LESS content");
         when(less4jCompiler.compile(eq("Some Velocity-rendered LESS content"), eq("skin2"),
-                eq(false)))
+                eq(false), any()))
             .thenReturn("output");
 
         // Tests
@@ -119,7 +123,7 @@ public void computeSkinFileWithoutVelocity() throws Exception
         LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
         when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
         when(less4jCompiler.compile(eq("Some LESS content"), eq("skin2"),
-                eq(false))).thenReturn("output");
+                eq(false), any())).thenReturn("output");
 
         // Tests
         assertEquals("output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
@@ -145,6 +149,43 @@ public void computeSkinFileWithoutLESS() throws Exception
         verifyZeroInteractions(less4jCompiler);
     }
 
+    @Test
+    public void computeSkinFileFromPersistentCache() throws Exception
+    {
+        // Mocks
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
+        LESSPersistentCache persistentCache = mocker.getInstance(LESSPersistentCache.class);
+        when(persistentCache.get("skin2", resource, "Some LESS content")).thenReturn("stored output");
+
+        // Tests
+        assertEquals("stored output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
+
+        // Verify that the LESS compiler is never called
+        verifyZeroInteractions(less4jCompiler);
+        verify(persistentCache, never()).set(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void computeSkinFileStoredInPersistentCache() throws Exception
+    {
+        // Mocks
+        LESSResourceReference resource = mock(LESSSkinFileResourceReference.class);
+        when(resource.getContent(eq("skin2"))).thenReturn("Some LESS content");
+        when(less4jCompiler.compile(eq("Some LESS content"), eq("skin2"), eq(false), any())).thenAnswer(i -> {
+            i.<Map<String, String>>getArgument(3).put("less/import.less", "hash");
+            return "output";
+        });
+
+        // Tests
+        assertEquals("output", mocker.getComponentUnderTest().compute(resource, false, false, true, "skin2"));
+
+        // Verify
+        LESSPersistentCache persistentCache = mocker.getInstance(LESSPersistentCache.class);
+        verify(persistentCache).set("skin2", resource, "Some LESS content", "output",
+            Collections.singletonMap("less/import.less", "hash"));
+    }
+
     @Test
     public void computeSkinFileWithMainStyleIncluded() throws Exception
     {
@@ -158,7 +199,7 @@ public void computeSkinFileWithMainStyleIncluded() throws Exception
                         +"Some Velocity-rendered LESS content");
         when(less4jCompiler.compile(eq("@import (reference) \"style.less.vm\";\n"
             +"Some Velocity-rendered LESS content"), eq("skin"),
-                eq(false)))
+                eq(false), any()))
                 .thenReturn("output");
 
         // Tests
@@ -176,7 +217,7 @@ public void computeSkinFileWhenException() throws Exception
                 thenReturn("Some Velocity-rendered LESS content");
         Less4jException lessCompilerException = mock(Less4jException.class);
         when(less4jCompiler.compile(eq("Some Velocity-rendered LESS content"), eq("skin"),
-                eq(false))).
+                eq(false), any())).
             thenThrow(lessCompilerException);
 
         // Tests
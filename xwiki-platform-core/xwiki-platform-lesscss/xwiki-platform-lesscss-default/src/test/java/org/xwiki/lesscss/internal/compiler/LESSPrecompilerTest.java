@@ -0,0 +1,186 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.compiler;
+
+import java.util.Collections;
+
+import javax.inject.Provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.lesscss.compiler.LESSCompiler;
+import org.xwiki.lesscss.internal.LESSConfiguration;
+import org.xwiki.lesscss.resources.LESSResourceReference;
+import org.xwiki.lesscss.resources.LESSResourceReferenceFactory;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.XWikiRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link LESSPrecompiler}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class LESSPrecompilerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<LESSPrecompiler> mocker =
+            new MockitoComponentMockingRule<>(LESSPrecompiler.class);
+
+    private LESSConfiguration lessConfiguration;
+
+    private LESSCompiler lessCompiler;
+
+    private XWikiContext xcontext;
+
+    private XWikiContext backgroundContext;
+
+    private XWiki xwiki;
+
+    private LESSResourceReference style;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        lessConfiguration = mocker.getInstance(LESSConfiguration.class);
+        when(lessConfiguration.isPrecompilationEnabled()).thenReturn(true);
+        when(lessConfiguration.getMaximumSimultaneousCompilations()).thenReturn(1);
+
+        lessCompiler = mocker.getInstance(LESSCompiler.class);
+
+        style = mock(LESSResourceReference.class);
+        LESSResourceReferenceFactory lessResourceReferenceFactory =
+            mocker.getInstance(LESSResourceReferenceFactory.class);
+        when(lessResourceReferenceFactory.createReferenceForSkinFile("style.less.vm")).thenReturn(style);
+
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        backgroundContext = mock(XWikiContext.class);
+        when(xcontext.clone()).thenReturn(backgroundContext);
+        when(backgroundContext.getWiki()).thenReturn(xwiki);
+
+        XWikiRequest request = mock(XWikiRequest.class);
+        when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost:8080/xwiki/bin/view/Main/"));
+        when(request.getHeaderNames()).thenReturn(Collections.emptyEnumeration());
+        when(xcontext.getRequest()).thenReturn(request);
+
+        // The background thread initializes its execution context with the components returned by Utils
+        mocker.registerMockComponent(Execution.class);
+        mocker.registerMockComponent(ExecutionContextManager.class);
+        Utils.setComponentManager(mocker);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        Utils.setComponentManager(null);
+    }
+
+    @Test
+    public void precompileWhenDisabled() throws Exception
+    {
+        when(lessConfiguration.isPrecompilationEnabled()).thenReturn(false);
+
+        mocker.getComponentUnderTest().precompile("skin", null);
+        mocker.getComponentUnderTest().precompileWiki("wiki");
+
+        verifyZeroInteractions(lessCompiler);
+        verify(xcontext, never()).clone();
+    }
+
+    @Test
+    public void precompileSkin() throws Exception
+    {
+        mocker.getComponentUnderTest().precompile("XWiki.MySkin", null);
+
+        verify(lessCompiler, timeout(5000)).compile(style, false, true, "XWiki.MySkin", false);
+
+        ArgumentCaptor<XWikiRequest> requestCaptor = ArgumentCaptor.forClass(XWikiRequest.class);
+        verify(backgroundContext).setRequest(requestCaptor.capture());
+        assertNull(requestCaptor.getValue().getParameter("colorTheme"));
+    }
+
+    @Test
+    public void precompileColorTheme() throws Exception
+    {
+        DocumentReference colorTheme = new DocumentReference("wiki", "ColorThemes", "MyTheme");
+        EntityReferenceSerializer<String> entityReferenceSerializer =
+            mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(entityReferenceSerializer.serialize(colorTheme)).thenReturn("wiki:ColorThemes.MyTheme");
+        when(xwiki.getSkin(xcontext)).thenReturn("XWiki.CurrentSkin");
+
+        mocker.getComponentUnderTest().precompile(null, colorTheme);
+
+        verify(lessCompiler, timeout(5000)).compile(style, false, true, "XWiki.CurrentSkin", false);
+
+        ArgumentCaptor<XWikiRequest> requestCaptor = ArgumentCaptor.forClass(XWikiRequest.class);
+        verify(backgroundContext).setRequest(requestCaptor.capture());
+        assertEquals("wiki:ColorThemes.MyTheme", requestCaptor.getValue().getParameter("colorTheme"));
+    }
+
+    @Test
+    public void precompileWiki() throws Exception
+    {
+        DocumentReference homeReference = new DocumentReference("subwiki", "Main", "WebHome");
+        DocumentReferenceResolver<EntityReference> documentReferenceResolver =
+            mocker.getInstance(DocumentReferenceResolver.TYPE_REFERENCE);
+        when(documentReferenceResolver.resolve(new WikiReference("subwiki"))).thenReturn(homeReference);
+        XWikiDocument home = mock(XWikiDocument.class);
+        when(xwiki.getDocument(homeReference, backgroundContext)).thenReturn(home);
+        when(xwiki.getSkin(backgroundContext)).thenReturn("XWiki.SubwikiSkin");
+
+        mocker.getComponentUnderTest().precompileWiki("subwiki");
+
+        verify(lessCompiler, timeout(5000)).compile(style, false, true, "XWiki.SubwikiSkin", false);
+        verify(backgroundContext).setWikiId("subwiki");
+        verify(backgroundContext).setUserReference(null);
+        verify(backgroundContext).remove("skin");
+        verify(backgroundContext).setDoc(home);
+        verify(backgroundContext).setRequest(any());
+    }
+}
@@ -21,7 +21,12 @@
 
 import java.io.FileInputStream;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
@@ -38,6 +43,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -114,6 +120,26 @@ public void compile() throws Exception
         assertEquals(expected.toString(), result);
 
         assertTrue(result2.contains("/*# sourceMappingURL=data:application/json;base64,"));
+
+        // Now collecting the imported templates.
+        Map<String, String> importedSources = new HashMap<>();
+        String result3 = mocker.getComponentUnderTest().compile(source.toString(), "skin", false, importedSources);
+
+        assertEquals(expected.toString(), result3);
+        assertEquals(new HashSet<>(Arrays.asList("less/style.less.vm", "less/subdir/import2.less",
+            "less/subdir/import3.less")), importedSources.keySet());
+        assertEquals(DigestUtils.sha1Hex(import2source.toString()), importedSources.get("less/subdir/import2.less"));
+        for (Map.Entry<String, String> importedSource : importedSources.entrySet()) {
+            assertEquals(importedSource.getValue(),
+                mocker.getComponentUnderTest().getSourceHash(importedSource.getKey(), "skin"));
+        }
+
+        // The template has been modified
+        when(importContent3.getContent()).thenReturn("@color: red;");
+        assertEquals(DigestUtils.sha1Hex("@color: red;"),
+            mocker.getComponentUnderTest().getSourceHash("less/subdir/import3.less", "skin"));
+        // The template has been removed
+        assertNull(mocker.getComponentUnderTest().getSourceHash("less/subdir/missing.less", "skin"));
     }
 
     @Test
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.lesscss.internal.listeners;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.bridge.event.ApplicationReadyEvent;
+import org.xwiki.bridge.event.WikiReadyEvent;
+import org.xwiki.lesscss.internal.compiler.LESSPrecompiler;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test class for {@link LESSPrecompilationListener}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class LESSPrecompilationListenerTest
+{
+    @Rule
+    public MockitoComponentMockingRule<LESSPrecompilationListener> mocker =
+            new MockitoComponentMockingRule<>(LESSPrecompilationListener.class);
+
+    private LESSPrecompiler precompiler;
+
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        precompiler = mocker.getInstance(LESSPrecompiler.class);
+        wikiDescriptorManager = mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
+        when(wikiDescriptorManager.isMainWiki("xwiki")).thenReturn(true);
+    }
+
+    @Test
+    public void getName() throws Exception
+    {
+        assertEquals("LESS Precompilation Listener", mocker.getComponentUnderTest().getName());
+    }
+
+    @Test
+    public void onApplicationReady() throws Exception
+    {
+        mocker.getComponentUnderTest().onEvent(new ApplicationReadyEvent(), null, null);
+
+        verify(precompiler).precompileWiki("xwiki");
+    }
+
+    @Test
+    public void onWikiReady() throws Exception
+    {
+        mocker.getComponentUnderTest().onEvent(new WikiReadyEvent("subwiki"), null, null);
+
+        verify(precompiler).precompileWiki("subwiki");
+    }
+
+    @Test
+    public void onMainWikiReady() throws Exception
+    {
+        // The main wiki is precompiled when the application is ready
+        mocker.getComponentUnderTest().onEvent(new WikiReadyEvent("xwiki"), null, null);
+
+        verifyZeroInteractions(precompiler);
+    }
+}
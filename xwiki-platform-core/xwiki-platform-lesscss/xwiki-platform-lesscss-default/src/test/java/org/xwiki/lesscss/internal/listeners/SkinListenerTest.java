@@ -31,10 +31,12 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.lesscss.internal.cache.ColorThemeCache;
 import org.xwiki.lesscss.internal.cache.LESSResourcesCache;
+import org.xwiki.lesscss.internal.compiler.LESSPrecompiler;
 import org.xwiki.lesscss.internal.skin.DocumentSkinReference;
 import org.xwiki.lesscss.internal.skin.SkinReferenceFactory;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.observation.event.Event;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
@@ -110,6 +112,8 @@ public void onEventWhenSkinIsChanged() throws Exception
         
         DocumentSkinReference skinReference = new DocumentSkinReference(documentReference, null);
         when(skinReferenceFactory.createReference(documentReference)).thenReturn(skinReference);
+        EntityReferenceSerializer<String> serializer = mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(documentReference)).thenReturn("wiki:space.page");
 
         // Test
         mocker.getComponentUnderTest().onEvent(event, doc, data);
@@ -117,6 +121,8 @@ public void onEventWhenSkinIsChanged() throws Exception
         // Verify
         verify(lessResourcesCache).clearFromSkin(skinReference);
         verify(colorThemeCache).clearFromSkin(skinReference);
+        // The modified skin is compiled, not the skin of the current user
+        verify(mocker.getInstance(LESSPrecompiler.class)).precompile("wiki:space.page", null);
     }
 
     @Test
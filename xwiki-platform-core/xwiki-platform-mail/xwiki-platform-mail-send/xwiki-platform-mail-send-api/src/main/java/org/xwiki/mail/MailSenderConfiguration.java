@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -101,4 +102,26 @@
      * @since 6.4RC1
      */
     long getSendWaitTime();
+
+    /**
+     * @return the number of threads sending the mails in parallel, each with its own connection to the SMTP server.
+     *         Note that the {@link #getSendWaitTime() send wait time} is shared by all the threads.
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getSendThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the maximum number of prepared mails waiting to be sent, 0 or less for no limit. When the limit is
+     *         reached the preparation of the mails waits for the mail senders.
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getSendQueueCapacity()
+    {
+        return 0;
+    }
 }
@@ -104,6 +104,10 @@ public class DefaultMailSenderConfiguration implements MailSenderConfiguration
     private static final String PROPERTIES_PROPERTY = "properties";
     private static final String SEND_WAIT_TIME = "sendWaitTime";
 
+    private static final int DEFAULT_SEND_THREADS = 1;
+
+    private static final int DEFAULT_SEND_QUEUE_CAPACITY = 1000;
+
     @Inject
     private Logger logger;
 
@@ -325,4 +329,17 @@ public long getSendWaitTime()
 
         return waitTime;
     }
+
+    @Override
+    public int getSendThreads()
+    {
+        // Only read from xwiki.properties since the threads are started before the wikis are available
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "sendThreads", DEFAULT_SEND_THREADS);
+    }
+
+    @Override
+    public int getSendQueueCapacity()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "sendQueueCapacity", DEFAULT_SEND_QUEUE_CAPACITY);
+    }
 }
@@ -19,8 +19,9 @@
  */
 package org.xwiki.mail.internal.thread;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles all operations on the Mail Queues.
@@ -35,22 +36,39 @@
      * The Mail queue that the mail sender thread will use to send mails. We use a separate thread to allow sending
      * mail asynchronously.
      */
-    private Queue<T> mailQueue = new ConcurrentLinkedQueue<>();
+    private BlockingQueue<T> mailQueue = new LinkedBlockingQueue<>();
 
     /**
      * @return the mail queue containing all pending mails to be sent
      */
-    private Queue<T> getMailQueue()
+    private BlockingQueue<T> getMailQueue()
     {
         return this.mailQueue;
     }
 
+    /**
+     * Limit the number of mails waiting in the queue. Must be called before the queue is used.
+     *
+     * @param capacity the maximum number of mails in the queue, 0 or less for no limit
+     * @since 11.3RC1
+     */
+    protected void setCapacity(int capacity)
+    {
+        this.mailQueue = capacity > 0 ? new LinkedBlockingQueue<>(capacity) : new LinkedBlockingQueue<>();
+    }
+
     @Override
     public void addToQueue(T mailQueueItem)
     {
         getMailQueue().add(mailQueueItem);
     }
 
+    @Override
+    public void putInQueue(T mailQueueItem) throws InterruptedException
+    {
+        getMailQueue().put(mailQueueItem);
+    }
+
     @Override
     public boolean hasMessage()
     {
@@ -68,4 +86,10 @@ public boolean removeMessageFromQueue(T mailQueueItem)
     {
         return getMailQueue().remove(mailQueueItem);
     }
+
+    @Override
+    public T takeMessage(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return getMailQueue().poll(timeout, unit);
+    }
 }
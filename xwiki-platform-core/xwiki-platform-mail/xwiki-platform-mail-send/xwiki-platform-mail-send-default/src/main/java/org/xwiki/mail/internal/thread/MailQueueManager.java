@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.concurrent.TimeUnit;
+
 import org.xwiki.component.annotation.Role;
 
 /**
@@ -38,6 +40,15 @@
      */
     void addToQueue(T mailQueueItem);
 
+    /**
+     * Add a mail on the queue for processing, waiting if necessary for space to become available in the queue.
+     *
+     * @param mailQueueItem the object representing the mail item to add to the queue
+     * @throws InterruptedException if interrupted while waiting
+     * @since 11.3RC1
+     */
+    void putInQueue(T mailQueueItem) throws InterruptedException;
+
     /**
      * @return true if the queue has messages waiting for processing
      */
@@ -55,4 +66,15 @@
      * @return true if the removal was successful, false otherwise
      */
     boolean removeMessageFromQueue(T mailQueueItem);
+
+    /**
+     * Removes the next mail on the queue, waiting if necessary for a mail to become available.
+     *
+     * @param timeout how long to wait before giving up, in units of {@code unit}
+     * @param unit the unit of the {@code timeout} parameter
+     * @return the next mail on the queue or {@code null} if no mail became available before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @since 11.3RC1
+     */
+    T takeMessage(long timeout, TimeUnit unit) throws InterruptedException;
 }
@@ -21,6 +21,7 @@
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -69,19 +70,17 @@ public void run()
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.prepareMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item after the message has been created and put on the sender
-                    // queue.
-                    PrepareMailQueueItem mailItem = this.prepareMailQueueManager.peekMessage();
-                    try {
-                        prepareMail(mailItem);
-                    } finally {
-                        this.prepareMailQueueManager.removeMessageFromQueue(mailItem);
+                // Wait for the next message in the queue. Note: the timeout allows to regularly check if the thread
+                // should stop.
+                PrepareMailQueueItem mailItem = this.prepareMailQueueManager.takeMessage(1L, TimeUnit.SECONDS);
+                if (mailItem != null) {
+                    prepareMail(mailItem);
+
+                    // Stop if the thread has been interrupted while waiting for the Send Queue
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
                     }
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(100L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Prepare Thread was forcefully stopped", e);
@@ -129,6 +128,12 @@ protected void prepareMail(PrepareMailQueueItem item)
                     removeContext();
                 }
             }
+        } catch (InterruptedException e) {
+            // The thread is being stopped while waiting for the Send Queue, keep the interruption for the main loop
+            Thread.currentThread().interrupt();
+            if (listener != null) {
+                listener.onPrepareFatalError(e, Collections.emptyMap());
+            }
         } catch (Exception e) {
             if (listener != null) {
                 listener.onPrepareFatalError(e, Collections.emptyMap());
@@ -158,7 +163,7 @@ protected void prepareContext(ExecutionContext executionContext) throws Executio
         }
     }
 
-    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item)
+    private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem item) throws InterruptedException
     {
         MailListener listener = item.getListener();
 
@@ -185,9 +190,10 @@ private void prepareSingleMail(MimeMessage mimeMessage, PrepareMailQueueItem ite
             listener.onPrepareMessageSuccess(message, Collections.emptyMap());
         }
 
-        // Step 4: Put the MimeMessage id on the Mail Send Queue for sending
+        // Step 4: Put the MimeMessage id on the Mail Send Queue for sending, waiting for the mail senders if there's
+        // already too many mails waiting to be sent
         // Extract the wiki id from the context
-        this.sendMailQueueManager.addToQueue(new SendMailQueueItem(message.getUniqueMessageId(),
+        this.sendMailQueueManager.putInQueue(new SendMailQueueItem(message.getUniqueMessageId(),
             item.getSession(), listener, item.getBatchId(), extractWikiId(item)));
 
     }
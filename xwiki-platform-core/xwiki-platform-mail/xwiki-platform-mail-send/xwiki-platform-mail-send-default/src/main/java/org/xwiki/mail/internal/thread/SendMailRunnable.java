@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,7 +42,8 @@
 import com.xpn.xwiki.XWikiContext;
 
 /**
- * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * Runnable that regularly check for mails on a Queue, and for each mail tries to send it. The same instance can be run
+ * by several threads: each thread keeps its own connection to the SMTP server.
  *
  * @version $Id$
  * @since 6.4
@@ -64,25 +66,38 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    /**
+     * The date before which the next mail should not be sent, shared by all the sender threads.
+     */
+    private long nextSendTime;
+
+    /**
+     * The connection to the SMTP server used by a sender thread.
+     */
+    private static class SenderConnection
+    {
+        private Transport transport;
 
-    private Session currentSession;
+        private Session session;
 
-    private int count;
+        private int count;
+    }
 
     @Override
     public void run()
     {
+        SenderConnection connection = new SenderConnection();
+
         try {
             // Make sure we initialize an execution context.
             prepareContext();
 
-            runInternal();
+            runInternal(connection);
         } catch (ExecutionContextException e) {
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            closeTransport(connection);
         }
     }
 
@@ -101,28 +116,33 @@ private void prepareContextForQueueItem(SendMailQueueItem mailItem)
         xcontext.setWikiId(mailItem.getWikiId());
     }
 
-    private void runInternal()
+    private void runInternal(SenderConnection connection)
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
+                // Wait for the next message in the queue. Note: the timeout allows to regularly check if the thread
+                // should stop.
+                SendMailQueueItem mailItem = this.sendMailQueueManager.takeMessage(1L, TimeUnit.SECONDS);
+                if (mailItem != null) {
+                    // The send wait time is read from the configuration of the wiki of the mail
+                    prepareContextForQueueItem(mailItem);
+
+                    // Email throttling: wait for the send slot of this mail. The slots are shared by all the sender
+                    // threads so that the send wait time is respected whatever the number of threads.
+                    // Note: the previous mail has already been reported as sent so that users know as soon as
+                    // possible that their mail has been sent.
                     try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
+                        waitSendWaitTime();
+                    } catch (InterruptedException e) {
+                        // The mail has already been removed from the queue, report it as failed so that it's not lost
+                        // and can be resent
+                        abortMail(mailItem, e);
+
+                        throw e;
                     }
-                    // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
-                    waitSendWaitTime();
+
+                    sendMail(mailItem, connection);
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Sender Thread was forcefully stopped", e);
@@ -138,11 +158,10 @@ private void runInternal()
      * Send the mail.
      *
      * @param item the queue item containing all the data for sending the mail
+     * @param connection the connection to the SMTP server of the current thread
      */
-    protected void sendMail(SendMailQueueItem item)
+    private void sendMail(SendMailQueueItem item, SenderConnection connection)
     {
-        prepareContextForQueueItem(item);
-
         MailListener listener = item.getListener();
 
         ExtendedMimeMessage message;
@@ -161,20 +180,20 @@ protected void sendMail(SendMailQueueItem item)
             // the current Transport, get a new one and reconnect.
             // Also do that every 100 mails sent.
             // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
+            if (item.getSession() != connection.session || (connection.count % 100) == 0) {
+                closeTransport(connection);
+                connection.session = item.getSession();
+                connection.transport = connection.session.getTransport("smtp");
+                connection.transport.connect();
+            } else if (!connection.transport.isConnected()) {
+                connection.transport.connect();
             }
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            connection.transport.sendMessage(message, message.getAllRecipients());
+            connection.count++;
 
             // Step 4: Notify the user of the success if a listener has been provided
             if (listener != null) {
@@ -188,17 +207,52 @@ protected void sendMail(SendMailQueueItem item)
         }
     }
 
+    /**
+     * Report a mail which has been taken from the queue but won't be sent.
+     *
+     * @param item the queue item containing all the data for sending the mail
+     * @param exception the reason why the mail won't be sent
+     */
+    private void abortMail(SendMailQueueItem item, Exception exception)
+    {
+        MailListener listener = item.getListener();
+        if (listener != null) {
+            try {
+                listener.onSendMessageFatalError(item.getUniqueMessageId(), exception,
+                    Collections.<String, Object>emptyMap());
+            } catch (Exception e) {
+                this.logger.error("Failed to report the mail [{}] of batch [{}] as not sent",
+                    item.getUniqueMessageId(), item.getBatchId(), e);
+            }
+        }
+    }
+
     private void waitSendWaitTime() throws InterruptedException
     {
-        long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        long waitTime = reserveSendTime(this.configuration.getSendWaitTime());
+        if (waitTime > 0) {
+            Thread.sleep(waitTime);
+        }
+    }
+
+    /**
+     * @param sendWaitTime the minimum delay between two mails
+     * @return the time to wait before sending the mail
+     */
+    private synchronized long reserveSendTime(long sendWaitTime)
+    {
+        long now = System.currentTimeMillis();
+        long sendTime = Math.max(now, this.nextSendTime);
+        this.nextSendTime = sendTime + sendWaitTime;
+
+        return sendTime - now;
     }
 
-    private void closeTransport()
+    private void closeTransport(SenderConnection connection)
     {
-        if (this.currentTransport != null) {
+        if (connection.transport != null) {
             try {
-                this.currentTransport.close();
+                connection.transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
@@ -104,6 +104,18 @@ public long getSendWaitTime()
         return 0;
     }
 
+    @Override
+    public int getSendThreads()
+    {
+        return 1;
+    }
+
+    @Override
+    public int getSendQueueCapacity()
+    {
+        return 0;
+    }
+
     public void setBCCAddresses(List<String> addresses)
     {
         this.bccAddresses = addresses;
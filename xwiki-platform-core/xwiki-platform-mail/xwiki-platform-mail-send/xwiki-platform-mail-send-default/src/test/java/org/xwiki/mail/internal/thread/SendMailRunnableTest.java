@@ -19,10 +19,14 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Provider;
 import javax.mail.Session;
@@ -35,6 +39,7 @@
 import org.xwiki.mail.ExtendedMimeMessage;
 import org.xwiki.mail.MailContentStore;
 import org.xwiki.mail.MailListener;
+import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
 import org.xwiki.mail.MailStoreException;
@@ -50,6 +55,8 @@
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 /**
@@ -145,6 +152,63 @@ public void sendMailWhenSendingFails() throws Exception
         assertEquals(2, errorCount);
     }
 
+    @Test
+    public void sendMailWithSeveralThreads() throws Exception
+    {
+        // Create a Session with an invalid host so that it generates an error
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.host", "xwiki-unknown");
+        Session session = Session.getDefaultInstance(properties);
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(4);
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+
+        for (int i = 0; i < 4; ++i) {
+            MimeMessage msg = new MimeMessage(session);
+            msg.setText("Content" + i);
+            ExtendedMimeMessage message = new ExtendedMimeMessage(msg);
+            String id = message.getUniqueMessageId();
+
+            // Simulate loading the message from the content store
+            when(contentStore.load(session, batchId, id)).thenReturn(message);
+
+            mailQueueManager.addToQueue(new SendMailQueueItem(id, session, listener, batchId, "xwiki"));
+        }
+
+        // Run the same runnable in 2 threads, each having its own Transport.
+        Thread thread1 = new Thread(this.sendMailRunnable);
+        Thread thread2 = new Thread(this.sendMailRunnable);
+        thread1.start();
+        thread2.start();
+
+        // Wait for the mails to have been processed.
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread1.interrupt();
+            thread2.interrupt();
+            thread1.join();
+            thread2.join();
+        }
+
+        // Each mail has been processed exactly once.
+        assertEquals(4, listener.getMailStatusResult().getProcessedMailCount());
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_ERROR);
+        int errorCount = 0;
+        while (statuses.hasNext()) {
+            statuses.next();
+            errorCount++;
+        }
+        assertEquals(4, errorCount);
+    }
+
     @Test
     public void sendMailWhenMailRetrievalFails() throws Exception
     {
@@ -210,4 +274,114 @@ public void sendMailWhenMailRetrievalFails() throws Exception
         }
         assertEquals(2, errorCount);
     }
+
+    @Test
+    public void sendMailWhenInterruptedWhileWaiting() throws Exception
+    {
+        Session session = Session.getDefaultInstance(new Properties());
+
+        MimeMessage msg1 = new MimeMessage(session);
+        msg1.setText("Content1");
+        ExtendedMimeMessage message1 = new ExtendedMimeMessage(msg1);
+        String id1 = message1.getUniqueMessageId();
+        MimeMessage msg2 = new MimeMessage(session);
+        msg2.setText("Content2");
+        ExtendedMimeMessage message2 = new ExtendedMimeMessage(msg2);
+        String id2 = message2.getUniqueMessageId();
+
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(2);
+
+        listener.onPrepareMessageSuccess(message1, Collections.emptyMap());
+        listener.onPrepareMessageSuccess(message2, Collections.emptyMap());
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+
+        // The first mail fails right away and the second one has to wait for its send slot
+        MailSenderConfiguration configuration = this.componentManager.getInstance(MailSenderConfiguration.class);
+        when(configuration.getSendWaitTime()).thenReturn(60000L);
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        when(contentStore.load(session, batchId, id1)).thenThrow(new MailStoreException("Store failure"));
+
+        mailQueueManager.addToQueue(new SendMailQueueItem(id1, session, listener, batchId, "xwiki"));
+        mailQueueManager.addToQueue(new SendMailQueueItem(id2, session, listener, batchId, "xwiki"));
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        try {
+            // Wait for the first mail to have been processed and the second one to have been taken from the queue
+            long timeout = System.currentTimeMillis() + 10000L;
+            while ((listener.getMailStatusResult().getProcessedMailCount() < 1 || mailQueueManager.hasMessage())
+                && System.currentTimeMillis() < timeout) {
+                Thread.sleep(10L);
+            }
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        // The mail which was waiting to be sent is not lost
+        assertTrue(listener.getMailStatusResult().isProcessed());
+        Iterator<MailStatus> statuses = listener.getMailStatusResult().getByState(MailState.SEND_FATAL_ERROR);
+        int errorCount = 0;
+        while (statuses.hasNext()) {
+            statuses.next();
+            errorCount++;
+        }
+        assertEquals(2, errorCount);
+    }
+
+    @Test
+    public void sendMailReadsTheSendWaitTimeOfTheMailWiki() throws Exception
+    {
+        // Remember the current wiki when the send wait time is read
+        AtomicReference<String> currentWiki = new AtomicReference<>();
+        XWikiContext xcontext = Mockito.mock(XWikiContext.class);
+        doAnswer(invocation -> {
+            currentWiki.set(invocation.getArgument(0));
+            return null;
+        }).when(xcontext).setWikiId(any());
+        Provider<XWikiContext> xwikiContextProvider = this.componentManager.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xwikiContextProvider.get()).thenReturn(xcontext);
+
+        List<String> sendWaitTimeWikis = new ArrayList<>();
+        MailSenderConfiguration configuration = this.componentManager.getInstance(MailSenderConfiguration.class);
+        when(configuration.getSendWaitTime()).thenAnswer(invocation -> {
+            sendWaitTimeWikis.add(currentWiki.get());
+            return 0L;
+        });
+
+        Session session = Session.getDefaultInstance(new Properties());
+        MemoryMailListener listener = this.componentManager.getInstance(MailListener.class, "memory");
+        String batchId = UUID.randomUUID().toString();
+        listener.onPrepareBegin(batchId, Collections.emptyMap());
+        ((UpdateableMailStatusResult) listener.getMailStatusResult()).setTotalSize(2);
+
+        // The mails fail right away since only the wiki used to read the send wait time matters
+        MailContentStore contentStore = this.componentManager.getInstance(MailContentStore.class, "filesystem");
+        when(contentStore.load(any(), any(), any())).thenThrow(new MailStoreException("Store failure"));
+
+        MailQueueManager mailQueueManager = this.componentManager.getInstance(
+            new DefaultParameterizedType(null, MailQueueManager.class, SendMailQueueItem.class));
+        mailQueueManager.addToQueue(new SendMailQueueItem("id1", session, listener, batchId, "wiki1"));
+        mailQueueManager.addToQueue(new SendMailQueueItem("id2", session, listener, batchId, "wiki2"));
+
+        Thread thread = new Thread(this.sendMailRunnable);
+        thread.start();
+
+        try {
+            listener.getMailStatusResult().waitTillProcessed(10000L);
+        } finally {
+            this.sendMailRunnable.stopProcessing();
+            thread.interrupt();
+            thread.join();
+        }
+
+        assertEquals(Arrays.asList("wiki1", "wiki2"), sendWaitTimeWikis);
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.mail;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration for the storage part of the Mail Sender.
@@ -35,4 +36,27 @@
      *         they should be kept (for tracability purpose for example)
      */
     boolean discardSuccessStatuses();
+
+    /**
+     * @return the maximum number of mail send results kept in memory before being written to the database in a
+     *         single transaction, 1 or less to write each update immediately (the prepare statuses are always written
+     *         immediately)
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getStatusBatchSize()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the maximum time in milliseconds a mail send result is kept in memory before being written to the
+     *         database, 0 or less to only write the updates when the batch is full
+     * @since 11.3RC1
+     */
+    @Unstable
+    default long getStatusFlushInterval()
+    {
+        return 0;
+    }
 }
@@ -19,32 +19,52 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
 import org.xwiki.mail.MailStatusStore;
+import org.xwiki.mail.MailStorageConfiguration;
 import org.xwiki.mail.MailStoreException;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore;
 import com.xpn.xwiki.store.XWikiStoreInterface;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
 
 /**
  * Stores mail results in the database using Hibernate.
+ * <p>
+ * When the configured status batch size is greater than 1 the send results and the deleted statuses are kept in memory
+ * and written to the database in a single transaction when the batch is full, when the flush interval is reached or
+ * before searching the statuses. The pending statuses are returned by {@link #load(String)} so that the mail listeners
+ * always see the latest status of a mail. The prepare statuses are always written right away since they are needed to
+ * resend the mails after a crash, which can then only lose the send results of the last flush interval.
  *
  * @version $Id$
  * @since 6.4M3
@@ -52,10 +72,12 @@
 @Component
 @Named("database")
 @Singleton
-public class DatabaseMailStatusStore implements MailStatusStore
+public class DatabaseMailStatusStore implements MailStatusStore, Initializable, Disposable
 {
     private static final String ID_PARAMETER_NAME = "id";
 
+    private static final String IDS_PARAMETER_NAME = "ids";
+
     @Inject
     private Logger logger;
 
@@ -66,8 +88,121 @@ public class DatabaseMailStatusStore implements MailStatusStore
     @Named("hibernate")
     private XWikiStoreInterface hibernateStore;
 
+    @Inject
+    private MailStorageConfiguration configuration;
+
+    private int batchSize;
+
+    /**
+     * The statuses waiting to be written to the database, indexed by message id, in the order of their last update. A
+     * {@code null} value means that the status must be deleted. The statuses are copies which are never modified so
+     * that a status updated while being written is kept for the next batch.
+     */
+    private final Map<String, MailStatus> pendingStatuses = new LinkedHashMap<>();
+
+    /**
+     * Make sure the batches are written in order.
+     */
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService flusher;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.batchSize = this.configuration.getStatusBatchSize();
+
+        long flushInterval = this.configuration.getStatusFlushInterval();
+        if (isBuffered() && flushInterval > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(
+                new BasicThreadFactory.Builder().namingPattern("Mail status flusher").daemon(true).build());
+            Runnable flushRunnable = new AbstractXWikiRunnable()
+            {
+                @Override
+                protected void runInternal()
+                {
+                    flushQuietly();
+                }
+            };
+            // Only initialize an execution context when there's something to write
+            this.flusher.scheduleWithFixedDelay(() -> {
+                if (hasPendingStatuses()) {
+                    flushRunnable.run();
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.flusher != null) {
+            this.flusher.shutdownNow();
+        }
+
+        // Write the remaining statuses
+        flushQuietly();
+    }
+
+    private boolean isBuffered()
+    {
+        return this.batchSize > 1;
+    }
+
+    private boolean hasPendingStatuses()
+    {
+        synchronized (this.pendingStatuses) {
+            return !this.pendingStatuses.isEmpty();
+        }
+    }
+
     @Override
     public void save(final MailStatus status, final Map<String, Object> parameters) throws MailStoreException
+    {
+        if (isBuffered()) {
+            if (isPrepareStatus(status)) {
+                // The mail resender needs the prepare statuses to find the mails to send again after a crash
+                synchronized (this.flushLock) {
+                    synchronized (this.pendingStatuses) {
+                        this.pendingStatuses.remove(status.getMessageId());
+                    }
+
+                    saveNow(status, parameters);
+                }
+            } else {
+                this.logger.debug("Buffered mail status [{}]", status);
+
+                bufferStatus(status.getMessageId(), copy(status));
+            }
+        } else {
+            saveNow(status, parameters);
+        }
+    }
+
+    private boolean isPrepareStatus(MailStatus status)
+    {
+        String state = status.getState();
+
+        return MailState.PREPARE_SUCCESS.toString().equals(state) || MailState.PREPARE_ERROR.toString().equals(state);
+    }
+
+    private MailStatus copy(MailStatus status)
+    {
+        MailStatus copy = new MailStatus();
+        copy.setMessageId(status.getMessageId());
+        copy.setBatchId(status.getBatchId());
+        copy.setState(status.getState());
+        copy.setDate(status.getDate());
+        copy.setRecipients(status.getRecipients());
+        copy.setType(status.getType());
+        copy.setErrorSummary(status.getErrorSummary());
+        copy.setErrorDescription(status.getErrorDescription());
+        copy.setWiki(status.getWiki());
+
+        return copy;
+    }
+
+    private void saveNow(final MailStatus status, final Map<String, Object> parameters) throws MailStoreException
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
@@ -78,7 +213,7 @@ public void save(final MailStatus status, final Map<String, Object> parameters)
 
         try {
             // Delete any previous state of the message
-            delete(status.getMessageId(), parameters);
+            deleteNow(status.getMessageId(), parameters);
 
             store.executeWrite(xwikiContext, new XWikiHibernateBaseStore.HibernateCallback<Object>()
             {
@@ -102,8 +237,21 @@ public Object doInHibernate(Session session) throws HibernateException, XWikiExc
     @Override
     public MailStatus load(String uniqueMessageId) throws MailStoreException
     {
-        List<MailStatus> statuses = load(Collections.<String, Object>singletonMap(ID_PARAMETER_NAME, uniqueMessageId),
-            0, 0, null, false);
+        if (isBuffered()) {
+            synchronized (this.pendingStatuses) {
+                if (this.pendingStatuses.containsKey(uniqueMessageId)) {
+                    MailStatus status = this.pendingStatuses.get(uniqueMessageId);
+
+                    // Don't expose the buffered status which might be in the middle of being written
+                    return status != null ? copy(status) : null;
+                }
+            }
+        }
+
+        // The pending statuses have been checked above so there's no need to flush them (which would prevent the
+        // batches from building up since the mail listeners load the status of each mail they send)
+        List<MailStatus> statuses =
+            loadNow(Collections.<String, Object>singletonMap(ID_PARAMETER_NAME, uniqueMessageId), 0, 0, null, false);
         if (statuses.isEmpty()) {
             return null;
         }
@@ -114,6 +262,15 @@ public MailStatus load(String uniqueMessageId) throws MailStoreException
     public List<MailStatus> load(final Map<String, Object> filterMap, final int offset, final int count,
         String sortField, boolean sortAscending)
         throws MailStoreException
+    {
+        // Make sure the search includes the pending statuses
+        flush(1);
+
+        return loadNow(filterMap, offset, count, sortField, sortAscending);
+    }
+
+    private List<MailStatus> loadNow(final Map<String, Object> filterMap, final int offset, final int count,
+        String sortField, boolean sortAscending) throws MailStoreException
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
@@ -170,6 +327,9 @@ public List<MailStatus> doInHibernate(Session session)
     @Override
     public long count(final Map<String, Object> filterMap) throws MailStoreException
     {
+        // Make sure the count includes the pending statuses
+        flush(1);
+
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
         final XWikiContext xwikiContext = this.contextProvider.get();
@@ -204,6 +364,15 @@ public Long doInHibernate(Session session)
 
     @Override
     public void delete(final String uniqueMessageId, Map<String, Object> parameters) throws MailStoreException
+    {
+        if (isBuffered()) {
+            bufferStatus(uniqueMessageId, null);
+        } else {
+            deleteNow(uniqueMessageId, parameters);
+        }
+    }
+
+    private void deleteNow(final String uniqueMessageId, Map<String, Object> parameters) throws MailStoreException
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
@@ -232,6 +401,128 @@ public Object doInHibernate(Session session) throws HibernateException, XWikiExc
         }
     }
 
+    private void bufferStatus(String uniqueMessageId, MailStatus status)
+    {
+        int size;
+        synchronized (this.pendingStatuses) {
+            // Move the message at the end of the batch
+            this.pendingStatuses.remove(uniqueMessageId);
+            this.pendingStatuses.put(uniqueMessageId, status);
+            size = this.pendingStatuses.size();
+        }
+
+        if (size >= this.batchSize) {
+            flush(this.batchSize);
+        }
+    }
+
+    private void flushQuietly()
+    {
+        try {
+            flush(1);
+        } catch (Exception e) {
+            this.logger.error("Failed to write the pending mail statuses to the database", e);
+        }
+    }
+
+    /**
+     * Write the pending statuses to the database if there's at least the passed number of them.
+     *
+     * @param minimum the minimum number of pending statuses to write
+     */
+    private void flush(int minimum)
+    {
+        if (!isBuffered()) {
+            return;
+        }
+
+        synchronized (this.flushLock) {
+            Map<String, MailStatus> batch;
+            synchronized (this.pendingStatuses) {
+                if (this.pendingStatuses.isEmpty() || this.pendingStatuses.size() < minimum) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(this.pendingStatuses);
+            }
+
+            try {
+                saveBatch(batch);
+            } catch (Exception e) {
+                this.logger.warn("Failed to write a batch of [{}] mail statuses to the database, writing them one by "
+                    + "one. Root error: [{}]", batch.size(), ExceptionUtils.getRootCauseMessage(e));
+
+                saveOneByOne(batch);
+            } finally {
+                // Keep the statuses which have been updated in the meantime for the next batch (each update buffers a
+                // new copy)
+                synchronized (this.pendingStatuses) {
+                    for (Map.Entry<String, MailStatus> entry : batch.entrySet()) {
+                        if (this.pendingStatuses.get(entry.getKey()) == entry.getValue()) {
+                            this.pendingStatuses.remove(entry.getKey());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void saveBatch(final Map<String, MailStatus> batch) throws XWikiException
+    {
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+
+        XWikiContext xwikiContext = this.contextProvider.get();
+        // Save in the main wiki
+        String currentWiki = xwikiContext.getWikiId();
+        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+
+        try {
+            store.executeWrite(xwikiContext, new XWikiHibernateBaseStore.HibernateCallback<Object>()
+            {
+                @Override
+                public Object doInHibernate(Session session) throws HibernateException, XWikiException
+                {
+                    // Delete any previous state of the messages
+                    String queryString =
+                        String.format("delete from %s where mail_id in (:ids)", MailStatus.class.getName());
+                    List<String> ids = new ArrayList<>(batch.keySet());
+                    for (int i = 0; i < ids.size(); i += batchSize) {
+                        session.createQuery(queryString)
+                            .setParameterList(IDS_PARAMETER_NAME, ids.subList(i, Math.min(i + batchSize, ids.size())))
+                            .executeUpdate();
+                    }
+
+                    for (MailStatus status : batch.values()) {
+                        if (status != null) {
+                            session.save(status);
+                        }
+                    }
+
+                    return null;
+                }
+            });
+
+            this.logger.debug("Saved a batch of [{}] mail statuses", batch.size());
+        } finally {
+            xwikiContext.setWikiId(currentWiki);
+        }
+    }
+
+    private void saveOneByOne(Map<String, MailStatus> batch)
+    {
+        for (Map.Entry<String, MailStatus> entry : batch.entrySet()) {
+            try {
+                if (entry.getValue() != null) {
+                    saveNow(entry.getValue(), Collections.emptyMap());
+                } else {
+                    deleteNow(entry.getKey(), Collections.emptyMap());
+                }
+            } catch (MailStoreException e) {
+                // Failed to write the status in the DB, we continue but log an error
+                this.logger.error("Failed to write mail status of message [{}] to the database", entry.getKey(), e);
+            }
+        }
+    }
+
     protected String computeQueryString(String prefix,
         Map<String, Object> filterMap, String sortField, boolean sortAscending)
     {
@@ -44,6 +44,14 @@ public class DefaultMailStorageConfiguration implements MailStorageConfiguration
 
     private static final String DISCARD_SUCCESS_STATUSES = "discardSuccessStatuses";
 
+    private static final String STATUS_BATCH_SIZE = "statusBatchSize";
+
+    private static final String STATUS_FLUSH_INTERVAL = "statusFlushInterval";
+
+    private static final int DEFAULT_STATUS_BATCH_SIZE = 100;
+
+    private static final long DEFAULT_STATUS_FLUSH_INTERVAL = 1000L;
+
     @Inject
     @Named("mailsend")
     private ConfigurationSource mailConfigSource;
@@ -64,4 +72,16 @@ public boolean discardSuccessStatuses()
 
         return (discardSuccessStatuses == 1);
     }
+
+    @Override
+    public int getStatusBatchSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + STATUS_BATCH_SIZE, DEFAULT_STATUS_BATCH_SIZE);
+    }
+
+    @Override
+    public long getStatusFlushInterval()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + STATUS_FLUSH_INTERVAL, DEFAULT_STATUS_FLUSH_INTERVAL);
+    }
 }
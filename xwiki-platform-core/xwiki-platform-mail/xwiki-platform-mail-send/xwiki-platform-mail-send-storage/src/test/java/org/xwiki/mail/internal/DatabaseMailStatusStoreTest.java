@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -42,6 +43,9 @@
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -113,4 +117,139 @@ public void logsForloadMailStatus() throws Exception
         assertEquals("Loaded mail status [messageId = [messageid], batchId = [batchid], state = [prepare_success], "
             + "date = [<null>], recipients = [recipients]]", this.logRule.getMessage(1));
     }
+
+    @Test
+    public void saveAndDeleteInBatches() throws Exception
+    {
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(store, "hibernateStore", hibernateStore);
+        ReflectionUtils.setFieldValue(store, "batchSize", 3);
+
+        MailStatus status1 = new MailStatus();
+        status1.setMessageId("message1");
+        status1.setState(MailState.SEND_SUCCESS);
+        MailStatus status2 = new MailStatus();
+        status2.setMessageId("message2");
+        status2.setState(MailState.SEND_ERROR);
+
+        store.save(status1, Collections.emptyMap());
+        store.save(status2, Collections.emptyMap());
+
+        // The pending statuses are visible without accessing the database
+        assertEquals("send_success", store.load("message1").getState());
+        store.delete("message1", Collections.emptyMap());
+        assertNull(store.load("message1"));
+        verify(hibernateStore, never()).executeWrite(any(XWikiContext.class), any());
+        verify(hibernateStore, never()).executeRead(any(XWikiContext.class), any());
+
+        // The batch is written when full
+        store.delete("message3", Collections.emptyMap());
+        verify(hibernateStore, times(1)).executeWrite(eq(xcontext), any());
+
+        when(hibernateStore.executeRead(eq(xcontext), any())).thenReturn(Arrays.asList(status2));
+        assertSame(status2, store.load("message2"));
+        verify(hibernateStore, times(1)).executeWrite(eq(xcontext), any());
+    }
+
+    @Test
+    public void saveBufferedStatusCopies() throws Exception
+    {
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(store, "hibernateStore", hibernateStore);
+        ReflectionUtils.setFieldValue(store, "batchSize", 3);
+
+        MailStatus status = new MailStatus();
+        status.setMessageId("message");
+        status.setState(MailState.SEND_ERROR);
+
+        store.save(status, Collections.emptyMap());
+
+        // Updating the status without saving it doesn't change the buffered status
+        MailStatus loadedStatus = store.load("message");
+        assertNotSame(status, loadedStatus);
+        loadedStatus.setState(MailState.SEND_SUCCESS);
+        assertEquals("send_error", store.load("message").getState());
+
+        store.save(loadedStatus, Collections.emptyMap());
+        assertEquals("send_success", store.load("message").getState());
+
+        verify(hibernateStore, never()).executeWrite(any(XWikiContext.class), any());
+    }
+
+    @Test
+    public void savePrepareStatusRightAway() throws Exception
+    {
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(store, "hibernateStore", hibernateStore);
+        ReflectionUtils.setFieldValue(store, "batchSize", 3);
+
+        MailStatus status = new MailStatus();
+        status.setMessageId("message");
+        status.setState(MailState.PREPARE_SUCCESS);
+
+        store.save(status, Collections.emptyMap());
+
+        // The previous state is deleted and the new one saved
+        verify(hibernateStore, times(2)).executeWrite(eq(xcontext), any());
+
+        // Nothing is left in the buffer
+        when(hibernateStore.executeRead(eq(xcontext), any())).thenReturn(Arrays.asList(status));
+        assertSame(status, store.load("message"));
+        verify(hibernateStore, times(2)).executeWrite(eq(xcontext), any());
+    }
+
+    @Test
+    public void sendMailsInBatches() throws Exception
+    {
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(store, "hibernateStore", hibernateStore);
+        ReflectionUtils.setFieldValue(store, "batchSize", 3);
+
+        // Reproduce what the database mail listener does for each mail
+        for (int i = 0; i < 6; i++) {
+            MailStatus status = new MailStatus();
+            status.setMessageId("message" + i);
+            status.setState(MailState.PREPARE_SUCCESS);
+            store.save(status, Collections.emptyMap());
+
+            when(hibernateStore.executeRead(eq(xcontext), any())).thenReturn(Arrays.asList(status));
+            MailStatus loadedStatus = store.load("message" + i);
+            loadedStatus.setState(MailState.SEND_SUCCESS);
+            store.save(loadedStatus, Collections.emptyMap());
+        }
+
+        // Each prepare status is written right away (delete and insert) and the send results in 2 batches of 3
+        verify(hibernateStore, times(14)).executeWrite(eq(xcontext), any());
+        verify(hibernateStore, times(6)).executeRead(eq(xcontext), any());
+
+        int batches = 0;
+        for (int i = 0; i < this.logRule.size(); i++) {
+            if ("Saved a batch of [3] mail statuses".equals(this.logRule.getMessage(i))) {
+                batches++;
+            }
+        }
+        assertEquals(2, batches);
+    }
 }
@@ -78,6 +78,12 @@ public class EntityReference implements Serializable, Cloneable, Comparable<Enti
 
     private transient List<EntityReference> referenceList;
 
+    /**
+     * The cached hash code of the reference, 0 when not yet computed. Entity references are immutable so it can be
+     * calculated only once, which matters since they are used as keys in many maps and caches.
+     */
+    private transient int hashCode;
+
     /**
      * Clone an EntityReference.
      *
@@ -215,6 +221,7 @@ protected void setName(String name)
             throw new IllegalArgumentException("An Entity Reference name cannot be null or empty");
         }
         this.name = name;
+        this.hashCode = 0;
     }
 
     /**
@@ -236,6 +243,7 @@ public final String getName()
     protected void setParent(EntityReference parent)
     {
         this.parent = parent;
+        this.hashCode = 0;
     }
 
     /**
@@ -258,6 +266,7 @@ protected void setType(EntityType type)
             throw new IllegalArgumentException("An Entity Reference type cannot be null");
         }
         this.type = type;
+        this.hashCode = 0;
     }
 
     /**
@@ -295,6 +304,8 @@ protected void setParameters(Map<String, Serializable> parameters)
      */
     protected void setParameter(String name, Serializable value)
     {
+        this.hashCode = 0;
+
         if (value != null) {
             if (this.parameters == null) {
                 this.parameters = new TreeMap<>();
@@ -538,6 +549,11 @@ public boolean equals(Object obj)
 
         EntityReference ref = (EntityReference) obj;
 
+        // Cheap rejection when both hash codes are already known
+        if (this.hashCode != 0 && ref.hashCode != 0 && this.hashCode != ref.hashCode) {
+            return false;
+        }
+
         return name.equals(ref.name) && type.equals(ref.type)
             && (parent == null ? ref.parent == null : parent.equals(ref.parent))
             && (parameters == null ? ref.parameters == null : parameters.equals(ref.parameters));
@@ -638,8 +654,12 @@ public boolean equalsNonRecursive(EntityReference otherReference)
     @Override
     public int hashCode()
     {
-        return new HashCodeBuilder(3, 17).append(getName()).append(getType()).append(getParent())
-            .append(this.parameters).toHashCode();
+        if (this.hashCode == 0) {
+            this.hashCode = new HashCodeBuilder(3, 17).append(getName()).append(getType()).append(getParent())
+                .append(this.parameters).toHashCode();
+        }
+
+        return this.hashCode;
     }
 
     /**
@@ -21,6 +21,8 @@
 
 /**
  * Event generated when a notification filter preference is add or updated.
+ * <p>
+ * The event source is the reference of the user owning the preference.
  * 
  * @version $Id$
  * @since 10.11.4
@@ -167,7 +167,7 @@ public void deleteFilterPreference(DocumentReference user, String filterPreferen
             }
         }
 
-        this.observation.notify(new NotificationFilterPreferenceDeletedEvent(), null);
+        this.observation.notify(new NotificationFilterPreferenceDeletedEvent(), user);
     }
 
     /**
@@ -214,7 +214,7 @@ public void saveFilterPreferences(DocumentReference user,
             hibernateStore.endTransaction(context, true);
 
             for (int i = 0; i < filterPreferences.size(); ++i) {
-                this.observation.notify(new NotificationFilterPreferenceAddOrUpdatedEvent(), null);
+                this.observation.notify(new NotificationFilterPreferenceAddOrUpdatedEvent(), user);
             }
         } catch (Exception e) {
             if (hibernateStore != null) {
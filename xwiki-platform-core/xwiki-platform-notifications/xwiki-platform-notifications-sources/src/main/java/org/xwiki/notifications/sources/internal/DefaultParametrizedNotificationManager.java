@@ -20,14 +20,23 @@
 package org.xwiki.notifications.sources.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventStream;
@@ -37,6 +46,7 @@
 import org.xwiki.notifications.CompositeEvent;
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.internal.status.AbstractEventReadFilter;
 import org.xwiki.notifications.filters.internal.status.EventReadAlertFilter;
 import org.xwiki.notifications.filters.internal.status.EventReadEmailFilter;
 import org.xwiki.notifications.internal.SimilarityCalculator;
@@ -90,6 +100,12 @@ public class DefaultParametrizedNotificationManager implements ParametrizedNotif
     @Inject
     private PreferenceDateNotificationFilter preferenceDateNotificationFilter;
 
+    @Inject
+    private NotificationInbox inbox;
+
+    @Inject
+    private Logger logger;
+
     @Override
     public List<CompositeEvent> getEvents(NotificationParameters parameters)
             throws NotificationException
@@ -106,32 +122,45 @@ public List<CompositeEvent> getEvents(NotificationParameters parameters)
     private List<CompositeEvent> getEvents(List<CompositeEvent> results, NotificationParameters parameters)
             throws NotificationException
     {
+        // The first page of notifications can be served by the materialized inbox of the user, when enabled
+        if (this.inbox.isEnabled() && parameters.endDate == null
+            && (parameters.blackList == null || parameters.blackList.isEmpty())) {
+            if (getEventsFromInbox(results, parameters)) {
+                return results;
+            }
+            results.clear();
+        }
+
         // Because the user might not be able to see all notifications because of the rights, we take from the database
         // more events than expected and we will filter afterwards.
         int batchSize = parameters.expectedCount * 2;
-        int offset = 0;
         try {
+            // Prepare once what is needed to filter the events which could not be expressed in the query
+            EventFilterPlan filterPlan = new EventFilterPlan(parameters);
 
+            NotificationParameters cursor = parameters;
             boolean done = false;
             while (!done) {
                 // Create the query
-                Query query = queryGenerator.generateQuery(parameters);
+                Query query = queryGenerator.generateQuery(cursor);
                 if (query == null) {
                     return Collections.emptyList();
                 }
-                query.setLimit(batchSize).setOffset(offset);
+                query.setLimit(batchSize);
 
                 // Get a batch of events
                 List<Event> batch = eventStream.searchEvents(query);
 
-                done = addMatchingEventsToResults(batch, parameters, results);
+                done = addMatchingEventsToResults(batch, filterPlan, results);
                 if (!done) {
                     if (batch.size() < batchSize) {
                         // there are no more results to expect. stop.
                         done = true;
                     } else {
+                        // continue after the last event of the batch instead of reading again the previous ones
+                        cursor = seek(parameters, cursor, batch);
+                        done = cursor == null;
                         // grab a larger batch size next time to get more possible results
-                        offset += batchSize;
                         if (batchSize < MAX_BATCH_SIZE) {
                             batchSize <<= 1;
                         }
@@ -145,27 +174,111 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         }
     }
 
-    private boolean addMatchingEventsToResults(List<Event> batch, NotificationParameters parameters,
+    private boolean getEventsFromInbox(List<CompositeEvent> results, NotificationParameters parameters)
+    {
+        // The read status changes too often to be part of the inbox, it's checked afterwards
+        NotificationParameters inboxParameters = copy(parameters);
+        inboxParameters.onlyUnread = null;
+        inboxParameters.filters = parameters.filters.stream()
+            .filter(filter -> !(filter instanceof AbstractEventReadFilter)).collect(Collectors.toList());
+
+        try {
+            NotificationInbox.UserInbox userInbox = this.inbox.getInbox(inboxParameters);
+            if (userInbox == null) {
+                return false;
+            }
+
+            boolean complete = userInbox.isComplete();
+            List<Event> events = userInbox.getEvents();
+            if (Boolean.TRUE.equals(parameters.onlyUnread)) {
+                events = this.inbox.getUnreadEvents(events, parameters.user);
+            }
+
+            // If the inbox contains all the matching events there is no need to search the event stream even when the
+            // expected count is not reached
+            return addMatchingEventsToResults(events, new EventFilterPlan(parameters), results) || complete;
+        } catch (Exception e) {
+            this.logger.warn("Failed to get the notifications of user [{}] from the inbox: [{}]", parameters.user,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            return false;
+        }
+    }
+
+    /**
+     * Keyset pagination: the events being sorted by descending date, the next batch starts at the date of the last
+     * event of the current batch, excluding the events with that same date which have already been read.
+     *
+     * @param parameters the parameters of the request
+     * @param cursor the parameters used to get the current batch
+     * @param batch the current batch
+     * @return the parameters to use to get the next batch or {@code null} if it cannot be determined
+     */
+    private NotificationParameters seek(NotificationParameters parameters, NotificationParameters cursor,
+        List<Event> batch)
+    {
+        Date lastDate = batch.get(batch.size() - 1).getDate();
+        if (lastDate == null) {
+            return null;
+        }
+
+        NotificationParameters next = copy(parameters);
+        next.endDate = lastDate;
+
+        // Keep the events already excluded at that date when several batches end on the same date
+        Collection<String> previousBlackList = parameters.blackList;
+        if (cursor.endDate != null && cursor.endDate.getTime() == lastDate.getTime()) {
+            previousBlackList = cursor.blackList;
+        }
+        next.blackList = (previousBlackList != null) ? new ArrayList<>(previousBlackList) : new ArrayList<>();
+        for (Event event : batch) {
+            if (event.getId() != null && event.getDate() != null && event.getDate().getTime() == lastDate.getTime()) {
+                next.blackList.add(event.getId());
+            }
+        }
+
+        return next;
+    }
+
+    private NotificationParameters copy(NotificationParameters parameters)
+    {
+        NotificationParameters copy = new NotificationParameters();
+        copy.user = parameters.user;
+        copy.format = parameters.format;
+        copy.expectedCount = parameters.expectedCount;
+        copy.endDate = parameters.endDate;
+        copy.fromDate = parameters.fromDate;
+        copy.onlyUnread = parameters.onlyUnread;
+        copy.blackList = parameters.blackList;
+        copy.preferences = parameters.preferences;
+        copy.filterPreferences = parameters.filterPreferences;
+        copy.filters = parameters.filters;
+
+        return copy;
+    }
+
+    private boolean addMatchingEventsToResults(List<Event> batch, EventFilterPlan filterPlan,
         List<CompositeEvent> results) throws EventStreamException, NotificationException
     {
         boolean done = false;
+        // Check the rights of the user on all the documents of the batch at once
+        Set<DocumentReference> viewableDocuments = getViewableDocuments(batch, filterPlan.parameters);
         // Add to the results the events the user has the right to see
         for (Event event : batch) {
             DocumentReference document = event.getDocument();
             // Don't record events concerning a doc the user cannot see
-            if (document != null && !authorizationManager.hasAccess(Right.VIEW, parameters.user,
-                document)) {
+            if (document != null && !viewableDocuments.contains(document)) {
                 continue;
             }
 
-            if (filterEvent(event, parameters)) {
+            if (filterPlan.filterEvent(event)) {
                 continue;
             }
 
             // Record this event
             recordEvent(results, event);
             // If the expected count is reached, stop now
-            if (results.size() >= parameters.expectedCount) {
+            if (results.size() >= filterPlan.parameters.expectedCount) {
                 done = true;
                 break;
             }
@@ -173,38 +286,83 @@ private boolean addMatchingEventsToResults(List<Event> batch, NotificationParame
         return done;
     }
 
-    private boolean filterEvent(Event event, NotificationParameters parameters) throws EventStreamException
+    private Set<DocumentReference> getViewableDocuments(List<Event> batch, NotificationParameters parameters)
     {
-        // Don't record events that have a target that don't include the current user
-        if (!event.getTarget().isEmpty()
-            && (parameters.user == null || !event.getTarget().contains(serializer.serialize(parameters.user)))) {
-            return true;
+        Set<DocumentReference> documents = new LinkedHashSet<>();
+        for (Event event : batch) {
+            if (event.getDocument() != null) {
+                documents.add(event.getDocument());
+            }
         }
 
-        // Don't record events that concern an event type for which we don't have a descriptor and
-        // don't record events that are before the starting date of the corresponding preference (the query do not
-        // guarantee that)
-        if (!recordableEventDescriptorHelper.hasDescriptor(event.getType(), parameters.user)
-                || preferenceDateNotificationFilter.shouldFilter(event, parameters.preferences)) {
-            return true;
+        return new HashSet<>(this.authorizationManager.filterAccessible(Right.VIEW, parameters.user, documents));
+    }
+
+    /**
+     * The filtering which is applied on the loaded events, prepared once for all the batches of a request. Most of the
+     * filtering is done by the query, this only post-filters what cannot be (fully) expressed in it.
+     */
+    private class EventFilterPlan
+    {
+        private final NotificationParameters parameters;
+
+        private final String userTarget;
+
+        private final List<NotificationFilter> filters;
+
+        private final Map<String, Boolean> descriptors = new HashMap<>();
+
+        EventFilterPlan(NotificationParameters parameters)
+        {
+            this.parameters = parameters;
+            this.userTarget = parameters.user != null ? serializer.serialize(parameters.user) : null;
+            this.filters = new ArrayList<>(parameters.filters);
+            Collections.sort(this.filters);
         }
 
-        List<NotificationFilter> filters = new ArrayList<>(parameters.filters);
-        Collections.sort(filters);
-        for (NotificationFilter filter : filters) {
-            NotificationFilter.FilterPolicy policy = filter.filterEvent(event, parameters.user,
-                    parameters.filterPreferences, parameters.format);
-            switch (policy) {
-                case FILTER:
-                    return true;
-                case KEEP:
-                    return false;
-                default:
-                    // Do nothing
+        boolean filterEvent(Event event) throws EventStreamException
+        {
+            // Don't record events that have a target that don't include the current user (already excluded by the query
+            // but the store might not support it)
+            if (!event.getTarget().isEmpty()
+                && (this.userTarget == null || !event.getTarget().contains(this.userTarget))) {
+                return true;
+            }
+
+            // Don't record events that concern an event type for which we don't have a descriptor and
+            // don't record events that are before the starting date of the corresponding preference (the query do not
+            // guarantee that)
+            if (!hasDescriptor(event.getType())
+                    || preferenceDateNotificationFilter.shouldFilter(event, this.parameters.preferences)) {
+                return true;
+            }
+
+            for (NotificationFilter filter : this.filters) {
+                NotificationFilter.FilterPolicy policy = filter.filterEvent(event, this.parameters.user,
+                        this.parameters.filterPreferences, this.parameters.format);
+                switch (policy) {
+                    case FILTER:
+                        return true;
+                    case KEEP:
+                        return false;
+                    default:
+                        // Do nothing
+                }
             }
+
+            return false;
         }
 
-        return false;
+        private boolean hasDescriptor(String eventType) throws EventStreamException
+        {
+            Boolean result = this.descriptors.get(eventType);
+            if (result == null) {
+                result = recordableEventDescriptorHelper.hasDescriptor(eventType, this.parameters.user);
+                this.descriptors.put(eventType, result);
+            }
+
+            return result;
+        }
     }
 
     private List<String> getEventsIds(List<Event> events)
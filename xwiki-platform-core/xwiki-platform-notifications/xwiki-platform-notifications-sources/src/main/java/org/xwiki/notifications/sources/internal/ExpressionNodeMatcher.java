@@ -0,0 +1,297 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.filters.expression.AndNode;
+import org.xwiki.notifications.filters.expression.BooleanValueNode;
+import org.xwiki.notifications.filters.expression.DateValueNode;
+import org.xwiki.notifications.filters.expression.EndsWith;
+import org.xwiki.notifications.filters.expression.EntityReferenceNode;
+import org.xwiki.notifications.filters.expression.EqualsNode;
+import org.xwiki.notifications.filters.expression.ExpressionNode;
+import org.xwiki.notifications.filters.expression.GreaterThanNode;
+import org.xwiki.notifications.filters.expression.InNode;
+import org.xwiki.notifications.filters.expression.LesserThanNode;
+import org.xwiki.notifications.filters.expression.NotEqualsNode;
+import org.xwiki.notifications.filters.expression.NotNode;
+import org.xwiki.notifications.filters.expression.OrNode;
+import org.xwiki.notifications.filters.expression.PropertyValueNode;
+import org.xwiki.notifications.filters.expression.StartsWith;
+import org.xwiki.notifications.filters.expression.StringValueNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractBinaryOperatorNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractValueNode;
+
+/**
+ * Evaluate an {@link ExpressionNode} against an event in memory, without querying the event stream.
+ * <p>
+ * The evaluation uses a three-valued logic: the result is {@code null} when the expression cannot be evaluated
+ * reliably in memory (e.g. it contains a sub query, it relies on a property which is stored differently in the
+ * database, or it compares strings which the database might consider equal), in which case the caller should fall
+ * back on the HQL query generated by {@link ExpressionNodeToHQLConverter}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = ExpressionNodeMatcher.class)
+@Singleton
+public class ExpressionNodeMatcher
+{
+    /**
+     * The value of a node which cannot be evaluated in memory.
+     */
+    private static final Object UNKNOWN = new Object();
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * @param node the expression to evaluate
+     * @param event the event to match
+     * @return {@link Boolean#TRUE} if the event matches the expression, {@link Boolean#FALSE} if it does not, and
+     *         {@code null} if it cannot be determined in memory
+     */
+    public Boolean matches(ExpressionNode node, Event event)
+    {
+        if (node instanceof AndNode) {
+            return and(matches(((AndNode) node).getLeftOperand(), event),
+                matches(((AndNode) node).getRightOperand(), event));
+        } else if (node instanceof OrNode) {
+            return or(matches(((OrNode) node).getLeftOperand(), event),
+                matches(((OrNode) node).getRightOperand(), event));
+        } else if (node instanceof NotNode) {
+            Boolean result = matches(((NotNode) node).getOperand(), event);
+            return result != null ? !result : null;
+        } else if (node instanceof OrderByNode) {
+            return matches(((OrderByNode) node).getQuery(), event);
+        } else if (node instanceof TargetedEventNode) {
+            return matchesTarget((TargetedEventNode) node, event);
+        } else if (node instanceof InNode) {
+            return matchesIn((InNode) node, event);
+        } else if (node instanceof AbstractBinaryOperatorNode) {
+            return matchesComparison((AbstractBinaryOperatorNode) node, event);
+        }
+
+        // Sub queries, read status, etc.
+        return null;
+    }
+
+    private Boolean and(Boolean left, Boolean right)
+    {
+        if (Boolean.FALSE.equals(left) || Boolean.FALSE.equals(right)) {
+            return false;
+        }
+
+        return left != null && right != null ? Boolean.TRUE : null;
+    }
+
+    private Boolean or(Boolean left, Boolean right)
+    {
+        if (Boolean.TRUE.equals(left) || Boolean.TRUE.equals(right)) {
+            return true;
+        }
+
+        return left != null && right != null ? Boolean.FALSE : null;
+    }
+
+    private Boolean matchesTarget(TargetedEventNode node, Event event)
+    {
+        if (event.getTarget() == null || event.getTarget().isEmpty()) {
+            return true;
+        }
+
+        if (node.getUser() == null) {
+            return false;
+        }
+
+        String user = this.serializer.serialize(node.getUser());
+        if (event.getTarget().contains(user)) {
+            return true;
+        }
+
+        // The database might be case insensitive
+        return event.getTarget().stream().anyMatch(user::equalsIgnoreCase) ? null : Boolean.FALSE;
+    }
+
+    private Boolean matchesIn(InNode node, Event event)
+    {
+        Object left = getValue(node.getLeftOperand(), event);
+
+        Boolean result = false;
+        for (AbstractValueNode value : node.getValues()) {
+            result = or(result, equal(left, getValue(value, event)));
+        }
+
+        return result;
+    }
+
+    private Boolean matchesComparison(AbstractBinaryOperatorNode node, Event event)
+    {
+        Object left = getValue(node.getLeftOperand(), event);
+        Object right = getValue(node.getRightOperand(), event);
+
+        if (node instanceof EqualsNode) {
+            return equal(left, right);
+        } else if (node instanceof NotEqualsNode) {
+            Boolean result = equal(left, right);
+            return result != null ? !result : null;
+        } else if (node instanceof StartsWith) {
+            return startsWith(left, right);
+        } else if (node instanceof EndsWith) {
+            return endsWith(left, right);
+        } else if (node instanceof GreaterThanNode) {
+            Integer comparison = compareDates(left, right);
+            return comparison != null ? comparison >= 0 : null;
+        } else if (node instanceof LesserThanNode) {
+            Integer comparison = compareDates(left, right);
+            return comparison != null ? comparison <= 0 : null;
+        }
+
+        return null;
+    }
+
+    private Boolean equal(Object left, Object right)
+    {
+        if (left == UNKNOWN || right == UNKNOWN || left == null || right == null) {
+            return null;
+        }
+
+        if (left instanceof String && right instanceof String) {
+            if (left.equals(right)) {
+                return true;
+            }
+
+            // The database might be case insensitive
+            return ((String) left).equalsIgnoreCase((String) right) ? null : Boolean.FALSE;
+        } else if (left instanceof Date && right instanceof Date) {
+            Integer comparison = compareDates(left, right);
+            return comparison != null ? comparison == 0 : null;
+        } else if (left instanceof Boolean && right instanceof Boolean) {
+            return left.equals(right);
+        }
+
+        return null;
+    }
+
+    private Boolean startsWith(Object left, Object right)
+    {
+        if (!(left instanceof String) || !(right instanceof String)) {
+            return null;
+        }
+
+        String value = (String) left;
+        String prefix = (String) right;
+        if (value.startsWith(prefix)) {
+            return true;
+        }
+
+        // The database might be case insensitive
+        return value.regionMatches(true, 0, prefix, 0, prefix.length()) ? null : Boolean.FALSE;
+    }
+
+    private Boolean endsWith(Object left, Object right)
+    {
+        if (!(left instanceof String) || !(right instanceof String)) {
+            return null;
+        }
+
+        String value = (String) left;
+        String suffix = (String) right;
+        if (value.endsWith(suffix)) {
+            return true;
+        }
+
+        // The database might be case insensitive
+        int offset = value.length() - suffix.length();
+        return offset >= 0 && value.regionMatches(true, offset, suffix, 0, suffix.length()) ? null : Boolean.FALSE;
+    }
+
+    private Integer compareDates(Object left, Object right)
+    {
+        if (!(left instanceof Date) || !(right instanceof Date)) {
+            return null;
+        }
+
+        long leftTime = ((Date) left).getTime();
+        long rightTime = ((Date) right).getTime();
+
+        // Some databases don't store the milliseconds
+        if (TimeUnit.MILLISECONDS.toSeconds(leftTime) == TimeUnit.MILLISECONDS.toSeconds(rightTime)
+            && leftTime != rightTime) {
+            return null;
+        }
+
+        return Long.compare(leftTime, rightTime);
+    }
+
+    private Object getValue(Object node, Event event)
+    {
+        if (node instanceof PropertyValueNode) {
+            return getProperty((PropertyValueNode) node, event);
+        } else if (node instanceof StringValueNode) {
+            return ((StringValueNode) node).getContent();
+        } else if (node instanceof EntityReferenceNode) {
+            return this.serializer.serialize(((EntityReferenceNode) node).getContent());
+        } else if (node instanceof DateValueNode) {
+            return ((DateValueNode) node).getContent();
+        } else if (node instanceof BooleanValueNode) {
+            return ((BooleanValueNode) node).getContent();
+        }
+
+        return UNKNOWN;
+    }
+
+    private Object getProperty(PropertyValueNode node, Event event)
+    {
+        switch (node.getContent()) {
+            case ID:
+                return event.getId();
+            case GROUP_ID:
+                return event.getGroupId();
+            case STREAM:
+                return event.getStream();
+            case DATE:
+                return event.getDate();
+            case APPLICATION:
+                return event.getApplication();
+            case BODY:
+                return event.getBody();
+            case TYPE:
+                return event.getType();
+            case HIDDEN:
+                return event.getHidden();
+            case TITLE:
+                return event.getTitle();
+            case WIKI:
+                return event.getWiki() != null ? event.getWiki().getName() : null;
+            default:
+                // The other properties are stored in a form which can be different from the one of the event
+                return UNKNOWN;
+        }
+    }
+}
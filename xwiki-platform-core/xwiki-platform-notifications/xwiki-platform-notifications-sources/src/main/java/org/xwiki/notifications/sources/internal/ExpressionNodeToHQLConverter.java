@@ -319,6 +319,16 @@ private String parseOtherOperation(AbstractOperatorNode operator, HQLQuery resul
 
             result.getQueryParameters().put("userStatusRead", serializer.serialize(inList.getUser()));
 
+        } else if (operator instanceof TargetedEventNode) {
+            TargetedEventNode targetedEvent = (TargetedEventNode) operator;
+
+            if (targetedEvent.getUser() != null) {
+                returnValue = "event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target)";
+
+                result.getQueryParameters().put("userTarget", serializer.serialize(targetedEvent.getUser()));
+            } else {
+                returnValue = "event.target IS EMPTY";
+            }
         } else {
             returnValue = StringUtils.EMPTY;
         }
@@ -0,0 +1,545 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.namespace.NamespaceContextExecutor;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStatusManager;
+import org.xwiki.eventstream.EventStream;
+import org.xwiki.model.namespace.WikiNamespace;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.filters.expression.AndNode;
+import org.xwiki.notifications.filters.expression.EventProperty;
+import org.xwiki.notifications.filters.expression.InNode;
+import org.xwiki.notifications.filters.expression.PropertyValueNode;
+import org.xwiki.notifications.filters.expression.StringValueNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
+import org.xwiki.notifications.filters.expression.generics.AbstractValueNode;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.query.Query;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Optional materialized per-user inbox of notification events.
+ * <p>
+ * An inbox is associated to the query generated for a given set of {@link NotificationParameters} (without end date,
+ * black list or read status, but including the start date, so that requests with different start dates get different
+ * inboxes) and contains the most recent events matching this query. It is built lazily the first time it's needed and
+ * then maintained by a fan-out thread which loads the new events stored in the event stream once per batch and matches
+ * them in memory against the query of each inbox, only querying the event stream for the events which cannot be
+ * matched in memory. Getting the first page of notifications of a user then only requires to post-filter (rights, read
+ * status) the content of the inbox.
+ * <p>
+ * Any change in the preferences of the user produces a different query, and thus a different inbox. Since some
+ * filters rely on sub queries, the inboxes of a user are also discarded when the filter preferences of the user are
+ * modified and rebuilt on the next read.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = NotificationInbox.class)
+@Singleton
+public class NotificationInbox implements Initializable, Disposable
+{
+    private static final String PROPERTY_PREFIX = "notifications.inbox.";
+
+    private static final String KEY_SEPARATOR = "/";
+
+    /**
+     * The maximum number of new events to handle in a single fan-out query.
+     */
+    private static final int FAN_OUT_BATCH_SIZE = 100;
+
+    private static final Comparator<Event> MOST_RECENT_FIRST =
+        Comparator.comparing(Event::getDate, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    @Inject
+    private QueryGenerator queryGenerator;
+
+    @Inject
+    private ExpressionNodeMatcher matcher;
+
+    @Inject
+    private EventStream eventStream;
+
+    @Inject
+    private EventStatusManager eventStatusManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private NamespaceContextExecutor namespaceContextExecutor;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    private boolean enabled;
+
+    private int size;
+
+    private Map<String, UserInbox> inboxes;
+
+    private final BlockingQueue<String> newEvents = new LinkedBlockingQueue<>();
+
+    private Thread fanOutThread;
+
+    /**
+     * The most recent events matching a given query.
+     */
+    public final class UserInbox
+    {
+        private final String key;
+
+        private final String user;
+
+        private final String wiki;
+
+        private final AbstractOperatorNode expression;
+
+        private final List<Event> events = new ArrayList<>();
+
+        private boolean complete = true;
+
+        private volatile boolean ready;
+
+        private UserInbox(String key, String user, String wiki, AbstractOperatorNode expression)
+        {
+            this.key = key;
+            this.user = user;
+            this.wiki = wiki;
+            this.expression = expression;
+        }
+
+        /**
+         * @return the events of the inbox, the most recent first
+         */
+        public synchronized List<Event> getEvents()
+        {
+            return new ArrayList<>(this.events);
+        }
+
+        /**
+         * @return {@code true} if the inbox contains all the events matching its query, {@code false} if older events
+         *         had to be dropped to respect the size of the inbox
+         */
+        public synchronized boolean isComplete()
+        {
+            return this.complete;
+        }
+
+        private synchronized void removeEvent(String id)
+        {
+            this.events.removeIf(event -> id.equals(event.getId()));
+        }
+
+        private synchronized void addEvents(Collection<Event> newEvents, boolean truncated)
+        {
+            Set<String> ids = new HashSet<>();
+            for (Event event : this.events) {
+                ids.add(event.getId());
+            }
+            for (Event event : newEvents) {
+                if (ids.add(event.getId())) {
+                    this.events.add(event);
+                }
+            }
+
+            Collections.sort(this.events, MOST_RECENT_FIRST);
+
+            if (truncated) {
+                this.complete = false;
+            }
+            if (this.events.size() > size) {
+                this.events.subList(size, this.events.size()).clear();
+                this.complete = false;
+            }
+        }
+    }
+
+    private class FanOutRunnable implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    List<String> ids = new ArrayList<>();
+                    ids.add(newEvents.take());
+                    newEvents.drainTo(ids, FAN_OUT_BATCH_SIZE - 1);
+
+                    fanOut(ids);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    logger.error("Failed to dispatch new events to the notification inboxes", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.enabled = this.configuration.getProperty(PROPERTY_PREFIX + "enabled", false);
+        this.size = this.configuration.getProperty(PROPERTY_PREFIX + "size", 100);
+
+        int maxInboxes = this.configuration.getProperty(PROPERTY_PREFIX + "maxInboxes", 1000);
+        this.inboxes = Collections.synchronizedMap(new LinkedHashMap<String, UserInbox>(16, 0.75F, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserInbox> eldest)
+            {
+                return size() > maxInboxes;
+            }
+        });
+    }
+
+    /**
+     * @return {@code true} if the materialized inboxes are enabled
+     */
+    public boolean isEnabled()
+    {
+        return this.enabled;
+    }
+
+    /**
+     * Get (and build if needed) the inbox corresponding to the passed parameters.
+     *
+     * @param parameters the parameters of the notifications to get, without end date, black list or read status
+     *            filters (the start date is part of the inbox key)
+     * @return the inbox or {@code null} if there is no event to expect
+     * @throws Exception when failing to build the inbox
+     */
+    public UserInbox getInbox(NotificationParameters parameters) throws Exception
+    {
+        AbstractOperatorNode expression = getExpression(parameters);
+        if (expression == null) {
+            return null;
+        }
+
+        String user = parameters.user != null ? this.serializer.serialize(parameters.user) : "";
+        String wiki = this.wikiDescriptorManager.getCurrentWikiId();
+        String key = getKey(user, wiki, expression);
+
+        UserInbox inbox;
+        boolean build = false;
+        synchronized (this.inboxes) {
+            inbox = this.inboxes.get(key);
+            if (inbox == null) {
+                // Register the inbox before building it so that it does not miss the events saved in the meantime
+                inbox = new UserInbox(key, user, wiki, expression);
+                this.inboxes.put(key, inbox);
+                build = true;
+            }
+        }
+
+        if (build) {
+            build(inbox);
+        }
+
+        return inbox.ready ? inbox : null;
+    }
+
+    /**
+     * Filter the events which have already been read by the passed user.
+     *
+     * @param events the events to filter
+     * @param user the user
+     * @return the events which have not been read by the user
+     * @throws Exception when failing to get the status of the events
+     */
+    public List<Event> getUnreadEvents(List<Event> events, DocumentReference user) throws Exception
+    {
+        if (events.isEmpty() || user == null) {
+            return events;
+        }
+
+        Set<String> readEvents = new HashSet<>();
+        for (EventStatus status : this.eventStatusManager.getEventStatus(events,
+            Collections.singletonList(this.serializer.serialize(user)))) {
+            if (status.isRead()) {
+                readEvents.add(status.getEvent().getId());
+            }
+        }
+
+        List<Event> unreadEvents = new ArrayList<>(events.size());
+        for (Event event : events) {
+            if (!readEvents.contains(event.getId())) {
+                unreadEvents.add(event);
+            }
+        }
+
+        return unreadEvents;
+    }
+
+    /**
+     * Schedule the dispatch of a new event to the existing inboxes.
+     *
+     * @param event the event stored in the event stream
+     */
+    public void onEventAdded(Event event)
+    {
+        onEventAdded(event.getId());
+    }
+
+    /**
+     * Schedule the dispatch of a new event to the existing inboxes.
+     *
+     * @param eventId the identifier of the event stored in the event stream (possibly by another cluster member)
+     */
+    public void onEventAdded(String eventId)
+    {
+        if (this.enabled && eventId != null && !this.inboxes.isEmpty()) {
+            this.newEvents.offer(eventId);
+
+            startFanOutThread();
+        }
+    }
+
+    /**
+     * Remove a deleted event from the existing inboxes.
+     *
+     * @param event the event deleted from the event stream
+     */
+    public void onEventDeleted(Event event)
+    {
+        onEventDeleted(event.getId());
+    }
+
+    /**
+     * Remove a deleted event from the existing inboxes.
+     *
+     * @param eventId the identifier of the event deleted from the event stream (possibly by another cluster member)
+     */
+    public void onEventDeleted(String eventId)
+    {
+        if (this.enabled && eventId != null) {
+            List<UserInbox> currentInboxes;
+            synchronized (this.inboxes) {
+                currentInboxes = new ArrayList<>(this.inboxes.values());
+            }
+
+            for (UserInbox inbox : currentInboxes) {
+                inbox.removeEvent(eventId);
+            }
+        }
+    }
+
+    /**
+     * Discard the inboxes of the passed user (they will be rebuilt when needed).
+     *
+     * @param user the user or {@code null} to discard all the inboxes
+     */
+    public void invalidate(DocumentReference user)
+    {
+        invalidate(user != null ? this.serializer.serialize(user) : null);
+    }
+
+    /**
+     * Discard the inboxes of the passed user (they will be rebuilt when needed).
+     *
+     * @param user the serialized reference of the user or {@code null} to discard all the inboxes
+     */
+    public void invalidate(String user)
+    {
+        if (user == null) {
+            this.inboxes.clear();
+        } else {
+            String prefix = user + KEY_SEPARATOR;
+            synchronized (this.inboxes) {
+                this.inboxes.keySet().removeIf(key -> key.startsWith(prefix));
+            }
+        }
+    }
+
+    private AbstractOperatorNode getExpression(NotificationParameters parameters) throws Exception
+    {
+        // The order is re-added when generating the actual queries
+        AbstractOperatorNode node = (AbstractOperatorNode) this.queryGenerator.generateQueryExpression(parameters);
+
+        return node instanceof OrderByNode ? ((OrderByNode) node).getQuery() : node;
+    }
+
+    private String getKey(String user, String wiki, AbstractOperatorNode expression)
+    {
+        ExpressionNodeToHQLConverter.HQLQuery hql = this.queryGenerator.convert(expression);
+
+        StringBuilder key = new StringBuilder();
+        key.append(user).append(KEY_SEPARATOR).append(wiki).append(KEY_SEPARATOR).append(hql.getQuery());
+        // Sort the parameters to get a stable key
+        key.append(new TreeMap<>(hql.getQueryParameters()));
+
+        return key.toString();
+    }
+
+    private void build(UserInbox inbox) throws Exception
+    {
+        try {
+            Query query = this.queryGenerator.generateQuery(new OrderByNode(inbox.expression,
+                new PropertyValueNode(EventProperty.DATE), OrderByNode.Order.DESC));
+            query.setLimit(this.size);
+
+            List<Event> events = this.eventStream.searchEvents(query);
+
+            inbox.addEvents(events, events.size() >= this.size);
+            inbox.ready = true;
+        } catch (Exception e) {
+            this.inboxes.remove(inbox.key, inbox);
+
+            throw e;
+        }
+    }
+
+    private void fanOut(List<String> ids)
+    {
+        Map<String, List<UserInbox>> inboxesByWiki = new HashMap<>();
+        synchronized (this.inboxes) {
+            for (UserInbox inbox : this.inboxes.values()) {
+                inboxesByWiki.computeIfAbsent(inbox.wiki, key -> new ArrayList<>()).add(inbox);
+            }
+        }
+
+        for (Map.Entry<String, List<UserInbox>> entry : inboxesByWiki.entrySet()) {
+            try {
+                this.namespaceContextExecutor.execute(new WikiNamespace(entry.getKey()), () -> {
+                    // Load the new events only once for all the inboxes of the wiki
+                    List<Event> events =
+                        this.eventStream.searchEvents(this.queryGenerator.generateQuery(getIdNode(ids)));
+                    if (!events.isEmpty()) {
+                        for (UserInbox inbox : entry.getValue()) {
+                            fanOut(events, inbox);
+                        }
+                    }
+
+                    return null;
+                });
+            } catch (Exception e) {
+                this.logger.warn("Failed to dispatch new events to the notification inboxes of wiki [{}], "
+                    + "discarding them", entry.getKey(), e);
+
+                for (UserInbox inbox : entry.getValue()) {
+                    this.inboxes.remove(inbox.key, inbox);
+                }
+            }
+        }
+    }
+
+    private void fanOut(List<Event> events, UserInbox inbox)
+    {
+        try {
+            List<Event> matchingEvents = new ArrayList<>();
+            List<String> unknownEvents = new ArrayList<>();
+            for (Event event : events) {
+                Boolean matches = this.matcher.matches(inbox.expression, event);
+                if (matches == null) {
+                    unknownEvents.add(event.getId());
+                } else if (matches) {
+                    matchingEvents.add(event);
+                }
+            }
+
+            // Only query the event stream for the events which cannot be matched in memory (e.g. sub queries)
+            if (!unknownEvents.isEmpty()) {
+                matchingEvents.addAll(this.eventStream.searchEvents(
+                    this.queryGenerator.generateQuery(new AndNode(inbox.expression, getIdNode(unknownEvents)))));
+            }
+
+            if (!matchingEvents.isEmpty()) {
+                inbox.addEvents(matchingEvents, false);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to update the notification inbox of user [{}], discarding it", inbox.user, e);
+
+            this.inboxes.remove(inbox.key, inbox);
+        }
+    }
+
+    private InNode getIdNode(List<String> ids)
+    {
+        List<AbstractValueNode> values = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            values.add(new StringValueNode(id));
+        }
+
+        return new InNode(new PropertyValueNode(EventProperty.ID), values);
+    }
+
+    private synchronized void startFanOutThread()
+    {
+        if (this.fanOutThread == null || !this.fanOutThread.isAlive()) {
+            this.fanOutThread =
+                new Thread(new ExecutionContextRunnable(new FanOutRunnable(), this.componentManager));
+            this.fanOutThread.setName("Notification inbox fan-out thread");
+            this.fanOutThread.setDaemon(true);
+            this.fanOutThread.setPriority(Thread.NORM_PRIORITY - 1);
+            this.fanOutThread.start();
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.fanOutThread != null) {
+            this.fanOutThread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.eventstream.events.EventStreamAddedEvent;
+import org.xwiki.eventstream.events.EventStreamDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceAddOrUpdatedEvent;
+import org.xwiki.notifications.filters.internal.event.NotificationFilterPreferenceDeletedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
+import org.xwiki.observation.remote.RemoteObservationManagerContext;
+
+/**
+ * Keep the {@link NotificationInbox} up to date.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Singleton
+@Named(NotificationInboxListener.NAME)
+public class NotificationInboxListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "NotificationInboxListener";
+
+    @Inject
+    private NotificationInbox inbox;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private ObservationManager observationManager;
+
+    @Inject
+    private RemoteObservationManagerContext remoteObservationManagerContext;
+
+    /**
+     * The default constructor.
+     */
+    public NotificationInboxListener()
+    {
+        super(NAME, new EventStreamAddedEvent(), new EventStreamDeletedEvent(),
+            new NotificationFilterPreferenceAddOrUpdatedEvent(), new NotificationFilterPreferenceDeletedEvent(),
+            new NotificationInboxUpdatedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (this.inbox.isEnabled()) {
+            if (event instanceof NotificationInboxUpdatedEvent) {
+                // Only the updates coming from the other cluster members are not already handled
+                if (this.remoteObservationManagerContext.isRemoteState()) {
+                    onRemoteEvent((NotificationInboxUpdatedEvent) event, (String) source);
+                }
+            } else if (event instanceof EventStreamAddedEvent) {
+                String eventId = ((org.xwiki.eventstream.Event) source).getId();
+                this.inbox.onEventAdded(eventId);
+                notifyRemote(NotificationInboxUpdatedEvent.Type.EVENT_ADDED, eventId);
+            } else if (event instanceof EventStreamDeletedEvent) {
+                String eventId = ((org.xwiki.eventstream.Event) source).getId();
+                this.inbox.onEventDeleted(eventId);
+                notifyRemote(NotificationInboxUpdatedEvent.Type.EVENT_DELETED, eventId);
+            } else {
+                // The source is the user owning the modified filter preference (if known)
+                String user =
+                    source instanceof DocumentReference ? this.serializer.serialize((DocumentReference) source) : null;
+                this.inbox.invalidate(user);
+                notifyRemote(NotificationInboxUpdatedEvent.Type.INVALIDATED, user);
+            }
+        }
+    }
+
+    private void onRemoteEvent(NotificationInboxUpdatedEvent event, String source)
+    {
+        switch (event.getType()) {
+            case EVENT_ADDED:
+                // The event stream storage is shared by the cluster members
+                this.inbox.onEventAdded(source);
+                break;
+            case EVENT_DELETED:
+                this.inbox.onEventDeleted(source);
+                break;
+            default:
+                this.inbox.invalidate(source);
+                break;
+        }
+    }
+
+    private void notifyRemote(NotificationInboxUpdatedEvent.Type type, String source)
+    {
+        // The remote observation manager sends this event to the other cluster members (if any)
+        this.observationManager.notify(new NotificationInboxUpdatedEvent(type), source);
+    }
+}
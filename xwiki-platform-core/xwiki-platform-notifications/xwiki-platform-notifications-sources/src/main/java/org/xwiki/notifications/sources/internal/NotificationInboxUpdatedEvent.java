@@ -0,0 +1,99 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.io.Serializable;
+
+import org.xwiki.observation.event.Event;
+
+/**
+ * Event sent to the other cluster members when a change requires to update their {@link NotificationInbox}. The
+ * events of the event stream and of the filter preferences are not serializable so they are not shared with the
+ * other cluster members.
+ * <p>
+ * The event also send the following parameters:
+ * </p>
+ * <ul>
+ * <li>source: the identifier of the added or deleted event, or the serialized reference of the user whose inboxes
+ * should be discarded ({@code null} for all the users)</li>
+ * <li>data: null</li>
+ * </ul>
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class NotificationInboxUpdatedEvent implements Event, Serializable
+{
+    /**
+     * The kind of update.
+     */
+    public enum Type
+    {
+        /**
+         * An event has been added to the event stream.
+         */
+        EVENT_ADDED,
+
+        /**
+         * An event has been deleted from the event stream.
+         */
+        EVENT_DELETED,
+
+        /**
+         * The inboxes of a user must be discarded.
+         */
+        INVALIDATED
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final Type type;
+
+    /**
+     * Match any {@link NotificationInboxUpdatedEvent}.
+     */
+    public NotificationInboxUpdatedEvent()
+    {
+        this(null);
+    }
+
+    /**
+     * @param type the kind of update
+     */
+    public NotificationInboxUpdatedEvent(Type type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * @return the kind of update
+     */
+    public Type getType()
+    {
+        return this.type;
+    }
+
+    @Override
+    public boolean matches(Object otherEvent)
+    {
+        return otherEvent instanceof NotificationInboxUpdatedEvent
+            && (this.type == null || this.type == ((NotificationInboxUpdatedEvent) otherEvent).type);
+    }
+}
@@ -103,7 +103,20 @@
      */
     public Query generateQuery(NotificationParameters parameters) throws QueryException, EventStreamException
     {
-        ExpressionNodeToHQLConverter.HQLQuery result = hqlConverter.parse(generateQueryExpression(parameters));
+        return generateQuery(generateQueryExpression(parameters));
+    }
+
+    /**
+     * Generate the query corresponding to the passed expression.
+     *
+     * @param expression the expression to convert
+     * @return the query to execute or {@code null} if the expression is empty
+     * @throws QueryException if error happens
+     * @since 11.3RC1
+     */
+    public Query generateQuery(ExpressionNode expression) throws QueryException
+    {
+        ExpressionNodeToHQLConverter.HQLQuery result = convert(expression);
         if (result.getQuery().isEmpty()) {
             return null;
         }
@@ -116,6 +129,16 @@ public Query generateQuery(NotificationParameters parameters) throws QueryExcept
         return query;
     }
 
+    /**
+     * @param expression the expression to convert
+     * @return the HQL corresponding to the passed expression
+     * @since 11.3RC1
+     */
+    public ExpressionNodeToHQLConverter.HQLQuery convert(ExpressionNode expression)
+    {
+        return hqlConverter.parse(expression);
+    }
+
     /**
      * Generate the query.
      *
@@ -180,6 +203,7 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
         topNode = handleEndDate(parameters, topNode);
         topNode = handleHiddenEvents(parameters, topNode);
         topNode = handleWiki(parameters, topNode);
+        topNode = handleTarget(parameters, topNode);
         topNode = handleOrder(topNode);
 
         return topNode;
@@ -357,6 +381,18 @@ private AbstractOperatorNode handleWiki(NotificationParameters parameters, Abstr
         return topNode;
     }
 
+    private AbstractOperatorNode handleTarget(NotificationParameters parameters, AbstractOperatorNode topNode)
+    {
+        // Don't load the events that have a target not including the user, instead of filtering them afterwards
+        AbstractOperatorNode node = new TargetedEventNode(parameters.user);
+
+        if (topNode != null) {
+            return topNode.and(node);
+        } else {
+            return node;
+        }
+    }
+
     private AbstractOperatorNode handleOrder(AbstractOperatorNode topNode)
     {
         if (topNode != null) {
@@ -0,0 +1,57 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
+
+/**
+ * Special node to keep only the events that either have no target or that target the given user.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class TargetedEventNode extends AbstractOperatorNode
+{
+    private DocumentReference user;
+
+    /**
+     * Construct a TargetedEventNode.
+     * @param user the user for who the notifications are retrieved, {@code null} for guest
+     */
+    public TargetedEventNode(DocumentReference user)
+    {
+        this.user = user;
+    }
+
+    /**
+     * @return the user for who the notifications are retrieved, {@code null} for guest
+     */
+    public DocumentReference getUser()
+    {
+        return user;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TARGETED_EVENT";
+    }
+}
@@ -27,6 +27,7 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.xwiki.eventstream.Event;
 import org.xwiki.eventstream.EventStream;
 import org.xwiki.model.reference.DocumentReference;
@@ -47,6 +48,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyCollection;
@@ -55,6 +57,9 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
@@ -82,6 +87,8 @@ public void setUp() throws Exception
         eventStream = mocker.getInstance(EventStream.class);
         queryGenerator = mocker.getInstance(QueryGenerator.class);
         authorizationManager = mocker.getInstance(AuthorizationManager.class);
+        // The bulk check relies on the (mocked) single entity check
+        when(authorizationManager.filterAccessible(any(), any(), anyCollection())).thenCallRealMethod();
         recordableEventDescriptorHelper = mocker.getInstance(RecordableEventDescriptorHelper.class);
 
         query = mock(Query.class);
@@ -138,6 +145,103 @@ public void getEventsWith2Queries() throws Exception
         assertEquals(event5, results.get(1).getEvents().get(0));
     }
 
+    @Test
+    public void getEventsSeeksAfterTheLastEventOfTheBatch() throws Exception
+    {
+        // Mocks
+        Event event1 = createMockedEvent();
+        Event event2 = createMockedEvent();
+        Event event3 = createMockedEvent();
+
+        when(event1.getId()).thenReturn("event1");
+        when(event1.getDate()).thenReturn(new Date(30L));
+        when(event2.getId()).thenReturn("event2");
+        when(event2.getDate()).thenReturn(new Date(20L));
+        when(event3.getId()).thenReturn("event3");
+        when(event3.getDate()).thenReturn(new Date(10L));
+
+        when(event1.getType()).thenReturn("type1");
+        when(event2.getType()).thenReturn("type2");
+        when(event3.getType()).thenReturn("type3");
+
+        // The user is not allowed to see the events of the first batch
+        DocumentReference doc1 = new DocumentReference("xwiki", "PrivateSpace", "WebHome");
+        when(event1.getDocument()).thenReturn(doc1);
+        when(event2.getDocument()).thenReturn(doc1);
+        when(authorizationManager.hasAccess(Right.VIEW, userReference, doc1)).thenReturn(false);
+
+        when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2), Arrays.asList(event3));
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.expectedCount = 1;
+        parameters.blackList = Arrays.asList("event0");
+        List<CompositeEvent> results = mocker.getComponentUnderTest().getEvents(parameters);
+
+        // Verify
+        assertEquals(1, results.size());
+        assertEquals(event3, results.get(0).getEvents().get(0));
+
+        ArgumentCaptor<NotificationParameters> parametersCaptor = ArgumentCaptor.forClass(NotificationParameters.class);
+        verify(queryGenerator, times(2)).generateQuery(parametersCaptor.capture());
+        verify(query, never()).setOffset(anyInt());
+
+        NotificationParameters cursor = parametersCaptor.getAllValues().get(1);
+        assertEquals(new Date(20L), cursor.endDate);
+        assertEquals(Arrays.asList("event0", "event2"), cursor.blackList);
+        // The parameters of the caller are left untouched
+        assertEquals(Arrays.asList("event0"), parameters.blackList);
+    }
+
+    @Test
+    public void getEventsSeeksWhenTheLastEventIsAtTheEndDateWithoutBlackList() throws Exception
+    {
+        // Mocks
+        Event event1 = createMockedEvent();
+        Event event2 = createMockedEvent();
+        Event event3 = createMockedEvent();
+
+        when(event1.getId()).thenReturn("event1");
+        when(event1.getDate()).thenReturn(new Date(20L));
+        when(event2.getId()).thenReturn("event2");
+        when(event2.getDate()).thenReturn(new Date(20L));
+        when(event3.getId()).thenReturn("event3");
+        when(event3.getDate()).thenReturn(new Date(10L));
+
+        when(event1.getType()).thenReturn("type1");
+        when(event2.getType()).thenReturn("type2");
+        when(event3.getType()).thenReturn("type3");
+
+        // The user is not allowed to see the events of the first batch
+        DocumentReference doc1 = new DocumentReference("xwiki", "PrivateSpace", "WebHome");
+        when(event1.getDocument()).thenReturn(doc1);
+        when(event2.getDocument()).thenReturn(doc1);
+        when(authorizationManager.hasAccess(Right.VIEW, userReference, doc1)).thenReturn(false);
+
+        when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2), Arrays.asList(event3));
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.expectedCount = 1;
+        parameters.endDate = new Date(20L);
+        parameters.blackList = null;
+        List<CompositeEvent> results = mocker.getComponentUnderTest().getEvents(parameters);
+
+        // Verify
+        assertEquals(1, results.size());
+        assertEquals(event3, results.get(0).getEvents().get(0));
+
+        ArgumentCaptor<NotificationParameters> parametersCaptor = ArgumentCaptor.forClass(NotificationParameters.class);
+        verify(queryGenerator, times(2)).generateQuery(parametersCaptor.capture());
+
+        NotificationParameters cursor = parametersCaptor.getAllValues().get(1);
+        assertEquals(new Date(20L), cursor.endDate);
+        assertEquals(Arrays.asList("event1", "event2"), cursor.blackList);
+        assertNull(parameters.blackList);
+    }
+
     private Event createMockedEvent()
     {
         Event event = mock(Event.class);
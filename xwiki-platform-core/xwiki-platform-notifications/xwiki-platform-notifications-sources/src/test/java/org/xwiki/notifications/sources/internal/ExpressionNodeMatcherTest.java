@@ -0,0 +1,149 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.eventstream.Event;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.filters.expression.BooleanValueNode;
+import org.xwiki.notifications.filters.expression.EventProperty;
+import org.xwiki.notifications.filters.internal.status.InListOfReadEventsNode;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.xwiki.notifications.filters.expression.generics.ExpressionBuilder.not;
+import static org.xwiki.notifications.filters.expression.generics.ExpressionBuilder.value;
+
+/**
+ * Unit tests for {@link ExpressionNodeMatcher}.
+ *
+ * @version $Id$
+ */
+public class ExpressionNodeMatcherTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<ExpressionNodeMatcher> mocker =
+        new MockitoComponentMockingRule<>(ExpressionNodeMatcher.class);
+
+    private ExpressionNodeMatcher matcher;
+
+    private DocumentReference user = new DocumentReference("xwiki", "XWiki", "UserA");
+
+    private Event event;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        EntityReferenceSerializer<String> serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(this.user)).thenReturn("xwiki:XWiki.UserA");
+        when(serializer.serialize(new WikiReference("xwiki"))).thenReturn("xwiki");
+
+        this.matcher = this.mocker.getComponentUnderTest();
+
+        this.event = mock(Event.class);
+        when(this.event.getId()).thenReturn("event1");
+        when(this.event.getType()).thenReturn("create");
+        when(this.event.getDate()).thenReturn(new Date(10000L));
+        when(this.event.getWiki()).thenReturn(new WikiReference("xwiki"));
+        when(this.event.getHidden()).thenReturn(false);
+    }
+
+    @Test
+    public void matchesProperties()
+    {
+        assertEquals(true, this.matcher.matches(value(EventProperty.TYPE).eq(value("create")), this.event));
+        assertEquals(false, this.matcher.matches(value(EventProperty.TYPE).eq(value("update")), this.event));
+        assertEquals(true, this.matcher.matches(value(EventProperty.TYPE).notEq(value("update")), this.event));
+        assertEquals(true, this.matcher.matches(value(EventProperty.TYPE).startsWith(value("cre")), this.event));
+        assertEquals(false, this.matcher.matches(value(EventProperty.TYPE).endsWith(value("cre")), this.event));
+        assertEquals(true,
+            this.matcher.matches(value(EventProperty.TYPE).inStrings(Arrays.asList("update", "create")), this.event));
+        assertEquals(true, this.matcher.matches(value(EventProperty.WIKI).eq(value(new WikiReference("xwiki"))),
+            this.event));
+        assertEquals(true,
+            this.matcher.matches(not(value(EventProperty.HIDDEN).eq(new BooleanValueNode(true))), this.event));
+    }
+
+    @Test
+    public void matchesDates()
+    {
+        assertEquals(true,
+            this.matcher.matches(value(EventProperty.DATE).greaterThan(value(new Date(5000L))), this.event));
+        assertEquals(false,
+            this.matcher.matches(value(EventProperty.DATE).lesserThan(value(new Date(5000L))), this.event));
+        assertEquals(true,
+            this.matcher.matches(value(EventProperty.DATE).greaterThan(value(new Date(10000L))), this.event));
+
+        // The database might not store the milliseconds
+        assertNull(this.matcher.matches(value(EventProperty.DATE).greaterThan(value(new Date(10500L))), this.event));
+    }
+
+    @Test
+    public void matchesWhenUnknown()
+    {
+        // The database might be case insensitive
+        assertNull(this.matcher.matches(value(EventProperty.TYPE).eq(value("Create")), this.event));
+        // Properties stored differently in the database
+        assertNull(this.matcher.matches(value(EventProperty.USER).eq(value(this.user)), this.event));
+        // Sub queries
+        assertNull(this.matcher.matches(
+            value(EventProperty.ID).inSubQuery("select id from Table", Collections.emptyMap()), this.event));
+        assertNull(this.matcher.matches(new InListOfReadEventsNode(this.user), this.event));
+    }
+
+    @Test
+    public void matchesWithThreeValuedLogic()
+    {
+        assertEquals(false, this.matcher.matches(value(EventProperty.TYPE).eq(value("update"))
+            .and(new InListOfReadEventsNode(this.user)), this.event));
+        assertNull(this.matcher.matches(value(EventProperty.TYPE).eq(value("create"))
+            .and(new InListOfReadEventsNode(this.user)), this.event));
+        assertEquals(true, this.matcher.matches(value(EventProperty.TYPE).eq(value("create"))
+            .or(new InListOfReadEventsNode(this.user)), this.event));
+        assertNull(this.matcher.matches(value(EventProperty.TYPE).eq(value("update"))
+            .or(new InListOfReadEventsNode(this.user)), this.event));
+        assertNull(this.matcher.matches(not(new InListOfReadEventsNode(this.user)), this.event));
+    }
+
+    @Test
+    public void matchesTarget()
+    {
+        assertEquals(true, this.matcher.matches(new TargetedEventNode(this.user), this.event));
+
+        when(this.event.getTarget()).thenReturn(new HashSet<>(Arrays.asList("xwiki:XWiki.UserA")));
+        assertEquals(true, this.matcher.matches(new TargetedEventNode(this.user), this.event));
+        assertEquals(false, this.matcher.matches(new TargetedEventNode(null), this.event));
+
+        when(this.event.getTarget()).thenReturn(new HashSet<>(Arrays.asList("xwiki:XWiki.UserB")));
+        assertEquals(false, this.matcher.matches(new TargetedEventNode(this.user), this.event));
+    }
+}
@@ -285,6 +285,28 @@ public void parseWithInListOfReadEventsNode()
         assertEquals("xwiki:XWiki.UserA", result.getQueryParameters().get("userStatusRead"));
     }
 
+    @Test
+    public void parseWithTargetedEventNode()
+    {
+        DocumentReference user = new DocumentReference("xwiki", "XWiki", "userA");
+
+        when(serializer.serialize(user)).thenReturn("xwiki:XWiki.UserA");
+
+        AbstractNode testAST = value(EventProperty.TYPE).eq(value(TEST_VALUE_1)).and(new TargetedEventNode(user));
+
+        ExpressionNodeToHQLConverter.HQLQuery result = parser.parse(testAST);
+
+        assertEquals(String.format("(event.type = :%s) AND "
+            + "(event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target))", TEST_VALUE_1_IDENTIFIER),
+            result.getQuery());
+        assertEquals("xwiki:XWiki.UserA", result.getQueryParameters().get("userTarget"));
+
+        // Guests only get the events without target
+        result = parser.parse(new TargetedEventNode(null));
+
+        assertEquals("event.target IS EMPTY", result.getQuery());
+    }
+
     @Test
     public void parseWithInSubQueryNode()
     {
@@ -0,0 +1,243 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.namespace.NamespaceContextExecutor;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStatusManager;
+import org.xwiki.eventstream.EventStream;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.filters.expression.AndNode;
+import org.xwiki.notifications.filters.expression.EventProperty;
+import org.xwiki.notifications.filters.expression.ExpressionNode;
+import org.xwiki.notifications.filters.expression.InNode;
+import org.xwiki.notifications.filters.expression.PropertyValueNode;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.query.Query;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.xwiki.notifications.filters.expression.generics.ExpressionBuilder.value;
+
+/**
+ * Unit tests for {@link NotificationInbox}.
+ *
+ * @version $Id$
+ */
+public class NotificationInboxTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<NotificationInbox> mocker =
+        new MockitoComponentMockingRule<>(NotificationInbox.class);
+
+    private QueryGenerator queryGenerator;
+
+    private EventStream eventStream;
+
+    private EventStatusManager eventStatusManager;
+
+    private Query query;
+
+    private DocumentReference user = new DocumentReference("xwiki", "XWiki", "UserA");
+
+    private NotificationParameters parameters;
+
+    private Event event1;
+
+    private Event event2;
+
+    @BeforeComponent
+    public void registerComponents() throws Exception
+    {
+        ConfigurationSource configuration = this.mocker.registerMockComponent(ConfigurationSource.class);
+        when(configuration.getProperty("notifications.inbox.enabled", false)).thenReturn(true);
+        when(configuration.getProperty("notifications.inbox.size", 100)).thenReturn(2);
+        when(configuration.getProperty("notifications.inbox.maxInboxes", 1000)).thenReturn(10);
+    }
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.queryGenerator = this.mocker.getInstance(QueryGenerator.class);
+        this.eventStream = this.mocker.getInstance(EventStream.class);
+        this.eventStatusManager = this.mocker.getInstance(EventStatusManager.class);
+
+        EntityReferenceSerializer<String> serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(this.user)).thenReturn("xwiki:XWiki.UserA");
+
+        this.parameters = new NotificationParameters();
+        this.parameters.user = this.user;
+
+        ExpressionNode expression = new OrderByNode(value(EventProperty.TYPE).eq(value("create")),
+            new PropertyValueNode(EventProperty.DATE), OrderByNode.Order.DESC);
+        when(this.queryGenerator.generateQueryExpression(this.parameters)).thenReturn(expression);
+        when(this.queryGenerator.convert(any())).thenReturn(new ExpressionNodeToHQLConverter.HQLQuery());
+
+        this.query = mock(Query.class);
+        when(this.queryGenerator.generateQuery(any(ExpressionNode.class))).thenReturn(this.query);
+
+        this.event1 = mock(Event.class);
+        when(this.event1.getId()).thenReturn("event1");
+        when(this.event1.getDate()).thenReturn(new Date(20L));
+        this.event2 = mock(Event.class);
+        when(this.event2.getId()).thenReturn("event2");
+        when(this.event2.getDate()).thenReturn(new Date(10L));
+
+        when(this.eventStream.searchEvents(this.query)).thenReturn(Arrays.asList(this.event2, this.event1));
+    }
+
+    @Test
+    public void getInbox() throws Exception
+    {
+        assertTrue(this.mocker.getComponentUnderTest().isEnabled());
+
+        NotificationInbox.UserInbox inbox = this.mocker.getComponentUnderTest().getInbox(this.parameters);
+
+        assertEquals(Arrays.asList(this.event1, this.event2), inbox.getEvents());
+        // The inbox is full so older events might be missing
+        assertFalse(inbox.isComplete());
+
+        // The inbox is built only once
+        assertSame(inbox, this.mocker.getComponentUnderTest().getInbox(this.parameters));
+        verify(this.query).setLimit(2);
+        verify(this.eventStream, times(1)).searchEvents(this.query);
+    }
+
+    @Test
+    public void getInboxAfterInvalidation() throws Exception
+    {
+        NotificationInbox.UserInbox inbox = this.mocker.getComponentUnderTest().getInbox(this.parameters);
+
+        this.mocker.getComponentUnderTest().invalidate(this.user);
+
+        NotificationInbox.UserInbox newInbox = this.mocker.getComponentUnderTest().getInbox(this.parameters);
+        assertEquals(inbox.getEvents(), newInbox.getEvents());
+        verify(this.eventStream, times(2)).searchEvents(this.query);
+    }
+
+    @Test
+    public void onEventDeleted() throws Exception
+    {
+        NotificationInbox.UserInbox inbox = this.mocker.getComponentUnderTest().getInbox(this.parameters);
+
+        this.mocker.getComponentUnderTest().onEventDeleted(this.event1);
+
+        assertEquals(Arrays.asList(this.event2), inbox.getEvents());
+    }
+
+    @Test
+    public void onEventAdded() throws Exception
+    {
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getCurrentWikiId()).thenReturn("xwiki");
+        NamespaceContextExecutor namespaceContextExecutor = this.mocker.getInstance(NamespaceContextExecutor.class);
+        when(namespaceContextExecutor.execute(any(), any()))
+            .thenAnswer(invocation -> ((Callable<?>) invocation.getArgument(1)).call());
+        ComponentManager contextComponentManager = this.mocker.getInstance(ComponentManager.class, "context");
+        when(contextComponentManager.getInstance(ExecutionContextManager.class))
+            .thenReturn(mock(ExecutionContextManager.class));
+        when(contextComponentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+
+        Event event3 = mock(Event.class);
+        when(event3.getId()).thenReturn("event3");
+        when(event3.getDate()).thenReturn(new Date(40L));
+        Event event4 = mock(Event.class);
+        when(event4.getId()).thenReturn("event4");
+        when(event4.getDate()).thenReturn(new Date(30L));
+        Event event5 = mock(Event.class);
+        when(event5.getId()).thenReturn("event5");
+        when(event5.getDate()).thenReturn(new Date(50L));
+
+        // The new events are loaded once and matched in memory when possible
+        Query newEventsQuery = mock(Query.class);
+        when(this.queryGenerator.generateQuery(any(InNode.class))).thenReturn(newEventsQuery);
+        when(this.eventStream.searchEvents(newEventsQuery)).thenReturn(Arrays.asList(event3, event4, event5));
+        ExpressionNodeMatcher matcher = this.mocker.getInstance(ExpressionNodeMatcher.class);
+        when(matcher.matches(any(), any())).thenReturn(false);
+        when(matcher.matches(any(), same(event3))).thenReturn(true);
+        when(matcher.matches(any(), same(event4))).thenReturn(null);
+
+        // The event stream is queried only for the events which cannot be matched in memory
+        Query unknownEventsQuery = mock(Query.class);
+        when(this.queryGenerator.generateQuery(any(AndNode.class))).thenReturn(unknownEventsQuery);
+        when(this.eventStream.searchEvents(unknownEventsQuery)).thenReturn(Arrays.asList(event4));
+
+        NotificationInbox.UserInbox inbox = this.mocker.getComponentUnderTest().getInbox(this.parameters);
+
+        this.mocker.getComponentUnderTest().onEventAdded(event3);
+        this.mocker.getComponentUnderTest().onEventAdded(event4);
+        this.mocker.getComponentUnderTest().onEventAdded(event5);
+
+        long timeout = System.currentTimeMillis() + 10000;
+        while (!inbox.getEvents().contains(event4) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(Arrays.asList(event3, event4), inbox.getEvents());
+        verify(this.eventStream, times(1)).searchEvents(this.query);
+        InNode unknownEventsNode = value(EventProperty.ID).inStrings(Arrays.asList("event4"));
+        verify(this.queryGenerator, atLeastOnce()).generateQuery(any(AndNode.class));
+        verify(this.queryGenerator, never()).generateQuery(argThat((ExpressionNode node) -> node instanceof AndNode
+            && !unknownEventsNode.equals(((AndNode) node).getRightOperand())));
+    }
+
+    @Test
+    public void getUnreadEvents() throws Exception
+    {
+        EventStatus status = mock(EventStatus.class);
+        when(status.getEvent()).thenReturn(this.event1);
+        when(status.isRead()).thenReturn(true);
+        List<Event> events = Arrays.asList(this.event1, this.event2);
+        when(this.eventStatusManager.getEventStatus(events, Collections.singletonList("xwiki:XWiki.UserA")))
+            .thenReturn(Arrays.asList(status));
+
+        assertEquals(Arrays.asList(this.event2),
+            this.mocker.getComponentUnderTest().getUnreadEvents(events, this.user));
+    }
+}
@@ -142,20 +142,21 @@ public void generateQueryExpression() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("((DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "AND TARGETED_EVENT) ORDER BY DATE DESC",
             node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
 
         verify(this.queryManager).createQuery(
-            "where ((" +
+            "where (((" +
                 "event.date >= :" + this.startDateParamName + ") " +
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
-                "AND (event.hidden <> true) " +
+                "AND (event.hidden <> true)" +
+                ") AND (event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target)) " +
                 "ORDER BY event.date DESC",
             Query.HQL);
         verify(this.query).bindValue(this.startDateParamName, this.startDate);
@@ -183,18 +184,19 @@ public void generateQueryWhenHiddenDocsAreEnabled() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("(DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
-            "ORDER BY DATE DESC", node.toString());
+            "AND TARGETED_EVENT) ORDER BY DATE DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
 
         verify(this.queryManager).createQuery(
-            "where (" +
+            "where ((" +
                 "event.date >= :" + this.startDateParamName + ") " +
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
-                "AND (event.date >= :" + this.pref1StartDateParamName + ")) " +
+                "AND (event.date >= :" + this.pref1StartDateParamName + "))" +
+                ") AND (event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target)) " +
                 "ORDER BY event.date DESC",
             Query.HQL);
         verify(this.query).bindValue(eq(this.startDateParamName), eq(this.startDate));
@@ -216,19 +218,20 @@ public void generateQueryWithNotOnlyUnread() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("((DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "AND TARGETED_EVENT) ORDER BY DATE DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
 
         verify(this.queryManager).createQuery(
-            "where ((" +
+            "where (((" +
                 "event.date >= :" + this.startDateParamName + ") " +
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
-                "AND (event.hidden <> true) " +
+                "AND (event.hidden <> true)" +
+                ") AND (event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target)) " +
                 "ORDER BY event.date DESC",
             Query.HQL);
     }
@@ -250,21 +253,22 @@ public void generateQueryWithUntilDate() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("((((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
             "AND DATE <= \"" + untilDate.toString() + "\") AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "AND TARGETED_EVENT) ORDER BY DATE DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
 
         verify(this.queryManager).createQuery(
-            "where (((" +
+            "where ((((" +
                 "event.date >= :" + this.startDateParamName + ") " +
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
                 "AND (event.date <= :" + untilDateParamName + ")) " +
-                "AND (event.hidden <> true) " +
+                "AND (event.hidden <> true)" +
+                ") AND (event.target IS EMPTY OR :userTarget IN ELEMENTS(event.target)) " +
                 "ORDER BY event.date DESC",
             Query.HQL);
         verify(this.query).bindValue(this.startDateParamName, this.startDate);
@@ -289,12 +293,12 @@ public void generateQueryWithUntilDateAndBlackList() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("((((TYPE = \"create\" " +
+        assertEquals("(((((TYPE = \"create\" " +
             "AND DATE >= \"" + this.pref1StartDate.toString() + "\") " +
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND DATE <= \"" + untilDate.toString() + "\") " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "AND TARGETED_EVENT) ORDER BY DATE DESC",
             node.toString());
     }
 
@@ -312,10 +316,10 @@ public void generateQueryWithLocalUser() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Verify
-        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" "
+        assertEquals("((((DATE >= \"" + this.startDate.toString() + "\" "
             + "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) "
             + "AND WIKI = \"Wiki xwiki\") "
-            + "ORDER BY DATE DESC",
+            + "AND TARGETED_EVENT) ORDER BY DATE DESC",
             node.toString());
     }
 
@@ -351,13 +355,13 @@ public void generateQueryWithFilters() throws Exception
         parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
-        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("((((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (((TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\") " +
             "AND (PAGE = \"someValue1\" AND \"1\" = \"1\")) " +
             "AND (TYPE = \"someValue2\" AND \"2\" = \"2\"))) " +
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "AND TARGETED_EVENT) ORDER BY DATE DESC", node.toString());
     }
 
     @Test
@@ -384,11 +388,11 @@ public void generateQueryWithNoRelevantFilters() throws Exception
         parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
-        assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
+        assertEquals("((((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "AND TARGETED_EVENT) ORDER BY DATE DESC",
             node.toString());
     }
 
@@ -421,7 +425,8 @@ public void generateQueryWithEventTypesThatHasNoDescriptor() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Expectation: no filters on "create" event type because it has no descriptor
-        assertEquals("(DATE >= \"" + this.startDate.toString() + "\" AND HIDDEN <> true) ORDER BY DATE DESC",
+        assertEquals("((DATE >= \"" + this.startDate.toString() + "\" AND HIDDEN <> true) AND TARGETED_EVENT) "
+            + "ORDER BY DATE DESC",
             node.toString());
     }
 
@@ -0,0 +1,53 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.codec;
+
+import java.io.IOException;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Convert {@link RemoteEventData} to the bytes sent to the other cluster members and back.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataCodec
+{
+    /**
+     * @param remoteEvent the event to encode
+     * @return the encoded event
+     * @throws IOException when failing to encode the event
+     */
+    byte[] encode(RemoteEventData remoteEvent) throws IOException;
+
+    /**
+     * @param buffer the buffer containing the encoded event
+     * @param offset the index of the first byte of the encoded event in the buffer
+     * @param length the number of bytes of the encoded event
+     * @return the decoded event
+     * @throws IOException when failing to decode the event
+     */
+    RemoteEventData decode(byte[] buffer, int offset, int length) throws IOException;
+}
@@ -0,0 +1,60 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.codec;
+
+import java.io.IOException;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Compact encoding of a specific type of value found in remote events (the event itself, its source or its data).
+ * Values which are not supported by any {@link RemoteValueCodec} are sent using standard Java serialization.
+ * <p>
+ * The component hint is written before the encoded value to find back the codec on the receiving side so it should
+ * be short.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Role
+@Unstable
+public interface RemoteValueCodec
+{
+    /**
+     * @param value the value to encode
+     * @return true if this codec is able to encode the passed value and decode it back to an equal value
+     */
+    boolean canEncode(Object value);
+
+    /**
+     * @param value the value to encode
+     * @param output the output where to write the value
+     * @throws IOException when failing to write the value
+     */
+    void encode(Object value, RemoteValueOutput output) throws IOException;
+
+    /**
+     * @param input the input from where to read the value
+     * @return the decoded value
+     * @throws IOException when failing to read the value
+     */
+    Object decode(RemoteValueInput input) throws IOException;
+}
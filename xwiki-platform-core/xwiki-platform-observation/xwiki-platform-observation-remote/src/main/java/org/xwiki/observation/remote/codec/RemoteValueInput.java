@@ -0,0 +1,64 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.codec;
+
+import java.io.IOException;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The input used by {@link RemoteValueCodec} to read values.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Unstable
+public interface RemoteValueInput
+{
+    /**
+     * @return the string written with {@link RemoteValueOutput#writeString(String)}
+     * @throws IOException when failing to read the value
+     */
+    String readString() throws IOException;
+
+    /**
+     * @return the integer written with {@link RemoteValueOutput#writeInt(int)}
+     * @throws IOException when failing to read the value
+     */
+    int readInt() throws IOException;
+
+    /**
+     * @return the long written with {@link RemoteValueOutput#writeLong(long)}
+     * @throws IOException when failing to read the value
+     */
+    long readLong() throws IOException;
+
+    /**
+     * @return the boolean written with {@link RemoteValueOutput#writeBoolean(boolean)}
+     * @throws IOException when failing to read the value
+     */
+    boolean readBoolean() throws IOException;
+
+    /**
+     * @return the value written with {@link RemoteValueOutput#writeValue(Object)}
+     * @throws IOException when failing to read the value
+     */
+    Object readValue() throws IOException;
+}
@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.codec;
+
+import java.io.IOException;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * The output used by {@link RemoteValueCodec} to write values.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Unstable
+public interface RemoteValueOutput
+{
+    /**
+     * Write a string. A string already written in the same event is only written as a reference to the first one.
+     *
+     * @param value the string to write, can be null
+     * @throws IOException when failing to write the value
+     */
+    void writeString(String value) throws IOException;
+
+    /**
+     * @param value the integer to write
+     * @throws IOException when failing to write the value
+     */
+    void writeInt(int value) throws IOException;
+
+    /**
+     * @param value the long to write
+     * @throws IOException when failing to write the value
+     */
+    void writeLong(long value) throws IOException;
+
+    /**
+     * @param value the boolean to write
+     * @throws IOException when failing to write the value
+     */
+    void writeBoolean(boolean value) throws IOException;
+
+    /**
+     * Write any value, using the most compact available encoding.
+     *
+     * @param value the value to write, can be null
+     * @throws IOException when failing to write the value
+     */
+    void writeValue(Object value) throws IOException;
+}
@@ -0,0 +1,594 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.event.AbstractCancelableEvent;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.CancelableEvent;
+import org.xwiki.observation.event.filter.AlwaysMatchingEventFilter;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.event.filter.RegexEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+import org.xwiki.observation.remote.codec.RemoteValueCodec;
+import org.xwiki.observation.remote.codec.RemoteValueInput;
+import org.xwiki.observation.remote.codec.RemoteValueOutput;
+
+/**
+ * Compact binary encoding of the remote events.
+ * <p>
+ * Strings, numbers, {@link HashMap}s and {@link ArrayList}s are written directly, the values supported by a
+ * {@link RemoteValueCodec} are written by it and the stateless {@link AbstractFilterableEvent}s are reduced to their
+ * class name, filter and cancel status. Anything else falls back on standard Java serialization.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Singleton
+public class CompactRemoteEventDataCodec implements RemoteEventDataCodec
+{
+    private static final byte TYPE_NULL = 0;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_TRUE = 2;
+
+    private static final byte TYPE_FALSE = 3;
+
+    private static final byte TYPE_INTEGER = 4;
+
+    private static final byte TYPE_LONG = 5;
+
+    private static final byte TYPE_MAP = 6;
+
+    private static final byte TYPE_LIST = 7;
+
+    private static final byte TYPE_CODEC = 8;
+
+    private static final byte TYPE_FILTERABLE_EVENT = 9;
+
+    private static final byte TYPE_SERIALIZED = 10;
+
+    private static final byte FILTER_FIXED = 0;
+
+    private static final byte FILTER_REGEX = 1;
+
+    private static final byte FILTER_ALWAYS = 2;
+
+    private static final int STRING_NULL = 0;
+
+    private static final int STRING_NEW = 1;
+
+    @Inject
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The constructor taking an {@link EventFilter} of the events which can be reduced to their filter.
+     */
+    private final Map<Class<?>, Optional<Constructor<?>>> eventConstructors = new ConcurrentHashMap<>();
+
+    private class Output implements RemoteValueOutput
+    {
+        private final DataOutputStream data;
+
+        private final Map<String, RemoteValueCodec> codecs;
+
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Output(DataOutputStream data, Map<String, RemoteValueCodec> codecs)
+        {
+            this.data = data;
+            this.codecs = codecs;
+        }
+
+        private void writeVarInt(int value) throws IOException
+        {
+            int remaining = value;
+            while ((remaining & ~0x7F) != 0) {
+                this.data.writeByte((remaining & 0x7F) | 0x80);
+                remaining >>>= 7;
+            }
+            this.data.writeByte(remaining);
+        }
+
+        @Override
+        public void writeString(String value) throws IOException
+        {
+            if (value == null) {
+                writeVarInt(STRING_NULL);
+            } else {
+                Integer index = this.strings.get(value);
+                if (index != null) {
+                    writeVarInt(index + 2);
+                } else {
+                    this.strings.put(value, this.strings.size());
+
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(STRING_NEW);
+                    writeVarInt(bytes.length);
+                    this.data.write(bytes);
+                }
+            }
+        }
+
+        @Override
+        public void writeInt(int value) throws IOException
+        {
+            this.data.writeInt(value);
+        }
+
+        @Override
+        public void writeLong(long value) throws IOException
+        {
+            this.data.writeLong(value);
+        }
+
+        @Override
+        public void writeBoolean(boolean value) throws IOException
+        {
+            this.data.writeBoolean(value);
+        }
+
+        @Override
+        public void writeValue(Object value) throws IOException
+        {
+            if (value == null) {
+                this.data.writeByte(TYPE_NULL);
+            } else if (value.getClass() == String.class) {
+                this.data.writeByte(TYPE_STRING);
+                writeString((String) value);
+            } else if (value.getClass() == Boolean.class) {
+                this.data.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+            } else if (value.getClass() == Integer.class) {
+                this.data.writeByte(TYPE_INTEGER);
+                writeInt((Integer) value);
+            } else if (value.getClass() == Long.class) {
+                this.data.writeByte(TYPE_LONG);
+                writeLong((Long) value);
+            } else if (value.getClass() == HashMap.class) {
+                writeMap((Map<?, ?>) value);
+            } else if (value.getClass() == ArrayList.class) {
+                writeList((List<?>) value);
+            } else if (!writeWithCodec(value) && !writeFilterableEvent(value)) {
+                writeSerialized(value);
+            }
+        }
+
+        private void writeMap(Map<?, ?> map) throws IOException
+        {
+            this.data.writeByte(TYPE_MAP);
+            writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(entry.getKey());
+                writeValue(entry.getValue());
+            }
+        }
+
+        private void writeList(List<?> list) throws IOException
+        {
+            this.data.writeByte(TYPE_LIST);
+            writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(element);
+            }
+        }
+
+        private boolean writeWithCodec(Object value) throws IOException
+        {
+            for (Map.Entry<String, RemoteValueCodec> entry : this.codecs.entrySet()) {
+                if (entry.getValue().canEncode(value)) {
+                    this.data.writeByte(TYPE_CODEC);
+                    writeString(entry.getKey());
+                    entry.getValue().encode(value, this);
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean writeFilterableEvent(Object value) throws IOException
+        {
+            if (getEventConstructor(value.getClass()) == null) {
+                return false;
+            }
+
+            EventFilter filter = ((AbstractFilterableEvent) value).getEventFilter();
+
+            byte filterType;
+            if (filter.getClass() == FixedNameEventFilter.class) {
+                filterType = FILTER_FIXED;
+            } else if (filter.getClass() == RegexEventFilter.class) {
+                filterType = FILTER_REGEX;
+            } else if (filter.getClass() == AlwaysMatchingEventFilter.class) {
+                filterType = FILTER_ALWAYS;
+            } else {
+                return false;
+            }
+
+            this.data.writeByte(TYPE_FILTERABLE_EVENT);
+            writeString(value.getClass().getName());
+            this.data.writeByte(filterType);
+            if (filterType != FILTER_ALWAYS) {
+                writeString(filter.getFilter());
+            }
+            if (value instanceof CancelableEvent) {
+                CancelableEvent cancelableEvent = (CancelableEvent) value;
+                writeBoolean(cancelableEvent.isCanceled());
+                if (cancelableEvent.isCanceled()) {
+                    writeString(cancelableEvent.getReason());
+                }
+            }
+
+            return true;
+        }
+
+        private void writeSerialized(Object value) throws IOException
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+                stream.writeObject(value);
+            }
+
+            this.data.writeByte(TYPE_SERIALIZED);
+            writeVarInt(bytes.size());
+            bytes.writeTo(this.data);
+        }
+    }
+
+    private class Input implements RemoteValueInput
+    {
+        private final DataInputStream data;
+
+        private final Map<String, RemoteValueCodec> codecs;
+
+        private final List<String> strings = new ArrayList<>();
+
+        Input(DataInputStream data, Map<String, RemoteValueCodec> codecs)
+        {
+            this.data = data;
+            this.codecs = codecs;
+        }
+
+        private int readVarInt() throws IOException
+        {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = this.data.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Malformed variable length integer");
+        }
+
+        private byte[] readBytes() throws IOException
+        {
+            byte[] bytes = new byte[readVarInt()];
+            this.data.readFully(bytes);
+
+            return bytes;
+        }
+
+        @Override
+        public String readString() throws IOException
+        {
+            int index = readVarInt();
+
+            if (index == STRING_NULL) {
+                return null;
+            } else if (index == STRING_NEW) {
+                String value = new String(readBytes(), StandardCharsets.UTF_8);
+                this.strings.add(value);
+
+                return value;
+            } else if (index - 2 < this.strings.size()) {
+                return this.strings.get(index - 2);
+            }
+
+            throw new IOException(String.format("Unknown string reference [%s]", index));
+        }
+
+        @Override
+        public int readInt() throws IOException
+        {
+            return this.data.readInt();
+        }
+
+        @Override
+        public long readLong() throws IOException
+        {
+            return this.data.readLong();
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException
+        {
+            return this.data.readBoolean();
+        }
+
+        @Override
+        public Object readValue() throws IOException
+        {
+            byte type = this.data.readByte();
+
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_TRUE:
+                    return Boolean.TRUE;
+                case TYPE_FALSE:
+                    return Boolean.FALSE;
+                case TYPE_INTEGER:
+                    return readInt();
+                case TYPE_LONG:
+                    return readLong();
+                case TYPE_MAP:
+                    return readMap();
+                case TYPE_LIST:
+                    return readList();
+                case TYPE_CODEC:
+                    return readWithCodec();
+                case TYPE_FILTERABLE_EVENT:
+                    return readFilterableEvent();
+                case TYPE_SERIALIZED:
+                    return readSerialized();
+                default:
+                    throw new IOException(String.format("Unknown value type [%s]", type));
+            }
+        }
+
+        private Map<Object, Object> readMap() throws IOException
+        {
+            int size = readVarInt();
+            Map<Object, Object> map = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; ++i) {
+                map.put(readValue(), readValue());
+            }
+
+            return map;
+        }
+
+        private List<Object> readList() throws IOException
+        {
+            int size = readVarInt();
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                list.add(readValue());
+            }
+
+            return list;
+        }
+
+        private Object readWithCodec() throws IOException
+        {
+            String hint = readString();
+
+            RemoteValueCodec codec = this.codecs.get(hint);
+            if (codec == null) {
+                throw new IOException(String.format("Unknown remote value codec [%s]", hint));
+            }
+
+            return codec.decode(this);
+        }
+
+        private Object readFilterableEvent() throws IOException
+        {
+            String className = readString();
+
+            EventFilter filter;
+            byte filterType = this.data.readByte();
+            switch (filterType) {
+                case FILTER_FIXED:
+                    filter = new FixedNameEventFilter(readString());
+                    break;
+                case FILTER_REGEX:
+                    filter = new RegexEventFilter(readString());
+                    break;
+                case FILTER_ALWAYS:
+                    filter = new AlwaysMatchingEventFilter();
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown event filter type [%s]", filterType));
+            }
+
+            try {
+                Constructor<?> constructor = getEventConstructor(loadClass(className));
+                if (constructor == null) {
+                    throw new IOException(String.format("Event [%s] can't be created from a filter", className));
+                }
+
+                Object event = constructor.newInstance(filter);
+                if (event instanceof CancelableEvent && readBoolean()) {
+                    ((CancelableEvent) event).cancel(readString());
+                }
+
+                return event;
+            } catch (ReflectiveOperationException e) {
+                throw new IOException(String.format("Failed to create event [%s]", className), e);
+            }
+        }
+
+        private Object readSerialized() throws IOException
+        {
+            try (ObjectInputStream stream = new ContextObjectInputStream(new ByteArrayInputStream(readBytes()))) {
+                return stream.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Failed to unserialize value", e);
+            }
+        }
+    }
+
+    /**
+     * Resolve the classes using the context class loader first since the value classes might come from extensions.
+     */
+    private class ContextObjectInputStream extends ObjectInputStream
+    {
+        ContextObjectInputStream(InputStream in) throws IOException
+        {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException
+        {
+            try {
+                return loadClass(desc.getName());
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+
+    @Override
+    public byte[] encode(RemoteEventData remoteEvent) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            Output output = new Output(data, getValueCodecs());
+
+            output.writeValue(remoteEvent.getEvent());
+            output.writeValue(remoteEvent.getSource());
+            output.writeValue(remoteEvent.getData());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public RemoteEventData decode(byte[] buffer, int offset, int length) throws IOException
+    {
+        try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(buffer, offset, length))) {
+            Input input = new Input(data, getValueCodecs());
+
+            RemoteEventData remoteEvent = new RemoteEventData();
+            remoteEvent.setEvent(toSerializable(input.readValue()));
+            remoteEvent.setSource(toSerializable(input.readValue()));
+            remoteEvent.setData(toSerializable(input.readValue()));
+
+            return remoteEvent;
+        }
+    }
+
+    private Serializable toSerializable(Object value) throws IOException
+    {
+        if (value != null && !(value instanceof Serializable)) {
+            throw new IOException(String.format("The decoded value [%s] is not serializable", value));
+        }
+
+        return (Serializable) value;
+    }
+
+    private Map<String, RemoteValueCodec> getValueCodecs()
+    {
+        try {
+            return this.componentManager.getInstanceMap(RemoteValueCodec.class);
+        } catch (ComponentLookupException e) {
+            this.logger.warn("Failed to lookup the remote value codecs, falling back on Java serialization", e);
+
+            return Collections.emptyMap();
+        }
+    }
+
+    private Class<?> loadClass(String className) throws ClassNotFoundException
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = getClass().getClassLoader();
+        }
+
+        return Class.forName(className, false, classLoader);
+    }
+
+    private Constructor<?> getEventConstructor(Class<?> eventClass)
+    {
+        return this.eventConstructors.computeIfAbsent(eventClass, this::findEventConstructor).orElse(null);
+    }
+
+    private Optional<Constructor<?>> findEventConstructor(Class<?> eventClass)
+    {
+        // Only the events without any other state than their filter (and cancel status) can be safely reduced to it
+        if (!AbstractFilterableEvent.class.isAssignableFrom(eventClass) || !Modifier.isPublic(eventClass.getModifiers())
+            || hasState(eventClass)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(eventClass.getConstructor(EventFilter.class));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private boolean hasState(Class<?> eventClass)
+    {
+        for (Class<?> current = eventClass;
+            current != AbstractFilterableEvent.class && current != AbstractCancelableEvent.class;
+            current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
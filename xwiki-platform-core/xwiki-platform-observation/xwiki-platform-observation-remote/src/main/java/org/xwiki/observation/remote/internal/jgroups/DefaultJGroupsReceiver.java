@@ -19,6 +19,9 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -30,6 +33,7 @@
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
@@ -60,6 +64,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private Logger logger;
 
+    /**
+     * Used to decode the events.
+     */
+    @Inject
+    private RemoteEventDataCodec codec;
+
     /**
      * @return the RemoteObservationManager
      */
@@ -79,8 +89,32 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        ByteBuffer buffer = msg.getRawBuffer() != null
+            ? ByteBuffer.wrap(msg.getRawBuffer(), msg.getOffset(), msg.getLength()) : ByteBuffer.allocate(0);
+
+        if (buffer.remaining() >= 8 && buffer.getInt(buffer.position()) == JGroupsNetworkAdapter.BATCH_MAGIC) {
+            buffer.getInt();
+            int count = buffer.getInt();
+
+            for (int i = 0; i < count; ++i) {
+                int length = buffer.getInt();
 
+                try {
+                    notify(this.codec.decode(buffer.array(), buffer.position(), length));
+                } catch (IOException e) {
+                    this.logger.error("Failed to decode remote event", e);
+                }
+
+                buffer.position(buffer.position() + length);
+            }
+        } else {
+            // Message sent by an older version
+            notify((RemoteEventData) msg.getObject());
+        }
+    }
+
+    private void notify(RemoteEventData remoteEvent)
+    {
         this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
         getRemoteObservationManager().notify(remoteEvent);
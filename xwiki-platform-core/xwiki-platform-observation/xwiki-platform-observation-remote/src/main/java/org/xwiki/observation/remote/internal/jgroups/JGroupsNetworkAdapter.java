@@ -19,12 +19,18 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -46,10 +52,14 @@
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * The events are encoded with the {@link RemoteEventDataCodec} in the thread generating them and sent by a dedicated
+ * thread. All the events waiting to be sent when the thread is available are grouped in the same message.
  *
  * @version $Id$
  * @since 2.0RC1
@@ -64,6 +74,23 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     public static final String CONFIGURATION_PATH = "observation/remote/jgroups/";
 
+    /**
+     * The first bytes of a message containing a batch of encoded events.
+     *
+     * @since 11.3RC1
+     */
+    public static final int BATCH_MAGIC = 0x58524531;
+
+    /**
+     * The maximum number of events sent in the same message.
+     */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /**
+     * Put in the queue to stop the sender thread.
+     */
+    private static final byte[] STOP = new byte[0];
+
     /**
      * Used to lookup the receiver corresponding to the channel identifier.
      */
@@ -76,30 +103,160 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
     @Inject
     private Logger logger;
 
+    /**
+     * Used to encode the events.
+     */
+    @Inject
+    private RemoteEventDataCodec codec;
+
     /**
      * The network channels.
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * The encoded events waiting to be sent.
+     */
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * The thread sending the queued events.
+     */
+    private Thread senderThread;
+
+    /**
+     * Indicate if the queued events are sent, i.e. if at least one channel is started.
+     */
+    private volatile boolean sending;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
+        if (!this.sending) {
+            // Nothing would consume the event
+            this.logger.debug("Ignored JGroups remote event [{}] since no channel is started", remoteEvent);
+
+            return;
+        }
+
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
+        try {
+            this.queue.add(this.codec.encode(remoteEvent));
+        } catch (IOException e) {
+            this.logger.error("Failed to encode message [" + remoteEvent + "]", e);
+        }
+    }
+
+    private void sendQueuedEvents()
+    {
+        List<byte[]> events = new ArrayList<>(MAX_BATCH_SIZE);
+
+        boolean stop = false;
+        while (!stop) {
+            try {
+                events.add(this.queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                break;
+            }
+
+            // Group all the events already waiting
+            this.queue.drainTo(events, MAX_BATCH_SIZE - 1);
+
+            stop = events.remove(STOP);
+
+            if (!events.isEmpty()) {
+                sendBatch(events);
+            }
+
+            events.clear();
+        }
+    }
+
+    private void sendBatch(List<byte[]> events)
+    {
         // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        Message message;
+        try {
+            message = new Message(null, encodeBatch(events));
+        } catch (IOException e) {
+            this.logger.error("Failed to create message for [{}] events", events.size(), e);
+
+            return;
+        }
 
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
             } catch (Exception e) {
-                this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+                this.logger.error("Failed to send [" + events.size() + "] events to the channel [" + entry.getKey()
+                    + "]", e);
             }
         }
     }
 
+    /**
+     * @param events the encoded events
+     * @return the content of a message containing the passed events
+     * @throws IOException when failing to write the message
+     */
+    static byte[] encodeBatch(List<byte[]> events) throws IOException
+    {
+        int size = 8;
+        for (byte[] event : events) {
+            size += 4 + event.length;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size);
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            data.writeInt(BATCH_MAGIC);
+            data.writeInt(events.size());
+            for (byte[] event : events) {
+                data.writeInt(event.length);
+                data.write(event);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private synchronized void startSender()
+    {
+        if (this.senderThread == null) {
+            this.senderThread = new Thread(this::sendQueuedEvents, "Remote events sender");
+            this.senderThread.setDaemon(true);
+            this.senderThread.start();
+
+            this.sending = true;
+        }
+    }
+
+    private synchronized void stopSender()
+    {
+        if (this.senderThread != null) {
+            this.sending = false;
+
+            // Send the remaining events before stopping
+            this.queue.add(STOP);
+
+            try {
+                this.senderThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                this.logger.warn("Interrupted while waiting for the remote events to be sent");
+            }
+
+            // Forget the events queued concurrently with the stop
+            this.queue.clear();
+
+            this.senderThread = null;
+        }
+    }
+
     @Override
     public void startChannel(String channelId) throws RemoteEventException
     {
@@ -117,6 +274,8 @@ public void startChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException("Failed to create channel [" + channelId + "]", e);
         }
 
+        startSender();
+
         // Register the channel against the JMX Server
         try {
             MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
@@ -218,6 +377,8 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        stopSender();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
@@ -0,0 +1,166 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.codec;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.event.AbstractFilterableEvent;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.RegexEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteValueCodec;
+import org.xwiki.observation.remote.codec.RemoteValueInput;
+import org.xwiki.observation.remote.codec.RemoteValueOutput;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Validate {@link CompactRemoteEventDataCodec}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class CompactRemoteEventDataCodecTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @InjectMockComponents
+    private CompactRemoteEventDataCodec codec;
+
+    /**
+     * A stateless event which can be reduced to its filter.
+     */
+    public static class FilterEvent extends AbstractFilterableEvent
+    {
+        /**
+         * @param filter the filter
+         */
+        public FilterEvent(EventFilter filter)
+        {
+            super(filter);
+        }
+    }
+
+    private static class DateCodec implements RemoteValueCodec
+    {
+        @Override
+        public boolean canEncode(Object value)
+        {
+            return value instanceof Date;
+        }
+
+        @Override
+        public void encode(Object value, RemoteValueOutput output) throws IOException
+        {
+            output.writeLong(((Date) value).getTime());
+        }
+
+        @Override
+        public Object decode(RemoteValueInput input) throws IOException
+        {
+            return new Date(input.readLong());
+        }
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.componentManager.registerComponent(RemoteValueCodec.class, "date", new DateCodec());
+    }
+
+    private RemoteEventData roundTrip(RemoteEventData remoteEvent) throws IOException
+    {
+        byte[] encoded = this.codec.encode(remoteEvent);
+
+        // Make sure offset and length are taken into account
+        byte[] buffer = new byte[encoded.length + 4];
+        System.arraycopy(encoded, 0, buffer, 2, encoded.length);
+
+        return this.codec.decode(buffer, 2, encoded.length);
+    }
+
+    @Test
+    public void encodeDecode() throws IOException
+    {
+        Map<String, Serializable> data = new HashMap<>();
+        data.put("string", "value");
+        data.put("same", "value");
+        data.put("integer", 42);
+        data.put("long", 42L);
+        data.put("boolean", true);
+        data.put("null", null);
+        data.put("list", new ArrayList<>(Arrays.asList("value", "other", 1)));
+        data.put("date", new Date(1234));
+        data.put("locale", Locale.FRENCH);
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new FilterEvent(new RegexEventFilter("page.*")));
+        remoteEvent.setSource("source");
+        remoteEvent.setData((Serializable) data);
+
+        RemoteEventData result = roundTrip(remoteEvent);
+
+        assertSame(FilterEvent.class, result.getEvent().getClass());
+        EventFilter filter = ((FilterEvent) result.getEvent()).getEventFilter();
+        assertSame(RegexEventFilter.class, filter.getClass());
+        assertEquals("page.*", filter.getFilter());
+
+        assertEquals("source", result.getSource());
+        assertEquals(data, result.getData());
+        assertSame(HashMap.class, result.getData().getClass());
+        assertSame(ArrayList.class, ((Map<?, ?>) result.getData()).get("list").getClass());
+    }
+
+    @Test
+    public void encodeDecodeNull() throws IOException
+    {
+        RemoteEventData result = roundTrip(new RemoteEventData());
+
+        assertNull(result.getEvent());
+        assertNull(result.getSource());
+        assertNull(result.getData());
+    }
+
+    @Test
+    public void encodeDecodeSerializable() throws IOException
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setData((Serializable) Arrays.asList("value", Locale.ENGLISH));
+
+        assertEquals(remoteEvent.getData(), roundTrip(remoteEvent).getData());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jgroups.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.RemoteObservationManager;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+import org.xwiki.observation.remote.internal.codec.CompactRemoteEventDataCodec;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Validate {@link DefaultJGroupsReceiver}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(CompactRemoteEventDataCodec.class)
+public class DefaultJGroupsReceiverTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @InjectMockComponents
+    private DefaultJGroupsReceiver receiver;
+
+    private List<RemoteEventData> receivedEvents = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        RemoteObservationManager remoteObservationManager =
+            this.componentManager.registerMockComponent(RemoteObservationManager.class);
+        doAnswer(invocation -> this.receivedEvents.add(invocation.getArgument(0))).when(remoteObservationManager)
+            .notify(any());
+    }
+
+    private RemoteEventData createRemoteEvent(String source)
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setSource(source);
+
+        return remoteEvent;
+    }
+
+    @Test
+    public void receiveBatch() throws Exception
+    {
+        RemoteEventDataCodec codec = this.componentManager.getInstance(RemoteEventDataCodec.class);
+
+        byte[] batch = JGroupsNetworkAdapter.encodeBatch(Arrays.asList(codec.encode(createRemoteEvent("source1")),
+            codec.encode(createRemoteEvent("source2")), codec.encode(createRemoteEvent("source3"))));
+
+        // Make sure the offset and the length of the message are taken into account
+        byte[] buffer = new byte[batch.length + 4];
+        System.arraycopy(batch, 0, buffer, 2, batch.length);
+
+        this.receiver.receive(new Message(null, buffer, 2, batch.length));
+
+        assertEquals(3, this.receivedEvents.size());
+        assertEquals("source1", this.receivedEvents.get(0).getSource());
+        assertEquals("source2", this.receivedEvents.get(1).getSource());
+        assertEquals("source3", this.receivedEvents.get(2).getSource());
+    }
+
+    @Test
+    public void receiveSerializedEvent()
+    {
+        // Message sent by an older version
+        this.receiver.receive(new Message(null, createRemoteEvent("source")));
+
+        assertEquals(1, this.receivedEvents.size());
+        assertEquals("source", this.receivedEvents.get(0).getSource());
+    }
+}
@@ -99,47 +99,71 @@ public int getAbsoluteSize()
      * @param list the list from which the sublist will be extracted
      * @return a sublist of the given list computed from this range
      */
-    public List<String> subList(List<String> list)
+    public <T> List<T> subList(List<T> list)
     {
-        List<String> results = new ArrayList<String>();
+        List<T> results = new ArrayList<T>();
         results.addAll(list);
 
         if (getAbsoluteSize() > 0) {
-            int min = 0;
-            int max = 0;
-
-            min = this.start;
-
-            // negative start : relative to the end of the list
-            if (min < 0) {
-                min = (list.size()) + this.start;
-            }
-
-            max = min + this.size;
-
-            // negative size with start 0 : 0 represents to the end of the list
-            if (min == 0 && max < 0) {
-                min = list.size() + max;
-                max = list.size();
-            }
-
-            // with both start and size negative the maximum becomes the mininum & vice versa
-            if (min > max) {
-                int oldmax = max;
-                max = min;
-                min = oldmax;
-            }
-
-            // out of bounds "sanitization"
-            if (min < 0) {
-                min = 0;
-            }
-            if (max > list.size()) {
-                max = list.size();
-            }
-
-            results = results.subList(min, max);
+            Range range = resolve(list.size());
+
+            results = results.subList(range.getStart(), range.getStart() + range.getSize());
         }
         return results;
     }
+
+    /**
+     * Compute the elements of a list of the passed size covered by this range, following the same rules as
+     * {@link #subList(List)}. This is useful when the list is not in memory (for example to compute the offset and the
+     * limit of a query).
+     *
+     * @param listSize the size of the list to which this range is applied
+     * @return the equivalent range, with a nonnegative start relative to the beginning of the list and a nonnegative
+     *         size which does not exceed the end of the list
+     * @since 11.3RC1
+     */
+    public Range resolve(int listSize)
+    {
+        if (getAbsoluteSize() == 0) {
+            return new Range(0, listSize);
+        }
+
+        int min = 0;
+        int max = 0;
+
+        min = this.start;
+
+        // negative start : relative to the end of the list
+        if (min < 0) {
+            min = listSize + this.start;
+        }
+
+        max = min + this.size;
+
+        // negative size with start 0 : 0 represents to the end of the list
+        if (min == 0 && max < 0) {
+            min = listSize + max;
+            max = listSize;
+        }
+
+        // with both start and size negative the maximum becomes the mininum & vice versa
+        if (min > max) {
+            int oldmax = max;
+            max = min;
+            min = oldmax;
+        }
+
+        // out of bounds "sanitization"
+        if (min < 0) {
+            min = 0;
+        }
+        if (max > listSize) {
+            max = listSize;
+        }
+        if (min > max) {
+            min = max;
+        }
+
+        return new Range(min, max - min);
+    }
 }
@@ -32,6 +32,7 @@
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.output.ProxyOutputStream;
 import org.xwiki.environment.Environment;
+import org.xwiki.stability.Unstable;
 import org.xwiki.store.UnexpectedException;
 
 import com.xpn.xwiki.web.Utils;
@@ -246,6 +247,20 @@ public InputStream getContentInputStream()
         }
     }
 
+    /**
+     * Give access to the file holding the content, so that it can be read without going through
+     * {@link #getContentInputStream()} (for example to send it with {@link java.nio.channels.FileChannel}).
+     * 
+     * @return the file containing the stored content of this attachment or {@code null} if the content is not stored
+     *         in a file which can be read directly
+     * @since 11.3RC1
+     */
+    @Unstable
+    public File getContentFile()
+    {
+        return null;
+    }
+
     /**
      * Set the content of the attachment by writing to a provided OutputStream. Content is *not* appended, this method
      * clears the content and creates new content. If you want to append content, you can call
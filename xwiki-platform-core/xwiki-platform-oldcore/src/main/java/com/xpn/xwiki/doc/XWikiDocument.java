@@ -2291,48 +2291,25 @@ public List<String> getRevisions(RevisionCriteria criteria, XWikiContext context
     {
         List<String> results = new ArrayList<String>();
 
-        Version[] revisions = getRevisions(context);
-
-        XWikiRCSNodeInfo nextNodeinfo = null;
-        XWikiRCSNodeInfo nodeinfo;
-        for (Version revision : revisions) {
-            nodeinfo = nextNodeinfo;
-            nextNodeinfo = getRevisionInfo(revision.toString(), context);
-
-            if (nodeinfo == null) {
-                continue;
-            }
-
-            // Minor/Major version matching
-            if (criteria.getIncludeMinorVersions() || !nextNodeinfo.isMinorEdit()) {
-                // Author matching
-                if (criteria.getAuthor().equals("") || criteria.getAuthor().equals(nodeinfo.getAuthor())) {
-                    // Date range matching
-                    Date versionDate = nodeinfo.getDate();
-                    if (versionDate.after(criteria.getMinDate()) && versionDate.before(criteria.getMaxDate())) {
-                        results.add(nodeinfo.getVersion().toString());
-                    }
-                }
-            }
+        // Let the store filter the versions so that the whole history does not need to be loaded
+        for (XWikiRCSNodeInfo nodeinfo : getVersioningStore(context).getXWikiDocVersions(this, criteria, context)) {
+            results.add(nodeinfo.getVersion().toString());
         }
 
-        nodeinfo = nextNodeinfo;
-        if (nodeinfo != null) {
-            if (criteria.getAuthor().equals("") || criteria.getAuthor().equals(nodeinfo.getAuthor())) {
-                // Date range matching
-                Date versionDate = nodeinfo.getDate();
-                if (versionDate.after(criteria.getMinDate()) && versionDate.before(criteria.getMaxDate())) {
-                    results.add(nodeinfo.getVersion().toString());
-                }
-            }
-        }
-
-        return criteria.getRange().subList(results);
+        return results;
     }
 
     public XWikiRCSNodeInfo getRevisionInfo(String version, XWikiContext context) throws XWikiException
     {
-        return getDocumentArchive(context).getNode(new Version(version));
+        XWikiDocumentArchive loadedArchive = getDocumentArchive();
+        if (loadedArchive != null) {
+            return loadedArchive.getNode(new Version(version));
+        } else if (isNew()) {
+            return getDocumentArchive(context).getNode(new Version(version));
+        }
+
+        // Don't load the whole history to get a single version
+        return getVersioningStore(context).loadRCSNodeInfo(this, new Version(version), context);
     }
 
     /**
@@ -20,21 +20,26 @@
 package com.xpn.xwiki.doc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
 
+import org.apache.commons.collections4.map.LRUMap;
 import org.suigeneris.jrcs.rcs.Version;
 import org.suigeneris.jrcs.util.ToString;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.criteria.impl.RevisionCriteria;
 import com.xpn.xwiki.doc.rcs.XWikiPatch;
 import com.xpn.xwiki.doc.rcs.XWikiRCSArchive;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
@@ -48,6 +53,9 @@
  */
 public class XWikiDocumentArchive
 {
+    /** The number of reconstructed versions kept in memory. */
+    private static final int VERSION_XML_CACHE_SIZE = 5;
+
     /** =docId. */
     private long id;
 
@@ -59,6 +67,13 @@
      */
     private SortedSet<Version> fullVersions = new TreeSet<Version>();
 
+    /**
+     * The XML of the most recently reconstructed versions, used to avoid applying the same patches again when several
+     * close versions are loaded (when comparing versions for example).
+     */
+    private Map<Version, String> versionXmlCache =
+        Collections.synchronizedMap(new LRUMap<Version, String>(VERSION_XML_CACHE_SIZE));
+
     // store-specific information
     /** Set of {@link XWikiRCSNodeInfo} which need to delete. */
     private Set<XWikiRCSNodeInfo> deletedNodes = new TreeSet<XWikiRCSNodeInfo>();
@@ -129,11 +144,11 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         newnode.setContent(result);
         XWikiRCSNodeInfo latestNode = getLatestNode();
         if (latestNode != null) {
-            int nodesCount = getNodes().size();
-            int nodesPerFull =
-                context.getWiki() == null ? 5 : Integer.parseInt(context.getWiki().getConfig()
-                    .getProperty("xwiki.store.rcs.nodesPerFull", "5"));
-            if (nodesPerFull <= 0 || (nodesCount % nodesPerFull) != 0) {
+            // Keep the previous version as a full version when it's the nodesPerFull-th version since the previous
+            // full version (instead of relying on the total number of versions) so that an history without enough full
+            // versions (imported for example) gets new checkpoints
+            int nodesPerFull = getNodesPerFull(context);
+            if (nodesPerFull <= 0 || getDiffChainLength(latestNode.getVersion()) + 1 < nodesPerFull) {
                 XWikiRCSNodeContent latestContent = latestNode.getContent(context);
                 latestContent.getPatch().setDiffVersion(latestContent.getPatch().getContent(),
                     doc, context);
@@ -145,6 +160,76 @@ protected XWikiRCSNodeContent makePatch(XWikiRCSNodeInfo newnode, XWikiDocument
         return result;
     }
 
+    /**
+     * @param context used to read the configuration
+     * @return the maximum number of versions between two full versions
+     */
+    private int getNodesPerFull(XWikiContext context)
+    {
+        return context.getWiki() == null ? 5
+            : Integer.parseInt(context.getWiki().getConfig().getProperty("xwiki.store.rcs.nodesPerFull", "5"));
+    }
+
+    /**
+     * @param version the version from which to count
+     * @return the number of consecutive diff versions older than the passed version
+     */
+    private int getDiffChainLength(Version version)
+    {
+        int length = 0;
+
+        // tailMap is inclusive
+        Iterator<XWikiRCSNodeInfo> it = this.versionToNode.tailMap(version).values().iterator();
+        it.next();
+        while (it.hasNext() && it.next().isDiff()) {
+            length++;
+        }
+
+        return length;
+    }
+
+    /**
+     * Store as full versions the versions which are too far from a full version so that any version of the history can
+     * be reconstructed by applying at most {@code xwiki.store.rcs.nodesPerFull} patches. This is useful for histories
+     * which were imported or created with a different configuration. The modified nodes need to be saved after.
+     *
+     * @param context used for loading nodes content and reading the configuration
+     * @return {@code true} if some versions have been converted to full versions
+     * @throws XWikiException if any error
+     * @since 11.3RC1
+     */
+    public boolean addCheckpoints(XWikiContext context) throws XWikiException
+    {
+        int nodesPerFull = getNodesPerFull(context);
+        if (nodesPerFull <= 0) {
+            return false;
+        }
+
+        boolean updated = false;
+
+        // Nodes are ordered from the most recent version so we can reconstruct all versions with a single pass
+        List<String> text = new ArrayList<String>();
+        int chainLength = 0;
+        for (XWikiRCSNodeInfo node : getNodes()) {
+            XWikiRCSNodeContent nodeContent = node.getContent(context);
+            nodeContent.getPatch().patch(text);
+
+            if (!node.isDiff()) {
+                chainLength = 0;
+            } else if (++chainLength >= nodesPerFull) {
+                nodeContent.getPatch().setFullVersion(ToString.arrayToString(text.toArray()));
+                node.setContent(nodeContent);
+                updateNode(node);
+                getUpdatedNodeContents().add(nodeContent);
+
+                chainLength = 0;
+                updated = true;
+            }
+        }
+
+        return updated;
+    }
+
     /** @return {@link XWikiDocument#getId()} - primary key */
     public long getId()
     {
@@ -175,6 +260,39 @@ public Collection<XWikiRCSNodeInfo> getNodes(Version vfrom, Version vto)
         return this.versionToNode.subMap(vfrom, new Version(ito)).values();
     }
 
+    /**
+     * @param criteria the criteria the returned nodes should match
+     * @return the nodes matching the passed criteria, ordered by version asc, after applying the criteria range
+     * @since 11.3RC1
+     */
+    public List<XWikiRCSNodeInfo> getNodes(RevisionCriteria criteria)
+    {
+        List<XWikiRCSNodeInfo> results = new ArrayList<XWikiRCSNodeInfo>();
+
+        // Iterate from the most recent version to know which version comes next
+        XWikiRCSNodeInfo nextNode = null;
+        for (XWikiRCSNodeInfo node : getNodes()) {
+            // When minor versions are excluded, only the last version before a major version is kept (along with the
+            // most recent version)
+            if (nextNode == null || criteria.getIncludeMinorVersions() || !nextNode.isMinorEdit()) {
+                // Author matching
+                if (criteria.getAuthor().equals("") || criteria.getAuthor().equals(node.getAuthor())) {
+                    // Date range matching
+                    Date versionDate = node.getDate();
+                    if (versionDate.after(criteria.getMinDate()) && versionDate.before(criteria.getMaxDate())) {
+                        results.add(node);
+                    }
+                }
+            }
+
+            nextNode = node;
+        }
+
+        Collections.reverse(results);
+
+        return criteria.getRange().subList(results);
+    }
+
     /** @param versions - collection of XWikiRCSNodeInfo */
     public void setNodes(Collection<XWikiRCSNodeInfo> versions)
     {
@@ -277,6 +395,7 @@ public void removeVersions(Version newerVersion, Version olderVersion, XWikiCont
         }
         Version firstVersionAfter = getNextVersion(upperBound);
         Version firstVersionBefore = getPrevVersion(lowerBound);
+        this.versionXmlCache.clear();
         if (firstVersionAfter == null && firstVersionBefore == null) {
             resetArchive();
             return;
@@ -359,15 +478,40 @@ public XWikiDocument loadDocument(Version version, XWikiContext context)
      */
     public String getVersionXml(Version version, XWikiContext context) throws XWikiException
     {
+        String xml = this.versionXmlCache.get(version);
+        if (xml != null) {
+            return xml;
+        }
+
         Version nearestFullVersion = getNearestFullVersion(version);
 
-        List<XWikiRCSNodeContent> lstContent = loadRCSNodeContents(nearestFullVersion, version, context);
+        // Start from the closest already reconstructed version between the nearest full version and the requested
+        // version, if any
+        Version startVersion = nearestFullVersion;
+        String startXml = null;
+        for (Version intermediateVersion : this.versionToNode.subMap(nearestFullVersion, version).keySet()) {
+            String intermediateXml = this.versionXmlCache.get(intermediateVersion);
+            if (intermediateXml != null) {
+                startVersion = intermediateVersion;
+                startXml = intermediateXml;
+            }
+        }
+
+        List<XWikiRCSNodeContent> lstContent = loadRCSNodeContents(startVersion, version, context);
         List<String> origText = new ArrayList<String>();
+        if (startXml != null) {
+            origText.addAll(Arrays.asList(ToString.stringToArray(startXml)));
+            // The start version is already applied
+            lstContent = lstContent.subList(1, lstContent.size());
+        }
         for (XWikiRCSNodeContent nodeContent : lstContent) {
             nodeContent.getPatch().patch(origText);
         }
 
-        return ToString.arrayToString(origText.toArray());
+        xml = ToString.arrayToString(origText.toArray());
+        this.versionXmlCache.put(version, xml);
+
+        return xml;
     }
 
     /**
@@ -454,6 +598,7 @@ public void resetArchive()
     {
         this.versionToNode.clear();
         this.fullVersions.clear();
+        this.versionXmlCache.clear();
         this.deletedNodes.addAll(this.updatedNodeInfos);
         this.updatedNodeInfos.clear();
         this.updatedNodeContents.clear();
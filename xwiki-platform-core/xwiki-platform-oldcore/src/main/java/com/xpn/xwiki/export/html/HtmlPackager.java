@@ -24,9 +24,16 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -38,9 +45,12 @@
 import org.apache.commons.io.filefilter.SuffixFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.ExecutionContextException;
@@ -52,6 +62,7 @@
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.url.URLContextManager;
 import org.xwiki.url.filesystem.FilesystemExportContext;
+import org.xwiki.url.internal.filesystem.FilesystemExportContextProvider;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -124,6 +135,11 @@
     private EntityReferenceSerializer<String> pathEntityReferenceSerializer =
         Utils.getComponent(EntityReferenceSerializer.TYPE_STRING, "path");
 
+    /**
+     * The number of threads used to render the pages, {@code null} to use the configured value.
+     */
+    private Integer threads;
+
     /**
      * Modify the name of the package for which packager append ".zip".
      *
@@ -210,6 +226,29 @@ public void addPageReferences(Collection<DocumentReference> pageReferences)
         this.pageReferences.addAll(pageReferences);
     }
 
+    /**
+     * @param threads the number of threads used to render the pages
+     * @since 11.3RC1
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = threads;
+    }
+
+    /**
+     * @return the number of threads used to render the pages
+     * @since 11.3RC1
+     */
+    public int getThreads()
+    {
+        if (this.threads == null) {
+            ConfigurationSource configuration = Utils.getComponent(ConfigurationSource.class, "xwikiproperties");
+            this.threads = configuration.getProperty("export.html.threads", 1);
+        }
+
+        return this.threads;
+    }
+
     private DocumentReference resolvePage(String pageName)
     {
         DocumentReferenceResolver<String> resolver =
@@ -229,12 +268,29 @@ private DocumentReference resolvePage(String pageName)
      */
     private void renderDocument(DocumentReference pageReference, ZipOutputStream zos,
         FilesystemExportContext exportContext, XWikiContext context) throws XWikiException, IOException
+    {
+        writeDocument(renderDocument(pageReference, exportContext, context), zos);
+    }
+
+    /**
+     * Render a document.
+     *
+     * @param pageReference the reference of the page to render.
+     * @param exportContext the context object for the export
+     * @param context the clean XWiki context for rendering
+     * @return the location of the page inside the zip and its rendered content, {@code null} if the page does not
+     *         exist
+     * @throws XWikiException error when rendering document.
+     * @throws IOException error when rendering document.
+     */
+    private Pair<String, byte[]> renderDocument(DocumentReference pageReference, FilesystemExportContext exportContext,
+        XWikiContext context) throws XWikiException, IOException
     {
         XWikiDocument doc = context.getWiki().getDocument(pageReference, context);
 
         if (doc.isNew()) {
             // Skip non-existing documents.
-            return;
+            return null;
         }
 
         // Compute the location of the page inside the zip. We put pages inside directories for scalability as
@@ -246,9 +302,6 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
         }
         zipname += ".html";
 
-        ZipEntry zipentry = new ZipEntry(zipname);
-        zos.putNextEntry(zipentry);
-
         try {
             context.setWikiId(doc.getDocumentReference().getWikiReference().getName());
             context.setDoc(doc);
@@ -263,13 +316,21 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
 
             String content = evaluateDocumentContent(context);
 
-            zos.write(content.getBytes(context.getWiki().getEncoding()));
-            zos.closeEntry();
+            return Pair.of(zipname, content.getBytes(context.getWiki().getEncoding()));
         } catch (Exception e) {
             throw new IOException(String.format("Failed to render document [%s] for HTML export", pageReference), e);
         }
     }
 
+    private void writeDocument(Pair<String, byte[]> document, ZipOutputStream zos) throws IOException
+    {
+        if (document != null) {
+            zos.putNextEntry(new ZipEntry(document.getLeft()));
+            zos.write(document.getRight());
+            zos.closeEntry();
+        }
+    }
+
     private int computeDocumentDepth(EntityReference reference)
     {
         int depth = 0;
@@ -327,6 +388,100 @@ private void renderDocuments(ZipOutputStream zos, ExportURLFactory urlf, XWikiCo
         }
     }
 
+    /**
+     * Render the documents with several threads and add them to the ZIP stream in the same order as
+     * {@link #renderDocuments(ZipOutputStream, ExportURLFactory, XWikiContext)}.
+     *
+     * @param zos the ZIP output stream.
+     * @param urlf the {@link com.xpn.xwiki.web.XWikiURLFactory} holding the shared export context.
+     * @param context the XWiki context.
+     * @throws XWikiException error when render documents.
+     * @throws IOException error when render documents.
+     */
+    private void renderDocumentsInParallel(ZipOutputStream zos, ExportURLFactory urlf, XWikiContext context)
+        throws XWikiException, IOException
+    {
+        ExecutionContextManager ecm = Utils.getComponent(ExecutionContextManager.class);
+        Execution execution = Utils.getComponent(Execution.class);
+
+        int threadCount = getThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+            new BasicThreadFactory.Builder().namingPattern("XWiki HTML export thread-%d").daemon(true).build());
+
+        try {
+            // Limit the number of rendered pages waiting to be written in the zip
+            Deque<Future<Pair<String, byte[]>>> pending = new ArrayDeque<>();
+            for (DocumentReference pageReference : this.pageReferences) {
+                pending.add(
+                    executor.submit(createRenderTask(pageReference, ecm, execution, urlf.getFilesystemExportContext(),
+                        context)));
+
+                if (pending.size() >= threadCount * 2) {
+                    writeDocument(getRenderedDocument(pending.poll()), zos);
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                writeDocument(getRenderedDocument(pending.poll()), zos);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<Pair<String, byte[]>> createRenderTask(DocumentReference pageReference,
+        ExecutionContextManager ecm, Execution execution, FilesystemExportContext sharedExportContext,
+        XWikiContext context) throws XWikiException
+    {
+        // Each page gets its own relative path levels but shares the exported files with the other pages
+        FilesystemExportContext exportContext = new FilesystemExportContext(sharedExportContext);
+        ExportURLFactory urlf = new ExportURLFactory();
+        urlf.init(null, null, exportContext, context);
+
+        XWikiContext renderContext;
+        try {
+            renderContext = initializeContexts(ecm, execution, urlf, context);
+        } catch (ExecutionContextException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
+                "Failed to initialize Execution Context", e);
+        }
+
+        // The Execution Context is initialized on the current thread and then handed over to the rendering thread
+        ExecutionContext executionContext = execution.getContext();
+        execution.popContext();
+        executionContext.setProperty(FilesystemExportContextProvider.CONTEXT_KEY, exportContext);
+
+        return () -> {
+            execution.setContext(executionContext);
+
+            try {
+                return renderDocument(pageReference, exportContext, renderContext);
+            } finally {
+                execution.removeContext();
+            }
+        };
+    }
+
+    private Pair<String, byte[]> getRenderedDocument(Future<Pair<String, byte[]>> future)
+        throws XWikiException, IOException
+    {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while rendering the pages of the HTML export", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            }
+
+            throw new IOException("Failed to render a page of the HTML export", e.getCause());
+        }
+    }
+
     private XWikiContext initializeContexts(ExecutionContextManager ecm, Execution execution, ExportURLFactory urlf,
         XWikiContext originalContext) throws ExecutionContextException
     {
@@ -397,7 +552,11 @@ public void export(XWikiContext context) throws IOException, XWikiException
             ZipOutputStream zos = new ZipOutputStream(context.getResponse().getOutputStream());
 
             // Render pages to export
-            renderDocuments(zos, urlf, context);
+            if (getThreads() > 1) {
+                renderDocumentsInParallel(zos, urlf, context);
+            } else {
+                renderDocuments(zos, urlf, context);
+            }
 
             // Add required skins to ZIP file
             for (String skinName : urlf.getFilesystemExportContext().getNeededSkins()) {
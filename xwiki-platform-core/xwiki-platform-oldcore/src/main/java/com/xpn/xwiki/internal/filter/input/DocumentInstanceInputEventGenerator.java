@@ -19,23 +19,37 @@
  */
 package com.xpn.xwiki.internal.filter.input;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.descriptor.FilterStreamDescriptor;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.input.AbstractInstanceInputEventGenerator;
 import org.xwiki.filter.instance.input.EntityEventGenerator;
+import org.xwiki.filter.instance.input.InstanceInputProperties;
+import org.xwiki.filter.instance.internal.InstanceModel;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSet;
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.properties.BeanManager;
 
@@ -49,6 +63,11 @@
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class DocumentInstanceInputEventGenerator extends AbstractInstanceInputEventGenerator<XWikiDocumentFilter>
 {
+    /**
+     * The number of documents loaded together in the background.
+     */
+    private static final int PREFETCH_SIZE = 50;
+
     /**
      * The {@link BeanManager} component.
      */
@@ -61,6 +80,38 @@ public class DocumentInstanceInputEventGenerator extends AbstractInstanceInputEv
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    private InstanceModel instanceModel;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The documents of the current space which are going to be written, in the order they are going to be written.
+     */
+    private List<DocumentReference> spaceDocuments = Collections.emptyList();
+
+    /**
+     * The index in {@link #spaceDocuments} of the current document.
+     */
+    private int spaceDocumentIndex;
+
+    /**
+     * The number of documents in {@link #spaceDocuments} for which a prefetch has already been requested.
+     */
+    private int spaceDocumentPrefetched;
+
+    /**
+     * Load the next documents in the background while the current one is written.
+     */
+    private ThreadPoolExecutor prefetchExecutor;
+
     @Override
     public FilterStreamDescriptor getDescriptor()
     {
@@ -84,6 +135,115 @@ public void setWikiDocumentParameters(String name, FilterEventParameters documen
         documentParameters.put(WikiDocumentFilter.PARAMETER_LOCALE, defaultDocument.getDefaultLocale());
     }
 
+    @Override
+    public void endWikiFarm(FilterEventParameters parameters) throws FilterException
+    {
+        stopPrefetch();
+
+        super.endWikiFarm(parameters);
+    }
+
+    @Override
+    public void endWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        // The prefetched documents are only the ones of the current space
+        stopPrefetch();
+
+        super.endWikiSpace(name, parameters);
+    }
+
+    private void stopPrefetch()
+    {
+        this.spaceDocuments = Collections.emptyList();
+
+        if (this.prefetchExecutor != null) {
+            // Forget the prefetches which did not start yet but let the current one finish cleanly
+            this.prefetchExecutor.getQueue().clear();
+            this.prefetchExecutor.shutdown();
+            this.prefetchExecutor = null;
+        }
+    }
+
+    @Override
+    public void beginWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        super.beginWikiSpace(name, parameters);
+
+        SpaceReference spaceReference = new SpaceReference(this.currentReference);
+
+        EntityReferenceSet entities = null;
+        if (this.properties instanceof InstanceInputProperties) {
+            entities = ((InstanceInputProperties) this.properties).getEntities();
+        }
+
+        List<DocumentReference> documents = this.instanceModel.getDocumentReferences(spaceReference);
+        this.spaceDocuments = new ArrayList<>(documents.size());
+        for (DocumentReference document : documents) {
+            if (entities == null || entities.matches(document)) {
+                this.spaceDocuments.add(document);
+            }
+        }
+        this.spaceDocumentIndex = 0;
+        this.spaceDocumentPrefetched = 0;
+
+        prefetch();
+    }
+
+    /**
+     * Load in the background the next documents of the current space so that they are already in the document cache
+     * when they are written. The documents are loaded by batches using a few requests instead of several for each
+     * document.
+     */
+    private void prefetch()
+    {
+        // Wait until the current document reaches the middle of the last prefetched batch
+        if (this.spaceDocumentPrefetched >= this.spaceDocuments.size()
+            || this.spaceDocumentIndex + PREFETCH_SIZE / 2 < this.spaceDocumentPrefetched) {
+            return;
+        }
+
+        List<DocumentReference> batch = new ArrayList<>(this.spaceDocuments.subList(this.spaceDocumentPrefetched,
+            Math.min(this.spaceDocumentPrefetched + PREFETCH_SIZE, this.spaceDocuments.size())));
+        this.spaceDocumentPrefetched += batch.size();
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        if (xcontext == null || xcontext.getWiki() == null) {
+            return;
+        }
+
+        ExecutionContext executionContext;
+        try {
+            executionContext = this.executionContextManager.clone(this.execution.getContext());
+        } catch (ExecutionContextException e) {
+            this.logger.warn("Failed to prefetch the documents [{}]: {}", batch, e.getMessage());
+
+            return;
+        }
+        XWikiContext prefetchContext = xcontext.clone();
+        prefetchContext.setWikiReference(batch.get(0).getWikiReference());
+        prefetchContext.declareInExecutionContext(executionContext);
+
+        if (this.prefetchExecutor == null) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("XWiki document export prefetch thread").daemon(true).build();
+            this.prefetchExecutor =
+                new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+        }
+
+        this.prefetchExecutor.execute(() -> {
+            this.execution.setContext(executionContext);
+
+            try {
+                prefetchContext.getWiki().getStore().loadXWikiDocs(batch, prefetchContext);
+            } catch (Exception e) {
+                // Not critical, the documents will simply be loaded when they are written
+                this.logger.debug("Failed to prefetch the documents [{}]", batch, e);
+            } finally {
+                this.execution.removeContext();
+            }
+        });
+    }
+
     @Override
     public void beginWikiDocument(String name, FilterEventParameters parameters) throws FilterException
     {
@@ -91,6 +251,15 @@ public void beginWikiDocument(String name, FilterEventParameters parameters) thr
 
         DocumentReference reference = new DocumentReference(this.currentReference);
 
+        // Find the current document in the list of documents of the space and prefetch the next ones if needed
+        for (int i = this.spaceDocumentIndex; i < this.spaceDocuments.size(); ++i) {
+            if (this.spaceDocuments.get(i).equals(reference)) {
+                this.spaceDocumentIndex = i;
+                prefetch();
+                break;
+            }
+        }
+
         XWikiContext xcontext = this.xcontextProvider.get();
 
         XWikiDocument defaultDocument;
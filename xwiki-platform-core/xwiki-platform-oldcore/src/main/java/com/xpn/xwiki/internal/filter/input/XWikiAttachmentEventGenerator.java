@@ -20,6 +20,7 @@
 package com.xpn.xwiki.internal.filter.input;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.ParameterizedType;
 
@@ -43,6 +44,7 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.filter.XWikiAttachmentFilter;
 
 /**
@@ -90,11 +92,20 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
                 attachment.getCharset());
         }
 
+        // The attachment generally comes from the document cache so the content and the history which are loaded from
+        // the store only for the export are loaded in a copy of it, to not keep them in memory once exported
+        XWikiAttachment exportedAttachment = attachment;
+        if ((attachment.getAttachment_content() == null || attachment.getAttachment_archive() == null)
+            && isStored(attachment)) {
+            exportedAttachment = attachment.clone();
+            exportedAttachment.setDoc(attachment.getDoc(), false);
+        }
+
         if (properties.isWithJRCSRevisions()) {
             try {
                 // We need to make sure content is loaded
                 XWikiAttachmentArchive archive;
-                archive = attachment.loadArchive(xcontext);
+                archive = exportedAttachment.loadArchive(xcontext);
                 if (archive != null) {
                     attachmentParameters.put(XWikiWikiAttachmentFilter.PARAMETER_JRCSREVISIONS,
                         archive.getArchiveAsString());
@@ -108,8 +119,8 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
         Long size;
         if (properties.isWithWikiAttachmentsContent()) {
             try {
-                content = attachment.getContentInputStream(xcontext);
-                size = attachment.getLongSize();
+                content = exportedAttachment.getContentInputStream(xcontext);
+                size = exportedAttachment.getLongSize();
             } catch (XWikiException e) {
                 this.logger.error("Failed to get content of attachment [{}]", attachment.getReference(), e);
 
@@ -123,6 +134,26 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
 
         // WikiAttachment
 
-        attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        try {
+            attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        } finally {
+            if (content != null) {
+                try {
+                    content.close();
+                } catch (IOException e) {
+                    this.logger.warn("Failed to close the content of attachment [{}]", attachment.getReference(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the content and the history of the attachment can be loaded again from the store
+     */
+    private boolean isStored(XWikiAttachment attachment)
+    {
+        XWikiDocument document = attachment.getDoc();
+
+        return document != null && !document.isNew();
     }
 }
@@ -20,24 +20,43 @@
 package com.xpn.xwiki.internal.filter.output;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.filter.FilterDescriptorManager;
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.output.AbstractBeanOutputFilterStream;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.logging.marker.TranslationMarker;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -90,10 +109,42 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
     @Inject
     private EntityOutputFilterStream<XWikiDocument> documentListener;
 
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private LoggerManager loggerManager;
+
     @Inject
     private Logger logger;
 
-    private boolean documentDeleted;
+    /**
+     * Indicate if the previous version of the current document has already been deleted. A new instance is created
+     * for each document so that it can be safely shared with the thread saving the document.
+     */
+    private MutableBoolean documentDeleted = new MutableBoolean();
+
+    /**
+     * The threads saving the documents when {@link DocumentInstanceOutputProperties#getSaveThreads()} is greater
+     * than 1. Each document is always saved by the same thread to make sure its revisions are saved in the right
+     * order.
+     */
+    private List<ExecutorService> saveExecutors;
+
+    /**
+     * Limit the number of documents waiting to be saved to avoid keeping too many of them in memory.
+     */
+    private Semaphore pendingSaves;
+
+    private final AtomicReference<FilterException> saveError = new AtomicReference<>();
+
+    /**
+     * The logs produced by the save threads, waiting to be replayed in the calling thread.
+     */
+    private final Queue<LogQueue> saveLogs = new ConcurrentLinkedQueue<>();
 
     private FilterEventParameters currentLocaleParameters;
 
@@ -113,7 +164,31 @@ protected Object createFilter() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Nothing to close
+        if (this.saveExecutors != null) {
+            // Wait for all the documents to be saved
+            try {
+                for (ExecutorService executor : this.saveExecutors) {
+                    executor.execute(this.execution::removeContext);
+                    executor.shutdown();
+                }
+                for (ExecutorService executor : this.saveExecutors) {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new IOException("Interrupted while waiting for the documents to be saved", e);
+            } finally {
+                this.saveExecutors = null;
+
+                replaySaveLogs();
+            }
+
+            FilterException error = this.saveError.get();
+            if (error != null) {
+                throw new IOException(error.getMessage(), error);
+            }
+        }
     }
 
     @Override
@@ -129,7 +204,7 @@ public void setProperties(DocumentInstanceOutputProperties properties) throws Fi
     @Override
     public void beginWikiDocument(String name, FilterEventParameters parameters) throws FilterException
     {
-        this.documentDeleted = false;
+        this.documentDeleted = new MutableBoolean();
 
         this.currentLocaleParameters = parameters;
         this.currentRevisionParameters = parameters;
@@ -186,13 +261,130 @@ private void maybeSaveDocument() throws FilterException
             return;
         }
 
+        if (this.properties.getSaveThreads() > 1) {
+            saveDocumentAsync(inputDocument, this.documentDeleted);
+        } else {
+            saveDocument(inputDocument, this.documentDeleted);
+        }
+    }
+
+    private void saveDocumentAsync(XWikiDocument inputDocument, MutableBoolean documentDeleted)
+        throws FilterException
+    {
+        replaySaveLogs();
+
+        // Stop as soon as possible when a document failed to be saved
+        FilterException error = this.saveError.get();
+        if (error != null) {
+            throw error;
+        }
+
+        if (this.saveExecutors == null) {
+            startSaveExecutors();
+        }
+
+        // Make sure all the locales of a same document are saved by the same thread
+        int index = Math.floorMod(inputDocument.getDocumentReference().hashCode(), this.saveExecutors.size());
+
+        try {
+            this.pendingSaves.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new FilterException("Interrupted while waiting to save document", e);
+        }
+
+        this.saveExecutors.get(index).execute(() -> {
+            try {
+                // Cancel the pending saves when a document failed to be saved
+                if (this.saveError.get() == null) {
+                    saveDocumentInSaveThread(inputDocument, documentDeleted);
+                }
+            } finally {
+                this.pendingSaves.release();
+            }
+        });
+    }
+
+    private void saveDocumentInSaveThread(XWikiDocument inputDocument, MutableBoolean documentDeleted)
+    {
+        // The log listeners (job status, import report, etc.) are associated to the calling thread so the logs are
+        // isolated and replayed later in the calling thread
+        LogQueue logs = new LogQueue();
+        this.loggerManager.pushLogListener(new LoggerListener(UUID.randomUUID().toString(), logs));
+
+        FilterException error = null;
+        try {
+            saveDocument(inputDocument, documentDeleted);
+        } catch (FilterException e) {
+            error = e;
+        } finally {
+            this.loggerManager.popLogListener();
+
+            this.saveLogs.add(logs);
+        }
+
+        // Make sure the logs of the failed save are available before the error is reported
+        if (error != null) {
+            this.saveError.compareAndSet(null, error);
+        }
+    }
+
+    private void replaySaveLogs()
+    {
+        for (LogQueue logs = this.saveLogs.poll(); logs != null; logs = this.saveLogs.poll()) {
+            logs.log(this.logger);
+        }
+    }
+
+    private void startSaveExecutors() throws FilterException
+    {
+        int threads = this.properties.getSaveThreads();
+
+        this.saveExecutors = new ArrayList<>(threads);
+        this.pendingSaves = new Semaphore(threads * 2);
+
+        BasicThreadFactory factory =
+            new BasicThreadFactory.Builder().namingPattern("XWiki document import thread %d").daemon(true).build();
+        XWikiContext xcontext = this.xcontextProvider.get();
+        boolean started = false;
+        try {
+            for (int i = 0; i < threads; ++i) {
+                ExecutorService executor = Executors.newSingleThreadExecutor(factory);
+                this.saveExecutors.add(executor);
+
+                // Each thread gets its own copy of the current contexts
+                ExecutionContext executionContext;
+                try {
+                    executionContext = this.executionContextManager.clone(this.execution.getContext());
+                } catch (ExecutionContextException e) {
+                    throw new FilterException("Failed to initialize the execution context of the save threads", e);
+                }
+                xcontext.clone().declareInExecutionContext(executionContext);
+                executor.execute(() -> this.execution.setContext(executionContext));
+            }
+
+            started = true;
+        } finally {
+            if (!started) {
+                // Don't leave the threads already started behind
+                for (ExecutorService executor : this.saveExecutors) {
+                    executor.shutdownNow();
+                }
+                this.saveExecutors = null;
+            }
+        }
+    }
+
+    private void saveDocument(XWikiDocument inputDocument, MutableBoolean documentDeleted) throws FilterException
+    {
         XWikiContext xcontext = this.xcontextProvider.get();
 
         try {
             XWikiDocument document =
                 xcontext.getWiki().getDocument(inputDocument.getDocumentReferenceWithLocale(), xcontext);
 
-            if (!this.documentDeleted && !document.isNew() && this.properties.isPreviousDeleted()) {
+            if (documentDeleted.isFalse() && !document.isNew() && this.properties.isPreviousDeleted()) {
                 XWikiDocument originalDocument = document;
 
                 // Save current context wiki
@@ -209,7 +401,7 @@ private void maybeSaveDocument() throws FilterException
 
                     // Make sure to not generate DocumentDeletedEvent since from listener point of view it's not
                     xcontext.getWiki().getStore().deleteXWikiDoc(document, xcontext);
-                    this.documentDeleted = true;
+                    documentDeleted.setTrue();
                 } finally {
                     // Restore current context wiki
                     xcontext.setWikiReference(currentWiki);
@@ -222,7 +414,7 @@ private void maybeSaveDocument() throws FilterException
                 document.setOriginalDocument(originalDocument);
             } else {
                 // Make sure to remember that the document should not be deleted anymore
-                this.documentDeleted = true;
+                documentDeleted.setTrue();
             }
 
             // Remember if it's a creation or an update
@@ -0,0 +1,155 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.remote.codec.RemoteValueCodec;
+import org.xwiki.observation.remote.codec.RemoteValueInput;
+import org.xwiki.observation.remote.codec.RemoteValueOutput;
+
+/**
+ * Compact encoding of the entity references found in the remote events (mostly the document references).
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Singleton
+@Named("entityreference")
+public class EntityReferenceRemoteValueCodec implements RemoteValueCodec
+{
+    private static final int ENTITY = 0;
+
+    private static final int WIKI = 1;
+
+    private static final int SPACE = 2;
+
+    private static final int DOCUMENT = 3;
+
+    @Override
+    public boolean canEncode(Object value)
+    {
+        return value != null && getReferenceClass(value.getClass()) != -1;
+    }
+
+    private int getReferenceClass(Class<?> valueClass)
+    {
+        if (valueClass == DocumentReference.class) {
+            return DOCUMENT;
+        } else if (valueClass == SpaceReference.class) {
+            return SPACE;
+        } else if (valueClass == WikiReference.class) {
+            return WIKI;
+        } else if (valueClass == EntityReference.class) {
+            return ENTITY;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public void encode(Object value, RemoteValueOutput output) throws IOException
+    {
+        EntityReference reference = (EntityReference) value;
+
+        output.writeInt(getReferenceClass(value.getClass()));
+
+        List<EntityReference> chain = reference.getReversedReferenceChain();
+        output.writeInt(chain.size());
+        for (EntityReference element : chain) {
+            output.writeString(element.getType().name());
+            output.writeString(element.getName());
+
+            Map<String, Serializable> parameters = element.getParameters();
+            output.writeInt(parameters.size());
+            for (Map.Entry<String, Serializable> parameter : parameters.entrySet()) {
+                output.writeString(parameter.getKey());
+                if (parameter.getValue() instanceof Locale) {
+                    output.writeBoolean(true);
+                    output.writeString(parameter.getValue().toString());
+                } else {
+                    output.writeBoolean(false);
+                    output.writeValue(parameter.getValue());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object decode(RemoteValueInput input) throws IOException
+    {
+        int referenceClass = input.readInt();
+
+        EntityReference reference = null;
+        int size = input.readInt();
+        for (int i = 0; i < size; ++i) {
+            EntityType type;
+            try {
+                type = EntityType.valueOf(input.readString());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown entity type", e);
+            }
+            String name = input.readString();
+
+            Map<String, Serializable> parameters = null;
+            int parametersSize = input.readInt();
+            if (parametersSize > 0) {
+                parameters = new HashMap<>(parametersSize * 4 / 3 + 1);
+                for (int j = 0; j < parametersSize; ++j) {
+                    String key = input.readString();
+                    if (input.readBoolean()) {
+                        parameters.put(key, LocaleUtils.toLocale(input.readString()));
+                    } else {
+                        parameters.put(key, (Serializable) input.readValue());
+                    }
+                }
+            }
+
+            reference = new EntityReference(name, type, reference, parameters);
+        }
+
+        switch (referenceClass) {
+            case DOCUMENT:
+                return new DocumentReference(reference);
+            case SPACE:
+                return new SpaceReference(reference);
+            case WIKI:
+                return new WikiReference(reference);
+            default:
+                return reference;
+        }
+    }
+}
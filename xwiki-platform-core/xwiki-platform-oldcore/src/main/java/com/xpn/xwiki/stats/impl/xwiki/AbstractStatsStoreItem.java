@@ -63,6 +63,13 @@ public abstract class AbstractStatsStoreItem implements XWikiStatsStoreItem
      */
     protected int period;
 
+    /**
+     * The number of hits merged in this item.
+     *
+     * @since 11.3RC1
+     */
+    protected int hits = 1;
+
     /**
      * @param name the statistic name.
      * @param periodDate the period date.
@@ -96,6 +103,32 @@ public void store(List<XWikiStatsStoreItem> statsList)
         }
     }
 
+    /**
+     * Merge an item having the same identifier into this one so that both are stored at once.
+     *
+     * @param item the item to merge, produced after this one
+     * @since 11.3RC1
+     */
+    protected void merge(AbstractStatsStoreItem item)
+    {
+        this.hits += item.hits;
+    }
+
+    /**
+     * @param statsList a list of statistics items
+     * @return the total number of hits of the passed items
+     * @since 11.3RC1
+     */
+    protected static int getHits(List<XWikiStatsStoreItem> statsList)
+    {
+        int total = 0;
+        for (XWikiStatsStoreItem item : statsList) {
+            total += ((AbstractStatsStoreItem) item).hits;
+        }
+
+        return total;
+    }
+
     /**
      * Store provided statistics into the database.
      *
@@ -50,9 +50,9 @@ public class DocumentStatsStoreItem extends AbstractStatsStoreItem
     private String action;
 
     /**
-     * Is this part of a user visit.
+     * The number of user visits started by the merged hits.
      */
-    private boolean isVisit;
+    private int visits;
 
     /**
      * Create new instance of {@link DocumentStatsStoreItem}.
@@ -75,7 +75,7 @@ public DocumentStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         super(name, periodDate, periodType, context);
 
         this.action = action;
-        this.isVisit = isVisit;
+        this.visits = isVisit ? 1 : 0;
     }
 
     @Override
@@ -84,6 +84,14 @@ public String getId()
         return String.format("%s %s %s %s", getClass(), this.name, this.action, this.period);
     }
 
+    @Override
+    protected void merge(AbstractStatsStoreItem item)
+    {
+        super.merge(item);
+
+        this.visits += ((DocumentStatsStoreItem) item).visits;
+    }
+
     @Override
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
@@ -108,13 +116,13 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        documentStat.setIntValue("pageViews", documentStat.getPageViews() + stats.size());
+        documentStat.setIntValue("pageViews", documentStat.getPageViews() + getHits(stats));
+        int newVisits = 0;
         for (XWikiStatsStoreItem statItem : stats) {
-            DocumentStatsStoreItem docStat = (DocumentStatsStoreItem) statItem;
-
-            if (docStat.isVisit) {
-                documentStat.incVisits();
-            }
+            newVisits += ((DocumentStatsStoreItem) statItem).visits;
+        }
+        if (newVisits > 0) {
+            documentStat.setVisits(documentStat.getVisits() + newVisits);
         }
 
         // Re-save statistics object
@@ -96,7 +96,7 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        refererStat.setIntValue("pageViews", refererStat.getPageViews() + stats.size());
+        refererStat.setIntValue("pageViews", refererStat.getPageViews() + getHits(stats));
 
         // Re-save statistics object
         try {
@@ -49,6 +49,11 @@ public class VisitStatsStoreItem extends AbstractStatsStoreItem
      */
     private VisitStats visitStats;
 
+    /**
+     * The previous state of the visit to remove from the database, if its identifier changed.
+     */
+    private VisitStats oldVisitStats;
+
     /**
      * Create new instance of {@link VisitStatsStoreItem}.
      *
@@ -61,6 +66,7 @@ public VisitStatsStoreItem(VisitStats visitStats, XWikiContext context)
         this.period = visitStats.getPeriod();
 
         this.visitStats = (VisitStats) visitStats.clone();
+        this.oldVisitStats = this.visitStats.getOldObject();
     }
 
     @Override
@@ -70,11 +76,20 @@ public String getId()
             this.visitStats.getCookie());
     }
 
+    @Override
+    protected void merge(AbstractStatsStoreItem item)
+    {
+        super.merge(item);
+
+        // Only the latest state of the visit needs to be stored
+        this.visitStats = ((VisitStatsStoreItem) item).visitStats;
+    }
+
     @Override
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
         VisitStatsStoreItem firstItem = (VisitStatsStoreItem) stats.get(0);
-        VisitStats oldVisitStats = firstItem.visitStats.getOldObject();
+        VisitStats oldVisitStats = firstItem.oldVisitStats;
 
         VisitStatsStoreItem lastItem = (VisitStatsStoreItem) stats.get(stats.size() - 1);
         VisitStats newVisitStats = lastItem.visitStats;
@@ -20,11 +20,14 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +44,10 @@
 
 /**
  * Back-end statistics storing service.
+ * <p>
+ * The statistics are aggregated in memory: the hits having the same identifier (same document, action and period for
+ * example) are merged into a single item which is stored in the database with a single load and save every flush
+ * interval, whatever the number of hits. The hits of different identifiers are aggregated concurrently.
  *
  * @version $Id$
  * @since 1.4M2
@@ -53,9 +60,25 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
     /**
-     * The queue containing the statistics to store.
+     * The statistics waiting to be stored, indexed by identifier. Each identifier is updated atomically so that hits
+     * on different identifiers don't wait for each other.
      */
-    private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
+    private final ConcurrentMap<String, PendingStats> pendingStats = new ConcurrentHashMap<>();
+
+    /**
+     * Used to remember the order of the first hit of each identifier.
+     */
+    private final AtomicLong hitCounter = new AtomicLong();
+
+    /**
+     * The time in milliseconds between two stores of the aggregated statistics.
+     */
+    private long flushInterval;
+
+    /**
+     * Released when the storing thread should stop.
+     */
+    private volatile CountDownLatch stopSignal = new CountDownLatch(1);
 
     /**
      * The thread on which the storing service is running.
@@ -68,15 +91,14 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private XWikiContext xwikiContext;
 
     /**
-     * Create new instance of XWikiStatsRegister and init statistics queue.
+     * Create new instance of XWikiStatsRegister and init statistics aggregation.
      *
      * @param context the XWiki context.
      */
     public XWikiStatsStoreService(XWikiContext context)
     {
         this.xwikiContext = context.clone();
-        long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
-        this.queue = new ArrayBlockingQueue<>((int) queueSize);
+        this.flushInterval = context.getWiki().ParamAsLong("xwiki.stats.flushInterval", 5) * 1000L;
     }
 
     @Override
@@ -92,6 +114,7 @@ protected void declareProperties(ExecutionContext executionContext)
     public void start()
     {
         if (this.thread == null) {
+            this.stopSignal = new CountDownLatch(1);
             this.thread = new Thread(this, "Statistics storing daemon");
             // The JVM should be allowed to shutdown while this thread is running
             this.thread.setDaemon(true);
@@ -100,13 +123,13 @@ public void start()
     }
 
     /**
-     * Stop storing thread.
+     * Stop storing thread, after it stored the remaining statistics.
      */
     public void stop()
     {
-        this.queue.clear();
+        // Don't interrupt the thread since it might be writing to the database
+        this.stopSignal.countDown();
         try {
-            this.queue.put(new StopStatsRegisterObject());
             this.thread.join();
             this.thread = null;
         } catch (InterruptedException e) {
@@ -119,62 +142,54 @@ public void stop()
     @Override
     public void runInternal()
     {
-        try {
-            while (true) {
-                register();
-            }
-        } catch (InterruptedException e) {
-            if (LOGGER.isWarnEnabled()) {
+        CountDownLatch signal = this.stopSignal;
+        while (true) {
+            try {
+                if (signal.await(this.flushInterval, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
                 LOGGER.warn("Statistics storing thread has been interrupted.", e);
+
+                break;
             }
-        } catch (StopStatsStoreException e) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.warn("Statistics storing thread received stop order.", e);
-            }
+
+            register();
         }
+
+        // Don't lose the statistics aggregated since the last store
+        register();
     }
 
     /**
-     * Store the statistics in the queue.
-     *
-     * @throws InterruptedException thread has been interrupted.
-     * @throws StopStatsStoreException service received stop order.
+     * Store the aggregated statistics.
      */
-    private void register() throws InterruptedException, StopStatsStoreException
+    private void register()
     {
-        XWikiStatsStoreItem stat = this.queue.take();
-
-        List<List<XWikiStatsStoreItem>> statsList = new ArrayList<>();
-        Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<>();
-
-        do {
-            if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
+        // New hits will be aggregated in new items
+        List<PendingStats> batch = new ArrayList<>(this.pendingStats.size());
+        for (String statId : this.pendingStats.keySet()) {
+            PendingStats stats = this.pendingStats.remove(statId);
+            if (stats != null) {
+                batch.add(stats);
             }
+        }
 
-            String statId = stat.getId();
-
-            List<XWikiStatsStoreItem> stats = statsMap.get(statId);
-
-            if (stats == null) {
-                stats = new ArrayList<>();
+        // The order matters for the visits whose identifier changed: the previous visit must be stored before being
+        // replaced by the new one
+        batch.sort(Comparator.comparingLong(stats -> stats.order));
 
-                statsMap.put(statId, stats);
-                statsList.add(stats);
+        for (PendingStats stats : batch) {
+            try {
+                stats.items.get(0).store(stats.items);
+            } catch (Exception e) {
+                LOGGER.error("Failed to store statistics [{}]", stats.items.get(0).getId(), e);
             }
-
-            stats.add(stat);
-
-            stat = this.queue.poll();
-        } while (stat != null);
-
-        for (List<XWikiStatsStoreItem> stats : statsList) {
-            stats.get(0).store(stats);
         }
     }
 
     // ////////////////////////////////////////////////////////////////////////////
-    // Add stats to queue
+    // Add stats to the aggregated statistics
     // ////////////////////////////////////////////////////////////////////////////
 
     /**
@@ -184,11 +199,15 @@ private void register() throws InterruptedException, StopStatsStoreException
      */
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
-        try {
-            this.queue.put(statsRegisterItem);
-        } catch (InterruptedException e) {
-            LOGGER.error("Statistics storage thread has been interrupted", e);
-        }
+        this.pendingStats.compute(statsRegisterItem.getId(), (statId, stats) -> {
+            if (stats == null) {
+                return new PendingStats(this.hitCounter.getAndIncrement(), statsRegisterItem);
+            }
+
+            stats.add(statsRegisterItem);
+
+            return stats;
+        });
     }
 
     /**
@@ -278,33 +297,36 @@ private void addRefererStats(XWikiDocument doc, XWikiContext context)
             add(new RefererStatsStoreItem(doc.getFullName(), new Date(), StatsUtil.PeriodType.MONTH, referer, context));
         }
     }
-}
 
-/**
- * Item used to stop the statistics storing.
- *
- * @version $Id$
- */
-class StopStatsRegisterObject implements XWikiStatsStoreItem
-{
-    @Override
-    public String getId()
+    /**
+     * The aggregated statistics of an identifier.
+     */
+    private static final class PendingStats
     {
-        return null;
-    }
+        /**
+         * The order of the first hit.
+         */
+        private final long order;
+
+        /**
+         * The aggregated item, followed by the items which can't be merged in the order they have been added.
+         */
+        private final List<XWikiStatsStoreItem> items = new ArrayList<>(1);
+
+        PendingStats(long order, XWikiStatsStoreItem item)
+        {
+            this.order = order;
+            this.items.add(item);
+        }
 
-    @Override
-    public void store(List<XWikiStatsStoreItem> register)
-    {
+        void add(XWikiStatsStoreItem item)
+        {
+            XWikiStatsStoreItem firstItem = this.items.get(0);
+            if (firstItem instanceof AbstractStatsStoreItem && item instanceof AbstractStatsStoreItem) {
+                ((AbstractStatsStoreItem) firstItem).merge((AbstractStatsStoreItem) item);
+            } else {
+                this.items.add(item);
+            }
+        }
     }
 }
-
-/**
- * Used to order stopping storing thread.
- *
- * @version $Id$
- */
-class StopStatsStoreException extends Exception
-{
-
-}
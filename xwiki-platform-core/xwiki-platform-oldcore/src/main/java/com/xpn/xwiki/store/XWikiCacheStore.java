@@ -19,12 +19,28 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
@@ -73,6 +89,11 @@ public class XWikiCacheStore extends AbstractXWikiStore
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    /**
+     * The maximum time (in seconds) to wait for a storage call in progress before calling the storage directly.
+     */
+    private static final long COALESCED_CALL_TIMEOUT = 30;
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -102,6 +123,50 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<Boolean> pageExistCache;
 
+    /**
+     * The documents currently being loaded from the storage, used to make concurrent loads of the same document wait
+     * for the first one instead of all hitting the storage.
+     */
+    private final Map<String, StoreCallInProgress<XWikiDocument>> loadingDocuments = new ConcurrentHashMap<>();
+
+    /**
+     * The document existence checks currently in progress in the storage.
+     */
+    private final Map<String, StoreCallInProgress<Boolean>> checkingDocuments = new ConcurrentHashMap<>();
+
+    /**
+     * The threads currently waiting for a storage call in progress, associated to the thread executing this call. Used
+     * to detect cycles between threads waiting for each other.
+     */
+    private final Map<Thread, Thread> waitingThreads = new ConcurrentHashMap<>();
+
+    private final AtomicLong coalescedLoads = new AtomicLong();
+
+    private final AtomicLong coalescedExistChecks = new AtomicLong();
+
+    /**
+     * A call to the underlying store.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    private interface StoreCall<T>
+    {
+        T call() throws XWikiException;
+    }
+
+    /**
+     * A call to the underlying store in progress.
+     *
+     * @param <T> the type of the result
+     */
+    private static final class StoreCallInProgress<T>
+    {
+        private final Thread owner = Thread.currentThread();
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+    }
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -220,6 +285,7 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             // We need to flush so that caches
             // on the cluster are informed about the change
             String key = getKey(doc, context);
+            forgetInProgress(key);
             getCache().remove(key);
             getPageExistCache().remove(key);
 
@@ -253,6 +319,8 @@ public void onEvent(Event event, Object source, Object data)
 
                 String key = doc.getKey();
 
+                forgetInProgress(key);
+
                 if (getCache() != null) {
                     getCache().remove(key);
                 }
@@ -340,43 +408,267 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
                 if (result == Boolean.FALSE) {
                     LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+                    cachedoc = toNewDocument(doc);
                 } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+                    cachedoc = loadXWikiDocFromStore(key, doc, context);
+                }
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                cachedoc.setStore(this.store);
+            }
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+            LOGGER.debug("Cache: end for doc {} in cache", key);
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+        try {
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+            List<DocumentReference> referencesToLoad = new ArrayList<>();
+
+            for (DocumentReference reference : references) {
+                XWikiDocument doc = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+                String key = getKey(doc, context);
+
+                XWikiDocument cachedoc = getCache().get(key);
+                if (cachedoc != null) {
+                    cachedoc.setFromCache(true);
+                } else if (getPageExistCache().get(key) == Boolean.FALSE) {
+                    cachedoc = toNewDocument(doc);
+                    cachedoc.setStore(this.store);
+                } else {
+                    // Will be loaded from the storage along with the other missing documents
+                    referencesToLoad.add(reference);
                 }
 
-                cachedoc.setStore(this.store);
+                documents.add(cachedoc);
             }
 
-            LOGGER.debug("Cache: end for doc {} in cache", key);
+            if (!referencesToLoad.isEmpty()) {
+                LOGGER.debug("Cache: Trying to get docs {} from persistent storage", referencesToLoad);
 
-            return cachedoc;
+                Iterator<XWikiDocument> loadedDocuments =
+                    this.store.loadXWikiDocs(referencesToLoad, context).iterator();
+                for (ListIterator<XWikiDocument> it = documents.listIterator(); it.hasNext();) {
+                    if (it.next() == null) {
+                        XWikiDocument loadedDocument = loadedDocuments.next();
+                        String key = getKey(loadedDocument, context);
+
+                        if (loadedDocument.isNew()) {
+                            getPageExistCache().set(key, Boolean.FALSE);
+                        } else {
+                            getCache().set(key, loadedDocument);
+                            getPageExistCache().set(key, Boolean.TRUE);
+                        }
+
+                        loadedDocument.setStore(this.store);
+
+                        it.set(loadedDocument);
+                    }
+                }
+            }
+
+            return documents;
         } finally {
             restoreExecutionXContext();
         }
     }
 
+    private XWikiDocument loadXWikiDocFromStore(String key, XWikiDocument doc, XWikiContext context)
+        throws XWikiException
+    {
+        MutableBoolean loadedByCurrentThread = new MutableBoolean();
+        XWikiDocument loadedDocument = coalesce(this.loadingDocuments, this.coalescedLoads, key, () -> {
+            loadedByCurrentThread.setTrue();
+
+            LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+
+            XWikiDocument storedDocument = this.store.loadXWikiDoc(doc, context);
+
+            LOGGER.debug("Cache: Got doc {} from storage", key);
+
+            if (storedDocument.isNew()) {
+                getPageExistCache().set(key, Boolean.FALSE);
+            } else {
+                getCache().set(key, storedDocument);
+
+                // Also update exist cache
+                getPageExistCache().set(key, Boolean.TRUE);
+            }
+
+            LOGGER.debug("Cache: put doc {} in cache", key);
+
+            return storedDocument;
+        });
+
+        if (loadedByCurrentThread.isFalse()) {
+            // The document was loaded by another thread
+            if (loadedDocument.isNew()) {
+                return toNewDocument(doc);
+            }
+
+            loadedDocument.setFromCache(true);
+        }
+
+        return loadedDocument;
+    }
+
+    private XWikiDocument toNewDocument(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+
+        return doc;
+    }
+
+    /**
+     * Execute the passed store call unless the same call is already in progress for the same key in which case wait
+     * for it and return its result.
+     * <p>
+     * The store is called directly when waiting could dead lock (the current thread is the one executing the call in
+     * progress, or the thread executing it is itself waiting for the current thread) or when the call in progress takes
+     * too long.
+     */
+    private <T> T coalesce(Map<String, StoreCallInProgress<T>> inProgress, AtomicLong coalesced, String key,
+        StoreCall<T> call) throws XWikiException
+    {
+        StoreCallInProgress<T> callInProgress = new StoreCallInProgress<>();
+        StoreCallInProgress<T> currentCallInProgress = inProgress.putIfAbsent(key, callInProgress);
+
+        if (currentCallInProgress != null) {
+            if (currentCallInProgress.owner == Thread.currentThread()) {
+                LOGGER.debug("Cache: Re-entrant storage call for doc {}, calling the storage directly", key);
+
+                return call.call();
+            }
+
+            return join(currentCallInProgress, coalesced, key, call);
+        }
+
+        try {
+            T result = call.call();
+
+            callInProgress.future.complete(result);
+
+            return result;
+        } catch (XWikiException | RuntimeException e) {
+            callInProgress.future.completeExceptionally(e);
+
+            throw e;
+        } finally {
+            inProgress.remove(key, callInProgress);
+
+            // Make sure to never leave waiting threads behind
+            if (!callInProgress.future.isDone()) {
+                callInProgress.future.cancel(false);
+            }
+        }
+    }
+
+    private <T> T join(StoreCallInProgress<T> callInProgress, AtomicLong coalesced, String key, StoreCall<T> call)
+        throws XWikiException
+    {
+        Thread currentThread = Thread.currentThread();
+
+        // Register the wait before looking for cycles so that at least one of the threads involved in a cycle sees it
+        this.waitingThreads.put(currentThread, callInProgress.owner);
+
+        try {
+            if (isWaitingFor(callInProgress.owner, currentThread)) {
+                LOGGER.debug("Cache: Cyclic storage calls for doc {}, calling the storage directly", key);
+
+                return call.call();
+            }
+
+            coalesced.incrementAndGet();
+
+            LOGGER.debug("Cache: Waiting for the storage call in progress for doc {}", key);
+
+            return callInProgress.future.get(COALESCED_CALL_TIMEOUT, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.debug("Cache: The storage call in progress for doc {} takes too long, calling the storage directly",
+                key);
+
+            return call.call();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Interrupted while waiting for the storage call in progress for document [" + key + "]", e);
+        } catch (ExecutionException | CancellationException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+
+            if (cause instanceof XWikiException) {
+                throw (XWikiException) cause;
+            }
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Failed to wait for the storage call in progress for document [" + key + "]", cause);
+        } finally {
+            this.waitingThreads.remove(currentThread);
+        }
+    }
+
+    /**
+     * @return {@code true} if the passed thread is (directly or not) waiting for a storage call executed by the
+     *         expected thread
+     */
+    private boolean isWaitingFor(Thread thread, Thread expectedThread)
+    {
+        Set<Thread> visitedThreads = new HashSet<>();
+        for (Thread current = thread; current != null && visitedThreads.add(current);
+            current = this.waitingThreads.get(current)) {
+            if (current == expectedThread) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void forgetInProgress(String key)
+    {
+        // Make sure the calls started before the modification are not reused by the next ones
+        this.loadingDocuments.remove(key);
+        this.checkingDocuments.remove(key);
+    }
+
+    /**
+     * @return the number of document loads which waited for the same load already in progress instead of hitting the
+     *         storage
+     * @since 11.3RC1
+     */
+    public long getCoalescedLoadCount()
+    {
+        return this.coalescedLoads.get();
+    }
+
+    /**
+     * @return the number of document existence checks which waited for the same check already in progress instead of
+     *         hitting the storage
+     * @since 11.3RC1
+     */
+    public long getCoalescedExistCheckCount()
+    {
+        return this.coalescedExistChecks.get();
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -389,6 +681,8 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             this.store.deleteXWikiDoc(doc, context);
 
+            forgetInProgress(key);
+
             getCache().remove(key);
             getPageExistCache().remove(key);
             getPageExistCache().set(key, Boolean.FALSE);
@@ -714,10 +1008,12 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             } catch (Exception e) {
             }
 
-            boolean result = this.store.exists(doc, context);
-            getPageExistCache().set(key, Boolean.valueOf(result));
+            return coalesce(this.checkingDocuments, this.coalescedExistChecks, key, () -> {
+                boolean result = this.store.exists(doc, context);
+                getPageExistCache().set(key, Boolean.valueOf(result));
 
-            return result;
+                return result;
+            });
         } finally {
             restoreExecutionXContext();
         }
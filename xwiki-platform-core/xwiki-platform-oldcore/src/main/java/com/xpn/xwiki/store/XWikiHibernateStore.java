@@ -31,6 +31,7 @@
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -96,6 +97,7 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.BaseStringProperty;
+import com.xpn.xwiki.objects.DBStringListProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.ListProperty;
 import com.xpn.xwiki.objects.PropertyInterface;
@@ -118,6 +120,13 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The maximum number of documents loaded with the same queries, to stay below the size limit of IN clauses.
+     */
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private static final String GROUPS_CLASS = "XWiki.XWikiGroups";
+
     @Inject
     private Logger logger;
 
@@ -915,122 +924,13 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
 
                 try {
                     session.load(doc, Long.valueOf(doc.getId()));
-                    doc.setNew(false);
-                    doc.setMostRecent(true);
-                    // Fix for XWIKI-1651
-                    doc.setDate(new Date(doc.getDate().getTime()));
-                    doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
-                    doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
                 } catch (ObjectNotFoundException e) { // No document
-                    doc.setNew(true);
-
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+                    markAsNew(doc);
 
                     return doc;
                 }
 
-                // Loading the attachment list
-                if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
-                    loadAttachmentList(doc, context, false);
-                }
-
-                // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
-                BaseClass bclass = new BaseClass();
-                String cxml = doc.getXClassXML();
-                if (cxml != null) {
-                    bclass.fromXML(cxml);
-                    doc.setXClass(bclass);
-                    bclass.setDirty(false);
-                }
-
-                // Store this XWikiClass in the context so that we can use it in case of recursive usage
-                // of classes
-                context.addBaseClass(bclass);
-
-                if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
-                    Query query = session
-                        .createQuery("from BaseObject as bobject where bobject.name = :name order by bobject.number");
-                    query.setText("name", doc.getFullName());
-                    @SuppressWarnings("unchecked")
-                    Iterator<BaseObject> it = query.list().iterator();
-
-                    EntityReference localGroupEntityReference = new EntityReference("XWikiGroups", EntityType.DOCUMENT,
-                        new EntityReference("XWiki", EntityType.SPACE));
-                    DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
-                        localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
-
-                    boolean hasGroups = false;
-                    while (it.hasNext()) {
-                        BaseObject object = it.next();
-                        DocumentReference classReference = object.getXClassReference();
-
-                        if (classReference == null) {
-                            continue;
-                        }
-
-                        // It seems to search before is case insensitive. And this would break the loading if we get an
-                        // object which doesn't really belong to this document
-                        if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
-                            continue;
-                        }
-
-                        BaseObject newobject;
-                        if (classReference.equals(doc.getDocumentReference())) {
-                            newobject = bclass.newCustomClassInstance(context);
-                        } else {
-                            newobject = BaseClass.newCustomClassInstance(classReference, context);
-                        }
-                        if (newobject != null) {
-                            newobject.setId(object.getId());
-                            newobject.setXClassReference(object.getRelativeXClassReference());
-                            newobject.setDocumentReference(object.getDocumentReference());
-                            newobject.setNumber(object.getNumber());
-                            newobject.setGuid(object.getGuid());
-                            object = newobject;
-                        }
-
-                        if (classReference.equals(groupsDocumentReference)) {
-                            // Groups objects are handled differently.
-                            hasGroups = true;
-                        } else {
-                            loadXWikiCollectionInternal(object, doc, context, false, true);
-                        }
-                        doc.setXObject(object.getNumber(), object);
-                    }
-
-                    // AFAICT this was added as an emergency patch because loading of objects has proven
-                    // too slow and the objects which cause the most overhead are the XWikiGroups objects
-                    // as each group object (each group member) would otherwise cost 2 database queries.
-                    // This will do every group member in a single query.
-                    if (hasGroups) {
-                        Query query2 =
-                            session.createQuery("select bobject.number, prop.value from StringProperty as prop,"
-                                + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
-                                + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number");
-                        query2.setText("name", doc.getFullName());
-                        @SuppressWarnings("unchecked")
-                        Iterator<Object[]> it2 = query2.list().iterator();
-                        while (it2.hasNext()) {
-                            Object[] result = it2.next();
-                            Integer number = (Integer) result[0];
-                            String member = (String) result[1];
-                            BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, context);
-                            obj.setDocumentReference(doc.getDocumentReference());
-                            obj.setXClassReference(localGroupEntityReference);
-                            obj.setNumber(number.intValue());
-                            obj.setStringValue("member", member);
-                            doc.setXObject(obj.getNumber(), obj);
-                        }
-                    }
-                }
-
-                doc.setContentDirty(false);
-                doc.setMetaDataDirty(false);
-
-                // We need to ensure that the loaded document becomes the original document
-                doc.setOriginalDocument(doc.clone());
+                loadXWikiDocContent(doc, session, null, null, null, context);
 
                 if (bTransaction) {
                     endTransaction(context, false);
@@ -1062,6 +962,370 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
         }
     }
 
+    @Override
+    public List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            // Dynamic custom mappings require a specific session factory for each document
+            if (context.getWiki().hasDynamicCustomMappings()) {
+                return XWikiStoreInterface.super.loadXWikiDocs(references, context);
+            }
+
+            List<XWikiDocument> documents = new ArrayList<>(references.size());
+            Map<Long, XWikiDocument> documentsById = new LinkedHashMap<>();
+            for (DocumentReference reference : references) {
+                XWikiDocument document = new XWikiDocument(
+                    reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                    reference.getLocale());
+
+                // Make sure to load only once a document asked several times
+                XWikiDocument existingDocument = documentsById.putIfAbsent(document.getId(), document);
+                documents.add(existingDocument != null ? existingDocument : document);
+            }
+
+            // Each wiki has its own database so the documents have to be loaded wiki by wiki
+            Map<String, List<XWikiDocument>> documentsByWiki = new LinkedHashMap<>();
+            for (XWikiDocument document : documentsById.values()) {
+                documentsByWiki
+                    .computeIfAbsent(document.getDocumentReference().getWikiReference().getName(),
+                        key -> new ArrayList<>())
+                    .add(document);
+            }
+
+            Map<Long, XWikiDocument> loadedDocuments = new HashMap<>();
+            String currentWiki = context.getWikiId();
+            try {
+                for (Map.Entry<String, List<XWikiDocument>> entry : documentsByWiki.entrySet()) {
+                    context.setWikiId(entry.getKey());
+
+                    loadedDocuments.putAll(loadWikiDocuments(entry.getValue(), context));
+                }
+            } finally {
+                context.setWikiId(currentWiki);
+            }
+
+            // Return the instances loaded from the database in place of the documents which exist
+            documents.replaceAll(document -> loadedDocuments.getOrDefault(document.getId(), document));
+
+            this.logger.debug("Loaded XWikiDocuments: {}", references);
+
+            return documents;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    /**
+     * Load documents which are all located in the current wiki.
+     *
+     * @return the documents which exist, indexed by identifier
+     */
+    private Map<Long, XWikiDocument> loadWikiDocuments(List<XWikiDocument> documents, XWikiContext context)
+        throws XWikiException
+    {
+        Map<Long, XWikiDocument> loadedDocuments = new HashMap<>();
+        boolean bTransaction = true;
+        MonitorPlugin monitor = Util.getMonitorPlugin(context);
+        try {
+            // Start monitoring timer
+            if (monitor != null) {
+                monitor.startTimer(HINT);
+            }
+            checkHibernate(context);
+
+            bTransaction = bTransaction && beginTransaction(null, context);
+            Session session = getSession(context);
+            session.setFlushMode(FlushMode.MANUAL);
+
+            for (int i = 0; i < documents.size(); i += LOAD_BATCH_SIZE) {
+                loadedDocuments.putAll(
+                    loadXWikiDocs(documents.subList(i, Math.min(i + LOAD_BATCH_SIZE, documents.size())), session,
+                        context));
+            }
+
+            if (bTransaction) {
+                endTransaction(context, false);
+            }
+        } catch (Exception e) {
+            Object[] args = { context.getWikiId() };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC,
+                "Exception while reading documents from wiki [{0}]", e, args);
+        } finally {
+            try {
+                if (bTransaction) {
+                    endTransaction(context, false);
+                }
+            } catch (Exception e) {
+            }
+
+            // End monitoring timer
+            if (monitor != null) {
+                monitor.endTimer(HINT);
+            }
+        }
+
+        return loadedDocuments;
+    }
+
+    /**
+     * Load a batch of documents using one query for the documents and one query for each kind of content shared by all
+     * the documents instead of one per document.
+     *
+     * @return the documents which exist, indexed by identifier
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, XWikiDocument> loadXWikiDocs(List<XWikiDocument> documents, Session session,
+        XWikiContext context) throws XWikiException
+    {
+        List<Long> ids = new ArrayList<>(documents.size());
+        for (XWikiDocument document : documents) {
+            document.setStore(this);
+            ids.add(document.getId());
+        }
+
+        Map<Long, XWikiDocument> loadedDocuments = new HashMap<>();
+        Query documentQuery = session.createQuery("from XWikiDocument as doc where doc.id in (:ids)");
+        documentQuery.setParameterList("ids", ids);
+        for (XWikiDocument document : (List<XWikiDocument>) documentQuery.list()) {
+            document.setStore(this);
+            loadedDocuments.put(document.getId(), document);
+        }
+
+        Map<Long, List<XWikiAttachment>> attachments = new HashMap<>();
+        Map<String, List<BaseObject>> objects = new HashMap<>();
+        LoadedProperties properties = new LoadedProperties();
+        if (!loadedDocuments.isEmpty()) {
+            Query attachmentQuery = session.createQuery("from XWikiAttachment as attach where attach.docId in (:ids)");
+            attachmentQuery.setParameterList("ids", loadedDocuments.keySet());
+            for (XWikiAttachment attachment : (List<XWikiAttachment>) attachmentQuery.list()) {
+                attachments.computeIfAbsent(attachment.getDocId(), key -> new ArrayList<>()).add(attachment);
+            }
+
+            Set<String> names = new HashSet<>();
+            for (XWikiDocument document : loadedDocuments.values()) {
+                names.add(document.getFullName());
+            }
+            Query objectQuery = session.createQuery(
+                "from BaseObject as bobject where bobject.name in (:names) order by bobject.number");
+            objectQuery.setParameterList("names", names);
+            List<Long> objectIds = new ArrayList<>();
+            for (BaseObject object : (List<BaseObject>) objectQuery.list()) {
+                objects.computeIfAbsent(object.getName(), key -> new ArrayList<>()).add(object);
+                // Groups objects are loaded with a dedicated query
+                if (!GROUPS_CLASS.equals(object.getClassName())) {
+                    objectIds.add(object.getId());
+                }
+            }
+
+            loadProperties(objectIds, properties, session);
+        }
+
+        for (XWikiDocument document : documents) {
+            XWikiDocument loadedDocument = loadedDocuments.get(document.getId());
+            if (loadedDocument != null) {
+                loadXWikiDocContent(loadedDocument, session,
+                    attachments.getOrDefault(loadedDocument.getId(), Collections.emptyList()),
+                    objects.getOrDefault(loadedDocument.getFullName(), Collections.emptyList()), properties, context);
+            } else {
+                markAsNew(document);
+            }
+        }
+
+        return loadedDocuments;
+    }
+
+    /**
+     * Load the properties of the passed objects using one query for each type of property instead of one per property.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadProperties(List<Long> objectIds, LoadedProperties properties, Session session)
+    {
+        Set<String> classTypes = new HashSet<>();
+        for (int i = 0; i < objectIds.size(); i += LOAD_BATCH_SIZE) {
+            Query query = session.createQuery(
+                "select prop.id.id, prop.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)");
+            query.setParameterList("ids", objectIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, objectIds.size())));
+            for (Object[] result : (List<Object[]>) query.list()) {
+                properties.descriptors.computeIfAbsent((Long) result[0], key -> new ArrayList<>())
+                    .add(new Object[] { result[1], result[2] });
+                classTypes.add((String) result[2]);
+            }
+        }
+
+        for (String classType : classTypes) {
+            // Properties of an unknown type are loaded one by one
+            PersistentClass mapping = getConfiguration().getClassMapping(classType);
+            if (mapping == null || !BaseProperty.class.getName().equals(mapping.getRootClass().getEntityName())) {
+                continue;
+            }
+
+            StringBuilder statement = new StringBuilder("select prop from ").append(classType).append(" as prop");
+            if (DBStringListProperty.class.getName().equals(classType)) {
+                // Avoid one more query for the items of each list
+                statement.append(" left join fetch prop.list");
+            }
+            // Several types of properties share the same table
+            statement.append(" where prop.id.id in (:ids) and prop.classType = :classType");
+
+            for (int i = 0; i < objectIds.size(); i += LOAD_BATCH_SIZE) {
+                Query query = session.createQuery(statement.toString());
+                query.setParameterList("ids", objectIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, objectIds.size())));
+                query.setString("classType", classType);
+                // The fetched lists produce one row per item for the same property
+                for (BaseProperty property : (List<BaseProperty>) query.list()) {
+                    initializeLoadedProperty(property);
+                    properties.values.computeIfAbsent(property.getId(), key -> new HashMap<>())
+                        .put(property.getName(), property);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark a document which could not be found in the database as new.
+     */
+    private void markAsNew(XWikiDocument doc)
+    {
+        doc.setNew(true);
+
+        // Make sure to always return a document with an original version, even for one that does not exist.
+        // Allow writing more generic code.
+        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+    }
+
+    /**
+     * Load the content of a document which has just been loaded from the database: attachments, class and objects.
+     *
+     * @param attachments the already loaded attachments of the document or {@code null} to load them
+     * @param objects the already loaded objects of the document or {@code null} to load them
+     * @param properties the already loaded properties of the objects or {@code null} to load them
+     */
+    @SuppressWarnings("unchecked")
+    private void loadXWikiDocContent(XWikiDocument doc, Session session, List<XWikiAttachment> attachments,
+        List<BaseObject> objects, LoadedProperties properties, XWikiContext context) throws XWikiException
+    {
+        doc.setNew(false);
+        doc.setMostRecent(true);
+        // Fix for XWIKI-1651
+        doc.setDate(new Date(doc.getDate().getTime()));
+        doc.setCreationDate(new Date(doc.getCreationDate().getTime()));
+        doc.setContentUpdateDate(new Date(doc.getContentUpdateDate().getTime()));
+
+        // Loading the attachment list
+        if (doc.hasElement(XWikiDocument.HAS_ATTACHMENTS)) {
+            if (attachments != null) {
+                for (XWikiAttachment attachment : attachments) {
+                    doc.setAttachment(attachment);
+                }
+            } else {
+                loadAttachmentList(doc, context, false);
+            }
+        }
+
+        // TODO: handle the case where there are no xWikiClass and xWikiObject in the Database
+        BaseClass bclass = new BaseClass();
+        String cxml = doc.getXClassXML();
+        if (cxml != null) {
+            bclass.fromXML(cxml);
+            doc.setXClass(bclass);
+            bclass.setDirty(false);
+        }
+
+        // Store this XWikiClass in the context so that we can use it in case of recursive usage
+        // of classes
+        context.addBaseClass(bclass);
+
+        if (doc.hasElement(XWikiDocument.HAS_OBJECTS)) {
+            List<BaseObject> documentObjects = objects;
+            if (documentObjects == null) {
+                Query query = session
+                    .createQuery("from BaseObject as bobject where bobject.name = :name order by bobject.number");
+                query.setText("name", doc.getFullName());
+                documentObjects = query.list();
+            }
+            Iterator<BaseObject> it = documentObjects.iterator();
+
+            EntityReference localGroupEntityReference = new EntityReference("XWikiGroups", EntityType.DOCUMENT,
+                new EntityReference("XWiki", EntityType.SPACE));
+            DocumentReference groupsDocumentReference = new DocumentReference(context.getWikiId(),
+                localGroupEntityReference.getParent().getName(), localGroupEntityReference.getName());
+
+            boolean hasGroups = false;
+            while (it.hasNext()) {
+                BaseObject object = it.next();
+                DocumentReference classReference = object.getXClassReference();
+
+                if (classReference == null) {
+                    continue;
+                }
+
+                // It seems to search before is case insensitive. And this would break the loading if we get an
+                // object which doesn't really belong to this document
+                if (!object.getDocumentReference().equals(doc.getDocumentReference())) {
+                    continue;
+                }
+
+                BaseObject newobject;
+                if (classReference.equals(doc.getDocumentReference())) {
+                    newobject = bclass.newCustomClassInstance(context);
+                } else {
+                    newobject = BaseClass.newCustomClassInstance(classReference, context);
+                }
+                if (newobject != null) {
+                    newobject.setId(object.getId());
+                    newobject.setXClassReference(object.getRelativeXClassReference());
+                    newobject.setDocumentReference(object.getDocumentReference());
+                    newobject.setNumber(object.getNumber());
+                    newobject.setGuid(object.getGuid());
+                    object = newobject;
+                }
+
+                if (classReference.equals(groupsDocumentReference)) {
+                    // Groups objects are handled differently.
+                    hasGroups = true;
+                } else {
+                    loadXWikiCollectionInternal(object, doc, properties, context, false, true);
+                }
+                doc.setXObject(object.getNumber(), object);
+            }
+
+            // AFAICT this was added as an emergency patch because loading of objects has proven
+            // too slow and the objects which cause the most overhead are the XWikiGroups objects
+            // as each group object (each group member) would otherwise cost 2 database queries.
+            // This will do every group member in a single query.
+            if (hasGroups) {
+                Query query2 =
+                    session.createQuery("select bobject.number, prop.value from StringProperty as prop,"
+                        + "BaseObject as bobject where bobject.name = :name and bobject.className='XWiki.XWikiGroups' "
+                        + "and bobject.id=prop.id.id and prop.id.name='member' order by bobject.number");
+                query2.setText("name", doc.getFullName());
+                @SuppressWarnings("unchecked")
+                Iterator<Object[]> it2 = query2.list().iterator();
+                while (it2.hasNext()) {
+                    Object[] result = it2.next();
+                    Integer number = (Integer) result[0];
+                    String member = (String) result[1];
+                    BaseObject obj = BaseClass.newCustomClassInstance(groupsDocumentReference, context);
+                    obj.setDocumentReference(doc.getDocumentReference());
+                    obj.setXClassReference(localGroupEntityReference);
+                    obj.setNumber(number.intValue());
+                    obj.setStringValue("member", member);
+                    doc.setXObject(obj.getNumber(), obj);
+                }
+            }
+        }
+
+        doc.setContentDirty(false);
+        doc.setMetaDataDirty(false);
+
+        // We need to ensure that the loaded document becomes the original document
+        doc.setOriginalDocument(doc.clone());
+    }
+
     @Override
     public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -1353,11 +1617,12 @@ public void loadXWikiCollection(BaseCollection object, XWikiContext context, boo
     private void loadXWikiCollectionInternal(BaseCollection object, XWikiContext context, boolean bTransaction,
         boolean alreadyLoaded) throws XWikiException
     {
-        loadXWikiCollectionInternal(object, null, context, bTransaction, alreadyLoaded);
+        loadXWikiCollectionInternal(object, null, null, context, bTransaction, alreadyLoaded);
     }
 
-    private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument doc, XWikiContext inputxcontext,
-        boolean bTransaction, boolean alreadyLoaded) throws XWikiException
+    private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument doc,
+        LoadedProperties loadedProperties, XWikiContext inputxcontext, boolean bTransaction, boolean alreadyLoaded)
+        throws XWikiException
     {
         XWikiContext context = getExecutionXContext(inputxcontext, true);
 
@@ -1418,10 +1683,16 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
 
                 // Load strings, integers, dates all at once
 
-                Query query = session
-                    .createQuery("select prop.name, prop.classType from BaseProperty as prop where prop.id.id = :id");
-                query.setLong("id", object.getId());
-                for (Object[] result : (List<Object[]>) query.list()) {
+                List<Object[]> descriptors;
+                if (loadedProperties != null) {
+                    descriptors = loadedProperties.getDescriptors(object.getId());
+                } else {
+                    Query query = session.createQuery(
+                        "select prop.name, prop.classType from BaseProperty as prop where prop.id.id = :id");
+                    query.setLong("id", object.getId());
+                    descriptors = query.list();
+                }
+                for (Object[] result : descriptors) {
                     String name = (String) result[0];
                     // No need to load fields already loaded from
                     // custom mapping
@@ -1432,10 +1703,16 @@ private void loadXWikiCollectionInternal(BaseCollection object1, XWikiDocument d
                     BaseProperty property = null;
 
                     try {
-                        property = (BaseProperty) Class.forName(classType).newInstance();
-                        property.setObject(object);
-                        property.setName(name);
-                        loadXWikiProperty(property, context, false);
+                        property = loadedProperties != null
+                            ? loadedProperties.getValue(object.getId(), name, classType) : null;
+                        if (property != null) {
+                            property.setObject(object);
+                        } else {
+                            property = (BaseProperty) Class.forName(classType).newInstance();
+                            property.setObject(object);
+                            property.setName(name);
+                            loadXWikiProperty(property, context, false);
+                        }
                     } catch (Exception e) {
                         // WORKAROUND IN CASE OF MIXMATCH BETWEEN STRING AND LARGESTRING
                         try {
@@ -1604,26 +1881,12 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
 
             try {
                 session.load(property, (Serializable) property);
-                // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
-                // safe to assume that a retrieved NULL value should actually be an empty string.
-                if (property instanceof BaseStringProperty) {
-                    BaseStringProperty stringProperty = (BaseStringProperty) property;
-                    if (stringProperty.getValue() == null) {
-                        stringProperty.setValue("");
-                    }
-                }
-                ((BaseProperty) property).setValueDirty(false);
+                initializeLoadedProperty((BaseProperty) property);
             } catch (ObjectNotFoundException e) {
                 // Let's accept that there is no data in property tables but log it
                 this.logger.error("No data for property [{}] of object id [{}]", property.getName(), property.getId());
-            }
 
-            // TODO: understand why collections are lazy loaded
-            // Let's force reading lists if there is a list
-            // This seems to be an issue since Hibernate 3.0
-            // Without this test ViewEditTest.testUpdateAdvanceObjectProp fails
-            if (property instanceof ListProperty) {
-                ((ListProperty) property).getList();
+                forceListLoading(property);
             }
 
             if (bTransaction) {
@@ -1646,6 +1909,32 @@ private void loadXWikiProperty(PropertyInterface property, XWikiContext context,
         }
     }
 
+    private void initializeLoadedProperty(BaseProperty property)
+    {
+        // In Oracle, empty string are converted to NULL. Since an undefined property is not found at all, it is
+        // safe to assume that a retrieved NULL value should actually be an empty string.
+        if (property instanceof BaseStringProperty) {
+            BaseStringProperty stringProperty = (BaseStringProperty) property;
+            if (stringProperty.getValue() == null) {
+                stringProperty.setValue("");
+            }
+        }
+        property.setValueDirty(false);
+
+        forceListLoading(property);
+    }
+
+    private void forceListLoading(PropertyInterface property)
+    {
+        // TODO: understand why collections are lazy loaded
+        // Let's force reading lists if there is a list
+        // This seems to be an issue since Hibernate 3.0
+        // Without this test ViewEditTest.testUpdateAdvanceObjectProp fails
+        if (property instanceof ListProperty) {
+            ((ListProperty) property).getList();
+        }
+    }
+
     private void saveXWikiPropertyInternal(final PropertyInterface property, final XWikiContext context,
         final boolean runInOwnTransaction) throws XWikiException
     {
@@ -3260,4 +3549,36 @@ private XWikiAttachmentStoreInterface getXWikiAttachmentStoreInterface(XWikiAtta
 
         return this.attachmentContentStore;
     }
+
+    /**
+     * The properties of a batch of objects, loaded with a few grouped queries.
+     */
+    private static final class LoadedProperties
+    {
+        /**
+         * The name and type of the properties of each object.
+         */
+        private final Map<Long, List<Object[]>> descriptors = new HashMap<>();
+
+        /**
+         * The loaded properties of each object, indexed by name.
+         */
+        private final Map<Long, Map<String, BaseProperty>> values = new HashMap<>();
+
+        List<Object[]> getDescriptors(long objectId)
+        {
+            return this.descriptors.getOrDefault(objectId, Collections.emptyList());
+        }
+
+        /**
+         * @return the loaded property or {@code null} if it has to be loaded on its own (unknown type or a value stored
+         *         with a different type than the declared one)
+         */
+        BaseProperty getValue(long objectId, String name, String classType)
+        {
+            BaseProperty property = this.values.getOrDefault(objectId, Collections.emptyMap()).get(name);
+
+            return property != null && property.getClass().getName().equals(classType) ? property : null;
+        }
+    }
 }
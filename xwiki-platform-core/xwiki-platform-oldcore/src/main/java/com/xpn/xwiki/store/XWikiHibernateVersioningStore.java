@@ -28,6 +28,7 @@
 import javax.inject.Singleton;
 
 import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
@@ -38,6 +39,8 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.criteria.impl.Range;
+import com.xpn.xwiki.criteria.impl.RevisionCriteria;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
@@ -126,6 +129,127 @@ public Version[] getXWikiDocVersions(XWikiDocument doc, XWikiContext context) th
         }
     }
 
+    @Override
+    public List<XWikiRCSNodeInfo> getXWikiDocVersions(XWikiDocument doc, RevisionCriteria criteria,
+        XWikiContext inputxcontext) throws XWikiException
+    {
+        // No need to query the database if the history is already loaded
+        XWikiDocumentArchive archiveDoc = doc.getDocumentArchive();
+        if (archiveDoc != null) {
+            return archiveDoc.getNodes(criteria);
+        }
+
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String db = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            return executeRead(context, new HibernateCallback<List<XWikiRCSNodeInfo>>()
+            {
+                @Override
+                public List<XWikiRCSNodeInfo> doInHibernate(Session session) throws HibernateException
+                {
+                    return loadRCSNodeInfos(doc.getId(), criteria, session);
+                }
+            });
+        } catch (Exception e) {
+            Object[] args = { doc.getFullName() };
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_REVISIONS,
+                "Exception while reading document {0} revisions", e, args);
+        } finally {
+            context.setWikiId(db);
+
+            restoreExecutionXContext();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<XWikiRCSNodeInfo> loadRCSNodeInfos(long docId, RevisionCriteria criteria, Session session)
+    {
+        StringBuilder where = new StringBuilder(" where rcs.id.docId = :docId and rcs.diff is not null"
+            + " and rcs.date > :minDate and rcs.date < :maxDate");
+        if (!criteria.getAuthor().equals("")) {
+            where.append(" and rcs.author = :author");
+        }
+        if (!criteria.getIncludeMinorVersions()) {
+            // Only keep the last version before a major version (which is also the case of the most recent version)
+            where.append(" and rcs.id.version2 = (select max(other.id.version2) from ");
+            where.append(XWikiRCSNodeInfo.class.getName());
+            where.append(" as other where other.id.docId = rcs.id.docId and other.id.version1 = rcs.id.version1)");
+        }
+
+        String from = " from " + XWikiRCSNodeInfo.class.getName() + " as rcs";
+
+        Range range = criteria.getRange();
+        if (range.getAbsoluteSize() > 0) {
+            // The range might be relative to the end of the list
+            Query countQuery = session.createQuery("select count(*)" + from + where);
+            bindRCSNodeInfosParameters(countQuery, docId, criteria);
+            range = range.resolve(((Number) countQuery.uniqueResult()).intValue());
+
+            if (range.getSize() == 0) {
+                return Collections.emptyList();
+            }
+        }
+
+        Query query = session.createQuery(from + where + " order by rcs.id.version1 asc, rcs.id.version2 asc");
+        bindRCSNodeInfosParameters(query, docId, criteria);
+        if (range.getAbsoluteSize() > 0) {
+            query.setFirstResult(range.getStart());
+            query.setMaxResults(range.getSize());
+        }
+
+        return query.list();
+    }
+
+    private void bindRCSNodeInfosParameters(Query query, long docId, RevisionCriteria criteria)
+    {
+        query.setLong("docId", docId);
+        query.setTimestamp("minDate", criteria.getMinDate());
+        query.setTimestamp("maxDate", criteria.getMaxDate());
+        if (!criteria.getAuthor().equals("")) {
+            query.setString("author", criteria.getAuthor());
+        }
+    }
+
+    @Override
+    public XWikiRCSNodeInfo loadRCSNodeInfo(XWikiDocument doc, Version version, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // No need to query the database if the history is already loaded
+        XWikiDocumentArchive archiveDoc = doc.getDocumentArchive();
+        if (archiveDoc != null) {
+            return archiveDoc.getNode(version);
+        }
+
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        String db = context.getWikiId();
+        try {
+            if (doc.getDatabase() != null) {
+                context.setWikiId(doc.getDatabase());
+            }
+
+            return executeRead(context, new HibernateCallback<XWikiRCSNodeInfo>()
+            {
+                @Override
+                public XWikiRCSNodeInfo doInHibernate(Session session) throws HibernateException
+                {
+                    return (XWikiRCSNodeInfo) session.get(XWikiRCSNodeInfo.class,
+                        new XWikiRCSNodeId(doc.getId(), version));
+                }
+            });
+        } finally {
+            context.setWikiId(db);
+
+            restoreExecutionXContext();
+        }
+    }
+
     @Override
     public XWikiDocumentArchive getXWikiDocumentArchive(XWikiDocument doc, XWikiContext inputxcontext)
         throws XWikiException
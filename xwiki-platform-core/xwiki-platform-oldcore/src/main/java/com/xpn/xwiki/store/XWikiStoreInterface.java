@@ -19,11 +19,15 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.QueryManager;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -41,6 +45,34 @@
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load several documents at once. Implementations are encouraged to minimize the number of round trips with the
+     * storage, the default implementation simply loads the documents one by one.
+     *
+     * @param references the references of the documents to load, including the locale for translations
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed references, documents which don't exist are
+     *         returned as new documents
+     * @throws XWikiException when failing to load the documents
+     * @since 11.3RC1
+     */
+    @Unstable
+    default List<XWikiDocument> loadXWikiDocs(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiDocument> documents = new ArrayList<>(references.size());
+
+        for (DocumentReference reference : references) {
+            XWikiDocument document = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+
+            documents.add(loadXWikiDoc(document, context));
+        }
+
+        return documents;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
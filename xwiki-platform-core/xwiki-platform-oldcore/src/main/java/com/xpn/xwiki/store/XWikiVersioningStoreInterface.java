@@ -19,15 +19,20 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.List;
+
 import org.suigeneris.jrcs.rcs.Version;
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.criteria.impl.RevisionCriteria;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeContent;
 import com.xpn.xwiki.doc.rcs.XWikiRCSNodeId;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
 
 /**
  * Interface for manipulate document history.
@@ -47,6 +52,43 @@ void saveXWikiDocArchive(XWikiDocumentArchive archivedoc, boolean bTransaction,
 
     Version[] getXWikiDocVersions(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Return the history entries of a document matching the passed criteria. Stores are encouraged to filter and page
+     * the entries without loading the whole history of the document. The content of the returned entries is loaded on
+     * demand.
+     *
+     * @param doc the document for which to return the history entries
+     * @param criteria the criteria the returned entries should match
+     * @param context the XWiki context
+     * @return the matching history entries ordered by version asc, after applying the criteria range
+     * @throws XWikiException when failing to load the history entries
+     * @since 11.3RC1
+     */
+    @Unstable
+    default List<XWikiRCSNodeInfo> getXWikiDocVersions(XWikiDocument doc, RevisionCriteria criteria,
+        XWikiContext context) throws XWikiException
+    {
+        return getXWikiDocumentArchive(doc, context).getNodes(criteria);
+    }
+
+    /**
+     * Return a single history entry of a document without loading the whole history of the document when possible.
+     * The content of the returned entry is loaded on demand.
+     *
+     * @param doc the document for which to return the history entry
+     * @param version the version of the history entry
+     * @param context the XWiki context
+     * @return the history entry, {@code null} if the document has no such version
+     * @throws XWikiException when failing to load the history entry
+     * @since 11.3RC1
+     */
+    @Unstable
+    default XWikiRCSNodeInfo loadRCSNodeInfo(XWikiDocument doc, Version version, XWikiContext context)
+        throws XWikiException
+    {
+        return getXWikiDocumentArchive(doc, context).getNode(version);
+    }
+
     XWikiDocument loadXWikiDoc(XWikiDocument doc, String version, XWikiContext context) throws XWikiException;
 
     void resetRCSArchive(XWikiDocument doc, boolean bTransaction, XWikiContext context) throws XWikiException;
@@ -0,0 +1,124 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.store.migration.hibernate;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Migration adding full versions (checkpoints) to the existing document histories so that any version can be
+ * reconstructed by applying at most {@code xwiki.store.rcs.nodesPerFull} patches.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Named("R1130000RCSCheckpoints")
+@Singleton
+public class R1130000RCSCheckpointsDataMigration extends AbstractHibernateDataMigration
+{
+    @Inject
+    private Logger logger;
+
+    @Override
+    public String getDescription()
+    {
+        return "Add full versions to the document histories having long chains of diffs.";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(1130000);
+    }
+
+    private XWikiVersioningStoreInterface getVersioningStore() throws XWikiException
+    {
+        try {
+            return this.componentManager.getInstance(XWikiVersioningStoreInterface.class,
+                XWikiHibernateBaseStore.HINT);
+        } catch (ComponentLookupException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_STORE_MIGRATION,
+                String.format("Unable to reach the versioning store for database %s", getXWikiContext().getWikiId()),
+                e);
+        }
+    }
+
+    @Override
+    protected void hibernateMigrate() throws DataMigrationException, XWikiException
+    {
+        XWikiContext xcontext = getXWikiContext();
+
+        int nodesPerFull =
+            Integer.parseInt(xcontext.getWiki().getConfig().getProperty("xwiki.store.rcs.nodesPerFull", "5"));
+        if (nodesPerFull <= 0) {
+            return;
+        }
+
+        // Only the histories with more versions than the checkpoint interval can need a checkpoint
+        List<Long> documentIds = getStore().executeRead(xcontext, new HibernateCallback<List<Long>>()
+        {
+            @SuppressWarnings("unchecked")
+            @Override
+            public List<Long> doInHibernate(Session session) throws HibernateException
+            {
+                return session
+                    .createQuery("select rcs.id.docId from " + XWikiRCSNodeInfo.class.getName()
+                        + " as rcs group by rcs.id.docId having count(*) > :nodesPerFull")
+                    .setLong("nodesPerFull", nodesPerFull).list();
+            }
+        });
+
+        XWikiVersioningStoreInterface versioningStore = getVersioningStore();
+        for (Long documentId : documentIds) {
+            // Each history is migrated in its own transaction to not keep all the patches in memory
+            XWikiDocumentArchive archive = new XWikiDocumentArchive(documentId);
+            try {
+                versioningStore.loadXWikiDocArchive(archive, true, xcontext);
+                if (archive.addCheckpoints(xcontext)) {
+                    versioningStore.saveXWikiDocArchive(archive, true, xcontext);
+                }
+            } catch (XWikiException e) {
+                // A broken history should not prevent the other ones from being migrated
+                this.logger.warn("Failed to add checkpoints to the history of document with id [{}]: {}", documentId,
+                    e.getMessage());
+            }
+        }
+    }
+}
@@ -19,9 +19,14 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -34,7 +39,6 @@
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -53,6 +57,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -93,6 +98,24 @@ public class DownloadAction extends XWikiAction
     /** The format of a valid range header. */
     private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
 
+    /** The name of the HTTP Header indicating which part of the content is sent. */
+    private static final String CONTENT_RANGE_HEADER_NAME = "Content-Range";
+
+    /** The name of the HTTP Header that makes a byte-range request conditional. */
+    private static final String IF_RANGE_HEADER_NAME = "If-Range";
+
+    /** The name of the HTTP Header containing the entity tags known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
+    /** The name of the HTTP Header containing the entity tag of the sent content. */
+    private static final String ETAG_HEADER_NAME = "ETag";
+
+    /** The quote surrounding the entity tags. */
+    private static final String ETAG_QUOTE = "\"";
+
+    /** The prefix of the weak entity tags. */
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
     /**
      * Default constructor.
      */
@@ -163,15 +186,15 @@ public String render(XWikiContext context) throws XWikiException
                     "Attachment content {0} not found", null, args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            String etag = getETag(attachment, context);
+            response.setHeader(ETAG_HEADER_NAME, etag);
+            if (isNotModified(attachment, etag, request)) {
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
 
             // Sending the content of the attachment
-            if (request.getHeader(RANGE_HEADER_NAME) != null) {
+            if (request.getHeader(RANGE_HEADER_NAME) != null && isRangeApplicable(attachment, etag, request)) {
                 try {
                     if (sendPartialContent(attachment, request, response, context)) {
                         return null;
@@ -189,6 +212,79 @@ public String render(XWikiContext context) throws XWikiException
         }
     }
 
+    /**
+     * The content of a given version of an attachment never changes so the version, date and size of the attachment
+     * are enough to identify it.
+     *
+     * @param attachment the attachment to send
+     * @param context the current request context
+     * @return the strong entity tag of the attachment content
+     * @throws XWikiException if the attachment content cannot be retrieved
+     */
+    private String getETag(XWikiAttachment attachment, XWikiContext context) throws XWikiException
+    {
+        return ETAG_QUOTE + attachment.getVersion() + '-' + attachment.getDate().getTime() + '-'
+            + attachment.getContentLongSize(context) + ETAG_QUOTE;
+    }
+
+    /**
+     * Check the conditional request headers. {@code If-None-Match} takes precedence over {@code If-Modified-Since}.
+     *
+     * @param attachment the attachment to send
+     * @param etag the entity tag of the attachment content
+     * @param request the current client request
+     * @return {@code true} if the client already has the attachment content
+     */
+    private boolean isNotModified(XWikiAttachment attachment, String etag, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        if (ifNoneMatch != null) {
+            // Weak comparison
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                String value = StringUtils.removeStart(clientETag.trim(), WEAK_ETAG_PREFIX);
+                if (value.equals("*") || value.equals(etag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
+    /**
+     * Check the {@code If-Range} header to make sure the requested range applies to the current attachment content.
+     * Otherwise the full content must be sent.
+     *
+     * @param attachment the attachment to send
+     * @param etag the entity tag of the attachment content
+     * @param request the current client request
+     * @return {@code true} if the Range header should be taken into account
+     */
+    private boolean isRangeApplicable(XWikiAttachment attachment, String etag, XWikiRequest request)
+    {
+        String ifRange = request.getHeader(IF_RANGE_HEADER_NAME);
+        if (ifRange == null) {
+            return true;
+        }
+
+        // Strong comparison
+        if (ifRange.startsWith(ETAG_QUOTE) || ifRange.startsWith(WEAK_ETAG_PREFIX)) {
+            return ifRange.equals(etag);
+        }
+
+        try {
+            // HTTP dates have a precision of one second
+            return request.getDateHeader(IF_RANGE_HEADER_NAME) / 1000L == attachment.getDate().getTime() / 1000L;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     private void throwNotFoundException(String filename) throws XWikiException
     {
         String message = filename == null ? "Attachment not found" :
@@ -263,18 +359,16 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
         throws XWikiException, IOException
     {
         if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
             setCommonHeaders(attachment, request, response, context);
             response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
             if ((end - start + 1L) < Integer.MAX_VALUE) {
                 response.setContentLength((int) (end - start + 1));
             }
-            response.setHeader("Content-Range", "bytes " + start + "-" + end + SEPARATOR
+            response.setHeader(CONTENT_RANGE_HEADER_NAME, "bytes " + start + "-" + end + SEPARATOR
                 + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
+            writeContent(attachment, start, end - start + 1, response, context);
         } else {
+            response.setHeader(CONTENT_RANGE_HEADER_NAME, "bytes */" + attachment.getContentLongSize(context));
             response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
     }
@@ -296,19 +390,53 @@ private void sendContent(final XWikiAttachment attachment,
         final XWikiContext context)
         throws XWikiException
     {
-        InputStream stream = null;
         try {
             setCommonHeaders(attachment, request, response, context);
             response.setContentLength(attachment.getContentSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            writeContent(attachment, 0, attachment.getContentLongSize(context), response, context);
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION,
                 "Exception while sending response", e);
-        } finally {
-            if (stream != null) {
-                IOUtils.closeQuietly(stream);
+        }
+    }
+
+    /**
+     * Write a part of the attachment content to the response. When the content is stored in a file it's transferred
+     * from the file channel to the response without going through an intermediate heap buffer.
+     *
+     * @param attachment the attachment to get content from
+     * @param start the first byte to write
+     * @param length the number of bytes to write
+     * @param response the response to write to
+     * @param context the current request context
+     * @throws XWikiException if the attachment content cannot be retrieved
+     * @throws IOException if the response cannot be written
+     */
+    private void writeContent(final XWikiAttachment attachment, long start, long length,
+        final XWikiResponse response, final XWikiContext context) throws XWikiException, IOException
+    {
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        File file = content != null ? content.getContentFile() : null;
+
+        if (file != null && file.isFile()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+
+                long position = start;
+                long end = start + length;
+                while (position < end) {
+                    long transferred = channel.transferTo(position, end - position, output);
+                    if (transferred <= 0) {
+                        // The file is shorter than expected
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+        } else {
+            try (InputStream stream = attachment.getContentInputStream(context)) {
+                IOUtils.copyLarge(stream, response.getOutputStream(), start, length);
             }
         }
     }
@@ -280,7 +280,9 @@ public URL createSkinURL(String fileName, String spaces, String name, String wik
 
             String filePath = filePathBuffer.toString();
 
-            if (!getFilesystemExportContext().hasExportedSkinFile(filePath)) {
+            // Several documents might be rendered at the same time
+            if (!getFilesystemExportContext().hasExportedSkinFile(filePath)
+                && getFilesystemExportContext().addExportedFile(filePath)) {
                 getFilesystemExportContext().addExportedSkinFile(filePath);
 
                 File file = new File(getFilesystemExportContext().getExportDir(), filePath);
@@ -410,8 +412,9 @@ public URL createResourceURL(String filename, boolean forceSkinAction, XWikiCont
     public URL createResourceURL(String filename, boolean forceSkinAction, XWikiContext context)
     {
         try {
-            File targetFile = new File(getFilesystemExportContext().getExportDir(), "resources/" + filename);
-            if (!targetFile.exists()) {
+            String filePath = "resources/" + filename;
+            File targetFile = new File(getFilesystemExportContext().getExportDir(), filePath);
+            if (getFilesystemExportContext().addExportedFile(filePath) && !targetFile.exists()) {
                 if (!targetFile.getParentFile().exists()) {
                     targetFile.getParentFile().mkdirs();
                 }
@@ -527,7 +530,7 @@ private URL createAttachmentURL(String filename, String spaces, String name, Str
         String path = "attachment/" + serializedReference;
 
         File file = new File(getFilesystemExportContext().getExportDir(), path);
-        if (!file.exists()) {
+        if (getFilesystemExportContext().addExportedFile(path) && !file.exists()) {
             XWikiDocument doc = context.getWiki().getDocument(documentReference, context);
             XWikiAttachment attachment = doc.getAttachment(filename);
             file.getParentFile().mkdirs();
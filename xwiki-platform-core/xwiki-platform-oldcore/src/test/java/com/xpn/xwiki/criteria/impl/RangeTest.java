@@ -128,4 +128,23 @@ public void testSubListWithStartTwoAndSizeMinusFour()
         List<String> zeroToOne = Arrays.asList(new String[]{"0", "1"});
         assertEquals(range.subList(zeroToHeight), zeroToOne);
     }
+
+    @Test
+    public void testResolve()
+    {
+        assertResolve(new Range(0, 0), 0, 9);
+        assertResolve(new Range(0, 4), 0, 4);
+        assertResolve(new Range(-2, 4), 7, 2);
+        assertResolve(new Range(-2, -4), 3, 4);
+        assertResolve(new Range(2, -4), 0, 2);
+        assertResolve(new Range(0, -4), 5, 4);
+        assertResolve(new Range(20, 4), 9, 0);
+    }
+
+    private void assertResolve(Range range, int expectedStart, int expectedSize)
+    {
+        Range resolved = range.resolve(zeroToHeight.size());
+        assertEquals(expectedStart, resolved.getStart());
+        assertEquals(expectedSize, resolved.getSize());
+    }
 }
@@ -19,7 +19,10 @@
  */
 package com.xpn.xwiki.doc;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.jmock.Mock;
 import org.suigeneris.jrcs.rcs.Version;
@@ -29,6 +32,9 @@
 import com.xpn.xwiki.XWikiConfig;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.criteria.impl.Range;
+import com.xpn.xwiki.criteria.impl.RevisionCriteria;
+import com.xpn.xwiki.doc.rcs.XWikiRCSNodeInfo;
 import com.xpn.xwiki.test.AbstractBridgedXWikiComponentTestCase;
 import com.xpn.xwiki.user.api.XWikiRightService;
 
@@ -326,6 +332,109 @@ public void testVerifyDiffAndFullRevisionAlgorithm() throws Exception
         assertFalse(archive.getNode(new Version(6, 1)).isDiff());
     }
 
+    public void testAddCheckpoints() throws Exception
+    {
+        XWikiConfig config = new XWikiConfig();
+        this.mockXWiki.stubs().method("getConfig").will(returnValue(config));
+
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        doc.setDocumentArchive(archive);
+        String author = "XWiki.some author";
+
+        // Create an history without any intermediate full revision
+        config.setProperty("xwiki.store.rcs.nodesPerFull", "0");
+        for (int i = 1; i <= 7; i++) {
+            addRevisionToHistory(archive, doc, "content " + i + ".1", author, i + ".1");
+        }
+        for (int i = 1; i < 7; i++) {
+            assertTrue(archive.getNode(new Version(i, 1)).isDiff());
+        }
+
+        config.setProperty("xwiki.store.rcs.nodesPerFull", "3");
+        assertTrue(archive.addCheckpoints(context));
+
+        assertFalse(archive.getNode(new Version(7, 1)).isDiff());
+        assertTrue(archive.getNode(new Version(6, 1)).isDiff());
+        assertTrue(archive.getNode(new Version(5, 1)).isDiff());
+        assertFalse(archive.getNode(new Version(4, 1)).isDiff());
+        assertTrue(archive.getNode(new Version(3, 1)).isDiff());
+        assertTrue(archive.getNode(new Version(2, 1)).isDiff());
+        assertFalse(archive.getNode(new Version(1, 1)).isDiff());
+
+        // Nothing left to do
+        assertFalse(archive.addCheckpoints(context));
+
+        for (int i = 1; i <= 7; i++) {
+            assertEquals("content " + i + ".1", archive.loadDocument(new Version(i, 1), context).getContent());
+        }
+
+        // New revisions continue the same checkpoint interval
+        addRevisionToHistory(archive, doc, "content 8.1", author, "8.1");
+        assertFalse(archive.getNode(new Version(7, 1)).isDiff());
+        addRevisionToHistory(archive, doc, "content 9.1", author, "9.1");
+        assertTrue(archive.getNode(new Version(8, 1)).isDiff());
+        addRevisionToHistory(archive, doc, "content 10.1", author, "10.1");
+        assertTrue(archive.getNode(new Version(9, 1)).isDiff());
+        addRevisionToHistory(archive, doc, "content 11.1", author, "11.1");
+        assertFalse(archive.getNode(new Version(10, 1)).isDiff());
+    }
+
+    public void testGetVersionXmlFromReconstructedVersion() throws Exception
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        doc.setDocumentArchive(archive);
+        String author = "XWiki.some author";
+
+        for (int i = 1; i <= 4; i++) {
+            addRevisionToHistory(archive, doc, "content " + i + ".1\nline", author, i + ".1");
+        }
+
+        // Reconstruct the versions from the most recent one so that each version starts from the previous one
+        for (int i = 4; i >= 1; i--) {
+            assertEquals("content " + i + ".1\nline", archive.loadDocument(new Version(i, 1), context).getContent());
+        }
+
+        // Same result when starting from the full version
+        XWikiDocumentArchive archive2 = new XWikiDocumentArchive(doc.getId());
+        archive2.setArchive(archive.getArchive(context));
+        assertEquals(archive.getVersionXml(new Version(1, 1), context),
+            archive2.getVersionXml(new Version(1, 1), context));
+    }
+
+    public void testGetNodesMatchingCriteria() throws Exception
+    {
+        XWikiDocument doc = new XWikiDocument(new DocumentReference("Test", "Test", "Test"));
+        XWikiDocumentArchive archive = new XWikiDocumentArchive(doc.getId());
+        doc.setDocumentArchive(archive);
+
+        String[] versions = { "1.1", "1.2", "2.1", "2.2", "2.3", "3.1" };
+        for (String version : versions) {
+            doc.setContent("content " + version);
+            archive.updateArchive(doc, version.startsWith("2.") ? "XWiki.other" : "XWiki.author", new Date(), "",
+                new Version(version), context);
+        }
+
+        RevisionCriteria criteria = new RevisionCriteria();
+        assertEquals(Arrays.asList("1.2", "2.3", "3.1"), toVersions(archive.getNodes(criteria)));
+
+        criteria.setIncludeMinorVersions(true);
+        assertEquals(Arrays.asList(versions), toVersions(archive.getNodes(criteria)));
+
+        criteria.setRange(new Range(0, -2));
+        assertEquals(Arrays.asList("2.3", "3.1"), toVersions(archive.getNodes(criteria)));
+
+        criteria.setRange(new Range(0, 0));
+        criteria.setAuthor("XWiki.other");
+        assertEquals(Arrays.asList("2.1", "2.2", "2.3"), toVersions(archive.getNodes(criteria)));
+    }
+
+    private List<String> toVersions(List<XWikiRCSNodeInfo> nodes)
+    {
+        return nodes.stream().map(node -> node.getVersion().toString()).collect(Collectors.toList());
+    }
+
     private void addRevisionToHistory(XWikiDocumentArchive archive, XWikiDocument document, String content,
         String author, String comment) throws XWikiException
     {
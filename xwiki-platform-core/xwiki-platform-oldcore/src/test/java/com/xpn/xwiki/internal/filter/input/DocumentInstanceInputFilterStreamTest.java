@@ -25,9 +25,16 @@
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
+import org.xwiki.model.reference.DocumentReference;
 
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.filter.output.DocumentInstanceOutputFilterStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
  * 
@@ -50,4 +57,28 @@ public void testImportDocumentsPreserveVersion() throws FilterException, IOExcep
 
         assertXML("document1", outputProperties, inputProperties);
     }
+
+    @Test
+    public void testExportDocumentsWithAttachmentsAndPrefetch() throws Exception
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVerbose(false);
+
+        DocumentInstanceInputProperties inputProperties = new DocumentInstanceInputProperties();
+        inputProperties.setWithRevisions(false);
+        inputProperties.setWithJRCSRevisions(false);
+        inputProperties.setWithWikiAttachmentsContent(true);
+        inputProperties.setVerbose(false);
+
+        assertXML("document1", outputProperties, inputProperties);
+
+        // The documents of each space are loaded in the background before being exported
+        verify(this.oldcore.getMockStore(), timeout(5000).atLeastOnce()).loadXWikiDocs(any(), any());
+
+        // The attachment content is still available after the export
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+        assertArrayEquals(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+            document.getAttachment("attachment.txt").getContent(this.oldcore.getXWikiContext()));
+    }
 }
@@ -24,10 +24,17 @@
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
 import org.xwiki.filter.FilterException;
+import org.xwiki.filter.event.model.WikiDocumentFilter;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
+import org.xwiki.logging.LogQueue;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LogEvent;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
@@ -40,10 +47,17 @@
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.NumberClass;
 
+import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiContext;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
 
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
@@ -432,4 +446,82 @@ public void testDocumentwithobjectwithoutnumberandclass() throws FilterException
         assertEquals(1, documentObject.getFieldList().size());
         assertEquals("propvalue", documentObject.getStringValue("prop"));
     }
+
+    @Test
+    public void testImportDocumentsWithSeveralThreads() throws Exception
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVerbose(true);
+        outputProperties.setSaveThreads(2);
+
+        LogQueue logs = importFromXMLWithLogs("document1", outputProperties);
+
+        // All the documents are saved when the output stream is closed
+
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+
+        assertFalse(document.isNew());
+        assertEquals("content", document.getContent());
+        assertEquals("1.42", document.getVersion());
+
+        XWikiDocument classDocument = this.oldcore.getSpyXWiki().getDocument(
+            new DocumentReference("wiki", "otherspace", "otherclass"), this.oldcore.getXWikiContext());
+
+        assertFalse(classDocument.isNew());
+
+        // The logs of the save threads are visible from the calling thread
+        assertEquals(3, getLogs(logs, WikiDocumentFilter.LOG_DOCUMENT_CREATED).size());
+    }
+
+    @Test
+    public void testImportDocumentsWithSeveralThreadsWhenSaveFail() throws Exception
+    {
+        // The version being preserved by default, the documents are saved with their own comment and minor edit flag
+        doThrow(new XWikiException()).when(this.oldcore.getSpyXWiki()).saveDocument(any(XWikiDocument.class),
+            any(String.class), anyBoolean(), anyXWikiContext());
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVerbose(true);
+        outputProperties.setSaveThreads(2);
+
+        LoggerManager loggerManager = this.oldcore.getMocker().getInstance(LoggerManager.class);
+        LogQueue logs = new LogQueue();
+        loggerManager.pushLogListener(new LoggerListener("test", logs));
+        try {
+            assertThrows(FilterException.class, () -> importFromXML("document1", outputProperties));
+        } finally {
+            loggerManager.popLogListener();
+        }
+
+        // The failure is reported in the calling thread
+        assertFalse(getLogs(logs, WikiDocumentFilter.LOG_DOCUMENT_ERROR).isEmpty());
+
+        // The documents waiting to be saved by the thread which failed are not saved (3 documents and 2 threads)
+        verify(this.oldcore.getSpyXWiki(), atMost(2)).saveDocument(any(XWikiDocument.class), any(String.class),
+            anyBoolean(), anyXWikiContext());
+    }
+
+    private LogQueue importFromXMLWithLogs(String resource, DocumentInstanceOutputProperties outputProperties)
+        throws Exception
+    {
+        LoggerManager loggerManager = this.oldcore.getMocker().getInstance(LoggerManager.class);
+        LogQueue logs = new LogQueue();
+        loggerManager.pushLogListener(new LoggerListener("test", logs));
+        try {
+            importFromXML(resource, outputProperties);
+        } finally {
+            loggerManager.popLogListener();
+        }
+
+        return logs;
+    }
+
+    private List<LogEvent> getLogs(LogQueue logs, Marker marker)
+    {
+        return logs.stream().filter(log -> log.getMarker() != null && log.getMarker().contains(marker))
+            .collect(Collectors.toList());
+    }
 }
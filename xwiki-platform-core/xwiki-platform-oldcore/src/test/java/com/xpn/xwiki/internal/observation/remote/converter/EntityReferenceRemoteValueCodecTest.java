@@ -0,0 +1,110 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.codec.RemoteEventDataCodec;
+import org.xwiki.observation.remote.codec.RemoteValueCodec;
+import org.xwiki.observation.remote.internal.codec.CompactRemoteEventDataCodec;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link EntityReferenceRemoteValueCodec}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList({
+    CompactRemoteEventDataCodec.class,
+    EntityReferenceRemoteValueCodec.class
+})
+public class EntityReferenceRemoteValueCodecTest
+{
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private Object roundTrip(Object value) throws Exception
+    {
+        RemoteValueCodec valueCodec = this.componentManager.getInstance(RemoteValueCodec.class, "entityreference");
+        assertTrue(valueCodec.canEncode(value));
+
+        RemoteEventDataCodec codec = this.componentManager.getInstance(RemoteEventDataCodec.class);
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setSource(value);
+
+        byte[] encoded = codec.encode(remoteEvent);
+
+        // The reference is not encoded with the Java serialization
+        assertFalse(containsJavaSerialization(encoded));
+
+        return codec.decode(encoded, 0, encoded.length).getSource();
+    }
+
+    private boolean containsJavaSerialization(byte[] bytes)
+    {
+        for (int i = 0; i < bytes.length - 1; ++i) {
+            if (bytes[i] == (byte) 0xAC && bytes[i + 1] == (byte) 0xED) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Test
+    public void encodeDecodeDocumentReferenceWithLocale() throws Exception
+    {
+        DocumentReference reference = new DocumentReference("wiki", "space", "page", Locale.FRENCH);
+
+        Object result = roundTrip(reference);
+
+        assertSame(DocumentReference.class, result.getClass());
+        assertEquals(reference, result);
+        assertEquals(Locale.FRENCH, ((DocumentReference) result).getLocale());
+    }
+
+    @Test
+    public void encodeDecodeReferences() throws Exception
+    {
+        WikiReference wikiReference = new WikiReference("wiki");
+        assertEquals(wikiReference, roundTrip(wikiReference));
+        assertSame(WikiReference.class, roundTrip(wikiReference).getClass());
+
+        EntityReference reference = new EntityReference("object", EntityType.OBJECT,
+            new DocumentReference("wiki", "space", "page"));
+        assertEquals(reference, roundTrip(reference));
+    }
+}
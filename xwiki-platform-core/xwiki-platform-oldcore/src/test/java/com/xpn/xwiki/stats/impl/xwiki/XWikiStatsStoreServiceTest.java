@@ -0,0 +1,191 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.util.ReflectionUtils;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ */
+public class XWikiStatsStoreServiceTest
+{
+    private XWikiContext context;
+
+    private Map<String, Integer> storedHits = new HashMap<>();
+
+    private List<String> storedNames = new ArrayList<>();
+
+    private boolean interruptedWhileStoring;
+
+    private class TestStatsStoreItem extends AbstractStatsStoreItem
+    {
+        TestStatsStoreItem(String name)
+        {
+            super(name, new Date(), PeriodType.DAY, context);
+        }
+
+        @Override
+        public String getId()
+        {
+            return this.name;
+        }
+
+        @Override
+        public void store(List<XWikiStatsStoreItem> statsList)
+        {
+            storeInternal(statsList);
+        }
+
+        @Override
+        protected void storeInternal(List<XWikiStatsStoreItem> statsList)
+        {
+            assertEquals(1, statsList.size());
+            storedHits.merge(this.name, getHits(statsList), Integer::sum);
+            storedNames.add(this.name);
+            interruptedWhileStoring |= Thread.currentThread().isInterrupted();
+        }
+    }
+
+    @BeforeEach
+    public void setUp()
+    {
+        this.context = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.context.getWiki()).thenReturn(xwiki);
+        when(this.context.clone()).thenReturn(this.context);
+        when(xwiki.ParamAsLong("xwiki.stats.flushInterval", 5)).thenReturn(5L);
+    }
+
+    private void register(XWikiStatsStoreService service) throws Exception
+    {
+        Method register = XWikiStatsStoreService.class.getDeclaredMethod("register");
+        register.setAccessible(true);
+        register.invoke(service);
+    }
+
+    @Test
+    public void aggregateHits() throws Exception
+    {
+        XWikiStatsStoreService service = new XWikiStatsStoreService(this.context);
+
+        service.add(new TestStatsStoreItem("page1"));
+        service.add(new TestStatsStoreItem("page2"));
+        service.add(new TestStatsStoreItem("page1"));
+        service.add(new TestStatsStoreItem("page1"));
+
+        register(service);
+
+        assertEquals(2, this.storedHits.size());
+        assertEquals(3, this.storedHits.get("page1").intValue());
+        assertEquals(1, this.storedHits.get("page2").intValue());
+
+        // Hits added after a store are aggregated again
+        service.add(new TestStatsStoreItem("page1"));
+
+        register(service);
+
+        assertEquals(4, this.storedHits.get("page1").intValue());
+    }
+
+    @Test
+    public void storeInFirstHitOrder() throws Exception
+    {
+        XWikiStatsStoreService service = new XWikiStatsStoreService(this.context);
+
+        // Like a visit whose identifier changed, the previous item must be stored first
+        for (String name : Arrays.asList("visit3", "visit1", "visit2", "visit1", "visit0")) {
+            service.add(new TestStatsStoreItem(name));
+        }
+
+        register(service);
+
+        assertEquals(Arrays.asList("visit3", "visit1", "visit2", "visit0"), this.storedNames);
+    }
+
+    @Test
+    public void aggregateConcurrentHits() throws Exception
+    {
+        XWikiStatsStoreService service = new XWikiStatsStoreService(this.context);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            Thread thread = new Thread(() -> {
+                for (int j = 0; j < 1000; ++j) {
+                    service.add(new TestStatsStoreItem("page" + (j % 3)));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        register(service);
+
+        assertEquals(1336, this.storedHits.get("page0").intValue());
+        assertEquals(1332, this.storedHits.get("page1").intValue());
+        assertEquals(1332, this.storedHits.get("page2").intValue());
+    }
+
+    @Test
+    public void stopStoresRemainingStatistics() throws Exception
+    {
+        XWikiStatsStoreService service = new XWikiStatsStoreService(this.context);
+
+        // Don't use start() which requires an execution context
+        Thread thread = new Thread(service::runInternal);
+        ReflectionUtils.setFieldValue(service, "thread", thread);
+        thread.start();
+
+        service.add(new TestStatsStoreItem("page1"));
+
+        long before = System.currentTimeMillis();
+        service.stop();
+
+        // The thread doesn't wait for the end of the flush interval
+        assertTrue(System.currentTimeMillis() - before < 5000L);
+        assertFalse(thread.isAlive());
+        assertEquals(1, this.storedHits.get("page1").intValue());
+        assertFalse(this.interruptedWhileStoring);
+    }
+}
@@ -19,6 +19,15 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.mutable.MutableInt;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -34,11 +43,15 @@
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -115,4 +128,110 @@ public void testLoadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.cache);
         verifyNoMoreInteractions(this.existCache);
     }
+
+    @Test
+    public void existsWaitsForTheCheckInProgress() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        CountDownLatch latch = new CountDownLatch(1);
+        when(store.exists(any(XWikiDocument.class), any())).thenAnswer(invocation -> {
+            latch.await();
+
+            return true;
+        });
+
+        XWikiCacheStore cacheStore = new XWikiCacheStore(store, this.oldcore.getXWikiContext());
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> first =
+                executor.submit(() -> cacheStore.exists(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+            verify(store, timeout(5000)).exists(any(XWikiDocument.class), any());
+
+            Future<Boolean> second =
+                executor.submit(() -> cacheStore.exists(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+            while (cacheStore.getCoalescedExistCheckCount() == 0) {
+                Thread.sleep(10);
+            }
+
+            latch.countDown();
+
+            assertTrue(first.get());
+            assertTrue(second.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(store).exists(any(XWikiDocument.class), any());
+        verify(this.existCache).set("4:wiki5:space4:page", Boolean.TRUE);
+        assertEquals(1, cacheStore.getCoalescedExistCheckCount());
+    }
+
+    @Test(timeout = 10000)
+    public void loadXWikiDocWhenReentrant() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        XWikiCacheStore cacheStore = new XWikiCacheStore(store, this.oldcore.getXWikiContext());
+
+        XWikiDocument storedDocument = new XWikiDocument(reference);
+        storedDocument.setNew(false);
+        MutableInt calls = new MutableInt();
+        when(store.loadXWikiDoc(any(XWikiDocument.class), any())).thenAnswer(invocation -> {
+            // Loading the document triggers the load of the same document (e.g. a class document)
+            if (calls.getAndIncrement() == 0) {
+                assertSame(storedDocument,
+                    cacheStore.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+            }
+
+            return storedDocument;
+        });
+
+        assertSame(storedDocument,
+            cacheStore.loadXWikiDoc(new XWikiDocument(reference), this.oldcore.getXWikiContext()));
+
+        verify(store, times(2)).loadXWikiDoc(any(XWikiDocument.class), any());
+        assertEquals(0, cacheStore.getCoalescedLoadCount());
+    }
+
+    @Test
+    public void loadXWikiDocsOnlyLoadsMissingDocuments() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+
+        DocumentReference cachedReference = new DocumentReference("wiki", "space", "cached");
+        DocumentReference missingReference = new DocumentReference("wiki", "space", "missing");
+        DocumentReference storedReference = new DocumentReference("wiki", "space", "stored");
+
+        XWikiDocument cachedDocument = new XWikiDocument(cachedReference);
+        when(this.cache.get("4:wiki5:space6:cached")).thenReturn(cachedDocument);
+        when(this.existCache.get("4:wiki5:space7:missing")).thenReturn(Boolean.FALSE);
+
+        XWikiStoreInterface store = mock(XWikiStoreInterface.class);
+        XWikiDocument storedDocument = new XWikiDocument(storedReference);
+        storedDocument.setNew(false);
+        when(store.loadXWikiDocs(eq(Collections.singletonList(storedReference)), any()))
+            .thenReturn(Collections.singletonList(storedDocument));
+
+        XWikiCacheStore cacheStore = new XWikiCacheStore(store, this.oldcore.getXWikiContext());
+
+        List<XWikiDocument> documents = cacheStore.loadXWikiDocs(
+            Arrays.asList(cachedReference, missingReference, storedReference), this.oldcore.getXWikiContext());
+
+        assertEquals(3, documents.size());
+        assertSame(cachedDocument, documents.get(0));
+        assertTrue(documents.get(1).isNew());
+        assertEquals(missingReference, documents.get(1).getDocumentReference());
+        assertSame(storedDocument, documents.get(2));
+
+        verify(this.cache).set("4:wiki5:space6:stored", storedDocument);
+        verify(this.existCache).set("4:wiki5:space6:stored", Boolean.TRUE);
+        verify(store, never()).loadXWikiDoc(any(), any());
+    }
 }
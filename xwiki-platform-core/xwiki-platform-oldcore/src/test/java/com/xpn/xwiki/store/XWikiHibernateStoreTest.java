@@ -19,10 +19,12 @@
  */
 package com.xpn.xwiki.store;
 
+import java.io.Serializable;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
@@ -52,9 +54,11 @@
 import com.xpn.xwiki.objects.StringProperty;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -382,4 +386,77 @@ public void loadBacklinksFromSubwiki() throws Exception
         verify(this.hibernateStore).beginTransaction();
         verify(this.hibernateStore).endTransaction(false);
     }
+
+    @Test
+    public void loadXWikiDocsFromSeveralWikis() throws Exception
+    {
+        // Simulate the current wiki of the context
+        List<String> wikis = new ArrayList<>();
+        wikis.add("xwiki");
+        doAnswer(invocation -> wikis.add(invocation.getArgument(0))).when(this.xcontext).setWikiId(any());
+        when(this.xcontext.getWikiId()).thenAnswer(invocation -> wikis.get(wikis.size() - 1));
+
+        // Remember in which wiki each batch of documents is loaded
+        List<String> queriedWikis = new ArrayList<>();
+        Query query = mock(Query.class);
+        when(this.session.createQuery(any())).thenAnswer(invocation -> {
+            if (invocation.<String>getArgument(0).startsWith("from XWikiDocument")) {
+                queriedWikis.add(this.xcontext.getWikiId());
+            }
+
+            return query;
+        });
+        when(query.list()).thenReturn(Collections.emptyList());
+
+        DocumentReference reference1 = new DocumentReference("wiki1", "Space", "Page1");
+        DocumentReference reference2 = new DocumentReference("wiki2", "Space", "Page2");
+        DocumentReference reference3 = new DocumentReference("wiki1", "Space", "Page3");
+
+        List<XWikiDocument> documents =
+            this.store.loadXWikiDocs(Arrays.asList(reference1, reference2, reference3), this.xcontext);
+
+        assertEquals(3, documents.size());
+        assertEquals(reference1, documents.get(0).getDocumentReference());
+        assertEquals(reference2, documents.get(1).getDocumentReference());
+        assertEquals(reference3, documents.get(2).getDocumentReference());
+
+        // One batch per wiki, each one loaded from the right wiki
+        assertEquals(Arrays.asList("wiki1", "wiki2"), queriedWikis);
+        // The current wiki is restored
+        assertEquals("xwiki", this.xcontext.getWikiId());
+    }
+
+    @Test
+    public void loadXWikiDocsWithOneQueryForTheDocuments() throws Exception
+    {
+        when(this.xcontext.getWikiId()).thenReturn("wiki");
+
+        DocumentReference existingReference = new DocumentReference("wiki", "Space", "Existing");
+        DocumentReference missingReference = new DocumentReference("wiki", "Space", "Missing");
+
+        XWikiDocument loadedDocument = mock(XWikiDocument.class);
+        when(loadedDocument.getId()).thenReturn(new XWikiDocument(existingReference).getId());
+        when(loadedDocument.getDocumentReference()).thenReturn(existingReference);
+        when(loadedDocument.getDate()).thenReturn(new Date());
+        when(loadedDocument.getCreationDate()).thenReturn(new Date());
+        when(loadedDocument.getContentUpdateDate()).thenReturn(new Date());
+
+        Query documentQuery = mock(Query.class);
+        when(documentQuery.list()).thenReturn(Collections.singletonList(loadedDocument));
+        Query query = mock(Query.class);
+        when(query.list()).thenReturn(Collections.emptyList());
+        when(this.session.createQuery(any())).thenAnswer(invocation -> invocation.<String>getArgument(0)
+            .startsWith("from XWikiDocument") ? documentQuery : query);
+
+        List<XWikiDocument> documents =
+            this.store.loadXWikiDocs(Arrays.asList(existingReference, missingReference), this.xcontext);
+
+        assertSame(loadedDocument, documents.get(0));
+        verify(loadedDocument).setNew(false);
+        assertEquals(missingReference, documents.get(1).getDocumentReference());
+        assertTrue(documents.get(1).isNew());
+
+        verify(this.session).createQuery("from XWikiDocument as doc where doc.id in (:ids)");
+        verify(this.session, never()).load(any(Object.class), any(Serializable.class));
+    }
 }
@@ -20,6 +20,7 @@
 package com.xpn.xwiki.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.Date;
@@ -27,9 +28,11 @@
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentMatcher;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
@@ -42,6 +45,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
@@ -54,6 +58,7 @@
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -73,6 +78,9 @@
     @Rule
     public MockitoOldcoreRule oldcore = new MockitoOldcoreRule();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /** Mocked context document. */
     private XWikiDocument document;
 
@@ -590,12 +598,106 @@ public void downloadWhenEmptyRange() throws XWikiException, IOException
         verifyResponseExpectations(d.getTime(), this.fileContent.length);
     }
 
-    private void createAttachment(Date d, String name) throws IOException
+    @Test
+    public void downloadWhenIfNoneMatchSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1L, DEFAULT_FILE_NAME);
+        String etag = "\"" + attachment.getVersion() + '-' + d.getTime() + '-' + this.fileContent.length + '"';
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + etag);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setHeader("ETag", etag);
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response, never()).getOutputStream();
+    }
+
+    @Test
+    public void downloadWhenIfNoneMatchDifferent() throws XWikiException, IOException
+    {
+        // If-None-Match takes precedence over If-Modified-Since
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, d.getTime(), DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfRangeDifferent() throws XWikiException, IOException
+    {
+        // The content changed since the client got the beginning of it so the whole content is expected
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=9-13", -1L, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"other\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfRangeSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=9-13", -1L, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range"))
+            .thenReturn("\"" + attachment.getVersion() + '-' + d.getTime() + '-' + this.fileContent.length + '"');
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyOutputExpectations(9, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenContentInFile() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        XWikiAttachment attachment = createAttachment(d, DEFAULT_FILE_NAME);
+        File file = this.temporaryFolder.newFile();
+        FileUtils.writeByteArrayToFile(file, this.fileContent);
+        attachment.setAttachment_content(new XWikiAttachmentContent(attachment)
+        {
+            @Override
+            public File getContentFile()
+            {
+                return file;
+            }
+
+            @Override
+            public long getLongSize()
+            {
+                return file.length();
+            }
+        });
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=9-13", -1L, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 9-13/" + this.fileContent.length);
+        verifyOutputExpectations(9, this.fileContent.length);
+    }
+
+    private XWikiAttachment createAttachment(Date d, String name) throws IOException
     {
         XWikiAttachment filetxt = new XWikiAttachment(this.document, name);
         filetxt.setContent(new ByteArrayInputStream(this.fileContent));
         filetxt.setDate(d);
         this.document.getAttachmentList().add(filetxt);
+
+        return filetxt;
     }
 
     private void setRequestExpectations(String uri, String id, String forceDownload, String range, long modifiedSince,
@@ -192,6 +192,7 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
         displayParameters.setTransformationContextRestricted(context.getTransformationContext().isRestricted());
         displayParameters.setTargetSyntax(context.getTransformationContext().getTargetSyntax());
         displayParameters.setContentTranslated(true);
+        displayParameters.setCacheAllowed(parameters.isCached());
 
         Stack<Object> references = this.inclusionsBeingExecuted.get();
         if (parametersContext == Context.NEW) {
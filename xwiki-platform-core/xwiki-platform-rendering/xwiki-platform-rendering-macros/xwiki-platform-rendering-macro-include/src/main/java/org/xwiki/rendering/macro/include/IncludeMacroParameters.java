@@ -69,6 +69,11 @@
      */
     private String section;
 
+    /**
+     * @see #isCached()
+     */
+    private boolean cached;
+
     /**
      * @param reference the reference of the resource to include
      * @since 3.4M1
@@ -159,4 +164,26 @@ public void setPage(String page)
         this.reference = page;
         this.type = EntityType.PAGE;
     }
+
+    /**
+     * @param cached {@code true} if the result of the inclusion can be reused as long as the included page, and the
+     *            pages it displays itself, are not modified
+     * @since 11.3RC1
+     */
+    @PropertyDescription("reuse the result of the inclusion until the included page is modified (only with the new"
+        + " context and when the result only depends on the included page and the current user and locale)")
+    public void setCached(boolean cached)
+    {
+        this.cached = cached;
+    }
+
+    /**
+     * @return {@code true} if the result of the inclusion can be reused as long as the included page, and the pages
+     *         it displays itself, are not modified
+     * @since 11.3RC1
+     */
+    public boolean isCached()
+    {
+        return this.cached;
+    }
 }
@@ -22,7 +22,9 @@
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -110,18 +112,25 @@ public List<SearchResult> search(String partialQueryString, String wikiName, Str
 
         WikiReference wikiReference = new WikiReference(wikiName);
 
+        /* Check at once if the user has the right to see the found documents */
+        List<DocumentReference> documentReferences = new ArrayList<>(queryResult.size());
+        for (Object object : queryResult) {
+            documentReferences.add(this.resolver.resolve((String) ((Object[]) object)[0], wikiReference));
+        }
+        Set<DocumentReference> viewableReferences =
+            new HashSet<>(this.authorization.filterAccessible(Right.VIEW, documentReferences));
+
         /* Build the result. */
         List<SearchResult> result = new ArrayList<>();
-        for (Object object : queryResult) {
-            Object[] fields = (Object[]) object;
+        for (int i = 0; i < queryResult.size(); ++i) {
+            Object[] fields = (Object[]) queryResult.get(i);
 
-            String fullName = (String) fields[0];
             String language = (String) fields[3];
 
-            DocumentReference documentReference = this.resolver.resolve(fullName, wikiReference);
+            DocumentReference documentReference = documentReferences.get(i);
 
             /* Check if the user has the right to see the found document */
-            if (this.authorization.hasAccess(Right.VIEW, documentReference)) {
+            if (viewableReferences.contains(documentReference)) {
                 Document doc = xwikiApi.getDocument(documentReference);
                 String title = doc.getDisplayTitle();
 
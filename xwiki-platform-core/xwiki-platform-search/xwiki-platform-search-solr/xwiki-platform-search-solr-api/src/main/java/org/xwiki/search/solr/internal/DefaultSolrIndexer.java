@@ -20,8 +20,10 @@
 package org.xwiki.search.solr.internal;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -61,8 +63,14 @@
  * Default implementation of {@link SolrIndexer}.
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
- * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * order they were received. The queue is then processed by a pipeline of threads:
+ * <ul>
+ * <li>a dispatch thread which distributes the entries to the index workers, always sending the entries related to the
+ * same document to the same worker so that their order is kept</li>
+ * <li>a configurable number of index workers which extract in parallel the {@link SolrInputDocument}s to send</li>
+ * <li>the {@link Runnable} part of this implementation which sequentially sends the extracted data to the Solr
+ * instance in batches</li>
+ * </ul>
  * 
  * @version $Id$
  * @since 5.1M2
@@ -97,6 +105,11 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * The callback to call once all the previous operations have been committed.
+         */
+        public Runnable callback;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -117,9 +130,21 @@ public IndexQueueEntry(String deleteQuery, IndexOperation operation)
             this.operation = operation;
         }
 
+        /**
+         * @param callback the callback to call once all the previous operations have been committed
+         */
+        public IndexQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+        }
+
         @Override
         public String toString()
         {
+            if (this.callback != null) {
+                return "COMMIT CALLBACK";
+            }
+
             String str;
 
             switch (operation) {
@@ -163,6 +188,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * The callback to call once all the previous operations have been committed.
+         */
+        public Runnable callback;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -174,6 +204,201 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param callback the callback to call once all the previous operations have been committed
+         */
+        public ResolveQueueEntry(Runnable callback)
+        {
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * Batch queue entry.
+     * 
+     * @version $Id$
+     */
+    private static class BatchQueueEntry
+    {
+        /**
+         * The source index queue entry.
+         */
+        public IndexQueueEntry source;
+
+        /**
+         * The document to add to the index.
+         */
+        public LengthSolrInputDocument solrDocument;
+
+        /**
+         * The identifier of the document to delete from the index.
+         */
+        public String deleteId;
+
+        /**
+         * @param source the source index queue entry
+         */
+        public BatchQueueEntry(IndexQueueEntry source)
+        {
+            this.source = source;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.source != null ? this.source.toString() : "";
+        }
+    }
+
+    /**
+     * Distribute the index queue entries to the index workers.
+     * 
+     * @version $Id$
+     */
+    private class Dispatcher extends AbstractXWikiRunnable
+    {
+        @Override
+        public void runInternal()
+        {
+            logger.debug("Start SOLR dispatch thread");
+
+            while (!Thread.interrupted()) {
+                IndexQueueEntry queueEntry;
+                try {
+                    queueEntry = indexQueue.take();
+                } catch (InterruptedException e) {
+                    logger.warn("The SOLR dispatch thread has been interrupted", e);
+                    queueEntry = INDEX_QUEUE_ENTRY_STOP;
+                }
+
+                if (queueEntry == INDEX_QUEUE_ENTRY_STOP) {
+                    stopWorkers();
+                    break;
+                }
+
+                try {
+                    if (queueEntry.reference == null) {
+                        // A delete query (or a commit callback) can target entities handled by any worker so we need
+                        // to wait for all the workers to have processed the entries received before.
+                        waitForWorkers();
+                        BatchQueueEntry batchEntry = new BatchQueueEntry(queueEntry);
+                        batchQueue.put(batchEntry);
+                    } else {
+                        pendingEntries.incrementAndGet();
+                        getWorker(queueEntry.reference).queue.put(queueEntry);
+                    }
+                } catch (InterruptedException e) {
+                    logger.warn("The SOLR dispatch thread has been interrupted", e);
+                    stopWorkers();
+                    break;
+                }
+            }
+
+            logger.debug("Stop SOLR dispatch thread");
+        }
+
+        private void waitForWorkers() throws InterruptedException
+        {
+            synchronized (pendingEntries) {
+                while (pendingEntries.get() > 0) {
+                    pendingEntries.wait();
+                }
+            }
+        }
+
+        private void stopWorkers()
+        {
+            // Stop the workers: clear their queue and send the stop signal without blocking.
+            for (Worker worker : workers) {
+                worker.queue.clear();
+                worker.queue.offer(INDEX_QUEUE_ENTRY_STOP);
+            }
+
+            // Wait for the workers to finish the entry they are currently processing before stopping the batch thread.
+            for (Worker worker : workers) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    logger.warn("Interrupted while waiting for the SOLR index worker [{}] to stop",
+                        worker.thread.getName(), e);
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            // Stop the batch thread. Clear the queue and send the stop signal without blocking.
+            batchQueue.clear();
+            batchQueue.offer(BATCH_QUEUE_ENTRY_STOP);
+        }
+    }
+
+    /**
+     * Extract the Solr documents from the received entries and add them to the batch queue.
+     * 
+     * @version $Id$
+     */
+    private class Worker extends AbstractXWikiRunnable
+    {
+        /**
+         * The entries to process.
+         */
+        private final BlockingQueue<IndexQueueEntry> queue;
+
+        /**
+         * The thread in which the worker is executed.
+         */
+        private Thread thread;
+
+        /**
+         * @param capacity the capacity of the worker queue
+         */
+        Worker(int capacity)
+        {
+            this.queue = new LinkedBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void runInternal()
+        {
+            logger.debug("Start SOLR index worker");
+
+            while (!Thread.interrupted()) {
+                IndexQueueEntry queueEntry;
+                try {
+                    queueEntry = this.queue.take();
+                } catch (InterruptedException e) {
+                    logger.warn("The SOLR index worker has been interrupted", e);
+                    break;
+                }
+
+                if (queueEntry == INDEX_QUEUE_ENTRY_STOP) {
+                    break;
+                }
+
+                try {
+                    BatchQueueEntry batchEntry = processEntry(queueEntry);
+                    if (batchEntry != null) {
+                        batchQueue.put(batchEntry);
+                    }
+                } catch (InterruptedException e) {
+                    logger.warn("The SOLR index worker has been interrupted", e);
+                    break;
+                } finally {
+                    releaseEntry();
+                }
+            }
+
+            logger.debug("Stop SOLR index worker");
+        }
+
+        private void releaseEntry()
+        {
+            if (pendingEntries.decrementAndGet() <= 0) {
+                synchronized (pendingEntries) {
+                    pendingEntries.notifyAll();
+                }
+            }
+        }
     }
 
     /**
@@ -205,7 +430,9 @@ public void runInternal()
                 }
 
                 try {
-                    if (queueEntry.operation == IndexOperation.INDEX) {
+                    if (queueEntry.callback != null) {
+                        indexQueue.put(new IndexQueueEntry(queueEntry.callback));
+                    } else if (queueEntry.operation == IndexOperation.INDEX) {
                         Iterable<EntityReference> references;
                         if (queueEntry.recurse) {
                             references = solrRefereceResolver.getReferences(queueEntry.reference);
@@ -241,11 +468,16 @@ public void runInternal()
         new ResolveQueueEntry(null, false, IndexOperation.STOP);
 
     /**
-     * Stop indexer thread.
+     * Stop dispatch and worker threads.
      */
     private static final IndexQueueEntry INDEX_QUEUE_ENTRY_STOP =
         new IndexQueueEntry((String) null, IndexOperation.STOP);
 
+    /**
+     * Stop indexer thread.
+     */
+    private static final BatchQueueEntry BATCH_QUEUE_ENTRY_STOP = new BatchQueueEntry(INDEX_QUEUE_ENTRY_STOP);
+
     /**
      * Logging framework.
      */
@@ -295,6 +527,26 @@ public void runInternal()
      */
     private BlockingQueue<ResolveQueueEntry> resolveQueue;
 
+    /**
+     * The queue of extracted data to send to the Solr instance.
+     */
+    private BlockingQueue<BatchQueueEntry> batchQueue;
+
+    /**
+     * The workers in charge of extracting the data to index.
+     */
+    private Worker[] workers;
+
+    /**
+     * The number of entries sent to the workers and not yet processed.
+     */
+    private final AtomicInteger pendingEntries = new AtomicInteger();
+
+    /**
+     * Thread in which the index queue entries are dispatched to the workers.
+     */
+    private Thread dispatchThread;
+
     /**
      * Thread in which the indexUpdater will be executed.
      */
@@ -308,19 +560,28 @@ public void runInternal()
     /**
      * Indicate of the component has been disposed.
      */
-    private boolean disposed;
+    private volatile boolean disposed;
 
     /**
      * The size of the not yet sent batch.
      */
     private volatile int batchSize;
 
+    /**
+     * Indicate if a commit failed since the last commit callback.
+     */
+    private boolean commitFailed;
+
     @Override
     public void initialize() throws InitializationException
     {
         // Initialize the queues before starting the threads.
+        int queueCapacity = this.configuration.getIndexerQueueCapacity();
+        int threads = Math.max(1, this.configuration.getIndexerThreads());
         this.resolveQueue = new LinkedBlockingQueue<>();
-        this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
+        this.indexQueue = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchQueue =
+            new LinkedBlockingQueue<>(Math.max(threads, this.configuration.getIndexerBatchSize() * threads));
 
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
@@ -329,6 +590,25 @@ public void initialize() throws InitializationException
         this.resolveThread.start();
         this.resolveThread.setPriority(Thread.NORM_PRIORITY - 1);
 
+        // Launch the index workers
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; ++i) {
+            Worker worker = new Worker(Math.max(1, queueCapacity / threads));
+            worker.thread = new Thread(worker);
+            worker.thread.setName("XWiki Solr index worker " + i);
+            worker.thread.setDaemon(true);
+            worker.thread.start();
+            worker.thread.setPriority(Thread.NORM_PRIORITY - 1);
+            this.workers[i] = worker;
+        }
+
+        // Launch the dispatch thread
+        this.dispatchThread = new Thread(new Dispatcher());
+        this.dispatchThread.setName("XWiki Solr dispatch thread");
+        this.dispatchThread.setDaemon(true);
+        this.dispatchThread.start();
+        this.dispatchThread.setPriority(Thread.NORM_PRIORITY - 1);
+
         // Launch the index thread
         this.indexThread = new Thread(this);
         this.indexThread.setName("XWiki Solr index thread");
@@ -348,10 +628,11 @@ public void dispose() throws ComponentLifecycleException
         this.resolveQueue.clear();
         this.resolveQueue.offer(RESOLVE_QUEUE_ENTRY_STOP);
 
-        // Stop the index thread. Clear the queue and send the stop signal without blocking. There should be enough
+        // Stop the dispatch thread. Clear the queue and send the stop signal without blocking. There should be enough
         // space in the index queue before the special stop entry is added as long the the index queue capacity is
         // greater than 1. In the worse case, the clear call will unblock the resolve thread (which was waiting because
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
+        // The dispatch thread then takes care of stopping the workers and the index thread.
         this.indexQueue.clear();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
     }
@@ -363,17 +644,17 @@ public void run()
 
         while (!Thread.interrupted()) {
             // Block until there is at least one entry in the queue
-            IndexQueueEntry queueEntry = null;
+            BatchQueueEntry queueEntry = null;
             try {
-                queueEntry = this.indexQueue.take();
+                queueEntry = this.batchQueue.take();
             } catch (InterruptedException e) {
                 this.logger.warn("The SOLR index thread has been interrupted", e);
 
-                queueEntry = INDEX_QUEUE_ENTRY_STOP;
+                queueEntry = BATCH_QUEUE_ENTRY_STOP;
             }
 
             // Add to the batch until either the batch size is achieved, the queue gets emptied or the
-            // INDEX_QUEUE_ENTRY_STOP is retrieved from the queue.
+            // BATCH_QUEUE_ENTRY_STOP is retrieved from the queue.
             if (!processBatch(queueEntry)) {
                 break;
             }
@@ -383,50 +664,82 @@ public void run()
     }
 
     /**
-     * Process a batch of operations that were just read from the index operations queue. This method also commits the
-     * batch when it finishes to process it.
+     * Extract the data to send to the Solr instance for the passed index queue entry. This method is called from the
+     * index workers.
+     * 
+     * @param queueEntry the entry to process
+     * @return the entry to add to the batch queue or {@code null} if there is nothing to send to the Solr instance
+     */
+    private BatchQueueEntry processEntry(IndexQueueEntry queueEntry)
+    {
+        if (this.disposed) {
+            // Don't waste time extracting data that won't be sent anyway.
+            return null;
+        }
+
+        BatchQueueEntry batchEntry = null;
+
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (IndexOperation.INDEX.equals(queueEntry.operation)) {
+                LengthSolrInputDocument solrDocument = getSolrDocument(queueEntry.reference);
+                if (solrDocument != null) {
+                    batchEntry = new BatchQueueEntry(queueEntry);
+                    batchEntry.solrDocument = solrDocument;
+                }
+            } else if (IndexOperation.DELETE.equals(queueEntry.operation)) {
+                batchEntry = new BatchQueueEntry(queueEntry);
+                batchEntry.deleteId = this.solrRefereceResolver.getId(queueEntry.reference);
+            }
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", queueEntry, e);
+        } finally {
+            this.execution.removeContext();
+        }
+
+        return batchEntry;
+    }
+
+    /**
+     * Process a batch of operations that were just read from the batch queue. This method also commits the batch when
+     * it finishes to process it.
      * 
      * @param queueEntry the batch to process
      * @return {@code true} to wait for another batch, {@code false} to stop the indexing thread
      */
-    private boolean processBatch(IndexQueueEntry queueEntry)
+    private boolean processBatch(BatchQueueEntry queueEntry)
     {
         SolrInstance solrInstance = this.solrInstanceProvider.get();
 
         int length = 0;
 
-        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
-            if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
+        for (BatchQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.batchQueue.poll()) {
+            if (batchEntry == BATCH_QUEUE_ENTRY_STOP) {
                 // Discard the current batch and stop the indexing thread.
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
+            if (batchEntry.source.callback != null) {
+                processCallback(batchEntry.source.callback);
+
+                continue;
+            }
 
             // For the current contiguous operations queue, group the changes
             try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
-
-                    ++this.batchSize;
+                if (batchEntry.solrDocument != null) {
+                    solrInstance.add(batchEntry.solrDocument);
+                    length += batchEntry.solrDocument.getLength();
+                } else if (batchEntry.deleteId != null) {
+                    solrInstance.delete(batchEntry.deleteId);
+                } else {
+                    solrInstance.deleteByQuery(batchEntry.source.deleteQuery);
                 }
+
+                ++this.batchSize;
             } catch (Throwable e) {
                 this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
             }
 
             // Commit the index changes so that they become available to queries. This is a costly operation and that is
@@ -445,6 +758,30 @@ private boolean processBatch(IndexQueueEntry queueEntry)
         return true;
     }
 
+    /**
+     * Commit the pending changes and call the passed callback if all the changes received before it are committed.
+     * 
+     * @param callback the callback to call
+     */
+    private void processCallback(Runnable callback)
+    {
+        if (this.batchSize > 0) {
+            commit();
+        }
+
+        if (this.commitFailed) {
+            this.logger.debug("Skip the commit callback because some changes could not be committed");
+        } else {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                this.logger.error("Failed to execute the commit callback", e);
+            }
+        }
+
+        this.commitFailed = false;
+    }
+
     /**
      * Commit.
      */
@@ -455,6 +792,8 @@ private void commit()
         try {
             solrInstance.commit();
         } catch (Exception e) {
+            this.commitFailed = true;
+
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
 
             try {
@@ -486,6 +825,24 @@ private boolean shouldCommit(int length, int size)
         return size >= this.configuration.getIndexerBatchSize();
     }
 
+    /**
+     * @param reference the reference of the entity to index
+     * @return the worker in charge of the passed reference, all the entities of a same document being associated with
+     *         the same worker
+     */
+    private Worker getWorker(EntityReference reference)
+    {
+        EntityReference documentReference = reference.extractReference(EntityType.DOCUMENT);
+        if (documentReference == null) {
+            documentReference = reference;
+        }
+
+        // Ignore the parameters (e.g. the locale) so that all the translations of a document go to the same worker.
+        int hash = Objects.hash(documentReference.getName(), documentReference.getParent());
+
+        return this.workers[Math.floorMod(hash, this.workers.length)];
+    }
+
     /**
      * @param reference the reference to extract metadata from.
      * @return the {@link SolrInputDocument} containing extracted metadata from the passed reference; {@code null} if
@@ -554,10 +911,28 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
         }
     }
 
+    @Override
+    public void whenCommitted(Runnable callback)
+    {
+        if (!this.disposed) {
+            try {
+                this.resolveQueue.put(new ResolveQueueEntry(callback));
+            } catch (InterruptedException e) {
+                this.logger.error("Failed to add a commit callback to the Solr indexing queue", e);
+            }
+        }
+    }
+
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        int size = this.indexQueue.size() + this.resolveQueue.size() + this.batchQueue.size() + this.batchSize;
+
+        for (Worker worker : this.workers) {
+            size += worker.queue.size();
+        }
+
+        return size;
     }
 
     @Override
@@ -73,6 +73,12 @@
      */
     int getIndexerQueueCapacity();
 
+    /**
+     * @return the number of threads used to extract the Solr documents to index in parallel
+     * @since 11.3RC1
+     */
+    int getIndexerThreads();
+
     /**
      * @return true if a full synchronization job between the database and SOLR index should be run when XWiki starts
      * @since 6.1M2
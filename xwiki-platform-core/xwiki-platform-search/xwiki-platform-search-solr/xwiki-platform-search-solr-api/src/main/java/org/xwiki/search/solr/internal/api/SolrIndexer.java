@@ -55,6 +55,16 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Call the passed callback once all the operations added to the queue before it have been committed to the Solr
+     * index. The callback is never called if some of these operations could not be committed or if the indexer is
+     * stopped before.
+     * 
+     * @param callback the callback to call, from the indexer thread
+     * @since 11.3RC1
+     */
+    void whenCommitted(Runnable callback);
+
     /**
      * @return the number of element in the index/delete queue
      */
@@ -19,9 +19,11 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 
 /**
@@ -49,6 +51,13 @@
      */
     protected EntityReference rootReference;
 
+    /**
+     * The last document reference to skip. If {@code null} then the documents are iterated from the beginning.
+     * 
+     * @since 11.3RC1
+     */
+    protected DocumentReference startReference;
+
     @Override
     public void remove()
     {
@@ -60,4 +69,10 @@ public void setRootReference(EntityReference rootReference)
     {
         this.rootReference = rootReference;
     }
+
+    @Override
+    public void setStartReference(DocumentReference startReference)
+    {
+        this.startReference = startReference;
+    }
 }
@@ -111,6 +111,12 @@ public class DatabaseDocumentIterator extends AbstractDocumentIterator<String>
      */
     private Query query;
 
+    /**
+     * The query used to fetch the documents located after the {@link #startReference} in the wiki of the start
+     * reference.
+     */
+    private Query seekQuery;
+
     /**
      * The query used to count the documents from the database.
      */
@@ -199,7 +205,8 @@ private void fetchNextResults()
             // We use basic pagination (absolute offset) because we don't expect the database to change too much while
             // the synchronization takes place. Also, the database is used as the reference store, meaning that we
             // update the Solr index to match the database, not the other way around.
-            results = getQuery().setWiki(wiki).setOffset(offset).execute();
+            Query currentQuery = isStartWiki(wiki) ? getSeekQuery() : getQuery();
+            results = currentQuery.setWiki(wiki).setOffset(offset).execute();
             offset += LIMIT;
         } catch (QueryException e) {
             results = Collections.emptyList();
@@ -214,40 +221,90 @@ private void fetchNextResults()
     private Query getQuery() throws QueryException
     {
         if (query == null) {
-            // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
-            String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
-            String orderBy = " order by doc.space, doc.name, doc.language";
-
-            EntityReference spaceReference = null;
-            EntityReference documentReference = null;
-            if (rootReference != null) {
-                spaceReference = rootReference.extractReference(EntityType.SPACE);
-                documentReference = rootReference.extractReference(EntityType.DOCUMENT);
-            }
+            query = createQuery(false);
+            countQuery = queryManager.createQuery(getWhereClause(false), Query.HQL).addFilter(countFilter);
 
-            String whereClause = "";
-            if (spaceReference != null) {
-                whereClause += " where doc.space = :space";
-                if (documentReference != null) {
-                    whereClause += " and doc.name = :name";
-                }
+            for (Map.Entry<String, Object> parameter : query.getNamedParameters().entrySet()) {
+                countQuery.bindValue(parameter.getKey(), parameter.getValue());
             }
+        }
+        return query;
+    }
 
-            query = queryManager.createQuery(select + whereClause + orderBy, Query.HQL).setLimit(LIMIT);
-            countQuery = queryManager.createQuery(whereClause, Query.HQL).addFilter(countFilter);
+    /**
+     * @return the query used to fetch the documents located after the start reference from the database
+     * @throws QueryException if creating the query fails
+     */
+    private Query getSeekQuery() throws QueryException
+    {
+        if (seekQuery == null) {
+            seekQuery = createQuery(true);
+            seekQuery.bindValue("startSpace",
+                this.localEntityReferenceSerializer.serialize(startReference.getLastSpaceReference()));
+            seekQuery.bindValue("startName", startReference.getName());
+            seekQuery.bindValue("startLocale", startReference.getLocale() != null
+                ? startReference.getLocale().toString() : "");
+        }
+        return seekQuery;
+    }
 
-            if (spaceReference != null) {
-                query.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
-                if (documentReference != null) {
-                    query.bindValue("name", documentReference.getName());
-                }
+    private Query createQuery(boolean seek) throws QueryException
+    {
+        // This iterator must have the same order as the SolrDocumentIterator, otherwise the synchronization fails.
+        String select = "select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc";
+        String orderBy = " order by doc.space, doc.name, doc.language";
+
+        Query newQuery = queryManager.createQuery(select + getWhereClause(seek) + orderBy, Query.HQL).setLimit(LIMIT);
+
+        EntityReference spaceReference = null;
+        EntityReference documentReference = null;
+        if (rootReference != null) {
+            spaceReference = rootReference.extractReference(EntityType.SPACE);
+            documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+        }
+
+        if (spaceReference != null) {
+            newQuery.bindValue("space", this.localEntityReferenceSerializer.serialize(spaceReference));
+            if (documentReference != null) {
+                newQuery.bindValue("name", documentReference.getName());
             }
+        }
 
-            for (Map.Entry<String, Object> parameter : query.getNamedParameters().entrySet()) {
-                countQuery.bindValue(parameter.getKey(), parameter.getValue());
+        return newQuery;
+    }
+
+    private String getWhereClause(boolean seek)
+    {
+        EntityReference spaceReference = null;
+        EntityReference documentReference = null;
+        if (rootReference != null) {
+            spaceReference = rootReference.extractReference(EntityType.SPACE);
+            documentReference = rootReference.extractReference(EntityType.DOCUMENT);
+        }
+
+        List<String> constraints = new ArrayList<>();
+        if (spaceReference != null) {
+            constraints.add("doc.space = :space");
+            if (documentReference != null) {
+                constraints.add("doc.name = :name");
             }
         }
-        return query;
+        if (seek) {
+            // Keyset pagination: only the documents located after the start reference (in the iteration order).
+            constraints.add("(doc.space > :startSpace or (doc.space = :startSpace and (doc.name > :startName"
+                + " or (doc.name = :startName and doc.language > :startLocale))))");
+        }
+
+        return constraints.isEmpty() ? "" : " where " + StringUtils.join(constraints, " and ");
+    }
+
+    /**
+     * @param wikiName the wiki name
+     * @return {@code true} if the passed wiki is the wiki of the start reference
+     */
+    private boolean isStartWiki(String wikiName)
+    {
+        return startReference != null && startReference.getWikiReference().getName().equals(wikiName);
     }
 
     /**
@@ -256,8 +313,13 @@ private Query getQuery() throws QueryException
     private String getNextWiki()
     {
         if (wikisIterator == null) {
-            List<String> wikis = getWikis();
+            List<String> wikis = new ArrayList<>(getWikis());
             Collections.sort(wikis);
+            if (startReference != null) {
+                // Skip the wikis located before the start reference.
+                String startWiki = startReference.getWikiReference().getName();
+                wikis.removeIf(wikiName -> wikiName.compareTo(startWiki) < 0);
+            }
             wikisIterator = wikis.iterator();
         }
         return wikisIterator.hasNext() ? wikisIterator.next() : null;
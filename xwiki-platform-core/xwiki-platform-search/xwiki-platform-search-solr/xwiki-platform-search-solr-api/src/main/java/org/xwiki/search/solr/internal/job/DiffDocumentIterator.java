@@ -19,6 +19,7 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.xwiki.model.reference.DocumentReference;
@@ -101,6 +102,13 @@ public void setRootReference(EntityReference rootReference)
         next.setRootReference(rootReference);
     }
 
+    @Override
+    public void setStartReference(DocumentReference startReference)
+    {
+        previous.setStartReference(startReference);
+        next.setStartReference(startReference);
+    }
+
     @Override
     public boolean hasNext()
     {
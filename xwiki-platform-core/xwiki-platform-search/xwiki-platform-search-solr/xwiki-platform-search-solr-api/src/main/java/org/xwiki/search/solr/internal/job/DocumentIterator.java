@@ -45,6 +45,16 @@
      */
     void setRootReference(EntityReference rootReference);
 
+    /**
+     * Skip all the documents located before the passed reference (included) in the iteration order. This is used to
+     * resume an interrupted iteration.
+     * 
+     * @param startReference the last document reference returned by the interrupted iteration, {@code null} to
+     *            iterate from the beginning
+     * @since 11.3RC1
+     */
+    void setStartReference(DocumentReference startReference);
+
     /**
      * @return estimate the size of the iterated store for showing progress information
      */
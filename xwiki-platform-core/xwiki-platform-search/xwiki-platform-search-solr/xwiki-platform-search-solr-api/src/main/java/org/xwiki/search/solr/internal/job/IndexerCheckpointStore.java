@@ -0,0 +1,160 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Persists the progress of the {@link IndexerJob} so that an interrupted synchronization can be resumed.
+ * <p>
+ * The information is stored per root reference in a properties file located in the permanent directory.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = IndexerCheckpointStore.class)
+@Singleton
+public class IndexerCheckpointStore
+{
+    private static final String FILE_PATH = "solr-indexer/checkpoints.properties";
+
+    private static final String SUFFIX_CHECKPOINT = ".checkpoint";
+
+    private static final String SUFFIX_CHECKPOINT_LOCALE = ".checkpoint.locale";
+
+    private static final String ROOT_FARM = "farm";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named("explicit")
+    private DocumentReferenceResolver<String> explicitResolver;
+
+    @Inject
+    private Logger logger;
+
+    private Properties properties;
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @return the last document processed by the interrupted synchronization of the passed root reference or
+     *         {@code null} if there is none
+     */
+    public synchronized DocumentReference getCheckpoint(EntityReference rootReference)
+    {
+        String key = getKey(rootReference);
+
+        String reference = getProperties().getProperty(key + SUFFIX_CHECKPOINT);
+        if (reference == null) {
+            return null;
+        }
+
+        DocumentReference documentReference = this.explicitResolver.resolve(reference);
+        String locale = getProperties().getProperty(key + SUFFIX_CHECKPOINT_LOCALE);
+        if (StringUtils.isNotEmpty(locale)) {
+            documentReference = new DocumentReference(documentReference, LocaleUtils.toLocale(locale));
+        }
+
+        return documentReference;
+    }
+
+    /**
+     * @param rootReference the root reference of the synchronization
+     * @param documentReference the last processed document or {@code null} to remove the checkpoint
+     */
+    public synchronized void setCheckpoint(EntityReference rootReference, DocumentReference documentReference)
+    {
+        String key = getKey(rootReference);
+
+        if (documentReference != null) {
+            getProperties().setProperty(key + SUFFIX_CHECKPOINT, this.serializer.serialize(documentReference));
+            getProperties().setProperty(key + SUFFIX_CHECKPOINT_LOCALE,
+                documentReference.getLocale() != null ? documentReference.getLocale().toString() : "");
+        } else {
+            getProperties().remove(key + SUFFIX_CHECKPOINT);
+            getProperties().remove(key + SUFFIX_CHECKPOINT_LOCALE);
+        }
+
+        save();
+    }
+
+    private String getKey(EntityReference rootReference)
+    {
+        return rootReference != null
+            ? rootReference.getType().getLowerCase() + ':' + this.serializer.serialize(rootReference) : ROOT_FARM;
+    }
+
+    private File getFile()
+    {
+        return new File(this.environment.getPermanentDirectory(), FILE_PATH);
+    }
+
+    private Properties getProperties()
+    {
+        if (this.properties == null) {
+            this.properties = new Properties();
+
+            File file = getFile();
+            if (file.exists()) {
+                try (InputStream stream = FileUtils.openInputStream(file)) {
+                    this.properties.load(stream);
+                } catch (IOException e) {
+                    this.logger.warn("Failed to load the Solr indexer checkpoints from [{}]", file, e);
+                }
+            }
+        }
+
+        return this.properties;
+    }
+
+    private void save()
+    {
+        File file = getFile();
+
+        try (OutputStream stream = FileUtils.openOutputStream(file)) {
+            this.properties.store(stream, null);
+        } catch (IOException e) {
+            this.logger.warn("Failed to save the Solr indexer checkpoints in [{}]", file, e);
+        }
+    }
+}
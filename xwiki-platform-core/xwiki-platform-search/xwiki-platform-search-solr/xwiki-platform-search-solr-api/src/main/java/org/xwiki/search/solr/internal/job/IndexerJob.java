@@ -60,6 +60,11 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     // TODO: group indexers based on the IndexerRequest root entity
     private static final JobGroupPath GROUP = new JobGroupPath(Arrays.asList("solr", "indexer"));
 
+    /**
+     * The number of processed documents between two checkpoints.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -74,6 +79,9 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     @Named("solr")
     private transient DocumentIterator<String> solrIterator;
 
+    @Inject
+    private transient IndexerCheckpointStore checkpointStore;
+
     @Override
     public String getType()
     {
@@ -116,8 +124,18 @@ protected void runInternal() throws Exception
      */
     private void updateSolrIndex()
     {
+        EntityReference rootReference = getRequest().getRootReference();
+
         DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        iterator.setRootReference(rootReference);
+
+        if (getRequest().isResume()) {
+            DocumentReference checkpoint = this.checkpointStore.getCheckpoint(rootReference);
+            if (checkpoint != null) {
+                this.logger.info("Resume the synchronization after document [{}].", checkpoint);
+                iterator.setStartReference(checkpoint);
+            }
+        }
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -133,6 +151,10 @@ private void updateSolrIndex()
             this.progressManager.startStep(this);
             updateSolrIndex(progressSize, iterator);
             this.progressManager.endStep(this);
+
+            // The synchronization is complete: next synchronization can start from scratch, but only once the Solr
+            // index really contains the changes.
+            this.indexer.whenCommitted(() -> this.checkpointStore.setCheckpoint(rootReference, null));
         } finally {
             this.progressManager.popLevelProgress(this);
         }
@@ -144,22 +166,31 @@ private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iter
 
         try {
             long[] counter = new long[Action.values().length];
+            long processed = 0;
 
             while (iterator.hasNext()) {
                 this.progressManager.startStep(this);
 
                 Pair<DocumentReference, Action> entry = iterator.next();
-                if (entry.getValue() == Action.ADD || entry.getValue() == Action.UPDATE) {
-                    // The database entry has not been indexed or the indexed version doesn't match the latest
-                    // version
+                if (entry.getValue() == Action.DELETE) {
+                    if (getRequest().isRemoveMissing()) {
+                        // The index entry doesn't exist anymore in the database.
+                        this.indexer.delete(entry.getKey(), true);
+                        counter[entry.getValue().ordinal()]++;
+                    }
+                } else {
+                    // The database entry has not been indexed or the indexed version doesn't match the latest version
                     // from the database.
                     this.indexer.index(entry.getKey(), true);
-                } else if (entry.getValue() == Action.DELETE && getRequest().isRemoveMissing()) {
-                    // The index entry doesn't exist anymore in the database.
-                    this.indexer.delete(entry.getKey(), true);
+                    counter[entry.getValue().ordinal()]++;
                 }
 
-                counter[entry.getValue().ordinal()]++;
+                if (++processed % CHECKPOINT_INTERVAL == 0) {
+                    // Only move the checkpoint once the Solr index contains the changes sent before.
+                    DocumentReference checkpoint = entry.getKey();
+                    this.indexer.whenCommitted(
+                        () -> this.checkpointStore.setCheckpoint(getRequest().getRootReference(), checkpoint));
+                }
 
                 this.progressManager.endStep(this);
             }
@@ -51,6 +51,11 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isResume()
+     */
+    private boolean resume;
+
     /**
      * The default constructor.
      */
@@ -115,4 +120,24 @@ public void setRemoveMissing(boolean removeMissing)
     {
         this.removeMissing = removeMissing;
     }
+
+    /**
+     * @return if true and a previous synchronization of the same root reference was interrupted, the synchronization
+     *         starts from where the previous one stopped
+     * @since 11.3RC1
+     */
+    public boolean isResume()
+    {
+        return this.resume;
+    }
+
+    /**
+     * @param resume if true and a previous synchronization of the same root reference was interrupted, the
+     *            synchronization starts from where the previous one stopped
+     * @since 11.3RC1
+     */
+    public void setResume(boolean resume)
+    {
+        this.resume = resume;
+    }
 }
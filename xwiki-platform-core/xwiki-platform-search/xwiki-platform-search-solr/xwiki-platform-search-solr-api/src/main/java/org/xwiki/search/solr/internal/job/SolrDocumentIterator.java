@@ -31,6 +31,7 @@
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrQuery.ORDER;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.params.CursorMarkParams;
@@ -86,15 +87,24 @@ public class SolrDocumentIterator extends AbstractDocumentIterator<String>
     @Inject
     private DocumentReferenceResolver<SolrDocument> solrDocumentReferenceResolver;
 
+    /**
+     * Used to skip the documents located before the start reference.
+     */
+    private final DocumentReferenceComparator documentReferenceComparator = new DocumentReferenceComparator();
+
     @Override
     public boolean hasNext()
     {
+        skipToStartReference();
+
         return getResults().size() > index;
     }
 
     @Override
     public Pair<DocumentReference, String> next()
     {
+        skipToStartReference();
+
         SolrDocument result = getResults().get(index++);
         DocumentReference documentReference = this.solrDocumentReferenceResolver.resolve(result);
         String version = (String) result.get(FieldUtils.VERSION);
@@ -107,6 +117,25 @@ public long size()
         return getResults() instanceof SolrDocumentList ? ((SolrDocumentList) results).getNumFound() : results.size();
     }
 
+    /**
+     * Skip the documents located before the start reference (included), if any.
+     */
+    private void skipToStartReference()
+    {
+        while (startReference != null) {
+            List<SolrDocument> currentResults = getResults();
+            if (currentResults.size() <= index) {
+                // No more results.
+                startReference = null;
+            } else if (this.documentReferenceComparator.compare(
+                this.solrDocumentReferenceResolver.resolve(currentResults.get(index)), startReference) <= 0) {
+                index++;
+            } else {
+                startReference = null;
+            }
+        }
+    }
+
     /**
      * The current 'page' of results. If the current page has been fully iterated then a new page is fetched
      * automatically.
@@ -146,6 +175,11 @@ private SolrQuery getQuery() throws SolrIndexerException
             query.setFields(FieldUtils.WIKI, FieldUtils.SPACES, FieldUtils.NAME, FieldUtils.DOCUMENT_LOCALE,
                 FieldUtils.VERSION);
             query.addFilterQuery(FieldUtils.TYPE + ':' + EntityType.DOCUMENT.name());
+            if (startReference != null) {
+                // Skip the wikis located before the start reference.
+                query.addFilterQuery(FieldUtils.WIKI + ":[" + ClientUtils.escapeQueryChars(
+                    startReference.getWikiReference().getName()) + " TO *]");
+            }
             // This iterator must have the same order as the database iterator, otherwise the synchronization fails.
             // Note that we had two options:
             // (A) Sort the Solr index only by id and enable docValues on the id field to improve the speed. But then we
@@ -20,13 +20,35 @@
 package org.xwiki.search.solr.internal;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import javax.inject.Provider;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
+import org.xwiki.test.annotation.BeforeComponent;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWiki;
@@ -34,9 +56,17 @@
 import com.xpn.xwiki.test.reference.ReferenceComponentList;
 import com.xpn.xwiki.web.Utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -57,6 +87,87 @@
 
     private SolrConfiguration mockConfig;
 
+    private SolrMetadataExtractor documentExtractor;
+
+    private SolrReferenceResolver solrReferenceResolver;
+
+    /**
+     * The operations received by the Solr instance, in order.
+     */
+    private final List<String> operations = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger commits = new AtomicInteger();
+
+    private SolrInstance solrInstance;
+
+    @BeforeComponent
+    public void registerComponents() throws Exception
+    {
+        // The indexer threads are started when the component is initialized.
+        Utils.setComponentManager(this.mocker);
+
+        this.mockConfig = this.mocker.registerMockComponent(SolrConfiguration.class);
+        when(this.mockConfig.getIndexerQueueCapacity()).thenReturn(100);
+        when(this.mockConfig.getIndexerThreads()).thenReturn(4);
+        when(this.mockConfig.getIndexerBatchSize()).thenReturn(50);
+        when(this.mockConfig.getIndexerBatchMaxLengh()).thenReturn(10000);
+
+        this.solrInstance = mock(SolrInstance.class);
+        doAnswer(invocation -> this.operations
+            .add("add " + ((LengthSolrInputDocument) invocation.getArgument(0)).getFieldValue("id")))
+                .when(this.solrInstance).add(any(LengthSolrInputDocument.class));
+        doAnswer(invocation -> this.operations.add("delete " + invocation.getArgument(0))).when(this.solrInstance)
+            .delete(anyString());
+        doAnswer(invocation -> this.operations.add("deleteByQuery " + invocation.getArgument(0)))
+            .when(this.solrInstance).deleteByQuery(anyString());
+        doAnswer(invocation -> this.commits.incrementAndGet()).when(this.solrInstance).commit();
+        Provider<SolrInstance> solrInstanceProvider = this.mocker
+            .registerMockComponent(new DefaultParameterizedType(null, Provider.class, SolrInstance.class));
+        when(solrInstanceProvider.get()).thenReturn(this.solrInstance);
+
+        this.solrReferenceResolver = this.mocker.registerMockComponent(SolrReferenceResolver.class);
+        when(this.solrReferenceResolver.getId(any())).then(invocation -> getId(invocation.getArgument(0)));
+        when(this.solrReferenceResolver.getQuery(any())).then(invocation -> "query " + getId(invocation.getArgument(0)));
+
+        this.documentExtractor = this.mocker.registerMockComponent(SolrMetadataExtractor.class, "document");
+        when(this.documentExtractor.getSolrDocument(any())).then(invocation -> {
+            EntityReference reference = invocation.getArgument(0);
+            // Make the extraction duration vary so that the workers don't finish in the order they started.
+            Thread.sleep(reference.getName().length() % 3 * 5);
+            LengthSolrInputDocument solrDocument = new LengthSolrInputDocument();
+            solrDocument.setField("id", getId(reference));
+            return solrDocument;
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        ((Disposable) this.mocker.getComponentUnderTest()).dispose();
+    }
+
+    private String getId(EntityReference reference)
+    {
+        return reference.getName();
+    }
+
+    private List<String> waitForOperations(int count) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this.operations.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        synchronized (this.operations) {
+            return new ArrayList<>(this.operations);
+        }
+    }
+
+    private List<String> getOperations(List<String> operations, String id)
+    {
+        return operations.stream().filter(operation -> operation.endsWith(" " + id)).collect(Collectors.toList());
+    }
+
     @Before
     public void configure() throws Exception
     {
@@ -91,4 +202,121 @@ public void testIndexEmptyWiki() throws Exception
 
         // index.index(wikiReference);
     }
+
+    @Test
+    public void keepOrderOfOperationsOnSameDocument() throws Exception
+    {
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        for (int i = 0; i < 20; ++i) {
+            DocumentReference reference = new DocumentReference("wiki", "Space", "Page" + i);
+            indexer.index(reference, false);
+            indexer.delete(reference, false);
+            indexer.index(reference, false);
+        }
+
+        List<String> operations = waitForOperations(60);
+
+        assertEquals(60, operations.size());
+        for (int i = 0; i < 20; ++i) {
+            String id = "Page" + i;
+            assertEquals(Arrays.asList("add " + id, "delete " + id, "add " + id), getOperations(operations, id));
+        }
+    }
+
+    @Test
+    public void deleteAfterAdd() throws Exception
+    {
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page");
+
+        indexer.index(reference, false);
+        indexer.delete(reference, false);
+
+        assertEquals(Arrays.asList("add Page", "delete Page"), waitForOperations(2));
+    }
+
+    @Test
+    public void deleteQueryWaitsForPreviousOperations() throws Exception
+    {
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        for (int i = 0; i < 20; ++i) {
+            indexer.index(new DocumentReference("wiki", "Space", "Page" + i), false);
+        }
+        indexer.delete(new SpaceReference("Space", new WikiReference("wiki")), true);
+
+        List<String> operations = waitForOperations(21);
+
+        assertEquals(21, operations.size());
+        assertEquals("deleteByQuery query Space", operations.get(20));
+    }
+
+    @Test
+    public void extractorFailure() throws Exception
+    {
+        DocumentReference failingReference = new DocumentReference("wiki", "Space", "Failing");
+        when(this.documentExtractor.getSolrDocument(failingReference)).thenThrow(new RuntimeException("error"));
+
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        indexer.index(new DocumentReference("wiki", "Space", "Page1"), false);
+        indexer.index(failingReference, false);
+        indexer.index(new DocumentReference("wiki", "Space", "Page2"), false);
+        indexer.delete(failingReference, false);
+
+        List<String> operations = waitForOperations(3);
+
+        assertEquals(3, operations.size());
+        assertTrue(operations.contains("add Page1"));
+        assertTrue(operations.contains("add Page2"));
+        // The failure doesn't prevent the next operations on the same document
+        assertEquals(Arrays.asList("delete Failing"), getOperations(operations, "Failing"));
+    }
+
+    @Test
+    public void whenCommitted() throws Exception
+    {
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        for (int i = 0; i < 10; ++i) {
+            indexer.index(new DocumentReference("wiki", "Space", "Page" + i), false);
+        }
+
+        AtomicInteger commitsBeforeCallback = new AtomicInteger();
+        CompletableFuture<Integer> committedOperations = new CompletableFuture<>();
+        indexer.whenCommitted(() -> {
+            commitsBeforeCallback.set(this.commits.get());
+            committedOperations.complete(this.operations.size());
+        });
+
+        // All the previous operations are sent and committed when the callback is called
+        assertEquals(10, committedOperations.get(10, TimeUnit.SECONDS).intValue());
+        assertTrue(commitsBeforeCallback.get() > 0);
+    }
+
+    @Test
+    public void whenCommittedAfterCommitFailure() throws Exception
+    {
+        SolrIndexer indexer = this.mocker.getComponentUnderTest();
+
+        doThrow(new SolrServerException("error")).when(this.solrInstance).commit();
+
+        CompletableFuture<Void> firstCallback = new CompletableFuture<>();
+        indexer.index(new DocumentReference("wiki", "Space", "Page1"), false);
+        indexer.whenCommitted(() -> firstCallback.complete(null));
+
+        verify(this.solrInstance, timeout(10000)).rollback();
+
+        doAnswer(invocation -> this.commits.incrementAndGet()).when(this.solrInstance).commit();
+
+        CompletableFuture<Void> secondCallback = new CompletableFuture<>();
+        indexer.index(new DocumentReference("wiki", "Space", "Page2"), false);
+        indexer.whenCommitted(() -> secondCallback.complete(null));
+
+        secondCallback.get(10, TimeUnit.SECONDS);
+
+        // The changes sent before the first callback were rolled back
+        assertFalse(firstCallback.isDone());
+    }
 }
@@ -201,6 +201,52 @@ public void iterateOneWiki() throws Exception
         verify(countQuery).bindValue("name", "C");
     }
 
+    @Test
+    public void resumeAfterStartReference() throws Exception
+    {
+        DocumentReference startReference =
+            createDocumentReference("tennis", Arrays.asList("Main"), "Welcome", Locale.ENGLISH);
+
+        Query emptyQuery = mock(Query.class);
+        when(emptyQuery.execute()).thenReturn(Collections.emptyList());
+
+        Query tennisQuery = mock(Query.class);
+        when(tennisQuery.setOffset(0)).thenReturn(tennisQuery);
+        when(tennisQuery.setOffset(100)).thenReturn(emptyQuery);
+        when(tennisQuery.execute()).thenReturn(Arrays.<Object> asList(
+            new Object[] {"XWiki.Syntax", "Links", "fr", "1.3"}));
+
+        DocumentReference tennisXWikiSyntaxLinks =
+            createDocumentReference("tennis", Arrays.asList("XWiki", "Syntax"), "Links", Locale.FRENCH);
+
+        Query seekQuery = mock(Query.class);
+        when(seekQuery.setLimit(anyInt())).thenReturn(seekQuery);
+        when(seekQuery.setWiki("tennis")).thenReturn(tennisQuery);
+
+        QueryManager queryManager = mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery("select doc.space, doc.name, doc.language, doc.version from XWikiDocument doc"
+            + " where (doc.space > :startSpace or (doc.space = :startSpace and (doc.name > :startName"
+            + " or (doc.name = :startName and doc.language > :startLocale))))"
+            + " order by doc.space, doc.name, doc.language", Query.HQL)).thenReturn(seekQuery);
+
+        DocumentIterator<String> iterator = mocker.getComponentUnderTest();
+        iterator.setStartReference(startReference);
+
+        List<Pair<DocumentReference, String>> actualResults = new ArrayList<Pair<DocumentReference, String>>();
+        while (iterator.hasNext()) {
+            actualResults.add(iterator.next());
+        }
+
+        assertEquals(Collections.singletonList(new ImmutablePair<DocumentReference, String>(tennisXWikiSyntaxLinks,
+            "1.3")), actualResults);
+
+        verify(seekQuery).bindValue("startSpace", "Main");
+        verify(seekQuery).bindValue("startName", "Welcome");
+        verify(seekQuery).bindValue("startLocale", "en");
+        verify(queryManager, never()).createQuery("select doc.space, doc.name, doc.language, doc.version"
+            + " from XWikiDocument doc order by doc.space, doc.name, doc.language", Query.HQL);
+    }
+
     private DocumentReference createDocumentReference(String wiki, List<String> spaces, String name, Locale locale)
     {
         DocumentReference documentReference = new DocumentReference(wiki, spaces, name);
@@ -78,6 +78,11 @@ public void setRootReference(EntityReference rootReference)
         {
         }
 
+        @Override
+        public void setStartReference(DocumentReference startReference)
+        {
+        }
+
         @Override
         public long size()
         {
@@ -22,8 +22,11 @@
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -236,26 +239,32 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         SolrDocumentList results = response.getResults();
         long numFound = results.getNumFound();
 
-        // Since we are modifying the results collection, we need to iterate over its copy.
-        for (SolrDocument result : new ArrayList<SolrDocument>(results)) {
+        // Resolve the references of all the results so that the rights can be checked at once.
+        List<SolrDocument> resolvedResults = new ArrayList<>(results.size());
+        List<DocumentReference> resultReferences = new ArrayList<>(results.size());
+        for (SolrDocument result : results) {
             try {
-                DocumentReference resultDocumentReference = this.solrDocumentReferenceResolver.resolve(result);
+                resultReferences.add(this.solrDocumentReferenceResolver.resolve(result));
+                resolvedResults.add(result);
+            } catch (Exception e) {
+                this.logger.warn("Skipping bad result: {}", result, e);
+            }
+        }
 
-                if (!isAllowed(resultDocumentReference, usersToCheck)) {
+        Set<DocumentReference> allowedReferences = getAllowed(resultReferences, usersToCheck);
 
-                    // Remove the current incompatible result.
-                    results.remove(result);
+        for (int i = 0; i < resolvedResults.size(); ++i) {
+            if (!allowedReferences.contains(resultReferences.get(i))) {
+                // Remove the current incompatible result.
+                results.remove(resolvedResults.get(i));
 
-                    // Decrement the number of results.
-                    numFound--;
+                // Decrement the number of results.
+                numFound--;
 
-                    // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
-                    // Sorting based on score might be a not so expensive option.
+                // FIXME: We should update maxScore as well when removing the top scored item. How do we do that?
+                // Sorting based on score might be a not so expensive option.
 
-                    // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
-                }
-            } catch (Exception e) {
-                this.logger.warn("Skipping bad result: {}", result, e);
+                // FIXME: What about highlighting, facets and all the other data inside the QueryResponse?
             }
         }
 
@@ -267,14 +276,14 @@ protected void filterResponse(QueryResponse response, List<DocumentReference> us
         results.setNumFound(numFound);
     }
 
-    protected boolean isAllowed(DocumentReference resultDocumentReference, List<DocumentReference> usersToCheck)
+    protected Set<DocumentReference> getAllowed(Collection<DocumentReference> resultDocumentReferences,
+        List<DocumentReference> usersToCheck)
     {
+        Collection<DocumentReference> allowed = resultDocumentReferences;
         for (DocumentReference user : usersToCheck) {
-            if (!this.authorization.hasAccess(Right.VIEW, user, resultDocumentReference)) {
-                return false;
-            }
+            allowed = this.authorization.filterAccessible(Right.VIEW, user, allowed);
         }
 
-        return true;
+        return new HashSet<>(allowed);
     }
 }
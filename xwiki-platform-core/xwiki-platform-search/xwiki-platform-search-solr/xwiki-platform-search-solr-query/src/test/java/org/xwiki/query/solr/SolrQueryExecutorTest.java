@@ -59,6 +59,7 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -166,6 +167,7 @@ public void filterResponse() throws Exception
         DocumentReferenceResolver<SolrDocument> resolver = this.componentManager.getInstance(resolverType);
 
         AuthorizationManager authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        when(authorizationManager.filterAccessible(any(), any(), anyCollection())).thenCallRealMethod();
 
         DocumentReference currentUserReference = new DocumentReference("xwiki", "XWiki", "currentuser");
         this.oldCore.getXWikiContext().setUserReference(currentUserReference);
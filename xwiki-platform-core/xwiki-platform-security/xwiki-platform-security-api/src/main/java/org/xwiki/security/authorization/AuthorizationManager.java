@@ -19,9 +19,14 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of any users on any XWiki entities. It replaces
@@ -73,6 +78,34 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Filter the passed entities to keep only those on which the user identified by {@code userReference} has the
+     * access identified by {@code right}. The result is the same as calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations are free to
+     * share the work which does not depend on the entity (e.g. the user and groups resolution) between the checks.
+     * This function should be used for interface matters (e.g. to filter a list of search results).
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which the user has the specified right, in the order of the passed collection
+     * @since 11.3RC1
+     */
+    @Unstable
+    default <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        List<T> accessible = new ArrayList<>(entityReferences.size());
+        for (T entityReference : entityReferences) {
+            if (hasAccess(right, userReference, entityReference)) {
+                accessible.add(entityReference);
+            }
+        }
+
+        return accessible;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of current user in the current context. It replaces
@@ -80,4 +85,29 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Filter the passed entities to keep only those on which access identified by {@code right} would be allowed in
+     * the current context. The result is the same as calling {@link #hasAccess(Right, EntityReference)} for each
+     * entity, but implementations are free to share the work which does not depend on the entity between the checks.
+     * This function should be used for interface matters (e.g. to filter a list of search results).
+     *
+     * @param <T> the type of the entity references
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return the entities on which access is allowed, in the order of the passed collection
+     * @since 11.3RC1
+     */
+    @Unstable
+    default <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entityReferences)
+    {
+        List<T> accessible = new ArrayList<>(entityReferences.size());
+        for (T entityReference : entityReferences) {
+            if (hasAccess(right, entityReference)) {
+                accessible.add(entityReference);
+            }
+        }
+
+        return accessible;
+    }
 }
@@ -19,6 +19,15 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -115,6 +124,98 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, DocumentReference userReference,
+        Collection<T> entityReferences)
+    {
+        RuleState guardedAccess = getGuardedAccess(right, userReference, null, false);
+        if (guardedAccess == RuleState.ALLOW) {
+            return new ArrayList<>(entityReferences);
+        } else if (guardedAccess == RuleState.DENY) {
+            return Collections.emptyList();
+        }
+
+        // Resolve the user only once, and evaluate each distinct security reference only once (e.g. all the objects
+        // and attachments of a document share the same security reference).
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+        List<T> checkedReferences = new ArrayList<>(entityReferences.size());
+        List<SecurityReference> entities = new ArrayList<>(entityReferences.size());
+        Map<SecurityReference, RuleState> accesses = new HashMap<>();
+        Set<SecurityReference> missingAccesses = new LinkedHashSet<>();
+        for (T entityReference : entityReferences) {
+            try {
+                SecurityReference entity = securityReferenceFactory.newEntityReference(entityReference);
+                checkedReferences.add(entityReference);
+                entities.add(entity);
+                if (!accesses.containsKey(entity) && !missingAccesses.contains(entity)) {
+                    SecurityAccess access = getCachedAccess(user, entity);
+                    if (access != null) {
+                        accesses.put(entity, access.get(right));
+                    } else {
+                        missingAccesses.add(entity);
+                    }
+                }
+            } catch (Exception e) {
+                logBulkFailure(userReference, entityReference, e);
+            }
+        }
+
+        // Load the missing accesses together so that the rules shared by several entities (e.g. the rules of their
+        // common space) are read only once.
+        loadAccesses(right, user, missingAccesses, accesses);
+
+        List<T> accessible = new ArrayList<>(entityReferences.size());
+        for (int i = 0; i < entities.size(); ++i) {
+            T entityReference = checkedReferences.get(i);
+            RuleState access = accesses.get(entities.get(i));
+            if (access != null) {
+                logAccess(access, userReference, entityReference, right, "bulk access inquiry", true);
+                if (access == RuleState.ALLOW) {
+                    accessible.add(entityReference);
+                }
+            } else {
+                logBulkFailure(userReference, entityReference, null);
+            }
+        }
+
+        return accessible;
+    }
+
+    private void loadAccesses(Right right, UserSecurityReference user, Collection<SecurityReference> entities,
+        Map<SecurityReference, RuleState> accesses)
+    {
+        if (entities.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<SecurityReference> entityList = new ArrayList<>(entities);
+            List<SecurityAccessEntry> accessEntries = securityCacheLoader.loadAll(user, entityList);
+            for (int i = 0; i < entityList.size(); ++i) {
+                accesses.put(entityList.get(i), accessEntries.get(i).getAccess().get(right));
+            }
+        } catch (Exception e) {
+            this.logger.debug("Failed to load the rights of user [{}] on several entities, loading them one by one.",
+                user, e);
+
+            // Make sure a single failure does not deny the access to all the entities
+            for (SecurityReference entity : entities) {
+                try {
+                    accesses.put(entity, getAccess(user, entity).get(right));
+                } catch (Exception entityException) {
+                    this.logger.debug("Failed to load rights for user [{}] on [{}].", user, entity, entityException);
+                }
+            }
+        }
+    }
+
+    private void logBulkFailure(DocumentReference userReference, EntityReference entityReference, Exception e)
+    {
+        this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+            (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+            (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -132,24 +233,46 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
     private boolean hasSecurityAccess(Right right, DocumentReference userReference, EntityReference entityReference,
         boolean check)
         throws AuthorizationException
+    {
+        RuleState guardedAccess = getGuardedAccess(right, userReference, entityReference, check);
+        if (guardedAccess != RuleState.UNDETERMINED) {
+            return guardedAccess == RuleState.ALLOW;
+        }
+
+        return evaluateSecurityAccess(right, userReference, entityReference, check);
+    }
+
+    /**
+     * Decides the access without evaluating the security rules when it does not depend on the entity: the super admin
+     * has all the rights while unknown rights, edit rights on a read only wiki and rights requiring authentication for
+     * guest users are never granted.
+     *
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReference the entity on which to check the right, only used for logging
+     * @param check if true denied accesses are logged through {@link #logDeny}
+     * @return {@link RuleState#UNDETERMINED} if the security rules of the entity have to be evaluated
+     */
+    private RuleState getGuardedAccess(Right right, DocumentReference userReference, EntityReference entityReference,
+        boolean check)
     {
         if (isSuperAdmin(userReference)) {
-            return true;
+            return RuleState.ALLOW;
         }
 
         if (right == null || right == Right.ILLEGAL) {
             if (check) {
                 logDeny(userReference, entityReference, right, "no such right");
             }
-            return false;
+            return RuleState.DENY;
         }
 
         if ((!right.isReadOnly() && xwikiBridge.isWikiReadOnly())
             || (userReference == null && xwikiBridge.needsAuthentication(right))) {
-            return false;
+            return RuleState.DENY;
         }
 
-        return evaluateSecurityAccess(right, userReference, entityReference, check);
+        return RuleState.UNDETERMINED;
     }
 
     private boolean evaluateSecurityAccess(Right right, DocumentReference userReference,
@@ -237,6 +360,32 @@ private SecurityAccess getAccess(UserSecurityReference user, SecurityReference e
         return access;
     }
 
+    /**
+     * Obtain the access for the user on the given entity if it is available in the cache.
+     *
+     * @param user The user identity.
+     * @param entity The entity.
+     * @return the cached access, or null if the cache misses some entries to resolve it.
+     */
+    private SecurityAccess getCachedAccess(UserSecurityReference user, SecurityReference entity)
+    {
+        for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
+            if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
+                continue;
+            }
+            SecurityRuleEntry entry = securityCache.get(ref);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.isEmpty()) {
+                SecurityAccessEntry accessEntry = securityCache.get(user, ref);
+                return (accessEntry != null) ? accessEntry.getAccess() : null;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Log access conclusion.
      * @param access The ALLOW or DENY state
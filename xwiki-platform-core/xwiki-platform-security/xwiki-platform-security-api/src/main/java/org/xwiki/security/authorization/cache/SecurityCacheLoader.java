@@ -19,11 +19,16 @@
  */
 package org.xwiki.security.authorization.cache;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.security.SecurityReference;
 import org.xwiki.security.UserSecurityReference;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.SecurityAccessEntry;
+import org.xwiki.stability.Unstable;
 
 /**
  * Loads access and rule entries into the security cache.
@@ -49,4 +54,28 @@
      */
     SecurityAccessEntry load(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException;
+
+    /**
+     * Load the cache with the required entries to look up the access for a given user on several entities. The
+     * result is the same as calling {@link #load(UserSecurityReference, SecurityReference)} for each entity, but
+     * implementations are free to read the rules shared by several entities (e.g. the rules of their common space)
+     * only once.
+     *
+     * @param user The user to check access for.
+     * @param entities The entities to check access to.
+     * @return The resulting access levels for the user, in the order of the passed entities.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs.
+     * @since 11.3RC1
+     */
+    @Unstable
+    default List<SecurityAccessEntry> loadAll(UserSecurityReference user, Collection<SecurityReference> entities)
+        throws AuthorizationException
+    {
+        List<SecurityAccessEntry> accessEntries = new ArrayList<>(entities.size());
+        for (SecurityReference entity : entities) {
+            accessEntries.add(load(user, entity));
+        }
+
+        return accessEntries;
+    }
 }
@@ -27,6 +27,7 @@
 import java.util.HashSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
@@ -54,6 +55,11 @@
 
 /**
  * Default implementation of the security cache.
+ * <p>
+ * Reads are lock free: the underlying cache is thread safe and the entries are only exposed once fully linked to their
+ * parents. An entry which is being removed is marked as disposed before its children are removed, so that a concurrent
+ * reader never gets an entry whose parents have been invalidated. Modifications of the entry graph (insertions and
+ * removals) are serialized by a single write lock.
  *
  * @version $Id$
  * @since 4.0M2 
@@ -72,14 +78,8 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
     @Inject
     private Logger logger;
 
-    /** Fair read-write lock used for fair scheduling of cache access. */
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
-
-    /** Fair read lock. */
-    private final Lock readLock = readWriteLock.readLock();
-
-    /** Fair write lock. */
-    private final Lock writeLock = readWriteLock.writeLock();
+    /** Lock used to serialize the modifications of the cache. Reads don't need it. */
+    private final Lock writeLock = new ReentrantLock();
 
     private final ReadWriteLock invalidationReadWriteLock = new ReentrantReadWriteLock(true);
 
@@ -135,12 +135,13 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
-         * Parents of this cached entry.
+         * Parents of this cached entry. The collection is never modified once assigned so that it can be read without
+         * locking.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
          * Children of this cached entry.
@@ -150,7 +151,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -268,16 +269,17 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
             this.entry = entry;
             int parentSize = groups.size() + ((parentReference == null) ? 0 : 1);
             if (parentSize > 0) {
-                this.parents = new ArrayList<SecurityCacheEntry>(parentSize);
+                Collection<SecurityCacheEntry> newParents = new ArrayList<SecurityCacheEntry>(parentSize);
                 if (parentReference != null) {
                     SecurityCacheEntry parent = DefaultSecurityCache.this.getEntry(parentReference);
                     if (parent == null) {
                         throw new ParentEntryEvictedException();
                     }
-                    this.parents.add(parent);
+                    newParents.add(parent);
                     parent.addChild(this);
                 }
-                addParentGroups(groups, parentReference);
+                addParentGroups(newParents, groups, parentReference);
+                this.parents = newParents;
                 logNewEntry();
             } else {
                 this.parents = null;
@@ -288,12 +290,14 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
         /**
          * Add provided groups as parent of this entry, excluding the main parent reference.
          *
+         * @param newParents the parents collection to fill.
          * @param groups the list of groups to add.
          * @param parentReference the main parent reference to exclude.
          * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
          */
-        private void addParentGroups(Collection<GroupSecurityReference> groups,
-            SecurityReference parentReference) throws ParentEntryEvictedException
+        private void addParentGroups(Collection<SecurityCacheEntry> newParents,
+            Collection<GroupSecurityReference> groups, SecurityReference parentReference)
+            throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
                 if (group.equals(parentReference)) {
@@ -306,7 +310,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups,
                 if (parent == null) {
                     throw new ParentEntryEvictedException();
                 }
-                this.parents.add(parent);
+                newParents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -325,15 +329,18 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups)
             }
 
             if (groups != null && !groups.isEmpty()) {
+                Collection<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size());
+                    addParentGroups(newParents, groups, null);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(newParents, groups, parent.entry.getReference());
                 }
+                // Publish the new parents only once complete since they can be read concurrently.
+                this.parents = newParents;
             }
 
             return true;
@@ -365,6 +372,29 @@ private void logNewEntry()
             }
         }
 
+        /**
+         * @return true if neither this entry nor any of its ancestors has been removed. Since the removal of an entry
+         *         cascades to its descendants one at a time, a descendant may still be in the cache while one of its
+         *         ancestors is already disposed.
+         */
+        boolean isValid()
+        {
+            if (this.disposed) {
+                return false;
+            }
+
+            Collection<SecurityCacheEntry> currentParents = this.parents;
+            if (currentParents != null) {
+                for (SecurityCacheEntry parent : currentParents) {
+                    if (!parent.isValid()) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
         /**
          * @return the original security entry cached in this cache entry.
          */
@@ -545,12 +575,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getEntryKey(reference));
     }
 
     /**
@@ -561,12 +586,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -577,12 +597,20 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
-        readLock.lock();
-        try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
-        } finally {
-            readLock.unlock();
-        }
+        return getValidEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * @param key the key of the entry.
+     * @return the security cache entry corresponding to the given key, null if none is available in the cache or if it
+     *         is being removed.
+     */
+    private SecurityCacheEntry getValidEntry(String key)
+    {
+        SecurityCacheEntry entry = cache.get(key);
+
+        // An entry being removed (or whose parents are being removed) should not be used anymore.
+        return (entry != null && entry.isValid()) ? entry : null;
     }
 
     /**
@@ -866,7 +894,12 @@ public Collection<GroupSecurityReference> getImmediateGroupsFor(UserSecurityRefe
             return null;
         }
 
-        for (SecurityCacheEntry parent : userEntry.parents) {
+        Collection<SecurityCacheEntry> parents = userEntry.parents;
+        if (parents == null) {
+            return groups;
+        }
+
+        for (SecurityCacheEntry parent : parents) {
             // Add the parent group (if we have not already seen it)
             SecurityReference parentRef = parent.getEntry().getReference();
             if (parentRef instanceof GroupSecurityReference) {
@@ -929,6 +962,11 @@ private void addParentsWhenEntryIsShadow(SecurityCacheEntry shadow, UserSecurity
             Deque<SecurityCacheEntry> entriesToExplore)
     {
         SecurityCacheEntry originalEntry = getEntry(user);
+        if (originalEntry == null) {
+            // The original entry has been removed concurrently, only the shadow parents are known
+            addParentsToTheListOfEntriesToExplore(shadow.parents, groups, entriesToExplore);
+            return;
+        }
 
         // We add the parents of the original (but not the original, otherwise we could have the same group twice)
         addParentsToTheListOfEntriesToExplore(originalEntry.parents, groups, entriesToExplore);
@@ -24,9 +24,13 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -136,8 +140,59 @@ private SecurityCache getSecurityCache()
         return (SecurityCache) this.securityCache;
     }
 
+    /**
+     * A load operation which may be retried when it conflicts with a concurrent modification of the cache.
+     *
+     * @param <T> the type of the loaded result
+     */
+    @FunctionalInterface
+    private interface CacheLoading<T>
+    {
+        T load() throws ParentEntryEvictedException, ConflictingInsertionException, AuthorizationException;
+    }
+
     @Override
     public SecurityAccessEntry load(UserSecurityReference user, SecurityReference entity) throws AuthorizationException
+    {
+        return loadWithRetries(user, entity, () -> loadRequiredEntries(user, entity));
+    }
+
+    @Override
+    public List<SecurityAccessEntry> loadAll(UserSecurityReference user, Collection<SecurityReference> entities)
+        throws AuthorizationException
+    {
+        // Group the entities by parent so that the rules of the parent are read only once for all its children
+        Map<SecurityReference, List<SecurityReference>> siblings = new LinkedHashMap<>();
+        Map<SecurityReference, SecurityAccessEntry> accessEntries = new HashMap<>();
+        for (SecurityReference entity : new LinkedHashSet<>(entities)) {
+            SecurityReference parent = (entity != null) ? entity.getParentSecurityReference() : null;
+            if (parent != null && !Right.getEnabledRights(parent.getSecurityType()).isEmpty()) {
+                siblings.computeIfAbsent(parent, key -> new ArrayList<>()).add(entity);
+            } else {
+                accessEntries.put(entity, load(user, entity));
+            }
+        }
+
+        for (Map.Entry<SecurityReference, List<SecurityReference>> group : siblings.entrySet()) {
+            SecurityReference parent = group.getKey();
+            List<SecurityReference> children = group.getValue();
+            if (children.size() == 1) {
+                accessEntries.put(children.get(0), load(user, children.get(0)));
+            } else {
+                accessEntries.putAll(loadWithRetries(user, parent, () -> loadSiblingEntries(user, parent, children)));
+            }
+        }
+
+        List<SecurityAccessEntry> result = new ArrayList<>(entities.size());
+        for (SecurityReference entity : entities) {
+            result.add(accessEntries.get(entity));
+        }
+
+        return result;
+    }
+
+    private <T> T loadWithRetries(UserSecurityReference user, SecurityReference entity, CacheLoading<T> loading)
+        throws AuthorizationException
     {
         int retries = 0;
         Exception lastException;
@@ -147,7 +202,7 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
 
             try {
                 retries++;
-                return loadRequiredEntries(user, entity);
+                return loading.load();
             } catch (ParentEntryEvictedException e) {
                 lastException = e;
                 if (retries < MAX_RETRIES) {
@@ -165,8 +220,8 @@ public SecurityAccessEntry load(UserSecurityReference user, SecurityReference en
             }
             String message = String.format("Failed to load the cache in %d attempts. Giving up.", retries);
             this.logger.error(message);
-            throw new AuthorizationException(user.getOriginalDocumentReference(), entity.getOriginalReference(),
-                message, lastException);
+            throw new AuthorizationException(user.getOriginalDocumentReference(),
+                (entity != null) ? entity.getOriginalReference() : null, message, lastException);
         }
     }
 
@@ -197,6 +252,45 @@ private SecurityAccessEntry loadRequiredEntries(UserSecurityReference user, Secu
         return loadAccessEntries(user, entity, ruleEntries);
     }
 
+    /**
+     * Load the entries required to settle the access of a user on several entities sharing the same parent, reading
+     * the rules of the parent (and its ancestors) only once.
+     *
+     * @param user The user to check access for.
+     * @param parent The common parent of the entities.
+     * @param entities The entities to check access to.
+     * @return The resulting access for the user on each entity.
+     * @throws ParentEntryEvictedException If one of the parent entries are evicted before the load is completed.
+     * @throws ConflictingInsertionException When different threads have inserted conflicting entries into the cache.
+     * @throws org.xwiki.security.authorization.AuthorizationException On error.
+     */
+    private Map<SecurityReference, SecurityAccessEntry> loadSiblingEntries(UserSecurityReference user,
+        SecurityReference parent, Collection<SecurityReference> entities)
+        throws ParentEntryEvictedException, ConflictingInsertionException, AuthorizationException
+    {
+        Deque<SecurityRuleEntry> parentRuleEntries = getRules(parent);
+
+        Map<SecurityReference, SecurityAccessEntry> accessEntries = new HashMap<>();
+        for (SecurityReference entity : entities) {
+            SecurityRuleEntry entry = getSecurityCache().get(entity);
+            if (entry == null) {
+                if (Right.getEnabledRights(entity.getSecurityType()).isEmpty()) {
+                    // Do not call the reader on entity that will give useless rules
+                    entry = new EmptySecurityRuleEntry(entity);
+                } else {
+                    entry = securityEntryReader.read(entity);
+                    getSecurityCache().add(entry);
+                }
+            }
+
+            Deque<SecurityRuleEntry> ruleEntries = new LinkedList<>(parentRuleEntries);
+            ruleEntries.push(entry);
+            accessEntries.put(entity, loadAccessEntries(user, entity, ruleEntries));
+        }
+
+        return accessEntries;
+    }
+
     /**
      * Load group entries, and user entries required, to settle the access, settle it, add this decision into the cache
      * and return the access.
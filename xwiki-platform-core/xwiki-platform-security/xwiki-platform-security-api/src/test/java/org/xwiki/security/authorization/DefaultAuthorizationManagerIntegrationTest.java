@@ -21,8 +21,10 @@
 package org.xwiki.security.authorization;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -70,9 +72,12 @@
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.xwiki.security.authorization.Right.ADMIN;
 import static org.xwiki.security.authorization.Right.COMMENT;
@@ -630,6 +635,36 @@ public void testOwnerAccess() throws Exception
             getDoc("any document", "any space", "wikiDenyLocalUserA"));
     }
 
+    @Test
+    public void testFilterAccessibleLoadsSharedRulesOnce() throws Exception
+    {
+        initialiseWikiMock("groupAccess");
+
+        DocumentReference userA = getXUser("userA");
+        List<DocumentReference> documents = Arrays.asList(getXDoc("any document", "any space"),
+            getXDoc("docAllowGroupA", "any space"), getXDoc("docDenyGroupA", "any space"),
+            getXDoc("docDenyGroupAAllowUserA", "any space"), getXDoc("docDenyGroupBAllowGroupA", "any space"),
+            getXDoc("docAllowGroupA", "any space"));
+
+        assertEquals(Arrays.asList(getXDoc("any document", "any space"), getXDoc("docAllowGroupA", "any space"),
+            getXDoc("docDenyGroupAAllowUserA", "any space"), getXDoc("docAllowGroupA", "any space")),
+            authorizationManager.filterAccessible(EDIT, userA, documents));
+
+        // The rules of the common space and wiki are read only once for all the documents
+        verify(securityEntryReader, times(1))
+            .read(securityReferenceFactory.newEntityReference(getXSpace("any space")));
+        verify(securityEntryReader, times(1)).read(
+            securityReferenceFactory.newEntityReference(testDefinition.getMainWiki().getWikiReference()));
+        verify(securityEntryReader, times(1))
+            .read(securityReferenceFactory.newEntityReference(getXDoc("docAllowGroupA", "any space")));
+
+        // The cached result is consistent with the result of the individual checks
+        for (DocumentReference document : documents) {
+            assertEquals(authorizationManager.hasAccess(EDIT, userA, document),
+                authorizationManager.filterAccessible(EDIT, userA, Arrays.asList(document)).contains(document));
+        }
+    }
+
     @Test
     public void testGroupAccess() throws Exception
     {
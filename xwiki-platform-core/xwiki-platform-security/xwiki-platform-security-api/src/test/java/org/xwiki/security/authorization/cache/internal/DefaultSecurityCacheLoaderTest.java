@@ -23,7 +23,10 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -58,8 +61,12 @@
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -159,4 +166,54 @@ public void loadWithConflictingInsertionException() throws Exception
         assertEquals(1, this.logRule.size());
         assertEquals("Failed to load the cache in 5 attempts. Giving up.", this.logRule.getMessage(0));
     }
+
+    @Test
+    public void loadAllReadsSharedRulesOnce() throws Exception
+    {
+        UserSecurityReference user =
+            securityReferenceFactory.newUserReference(new DocumentReference("wiki", "Users", "mflorea"));
+
+        SecurityReference document1 =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Space", "Document1"));
+        SecurityReference document2 =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Space", "Document2"));
+        SecurityReference document3 =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Space", "Document3"));
+        SecurityReference otherDocument =
+            securityReferenceFactory.newEntityReference(new DocumentReference("wiki", "Other", "Document"));
+        SecurityReference space = document1.getParentSecurityReference();
+
+        // The cache never returns any entry in this test, so any rule needed twice would be read twice
+        SecurityEntryReader securityEntryReader = mocker.getInstance(SecurityEntryReader.class);
+        when(securityEntryReader.read(any())).thenAnswer(invocation -> {
+            SecurityReference reference = invocation.getArgument(0);
+            SecurityRuleEntry entry = mock(SecurityRuleEntry.class, reference.toString());
+            when(entry.getReference()).thenReturn(reference);
+            return entry;
+        });
+
+        Map<SecurityReference, SecurityAccessEntry> accessEntries = new HashMap<>();
+        for (SecurityReference document : Arrays.asList(document1, document2, document3, otherDocument)) {
+            accessEntries.put(document, mock(SecurityAccessEntry.class, document.toString()));
+        }
+
+        AuthorizationSettler authorizationSettler = mocker.getInstance(AuthorizationSettler.class);
+        when(authorizationSettler.settle(same(user), anyCollection(), any())).thenAnswer(invocation -> {
+            Deque<SecurityRuleEntry> ruleEntries = invocation.getArgument(2);
+            return accessEntries.get(ruleEntries.peek().getReference());
+        });
+
+        List<SecurityAccessEntry> loadedEntries =
+            securityCacheLoader.loadAll(user, Arrays.asList(document1, document2, otherDocument, document3, document1));
+
+        assertEquals(Arrays.asList(accessEntries.get(document1), accessEntries.get(document2),
+            accessEntries.get(otherDocument), accessEntries.get(document3), accessEntries.get(document1)), loadedEntries);
+
+        verify(securityEntryReader, times(1)).read(space);
+        verify(securityEntryReader, times(1)).read(document1);
+        verify(securityEntryReader, times(1)).read(document2);
+        verify(securityEntryReader, times(1)).read(document3);
+        verify(securityEntryReader, times(1)).read(otherDocument);
+        verify(securityEntryReader, times(1)).read(otherDocument.getParentSecurityReference());
+    }
 }
@@ -26,6 +26,8 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -63,6 +65,7 @@
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -104,11 +107,34 @@ public class DefaultSecurityCacheTest extends AbstractSecurityTestCase
 
     private SecurityReference aMissingWikiRef;
 
+    /**
+     * The key of the entry whose removal should wait for {@link #removalResumed}.
+     */
+    private volatile String pausedRemovalKey;
+
+    private CountDownLatch removalPaused;
+
+    private CountDownLatch removalResumed;
+
     @Before
     public void configure() throws Exception
     {
         if (cache == null) {
-            cache = new TestCache<Object>();
+            cache = new TestCache<Object>()
+            {
+                @Override
+                protected void beforeRemove(String key)
+                {
+                    if (key.equals(pausedRemovalKey)) {
+                        removalPaused.countDown();
+                        try {
+                            removalResumed.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            };
 
             final CacheManager cacheManager = securityCacheMocker.getInstance(CacheManager.class);
             when(cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
@@ -862,4 +888,41 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    @Test
+    public void testReadDuringCascadedRemoval() throws Exception
+    {
+        AddRuleEntry(mockSecurityRuleEntry(xwikiRef));
+        SecurityRuleEntry spaceEntry = mockSecurityRuleEntry(xspaceRef);
+        String spaceKey = AddRuleEntry(spaceEntry);
+        SecurityRuleEntry docEntry = mockSecurityRuleEntry(xdocRef);
+        AddRuleEntry(docEntry);
+
+        assertThat(securityCache.get(xspaceRef), sameInstance(spaceEntry));
+        assertThat(securityCache.get(xdocRef), sameInstance(docEntry));
+
+        // Pause the removal of the wiki once the wiki entry itself is disposed but before its descendants are removed
+        this.removalPaused = new CountDownLatch(1);
+        this.removalResumed = new CountDownLatch(1);
+        this.pausedRemovalKey = spaceKey;
+
+        Thread remover = new Thread(() -> securityCache.remove(xwikiRef));
+        remover.start();
+
+        try {
+            assertTrue(this.removalPaused.await(10, TimeUnit.SECONDS));
+
+            // The descendants are still in the cache but must not be returned since one of their ancestors is removed
+            assertThat(securityCache.get(xwikiRef), nullValue());
+            assertThat(securityCache.get(xspaceRef), nullValue());
+            assertThat(securityCache.get(xdocRef), nullValue());
+        } finally {
+            this.removalResumed.countDown();
+            remover.join();
+        }
+
+        assertThat(cache.get(spaceKey), nullValue());
+        assertThat(securityCache.get(xspaceRef), nullValue());
+        assertThat(securityCache.get(xdocRef), nullValue());
+    }
 }
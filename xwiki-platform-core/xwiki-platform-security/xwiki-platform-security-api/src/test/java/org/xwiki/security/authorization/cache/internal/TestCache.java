@@ -20,8 +20,8 @@
 
 package org.xwiki.security.authorization.cache.internal;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
@@ -43,7 +43,7 @@
  */
 public class TestCache<T> implements Cache<T>
 {
-    private Map<String, T> cache = new HashMap<String, T>();
+    private Map<String, T> cache = new ConcurrentHashMap<String, T>();
     private CacheEntryListener<T> listener;
     private String lastInsertedKey;
 
@@ -123,6 +123,7 @@ public T get(String key)
     @Override
     public void remove(String key)
     {
+        beforeRemove(key);
         T value = cache.remove(key);
         if (listener != null) {
             listener.cacheEntryRemoved(getEvent(key, value));
@@ -166,6 +167,16 @@ private void disposeCacheValue(T value)
         }
     }
 
+    /**
+     * Called before an entry is removed, allow tests to interleave operations with the removal.
+     *
+     * @param key the key of the entry about to be removed
+     */
+    protected void beforeRemove(String key)
+    {
+        // Nothing to do by default
+    }
+
     public String getLastInsertedKey()
     {
         return lastInsertedKey;
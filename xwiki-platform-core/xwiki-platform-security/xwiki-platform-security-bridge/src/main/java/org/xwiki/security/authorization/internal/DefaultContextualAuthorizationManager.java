@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -117,6 +122,40 @@ public boolean hasAccess(Right right, EntityReference entity)
         return hasAccess(right, user, entity);
     }
 
+    @Override
+    public <T extends EntityReference> List<T> filterAccessible(Right right, Collection<T> entityReferences)
+    {
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user depends on each entity.
+            return ContextualAuthorizationManager.super.filterAccessible(right, entityReferences);
+        }
+
+        if (!checkPreAccess(right)) {
+            return Collections.emptyList();
+        }
+
+        List<T> references = new ArrayList<>(entityReferences);
+        List<EntityReference> fullReferences = new ArrayList<>(references.size());
+        for (T entityReference : references) {
+            fullReferences.add(getFullReference(entityReference));
+        }
+
+        List<EntityReference> accessibleReferences = this.authorizationManager.filterAccessible(right,
+            this.xcontextProvider.get().getUserReference(), fullReferences);
+
+        // The accessible references are a subsequence of the full references so we can match them in a single pass.
+        List<T> accessible = new ArrayList<>(accessibleReferences.size());
+        int accessibleIndex = 0;
+        for (int i = 0; i < references.size() && accessibleIndex < accessibleReferences.size(); ++i) {
+            if (Objects.equals(fullReferences.get(i), accessibleReferences.get(accessibleIndex))) {
+                accessible.add(references.get(i));
+                accessibleIndex++;
+            }
+        }
+
+        return accessible;
+    }
+
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
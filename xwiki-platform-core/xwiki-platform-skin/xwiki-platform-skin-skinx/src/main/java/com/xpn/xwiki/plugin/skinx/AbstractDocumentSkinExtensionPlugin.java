@@ -28,6 +28,7 @@
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +53,9 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
+import com.xpn.xwiki.web.sx.AbstractSxAction;
+import com.xpn.xwiki.web.sx.Extension;
+import com.xpn.xwiki.web.sx.SxDocumentSource;
 
 /**
  * Abstract SX plugin for wiki-document-based extensions (Extensions written as object of a XWiki Extension class).
@@ -65,6 +69,14 @@
  */
 public abstract class AbstractDocumentSkinExtensionPlugin extends AbstractSkinExtensionPlugin implements EventListener
 {
+    /**
+     * The name of the preference (in the configuration file) specifying if the consecutive extensions which can be
+     * shared by all the requests are imported with a single link.
+     *
+     * @since 11.3RC1
+     */
+    public static final String BUNDLE_PARAM = "xwiki.plugins.skinx.bundle";
+
     /**
      * Log helper for logging messages in this class.
      */
@@ -281,6 +293,122 @@ public String endParsing(String content, XWikiContext context)
         return super.endParsing(content, context);
     }
 
+    /**
+     * @return the type of extension handled by this plugin, or {@code null} if the extensions can't be bundled
+     * @since 11.3RC1
+     */
+    protected Extension getExtensionType()
+    {
+        return null;
+    }
+
+    /**
+     * Return the linking element of a bundle of extensions. Only the extensions pulled without parameters are bundled.
+     *
+     * @param url the URL of the bundle
+     * @param context the current request context
+     * @return the linking element that should be printed in the generated HTML
+     * @since 11.3RC1
+     */
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        return "";
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When enabled, the consecutive extensions which can be bundled (see {@link SxDocumentSource#isBundleable()}) are
+     * imported with a single link. The order of the extensions is kept.
+     * </p>
+     *
+     * @see AbstractSkinExtensionPlugin#getLinks(Set, XWikiContext)
+     */
+    @Override
+    protected String getLinks(Set<String> extensions, XWikiContext context)
+    {
+        if (getExtensionType() == null || context.getWiki().ParamAsLong(BUNDLE_PARAM, 0) != 1) {
+            return super.getLinks(extensions, context);
+        }
+
+        StringBuilder result = new StringBuilder();
+
+        List<String> bundleNames = new ArrayList<>();
+        List<XWikiDocument> bundleDocuments = new ArrayList<>();
+        for (String documentName : extensions) {
+            XWikiDocument document = getBundleableDocument(documentName, context);
+            if (document != null) {
+                bundleNames.add(documentName);
+                bundleDocuments.add(document);
+            } else {
+                appendBundle(bundleNames, bundleDocuments, result, context);
+                result.append(getLink(documentName, context));
+            }
+        }
+        appendBundle(bundleNames, bundleDocuments, result, context);
+
+        return result.toString();
+    }
+
+    /**
+     * @param documentName the Skin Extension's document name
+     * @param context the XWiki Context
+     * @return the document containing the extension if it can be bundled, {@code null} otherwise
+     */
+    private XWikiDocument getBundleableDocument(String documentName, XWikiContext context)
+    {
+        DocumentReference documentReference = getCurrentDocumentReferenceResolver().resolve(documentName);
+        if (!getParametersForResource(documentName, context).isEmpty() || !isAccessible(documentReference, context)) {
+            return null;
+        }
+
+        try {
+            XWikiDocument document = context.getWiki().getDocument(documentReference, context);
+            SxDocumentSource source = new SxDocumentSource(document, context, getExtensionType());
+            if (!document.isNew() && source.isBundleable()) {
+                return document;
+            }
+        } catch (XWikiException e) {
+            LOGGER.error("Failed to load document [{}].", documentReference, e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Append the link to the bundle of the passed extensions and reset it.
+     *
+     * @param names the names of the bundled documents
+     * @param documents the bundled documents
+     * @param result where to append the link
+     * @param context the XWiki Context
+     */
+    private void appendBundle(List<String> names, List<XWikiDocument> documents, StringBuilder result,
+        XWikiContext context)
+    {
+        if (names.size() == 1) {
+            // Keep the regular URL which is probably already cached by the browser
+            result.append(getLink(names.get(0), context));
+        } else if (names.size() > 1) {
+            StringBuilder queryString = new StringBuilder(getLanguageQueryString(context));
+            StringBuilder versions = new StringBuilder();
+            for (int i = 0; i < names.size(); ++i) {
+                queryString.append("&amp;").append(AbstractSxAction.BUNDLE_REQUEST_PARAMETER).append('=')
+                    .append(sanitize(names.get(i)));
+                versions.append(names.get(i)).append('@').append(documents.get(i).getVersion()).append('\n');
+            }
+            // Generate an URL specific to the versions of the bundled documents
+            queryString.append("&amp;docVersion=").append(DigestUtils.sha1Hex(versions.toString()));
+            queryString.append(parametersAsQueryString(names.get(0), context));
+
+            result.append(getBundleLink(context.getWiki().getURL(documents.get(0).getDocumentReference(), getName(),
+                queryString.toString(), "", context), context));
+        }
+
+        names.clear();
+        documents.clear();
+    }
+
     /**
      * Creates or updates the XClass used for this type of extension. Usually called on {@link #init(XWikiContext)} and
      * {@link #virtualInit(XWikiContext)}.
@@ -244,7 +244,6 @@ protected void initializeRequestListIfNeeded(XWikiContext context)
      */
     public String getImportString(XWikiContext context)
     {
-        StringBuilder result = new StringBuilder();
         // Using LinkedHashSet to preserve the extensions order.
         Set<String> extensions = new LinkedHashSet<String>();
         // First, we add to the import string the extensions that should always be used.
@@ -265,6 +264,20 @@ public String getImportString(XWikiContext context)
             extensions.add(serializedCurrentDocumentName);
         }
 
+        return getLinks(extensions, context);
+    }
+
+    /**
+     * Compose the links to the passed extensions.
+     *
+     * @param extensions the extensions to import, in order
+     * @param context The current request context.
+     * @return a XHMTL fragment with the imports statements of the passed extensions
+     * @since 11.3RC1
+     */
+    protected String getLinks(Set<String> extensions, XWikiContext context)
+    {
+        StringBuilder result = new StringBuilder();
         for (String documentName : extensions) {
             result.append(getLink(documentName, context));
         }
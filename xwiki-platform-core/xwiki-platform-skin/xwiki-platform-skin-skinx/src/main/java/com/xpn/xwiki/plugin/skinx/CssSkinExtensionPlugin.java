@@ -23,6 +23,8 @@
 import org.xwiki.model.reference.LocalDocumentReference;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.SsxAction;
+import com.xpn.xwiki.web.sx.Extension;
 
 /**
  * Skin Extension plugin that allows pulling CSS code stored inside wiki documents as
@@ -83,8 +85,24 @@ public String getLink(String documentName, XWikiContext context)
             return "";
         }
 
-        return String.format("<link rel=\"stylesheet\" type=\"text/css\" href=\"%s\" />",
-                getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context));
+        return getStyleSheetTag(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context));
+    }
+
+    @Override
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        return getStyleSheetTag(url);
+    }
+
+    private String getStyleSheetTag(String url)
+    {
+        return String.format("<link rel=\"stylesheet\" type=\"text/css\" href=\"%s\" />", url);
+    }
+
+    @Override
+    protected Extension getExtensionType()
+    {
+        return SsxAction.CSSX;
     }
 
     @Override
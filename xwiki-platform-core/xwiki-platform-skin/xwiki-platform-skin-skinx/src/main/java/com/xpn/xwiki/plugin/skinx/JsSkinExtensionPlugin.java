@@ -25,6 +25,8 @@
 import org.xwiki.model.reference.LocalDocumentReference;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.web.JsxAction;
+import com.xpn.xwiki.web.sx.Extension;
 
 /**
  * Skin Extension plugin that allows pulling javascript code stored inside wiki documents as
@@ -91,18 +93,42 @@ public String getLink(String documentName, XWikiContext context)
             return "";
         }
 
-        StringBuilder result = new StringBuilder("<script type='text/javascript' src='");
-        result.append(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context));
         // check if js should be deferred, defaults to the preference configured in the cfg file, which defaults to true
+        boolean defer = BooleanUtils.toBooleanDefaultIfNull((Boolean) getParameter("defer", documentName, context),
+            isDeferredByDefault(context));
+
+        return getScriptTag(getDocumentSkinExtensionURL(documentReference, documentName, PLUGIN_NAME, context), defer);
+    }
+
+    @Override
+    protected String getBundleLink(String url, XWikiContext context)
+    {
+        return getScriptTag(url, isDeferredByDefault(context));
+    }
+
+    private boolean isDeferredByDefault(XWikiContext context)
+    {
         String defaultDeferString = context.getWiki().Param(DEFER_DEFAULT_PARAM);
-        Boolean defaultDefer = (!StringUtils.isEmpty(defaultDeferString)) ? Boolean.valueOf(defaultDeferString) : true;
-        if (BooleanUtils.toBooleanDefaultIfNull((Boolean) getParameter("defer", documentName, context), defaultDefer)) {
+        return (!StringUtils.isEmpty(defaultDeferString)) ? Boolean.valueOf(defaultDeferString) : true;
+    }
+
+    private String getScriptTag(String url, boolean defer)
+    {
+        StringBuilder result = new StringBuilder("<script type='text/javascript' src='");
+        result.append(url);
+        if (defer) {
             result.append("' defer='defer");
         }
         result.append("'></script>\n");
         return result.toString();
     }
 
+    @Override
+    protected Extension getExtensionType()
+    {
+        return JsxAction.JSX;
+    }
+
     @Override
     protected String getExtensionClassName()
     {
@@ -19,18 +19,30 @@
  */
 package com.xpn.xwiki.web.sx;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.skinx.internal.SxOutputCache;
+import org.xwiki.skinx.internal.SxOutputCache.CachedOutput;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.debug.DebugConfiguration;
 import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiAction;
+import com.xpn.xwiki.web.XWikiRequest;
 import com.xpn.xwiki.web.XWikiResponse;
 import com.xpn.xwiki.web.sx.SxSource.CachePolicy;
 
@@ -43,6 +55,13 @@
  */
 public abstract class AbstractSxAction extends XWikiAction
 {
+    /**
+     * The request parameter listing the documents of a bundle of extensions, sent as a single response.
+     *
+     * @since 11.3RC1
+     */
+    public static final String BUNDLE_REQUEST_PARAMETER = "bundle";
+
     /** How many milliseconds a file should be cached for if it sets CachePolicy to LONG, hardcoded to 30 days. */
     private static final long LONG_CACHE_DURATION = 30 * 24 * 3600 * 1000L;
 
@@ -64,8 +83,22 @@ public abstract class AbstractSxAction extends XWikiAction
     /** If the user passes this parameter in the URL, we will look for the script in the jar files. */
     private static final String JAR_RESOURCE_REQUEST_PARAMETER = "resource";
 
+    /** What http header parameter is used by the client to specify the content codings it supports. */
+    private static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    /** The gzip content coding. */
+    private static final String GZIP_ENCODING = "gzip";
+
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
+    private static final byte[] JS_BUNDLE_SEPARATOR = {';', '\n'};
+
+    private static final byte[] CSS_BUNDLE_SEPARATOR = {'\n'};
+
     private DebugConfiguration debugConfiguration;
 
+    private SxOutputCache outputCache;
+
     /** @return the logging object of the concrete subclass. */
     protected abstract Logger getLogger();
 
@@ -83,7 +116,13 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
     {
         XWikiResponse response = context.getResponse();
 
-        String extensionContent = sxSource.getContent();
+        CachePolicy cachePolicy = sxSource.getCachePolicy();
+
+        // The content of the extensions which don't depend on the request is produced once per document version
+        boolean cacheable = cachePolicy != CachePolicy.FORBID && sxSource instanceof SxDocumentSource
+            && ((SxDocumentSource) sxSource).isContentStatic();
+
+        String extensionContent = cacheable ? null : sxSource.getContent();
 
         response.setContentType(sxType.getContentType());
 
@@ -91,8 +130,6 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setDateHeader(LAST_MODIFIED_HEADER, sxSource.getLastModifiedDate());
         }
 
-        CachePolicy cachePolicy = sxSource.getCachePolicy();
-
         if (cachePolicy != CachePolicy.FORBID) {
             response.setHeader(CACHE_CONTROL_HEADER, "public");
         }
@@ -106,17 +143,212 @@ public void renderExtension(SxSource sxSource, Extension sxType, XWikiContext co
             response.setHeader(CACHE_CONTROL_HEADER, "no-cache, no-store, must-revalidate");
         }
 
-        if (getDebugConfiguration().isMinify()) {
-            extensionContent = sxType.getCompressor().compress(extensionContent);
+        try {
+            if (cacheable) {
+                renderCachedExtension((SxDocumentSource) sxSource, sxType, context);
+            } else {
+                if (getDebugConfiguration().isMinify()) {
+                    extensionContent = sxType.getCompressor().compress(extensionContent);
+                }
+
+                response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
+                response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            }
+        } catch (IOException ex) {
+            getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
+        }
+
+    }
+
+    private void renderCachedExtension(SxDocumentSource sxSource, Extension sxType, XWikiContext context)
+        throws IOException
+    {
+        boolean minify = getDebugConfiguration().isMinify();
+        CachedOutput output = getOutputCache().get(sxSource.getDocument(), sxType.getClassName() + '/' + minify,
+            () -> minify ? sxType.getCompressor().compress(sxSource.getContent()) : sxSource.getContent());
+
+        sendCachedOutput(output, context);
+    }
+
+    private void sendCachedOutput(CachedOutput output, XWikiContext context) throws IOException
+    {
+        sendCachedOutput(output, context.getRequest(), context.getResponse());
+    }
+
+    /**
+     * Send the cached output of an extension, compressed if the client supports it, or only its status if the client
+     * already has it.
+     *
+     * @param output the output to send
+     * @param request the current client request
+     * @param response the response to write to
+     * @throws IOException when failing to write the response
+     */
+    static void sendCachedOutput(CachedOutput output, XWikiRequest request, XWikiResponse response)
+        throws IOException
+    {
+        boolean gzip = isGzipAccepted(request.getHeader(ACCEPT_ENCODING_HEADER));
+        String etag = gzip ? output.getGzipETag() : output.getETag();
+
+        response.setHeader("ETag", etag);
+        response.setHeader("Vary", ACCEPT_ENCODING_HEADER);
+
+        if (isNotModified(etag, request)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+
+            return;
+        }
+
+        byte[] content;
+        if (gzip) {
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
+            content = output.getGzipContent();
+        } else {
+            content = output.getContent();
+        }
+
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    /**
+     * Send the concatenated content of several document extensions. The bundled documents are subject to the same
+     * rights as when requested alone and the documents which can't be bundled (see
+     * {@link SxDocumentSource#isBundleable()}) are ignored.
+     *
+     * @param documentNames the documents containing the extensions to bundle
+     * @param sxType the type of extension
+     * @param context the XWiki context when rendering the skin extension
+     * @throws XWikiException when failing to load a bundled document
+     */
+    private void renderBundle(String[] documentNames, Extension sxType, XWikiContext context) throws XWikiException
+    {
+        ContextualAuthorizationManager authorization = Utils.getComponent(ContextualAuthorizationManager.class);
+        DocumentReferenceResolver<String> resolver =
+            Utils.getComponent(DocumentReferenceResolver.TYPE_STRING, "current");
+
+        boolean minify = getDebugConfiguration().isMinify();
+        String variant = sxType.getClassName() + '/' + minify;
+
+        // The key contains the version of each bundled document so that a modified extension produces a new bundle
+        StringBuilder key = new StringBuilder(variant);
+        List<SxDocumentSource> sources = new ArrayList<>(documentNames.length);
+        long lastModified = 0;
+        for (String documentName : documentNames) {
+            DocumentReference reference = resolver.resolve(documentName);
+            if (authorization.hasAccess(Right.VIEW, reference)) {
+                XWikiDocument document = context.getWiki().getDocument(reference, context);
+                SxDocumentSource source = new SxDocumentSource(document, context, sxType);
+                if (!document.isNew() && source.isBundleable()) {
+                    sources.add(source);
+                    key.append('\n').append(document.getPrefixedFullName()).append('@').append(document.getVersion())
+                        .append('/').append(source.getLastModifiedDate());
+                    lastModified = Math.max(lastModified, source.getLastModifiedDate());
+                }
+            }
+        }
+
+        XWikiResponse response = context.getResponse();
+        response.setContentType(sxType.getContentType());
+        if (lastModified > 0) {
+            response.setDateHeader(LAST_MODIFIED_HEADER, lastModified);
         }
+        // The URL of a bundle changes with the version of the bundled documents, but its content depends on the rights
+        // of the current user
+        response.setHeader(CACHE_CONTROL_HEADER, "private");
+        response.setDateHeader(CACHE_EXPIRES_HEADER, (new Date()).getTime() + LONG_CACHE_DURATION);
+
+        // Make sure the contents of the different extensions are not mixed (e.g. a script ending without semicolon
+        // followed by a script starting with a parenthesis)
+        byte[] separator = sxType instanceof JsExtension ? JS_BUNDLE_SEPARATOR : CSS_BUNDLE_SEPARATOR;
 
         try {
-            response.setContentLength(extensionContent.getBytes(RESPONSE_CHARACTER_SET).length);
-            response.getOutputStream().write(extensionContent.getBytes(RESPONSE_CHARACTER_SET));
+            CachedOutput output = getOutputCache().getBundle(key.toString(), () -> {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                for (SxDocumentSource source : sources) {
+                    content.write(getOutputCache().get(source.getDocument(), variant,
+                        () -> minify ? sxType.getCompressor().compress(source.getContent()) : source.getContent())
+                        .getContent());
+                    content.write(separator);
+                }
+
+                return content.toByteArray();
+            });
+
+            sendCachedOutput(output, context);
         } catch (IOException ex) {
-            getLogger().warn("Failed to send SX content: [{}]", ex.getMessage());
+            getLogger().warn("Failed to send SX bundle content: [{}]", ex.getMessage());
+        }
+    }
+
+    /**
+     * @param acceptEncoding the value of the {@code Accept-Encoding} header
+     * @return {@code true} if the gzip content coding is listed with a non zero quality, explicitly or through the
+     *         {@code *} wildcard
+     */
+    static boolean isGzipAccepted(String acceptEncoding)
+    {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipQuality = null;
+        Double anyQuality = null;
+        for (String element : StringUtils.split(acceptEncoding, ',')) {
+            String[] parts = StringUtils.split(element, ';');
+            if (parts.length > 0) {
+                String coding = parts[0].trim();
+                if (coding.equalsIgnoreCase(GZIP_ENCODING) || coding.equalsIgnoreCase("x-gzip")) {
+                    gzipQuality = getQuality(parts);
+                } else if (coding.equals("*")) {
+                    anyQuality = getQuality(parts);
+                }
+            }
+        }
+
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+
+        return anyQuality != null && anyQuality > 0;
+    }
+
+    private static double getQuality(String[] parts)
+    {
+        for (int i = 1; i < parts.length; ++i) {
+            String parameter = parts[i].trim();
+            if (StringUtils.startsWithIgnoreCase(parameter, "q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // Invalid quality, don't use the coding
+                    return 0;
+                }
+            }
         }
 
+        return 1;
+    }
+
+    /**
+     * @param etag the entity tag of the extension content
+     * @param request the current client request
+     * @return {@code true} if the client already has the extension content
+     */
+    private static boolean isNotModified(String etag, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            // Weak comparison
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                String value = StringUtils.removeStart(clientETag.trim(), WEAK_ETAG_PREFIX);
+                if (value.equals("*") || value.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
     }
 
     @Override
@@ -126,6 +358,11 @@ public String render(XWikiContext context) throws XWikiException
 
         if (context.getRequest().getParameter(JAR_RESOURCE_REQUEST_PARAMETER) != null) {
             sxSource = new SxResourceSource(context.getRequest().getParameter(JAR_RESOURCE_REQUEST_PARAMETER));
+        } else if (context.getRequest().getParameterValues(BUNDLE_REQUEST_PARAMETER) != null) {
+            renderBundle(context.getRequest().getParameterValues(BUNDLE_REQUEST_PARAMETER), getExtensionType(),
+                context);
+
+            return null;
         } else {
             if (context.getDoc().isNew()) {
                 context.getResponse().setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -143,6 +380,15 @@ public String render(XWikiContext context) throws XWikiException
         return null;
     }
 
+    private SxOutputCache getOutputCache()
+    {
+        if (this.outputCache == null) {
+            this.outputCache = Utils.getComponent(SxOutputCache.class);
+        }
+
+        return this.outputCache;
+    }
+
     protected DebugConfiguration getDebugConfiguration()
     {
         if (this.debugConfiguration == null) {
@@ -21,6 +21,7 @@
 
 import java.io.StringWriter;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -55,6 +56,9 @@ public class SxDocumentSource implements SxSource
     /** The name of the property in the script extension object which contains the content type. */
     private static final String CONTENT_TYPE_PROPERTY_NAME = "contentType";
 
+    /** The content type of the extensions written in LESS. */
+    private static final String LESS_CONTENT_TYPE = "LESS";
+
     /** The name of the property in the script extension object which tells us if the content should be parsed. */
     private static final String PARSE_CONTENT_PROPERTY_NAME = "parse";
 
@@ -64,6 +68,20 @@ public class SxDocumentSource implements SxSource
     /** The name of the property in the script extension object which contains the name of the object. */
     private static final String NAME_PROPERTY_NAME = "name";
 
+    /**
+     * Matches a directive prologue (e.g. {@code "use strict"}) at the start of a JavaScript content. A directive would
+     * apply to the following extensions of a bundle.
+     */
+    private static final Pattern JS_DIRECTIVE_PATTERN =
+        Pattern.compile("(?>\\s|//[^\\n]*+|/\\*.*?\\*/)*+(['\"])use [^'\"\\n]*\\1", Pattern.DOTALL);
+
+    /**
+     * Matches the CSS rules which depend on their position in the style sheet ({@code @import}, {@code @charset}) or
+     * on the URL of the style sheet (relative {@code url()} references).
+     */
+    private static final Pattern CSS_LOCATION_DEPENDENT_PATTERN = Pattern
+        .compile("@import|@charset|url\\(\\s*+['\"]?+(?![a-z][a-z0-9+.-]*+:|/|#)", Pattern.CASE_INSENSITIVE);
+
     /** Logging helper. */
     private static final Logger LOGGER = LoggerFactory.getLogger(SxDocumentSource.class);
 
@@ -83,9 +101,22 @@ public class SxDocumentSource implements SxSource
      * @param extension The Extension type
      */
     public SxDocumentSource(XWikiContext context, Extension extension)
+    {
+        this(context.getDoc(), context, extension);
+    }
+
+    /**
+     * Constructor for this extension source.
+     *
+     * @param document the document containing the extension
+     * @param context The XWikiContext
+     * @param extension The Extension type
+     * @since 11.3RC1
+     */
+    public SxDocumentSource(XWikiDocument document, XWikiContext context, Extension extension)
     {
         this.context = context;
-        this.document = context.getDoc();
+        this.document = document;
         this.extension = extension;
     }
 
@@ -129,7 +160,7 @@ public String getContent()
                 }
                 String sxContent = sxObj.getLargeStringValue(CONTENT_PROPERTY_NAME);
                 int parse = sxObj.getIntValue(PARSE_CONTENT_PROPERTY_NAME);
-                if ("LESS".equals(sxObj.getStringValue(CONTENT_TYPE_PROPERTY_NAME))) {
+                if (LESS_CONTENT_TYPE.equals(sxObj.getStringValue(CONTENT_TYPE_PROPERTY_NAME))) {
                     LESSCompiler lessCompiler = Utils.getComponent(LESSCompiler.class);
                     LESSResourceReferenceFactory lessResourceReferenceFactory =
                         Utils.getComponent(LESSResourceReferenceFactory.class);
@@ -173,4 +204,56 @@ public long getLastModifiedDate()
         return this.document.getDate().getTime();
     }
 
+    /**
+     * @return the document containing the extension
+     * @since 11.3RC1
+     */
+    public XWikiDocument getDocument()
+    {
+        return this.document;
+    }
+
+    /**
+     * @return {@code true} if the content only depends on the extension objects of the document, i.e. none of them is
+     *         parsed with Velocity or compiled with LESS
+     * @since 11.3RC1
+     */
+    public boolean isContentStatic()
+    {
+        List<BaseObject> objects = this.document.getObjects(this.extension.getClassName());
+        if (objects != null) {
+            for (BaseObject sxObj : objects) {
+                if (sxObj != null && (sxObj.getIntValue(PARSE_CONTENT_PROPERTY_NAME) == 1
+                    || LESS_CONTENT_TYPE.equals(sxObj.getStringValue(CONTENT_TYPE_PROPERTY_NAME)))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Indicate if the extension can be concatenated with other extensions of the same type and served from the URL of
+     * another document. This is not the case when the content depends on the request, when it must not be cached, when
+     * it's a JavaScript starting with a directive or when it's a CSS containing {@code @import}, {@code @charset} or
+     * relative {@code url()} references.
+     *
+     * @return {@code true} if the extension can be bundled, {@code false} otherwise
+     * @since 11.3RC1
+     */
+    public boolean isBundleable()
+    {
+        if (!isContentStatic() || getCachePolicy() == CachePolicy.FORBID) {
+            return false;
+        }
+
+        if (this.extension instanceof JsExtension) {
+            return !JS_DIRECTIVE_PATTERN.matcher(getContent()).lookingAt();
+        } else if (this.extension instanceof CssExtension) {
+            return !CSS_LOCATION_DEPENDENT_PATTERN.matcher(getContent()).find();
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,247 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+/**
+ * Keep the final (minified and compressed) output of the document skin extensions whose content does not depend on
+ * the request, so that it's not produced again each time the extension is requested. An entry is only reused for the
+ * version of the document it was produced from and is removed as soon as the document is modified. The bundles of
+ * extensions are cached by their key, which contains the version of each bundled document.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = SxOutputCache.class)
+@Singleton
+public class SxOutputCache implements Initializable
+{
+    private static final int CACHE_SIZE = 500;
+
+    private static final int BUNDLE_CACHE_SIZE = 100;
+
+    private static final char ETAG_QUOTE = '"';
+
+    /**
+     * The output of a skin extension, ready to be sent.
+     *
+     * @version $Id$
+     */
+    public static final class CachedOutput
+    {
+        private final String version;
+
+        private final byte[] content;
+
+        private final byte[] gzipContent;
+
+        private final String etag;
+
+        private final String gzipETag;
+
+        /**
+         * @param version the version of the source of the output
+         * @param content the UTF-8 encoded content
+         * @throws IOException when failing to compress the content
+         */
+        public CachedOutput(String version, byte[] content) throws IOException
+        {
+            this.version = version;
+            this.content = content;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(this.content.length / 3 + 32);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+                gzip.write(this.content);
+            }
+            this.gzipContent = bytes.toByteArray();
+
+            // Each representation has its own strong entity tag
+            String hash = DigestUtils.sha1Hex(this.content);
+            this.etag = ETAG_QUOTE + hash + ETAG_QUOTE;
+            this.gzipETag = ETAG_QUOTE + hash + "-gzip" + ETAG_QUOTE;
+        }
+
+        /**
+         * @return the UTF-8 encoded content
+         */
+        public byte[] getContent()
+        {
+            return this.content;
+        }
+
+        /**
+         * @return the gzip compressed UTF-8 encoded content
+         */
+        public byte[] getGzipContent()
+        {
+            return this.gzipContent;
+        }
+
+        /**
+         * @return the strong entity tag of the content
+         */
+        public String getETag()
+        {
+            return this.etag;
+        }
+
+        /**
+         * @return the strong entity tag of the gzip compressed content
+         */
+        public String getGzipETag()
+        {
+            return this.gzipETag;
+        }
+    }
+
+    /**
+     * Produce the content of a bundle.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface BundleProducer
+    {
+        /**
+         * @return the UTF-8 encoded content of the bundle
+         * @throws IOException when failing to produce the content
+         */
+        byte[] produce() throws IOException;
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    /**
+     * The outputs of each document, indexed by variant (type of extension, minification).
+     */
+    private Cache<Map<String, CachedOutput>> cache;
+
+    private Cache<CachedOutput> bundleCache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.output", CACHE_SIZE));
+            this.bundleCache =
+                this.cacheManager.createNewCache(new LRUCacheConfiguration("skinx.bundle", BUNDLE_CACHE_SIZE));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize the skin extension output cache", e);
+        }
+    }
+
+    /**
+     * Return the cached output of the skin extension or produce and cache it.
+     *
+     * @param document the document containing the skin extension
+     * @param variant identify the way the output is produced from the document (the type of extension, minification,
+     *            etc.)
+     * @param producer produce the content when it's not in the cache
+     * @return the output of the skin extension
+     * @throws IOException when failing to compress the content
+     */
+    public CachedOutput get(XWikiDocument document, String variant, Supplier<String> producer) throws IOException
+    {
+        String key = this.serializer.serialize(document.getDocumentReferenceWithLocale());
+        String version = document.getVersion() + '/' + document.getDate().getTime();
+
+        Map<String, CachedOutput> outputs = this.cache.get(key);
+        if (outputs == null) {
+            outputs = new ConcurrentHashMap<>();
+            this.cache.set(key, outputs);
+        }
+
+        CachedOutput output = outputs.get(variant);
+        if (output == null || !output.version.equals(version)) {
+            output = new CachedOutput(version, producer.get().getBytes(StandardCharsets.UTF_8));
+            outputs.put(variant, output);
+        }
+
+        return output;
+    }
+
+    /**
+     * Return the cached output of a bundle of skin extensions or produce and cache it.
+     *
+     * @param key identify the bundle content (the type of extension, minification and the bundled documents with
+     *            their version)
+     * @param producer produce the UTF-8 encoded content when it's not in the cache
+     * @return the output of the bundle
+     * @throws IOException when failing to produce or compress the content
+     */
+    public CachedOutput getBundle(String key, BundleProducer producer) throws IOException
+    {
+        String hash = DigestUtils.sha1Hex(key);
+
+        CachedOutput output = this.bundleCache.get(hash);
+        if (output == null || !output.version.equals(key)) {
+            output = new CachedOutput(key, producer.produce());
+            this.bundleCache.set(hash, output);
+        }
+
+        return output;
+    }
+
+    /**
+     * Remove the outputs of the passed document.
+     *
+     * @param documentReference the reference of the modified document
+     */
+    public void cleanCache(DocumentReference documentReference)
+    {
+        this.cache.remove(this.serializer.serialize(documentReference));
+    }
+
+    /**
+     * Remove all the cached outputs.
+     */
+    public void flush()
+    {
+        this.cache.removeAll();
+        this.bundleCache.removeAll();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.skinx;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.security.authorization.Right;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+import com.xpn.xwiki.web.JsxAction;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.sx.Extension;
+
+import static com.xpn.xwiki.plugin.skinx.SkinExtensionTestUtils.saveExtension;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AbstractDocumentSkinExtensionPlugin}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+public class AbstractDocumentSkinExtensionPluginTest
+{
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private AbstractDocumentSkinExtensionPlugin plugin;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setRequest(mock(XWikiRequest.class));
+
+        this.plugin = new AbstractDocumentSkinExtensionPlugin("jsx", null, xcontext)
+        {
+            @Override
+            public String getLink(String documentName, XWikiContext context)
+            {
+                return "[" + documentName + "]";
+            }
+
+            @Override
+            protected String getBundleLink(String url, XWikiContext context)
+            {
+                // Ignore the hash of the versions of the bundled documents
+                return "{" + url.replaceAll("&amp;docVersion=[0-9a-f]+", "") + "}";
+            }
+
+            @Override
+            protected Extension getExtensionType()
+            {
+                return JsxAction.JSX;
+            }
+
+            @Override
+            protected String getExtensionClassName()
+            {
+                return JsSkinExtensionPlugin.JSX_CLASS_NAME;
+            }
+
+            @Override
+            protected String getExtensionName()
+            {
+                return "Javascript";
+            }
+        };
+
+        doReturn(1L).when(this.oldcore.getSpyXWiki()).ParamAsLong(AbstractDocumentSkinExtensionPlugin.BUNDLE_PARAM,
+            0);
+        doAnswer(invocation -> invocation.getArgument(1) + ":" + invocation.getArgument(2))
+            .when(this.oldcore.getSpyXWiki())
+            .getURL(any(DocumentReference.class), anyString(), anyString(), anyString(), any(XWikiContext.class));
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(eq(Right.VIEW), any())).thenReturn(true);
+    }
+
+    @Test
+    public void getLinksSplitsRuns() throws Exception
+    {
+        saveExtension(this.oldcore, "A", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var a = 1");
+        saveExtension(this.oldcore, "B", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var b = 2");
+        saveExtension(this.oldcore, "Denied", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var denied = 3");
+        saveExtension(this.oldcore, "C", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var c = 4");
+        saveExtension(this.oldcore, "Strict", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE,
+            "/* Strict mode */\n'use strict';\nvar strict = 5");
+        saveExtension(this.oldcore, "D", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var d = 6");
+        saveExtension(this.oldcore, "E", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var e = 7");
+        saveExtension(this.oldcore, "Parameters", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var parameters = 8");
+
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(Right.VIEW,
+            new DocumentReference(this.oldcore.getXWikiContext().getWikiId(), "Space", "Denied"))).thenReturn(false);
+        this.plugin.getParametersMap(this.oldcore.getXWikiContext()).put("Space.Parameters",
+            Collections.<String, Object>singletonMap("defer", false));
+
+        String links = this.plugin.getLinks(new LinkedHashSet<>(Arrays.asList("Space.A", "Space.B", "Space.Denied",
+            "Space.C", "Space.Strict", "Space.D", "Space.E", "Space.Missing", "Space.Parameters")),
+            this.oldcore.getXWikiContext());
+
+        assertEquals("{jsx:language=en&amp;bundle=Space.A&amp;bundle=Space.B}[Space.Denied][Space.C][Space.Strict]"
+            + "{jsx:language=en&amp;bundle=Space.D&amp;bundle=Space.E}[Space.Missing][Space.Parameters]", links);
+    }
+
+    @Test
+    public void getLinksWhenBundlingIsDisabled() throws Exception
+    {
+        saveExtension(this.oldcore, "A", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var a = 1");
+        saveExtension(this.oldcore, "B", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var b = 2");
+
+        doReturn(0L).when(this.oldcore.getSpyXWiki()).ParamAsLong(AbstractDocumentSkinExtensionPlugin.BUNDLE_PARAM,
+            0);
+
+        assertEquals("[Space.A][Space.B]", this.plugin.getLinks(
+            new LinkedHashSet<>(Arrays.asList("Space.A", "Space.B")), this.oldcore.getXWikiContext()));
+    }
+}
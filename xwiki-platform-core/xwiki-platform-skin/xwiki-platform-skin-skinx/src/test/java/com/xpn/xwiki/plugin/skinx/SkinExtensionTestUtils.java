@@ -0,0 +1,61 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.skinx;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.LocalDocumentReference;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.test.MockitoOldcore;
+
+/**
+ * Helpers shared by the skin extension tests.
+ *
+ * @version $Id$
+ */
+public final class SkinExtensionTestUtils
+{
+    private SkinExtensionTestUtils()
+    {
+    }
+
+    /**
+     * Save a skin extension document in the space "Space" of the current wiki.
+     *
+     * @param oldcore the mocked oldcore environment
+     * @param name the name of the document
+     * @param classReference the class of the skin extension object
+     * @param code the code of the skin extension
+     * @throws Exception when failing to save the document
+     */
+    public static void saveExtension(MockitoOldcore oldcore, String name, LocalDocumentReference classReference,
+        String code) throws Exception
+    {
+        XWikiDocument document =
+            new XWikiDocument(new DocumentReference(oldcore.getXWikiContext().getWikiId(), "Space", name));
+        BaseObject object = new BaseObject();
+        object.setXClassReference(classReference);
+        object.setLargeStringValue("code", code);
+        document.addXObject(object);
+
+        oldcore.getSpyXWiki().saveDocument(document, oldcore.getXWikiContext());
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.web.sx;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.skinx.internal.SxOutputCache;
+import org.xwiki.skinx.internal.SxOutputCache.BundleProducer;
+import org.xwiki.skinx.internal.SxOutputCache.CachedOutput;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.internal.debug.DebugConfiguration;
+import com.xpn.xwiki.plugin.skinx.CssSkinExtensionPlugin;
+import com.xpn.xwiki.plugin.skinx.JsSkinExtensionPlugin;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+import com.xpn.xwiki.test.reference.ReferenceComponentList;
+import com.xpn.xwiki.web.JsxAction;
+import com.xpn.xwiki.web.SsxAction;
+import com.xpn.xwiki.web.XWikiRequest;
+import com.xpn.xwiki.web.XWikiResponse;
+
+import static com.xpn.xwiki.plugin.skinx.SkinExtensionTestUtils.saveExtension;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AbstractSxAction}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+@ReferenceComponentList
+public class AbstractSxActionTest
+{
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    @MockComponent
+    private SxOutputCache outputCache;
+
+    @MockComponent
+    private DebugConfiguration debugConfiguration;
+
+    private CachedOutput output;
+
+    private XWikiRequest request;
+
+    private XWikiResponse response;
+
+    private ServletOutputStream outputStream;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        this.output = new CachedOutput("1.1", "var content;".getBytes(StandardCharsets.UTF_8));
+
+        this.request = mock(XWikiRequest.class);
+        this.response = mock(XWikiResponse.class);
+        this.outputStream = mock(ServletOutputStream.class);
+        when(this.response.getOutputStream()).thenReturn(this.outputStream);
+
+        XWikiContext xcontext = this.oldcore.getXWikiContext();
+        xcontext.setRequest(this.request);
+        xcontext.setResponse(this.response);
+
+        when(this.outputCache.get(any(), anyString(), any())).thenAnswer(invocation -> new CachedOutput("1.1",
+            invocation.<Supplier<String>>getArgument(2).get().getBytes(StandardCharsets.UTF_8)));
+        when(this.outputCache.getBundle(anyString(), any())).thenAnswer(invocation -> new CachedOutput(
+            invocation.getArgument(0), invocation.<BundleProducer>getArgument(1).produce()));
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(eq(Right.VIEW), any())).thenReturn(true);
+    }
+
+    private String getWrittenContent() throws Exception
+    {
+        ArgumentCaptor<byte[]> content = ArgumentCaptor.forClass(byte[].class);
+        verify(this.outputStream).write(content.capture());
+
+        return new String(content.getValue(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void isGzipAccepted()
+    {
+        assertTrue(AbstractSxAction.isGzipAccepted("gzip"));
+        assertTrue(AbstractSxAction.isGzipAccepted("deflate, gzip;q=1.0, *;q=0.5"));
+        assertTrue(AbstractSxAction.isGzipAccepted("br, GZIP ; q=0.8"));
+        assertTrue(AbstractSxAction.isGzipAccepted("x-gzip"));
+        assertTrue(AbstractSxAction.isGzipAccepted("*"));
+
+        assertFalse(AbstractSxAction.isGzipAccepted(null));
+        assertFalse(AbstractSxAction.isGzipAccepted(""));
+        assertFalse(AbstractSxAction.isGzipAccepted("identity"));
+        assertFalse(AbstractSxAction.isGzipAccepted("gzip;q=0"));
+        assertFalse(AbstractSxAction.isGzipAccepted("gzip;q=0.000, deflate"));
+        assertFalse(AbstractSxAction.isGzipAccepted("*, gzip;q=0"));
+        assertFalse(AbstractSxAction.isGzipAccepted("deflate, *;q=0"));
+        assertFalse(AbstractSxAction.isGzipAccepted("gzip;q=invalid"));
+    }
+
+    @Test
+    public void sendCachedOutputGzip() throws Exception
+    {
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        AbstractSxAction.sendCachedOutput(this.output, this.request, this.response);
+
+        verify(this.response).setHeader("ETag", this.output.getGzipETag());
+        verify(this.response).setHeader("Vary", "Accept-Encoding");
+        verify(this.response).setHeader("Content-Encoding", "gzip");
+        verify(this.response).setContentLength(this.output.getGzipContent().length);
+        verify(this.outputStream).write(this.output.getGzipContent());
+    }
+
+    @Test
+    public void sendCachedOutputWhenGzipIsRefused() throws Exception
+    {
+        when(this.request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0, deflate");
+
+        AbstractSxAction.sendCachedOutput(this.output, this.request, this.response);
+
+        verify(this.response).setHeader("ETag", this.output.getETag());
+        verify(this.response, never()).setHeader(eq("Content-Encoding"), anyString());
+        verify(this.response).setContentLength(this.output.getContent().length);
+        verify(this.outputStream).write(this.output.getContent());
+    }
+
+    @Test
+    public void sendCachedOutputWhenNotModified() throws Exception
+    {
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", W/" + this.output.getETag());
+
+        AbstractSxAction.sendCachedOutput(this.output, this.request, this.response);
+
+        verify(this.response).setHeader("ETag", this.output.getETag());
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response, never()).setContentLength(anyInt());
+        verify(this.outputStream, never()).write(any(byte[].class));
+    }
+
+    @Test
+    public void sendCachedOutputWhenModified() throws Exception
+    {
+        // The client has the gzip representation but doesn't accept it anymore
+        when(this.request.getHeader("If-None-Match")).thenReturn(this.output.getGzipETag());
+
+        AbstractSxAction.sendCachedOutput(this.output, this.request, this.response);
+
+        verify(this.response, never()).setStatus(anyInt());
+        verify(this.outputStream).write(this.output.getContent());
+    }
+
+    @Test
+    public void renderJavaScriptBundle() throws Exception
+    {
+        saveExtension(this.oldcore, "A", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var a = 1");
+        saveExtension(this.oldcore, "Denied", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "var denied = 2");
+        saveExtension(this.oldcore, "Strict", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE,
+            "\"use strict\";\nvar strict = 3");
+        saveExtension(this.oldcore, "B", JsSkinExtensionPlugin.JSX_CLASS_REFERENCE, "(function() {})()");
+
+        when(this.oldcore.getMockContextualAuthorizationManager().hasAccess(Right.VIEW,
+            new DocumentReference(this.oldcore.getXWikiContext().getWikiId(), "Space", "Denied"))).thenReturn(false);
+        when(this.request.getParameterValues("bundle"))
+            .thenReturn(new String[] {"Space.A", "Space.Denied", "Space.Strict", "Space.Missing", "Space.B"});
+
+        assertNull(new JsxAction().render(this.oldcore.getXWikiContext()));
+
+        // The extensions which are not viewable by the current user or which can't be bundled are left out
+        assertEquals("var a = 1\n;\n(function() {})()\n;\n", getWrittenContent());
+        verify(this.response).setHeader("Cache-Control", "private");
+    }
+
+    @Test
+    public void renderStyleSheetBundle() throws Exception
+    {
+        saveExtension(this.oldcore, "A", CssSkinExtensionPlugin.SSX_CLASS_REFERENCE, "a { color: red; }");
+        saveExtension(this.oldcore, "Import", CssSkinExtensionPlugin.SSX_CLASS_REFERENCE, "@import 'other.css';");
+        saveExtension(this.oldcore, "Relative", CssSkinExtensionPlugin.SSX_CLASS_REFERENCE,
+            "p { background: url('img.png'); }");
+        saveExtension(this.oldcore, "B", CssSkinExtensionPlugin.SSX_CLASS_REFERENCE,
+            "b { background: url(/xwiki/img.png), url(data:image/png;base64,AA==); }");
+
+        when(this.request.getParameterValues("bundle"))
+            .thenReturn(new String[] {"Space.A", "Space.Import", "Space.Relative", "Space.B"});
+
+        assertNull(new SsxAction().render(this.oldcore.getXWikiContext()));
+
+        assertEquals("a { color: red; }\n\nb { background: url(/xwiki/img.png), url(data:image/png;base64,AA==); }\n\n",
+            getWrittenContent());
+    }
+}
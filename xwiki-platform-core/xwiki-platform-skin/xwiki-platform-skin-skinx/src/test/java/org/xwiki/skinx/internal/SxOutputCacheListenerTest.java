@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.util.Locale;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxOutputCacheListener}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SxOutputCacheListenerTest
+{
+    @InjectMockComponents
+    private SxOutputCacheListener listener;
+
+    @MockComponent
+    private Provider<SxOutputCache> cacheProvider;
+
+    private SxOutputCache cache;
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.cache = mock(SxOutputCache.class);
+        when(this.cacheProvider.get()).thenReturn(this.cache);
+    }
+
+    @Test
+    public void onDocumentUpdated()
+    {
+        DocumentReference reference = new DocumentReference("wiki", "Space", "Page", Locale.FRENCH);
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReferenceWithLocale()).thenReturn(reference);
+
+        this.listener.onEvent(new DocumentUpdatedEvent(reference), document, null);
+
+        verify(this.cache).cleanCache(reference);
+    }
+
+    @Test
+    public void onWikiDeleted()
+    {
+        this.listener.onEvent(new WikiDeletedEvent("wiki"), null, null);
+
+        verify(this.cache).flush();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.skinx.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.skinx.internal.SxOutputCache.CachedOutput;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link SxOutputCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SxOutputCacheTest
+{
+    private static final DocumentReference DOCUMENT = new DocumentReference("wiki", "Space", "Page");
+
+    @InjectMockComponents
+    private SxOutputCache outputCache;
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    private AtomicInteger produced = new AtomicInteger();
+
+    @BeforeComponent
+    public void beforeComponent() throws Exception
+    {
+        Cache<Object> cache = mockCache();
+        Cache<Object> bundleCache = mockCache();
+        when(this.cacheManager.createNewCache(any(CacheConfiguration.class))).thenReturn(cache, bundleCache);
+
+        when(this.serializer.serialize(any())).then(invocation -> invocation.getArgument(0).toString());
+    }
+
+    private Cache<Object> mockCache()
+    {
+        Map<String, Object> entries = new HashMap<>();
+
+        Cache<Object> cache = mock(Cache.class);
+        when(cache.get(anyString())).then(invocation -> entries.get(invocation.getArgument(0)));
+        doAnswer(invocation -> entries.put(invocation.getArgument(0), invocation.getArgument(1))).when(cache)
+            .set(anyString(), any());
+        doAnswer(invocation -> entries.remove(invocation.<String>getArgument(0))).when(cache).remove(anyString());
+        doAnswer(invocation -> {
+            entries.clear();
+            return null;
+        }).when(cache).removeAll();
+
+        return cache;
+    }
+
+    private XWikiDocument document(String version)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReferenceWithLocale()).thenReturn(DOCUMENT);
+        when(document.getVersion()).thenReturn(version);
+        when(document.getDate()).thenReturn(new Date(1000L));
+
+        return document;
+    }
+
+    private CachedOutput get(XWikiDocument document) throws Exception
+    {
+        return this.outputCache.get(document, "jsx/true", () -> "content" + this.produced.incrementAndGet());
+    }
+
+    @Test
+    public void getProducesOncePerVersion() throws Exception
+    {
+        CachedOutput output = get(document("1.1"));
+
+        assertEquals("content1", new String(output.getContent(), StandardCharsets.UTF_8));
+        assertSame(output, get(document("1.1")));
+        assertEquals(1, this.produced.get());
+
+        // A new version of the document produces a new output
+        CachedOutput newOutput = get(document("1.2"));
+        assertEquals("content2", new String(newOutput.getContent(), StandardCharsets.UTF_8));
+        assertNotEquals(output.getETag(), newOutput.getETag());
+        assertNotEquals(newOutput.getETag(), newOutput.getGzipETag());
+    }
+
+    @Test
+    public void cleanCache() throws Exception
+    {
+        get(document("1.1"));
+
+        this.outputCache.cleanCache(DOCUMENT);
+
+        get(document("1.1"));
+        assertEquals(2, this.produced.get());
+    }
+
+    @Test
+    public void flush() throws Exception
+    {
+        get(document("1.1"));
+        CachedOutput bundle = this.outputCache.getBundle("key", () -> "bundle".getBytes(StandardCharsets.UTF_8));
+        assertSame(bundle, this.outputCache.getBundle("key", () -> "other".getBytes(StandardCharsets.UTF_8)));
+
+        this.outputCache.flush();
+
+        get(document("1.1"));
+        assertEquals(2, this.produced.get());
+        assertEquals("other", new String(
+            this.outputCache.getBundle("key", () -> "other".getBytes(StandardCharsets.UTF_8)).getContent(),
+            StandardCharsets.UTF_8));
+    }
+}
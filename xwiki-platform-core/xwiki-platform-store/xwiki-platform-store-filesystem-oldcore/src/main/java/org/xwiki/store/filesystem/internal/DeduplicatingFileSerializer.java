@@ -0,0 +1,56 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+
+import org.xwiki.store.FileSerializer;
+
+/**
+ * Serialize the content using the wrapped {@link FileSerializer} and then share the result with the identical contents
+ * already stored in the {@link FilesystemBlobStore}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class DeduplicatingFileSerializer implements FileSerializer
+{
+    private final FileSerializer serializer;
+
+    private final FilesystemBlobStore blobStore;
+
+    /**
+     * @param serializer the serializer in charge of writing the content
+     * @param blobStore the store containing the shared contents
+     */
+    public DeduplicatingFileSerializer(FileSerializer serializer, FilesystemBlobStore blobStore)
+    {
+        this.serializer = serializer;
+        this.blobStore = blobStore;
+    }
+
+    @Override
+    public void serialize(File file) throws Exception
+    {
+        this.serializer.serialize(file);
+
+        this.blobStore.deduplicate(file);
+    }
+}
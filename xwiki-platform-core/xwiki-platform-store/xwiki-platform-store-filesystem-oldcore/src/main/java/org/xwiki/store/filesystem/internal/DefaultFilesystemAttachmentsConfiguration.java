@@ -57,4 +57,10 @@ public boolean cleanOnStartup()
     {
         return this.configuration.getProperty(PREFIX + "cleanOnStartup", Boolean.TRUE);
     }
+
+    @Override
+    public boolean isDeduplicationEnabled()
+    {
+        return this.configuration.getProperty(PREFIX + "deduplication", Boolean.FALSE);
+    }
 }
@@ -33,4 +33,13 @@
 {
     /** @return whether to clean up empty directories on startup. */
     boolean cleanOnStartup();
+
+    /**
+     * @return whether to store identical attachment contents only once
+     * @since 11.3RC1
+     */
+    default boolean isDeduplicationEnabled()
+    {
+        return false;
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content addressed storage for the attachment contents. Each distinct content is stored once in a blob file named
+ * after the SHA-256 of the content and each attachment content file is a hard link to it. The number of links of the
+ * blob file is used as reference counter: a blob which is not linked from any attachment anymore only has one link
+ * left and can be removed by {@link #collectGarbage()}.
+ * <p>
+ * Since every write in the store is done by renaming a temporary file, the content of a blob is never modified in
+ * place through one of its links.
+ * <p>
+ * The link count is only available on filesystems supporting the {@code unix} file attribute view, see
+ * {@link #isSupported(File)}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class FilesystemBlobStore
+{
+    /**
+     * The name of the directory, in the store root directory, containing the blobs.
+     */
+    public static final String BLOBS_DIR_NAME = "~blobs";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FilesystemBlobStore.class);
+
+    private static final String UNIX_ATTRIBUTE_VIEW = "unix";
+
+    private static final String LINK_COUNT_ATTRIBUTE = UNIX_ATTRIBUTE_VIEW + ":nlink";
+
+    private static final String LINK_FILE_SUFFIX = "~lnk";
+
+    private final File blobsDirectory;
+
+    /**
+     * @param storeRootDirectory the root directory of the filesystem store
+     */
+    public FilesystemBlobStore(File storeRootDirectory)
+    {
+        this.blobsDirectory = new File(storeRootDirectory, BLOBS_DIR_NAME);
+    }
+
+    /**
+     * @param storeRootDirectory the root directory of the filesystem store
+     * @return true if the filesystem of the passed directory exposes the number of links of a file, without which the
+     *         unused blobs cannot be collected
+     */
+    public static boolean isSupported(File storeRootDirectory)
+    {
+        return storeRootDirectory.toPath().getFileSystem().supportedFileAttributeViews().contains(UNIX_ATTRIBUTE_VIEW);
+    }
+
+    /**
+     * @return the directory containing the blobs
+     */
+    public File getBlobsDirectory()
+    {
+        return this.blobsDirectory;
+    }
+
+    /**
+     * @param hash the SHA-256 of the content
+     * @return the blob file associated with the passed content hash
+     */
+    public File getBlobFile(String hash)
+    {
+        // Avoid having too many files in one folder because some filesystems don't perform well with large numbers of
+        // files in one folder
+        File dir1 = new File(this.blobsDirectory, hash.substring(0, 2));
+        File dir2 = new File(dir1, hash.substring(2, 4));
+
+        return new File(dir2, hash);
+    }
+
+    /**
+     * Replace the passed file by a hard link to the blob having the same content, or register the file content as a
+     * new blob. The content of the file is not modified. If the filesystem does not support hard links the file is
+     * left untouched.
+     *
+     * @param file the file to deduplicate
+     * @return true if the file is now sharing its content with the corresponding blob
+     */
+    public boolean deduplicate(File file)
+    {
+        try {
+            String hash;
+            try (InputStream stream = Files.newInputStream(file.toPath())) {
+                hash = DigestUtils.sha256Hex(stream);
+            }
+
+            Path path = file.toPath();
+            Path blob = getBlobFile(hash).toPath();
+
+            if (Files.exists(blob)) {
+                if (Files.isSameFile(path, blob)) {
+                    return true;
+                }
+            } else {
+                Files.createDirectories(blob.getParent());
+
+                try {
+                    Files.createLink(blob, path);
+
+                    return true;
+                } catch (FileAlreadyExistsException e) {
+                    // Another thread registered the same content in the meantime, link to it
+                }
+            }
+
+            // Link to the existing blob and atomically replace the file with the link. If the blob disappear in the
+            // meantime the file is kept as is.
+            Path link = new File(file.getPath() + LINK_FILE_SUFFIX + RandomStringUtils.randomAlphanumeric(8)).toPath();
+            Files.createLink(link, blob);
+            try {
+                Files.move(link, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(link);
+            }
+
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.warn("Failed to deduplicate file [{}], keeping a standalone copy: {}", file, e.getMessage());
+            LOGGER.debug("Deduplication failure", e);
+
+            return false;
+        }
+    }
+
+    /**
+     * Remove the blobs which are not referenced by any attachment content file anymore.
+     *
+     * @return the number of removed blobs
+     */
+    public int collectGarbage()
+    {
+        int count = 0;
+
+        File[] dirs1 = this.blobsDirectory.listFiles();
+        if (dirs1 != null) {
+            for (File dir1 : dirs1) {
+                File[] dirs2 = dir1.listFiles();
+                if (dirs2 != null) {
+                    for (File dir2 : dirs2) {
+                        count += collectGarbage(dir2);
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int collectGarbage(File directory)
+    {
+        int count = 0;
+
+        File[] blobs = directory.listFiles();
+        if (blobs != null) {
+            for (File blob : blobs) {
+                try {
+                    if (getLinkCount(blob) <= 1) {
+                        // If a new link is created concurrently the linked file keeps the content alive
+                        Files.delete(blob.toPath());
+
+                        ++count;
+                    }
+                } catch (IOException | UnsupportedOperationException e) {
+                    LOGGER.warn("Failed to check the references of blob [{}]: {}", blob, e.getMessage());
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private int getLinkCount(File file) throws IOException
+    {
+        return ((Number) Files.getAttribute(file.toPath(), LINK_COUNT_ATTRIBUTE)).intValue();
+    }
+}
@@ -22,6 +22,9 @@
 import java.io.File;
 import java.io.IOException;
 import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import javax.inject.Inject;
@@ -30,13 +33,20 @@
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.environment.Environment;
 import org.xwiki.model.internal.reference.LocalUidStringEntityReferenceSerializer;
 import org.xwiki.model.reference.AttachmentReference;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.store.FileSerializer;
+import org.xwiki.store.StreamProvider;
+import org.xwiki.store.StreamProviderFileSerializer;
 import org.xwiki.store.internal.FileSystemStoreUtils;
 import org.xwiki.store.locks.LockProvider;
 
@@ -49,7 +59,7 @@
  */
 @Component(roles = FilesystemStoreTools.class)
 @Singleton
-public class FilesystemStoreTools implements Initializable
+public class FilesystemStoreTools implements Initializable, Disposable
 {
     /**
      * The directory within each document's directory for document locales.
@@ -93,6 +103,22 @@ public class FilesystemStoreTools implements Initializable
      */
     private static final String TEMP_FILE_SUFFIX = "~tmp";
 
+    /**
+     * The interval in hours between two collections of the blobs which are not used anymore.
+     */
+    private static final long BLOB_GC_INTERVAL = 24;
+
+    /**
+     * The name of the file, in the blobs directory, indicating that the contents stored before deduplication was
+     * enabled have been deduplicated.
+     */
+    private static final String DEDUPLICATED_MARKER_NAME = "~deduplicated";
+
+    /**
+     * The character found in the names of the metadata, temporary and backup files which are not deduplicated.
+     */
+    private static final String SPECIAL_FILE_MARKER = "~";
+
     @Inject
     private FilesystemAttachmentsConfiguration config;
 
@@ -110,11 +136,21 @@ public class FilesystemStoreTools implements Initializable
     @Inject
     private Environment environment;
 
+    @Inject
+    private Logger logger;
+
     /**
      * This is the root directory of the stored data.
      */
     private File storeRootDirectory;
 
+    /**
+     * The store of the shared attachment contents, {@code null} when deduplication is disabled or not supported.
+     */
+    private FilesystemBlobStore blobStore;
+
+    private ScheduledExecutorService blobCollector;
+
     /**
      * Testing Constructor.
      *
@@ -154,6 +190,99 @@ public void initialize() throws InitializationException
 
             new Thread(() -> deleteEmptyDirs(dir, 0)).start();
         }
+
+        File deduplicatedMarker =
+            new File(new File(this.storeRootDirectory, FilesystemBlobStore.BLOBS_DIR_NAME), DEDUPLICATED_MARKER_NAME);
+        if (this.config.isDeduplicationEnabled()) {
+            if (FilesystemBlobStore.isSupported(this.storeRootDirectory)) {
+                startBlobStore(deduplicatedMarker);
+            } else {
+                this.logger.warn("The filesystem of [{}] does not expose the number of links of a file,"
+                    + " attachment contents won't be deduplicated", this.storeRootDirectory);
+            }
+        } else if (deduplicatedMarker.exists()) {
+            // The contents saved while deduplication is disabled will have to be deduplicated when it's enabled again
+            deduplicatedMarker.delete();
+        }
+    }
+
+    private void startBlobStore(File deduplicatedMarker)
+    {
+        this.blobStore = new FilesystemBlobStore(this.storeRootDirectory);
+
+        // Share the contents stored while deduplication was disabled. This is done before the store is used, so that no
+        // attachment is saved concurrently.
+        if (!deduplicatedMarker.exists()) {
+            this.logger.info("Deduplicating the attachment contents of the filesystem store [{}]",
+                this.storeRootDirectory);
+
+            deduplicateStore(this.storeRootDirectory);
+
+            try {
+                deduplicatedMarker.getParentFile().mkdirs();
+                deduplicatedMarker.createNewFile();
+            } catch (IOException e) {
+                this.logger.warn("Failed to create [{}], the attachment contents will be deduplicated again on next"
+                    + " startup: {}", deduplicatedMarker, e.getMessage());
+            }
+        }
+
+        this.blobCollector = Executors.newSingleThreadScheduledExecutor(
+            new BasicThreadFactory.Builder().namingPattern("Filesystem store blob collector").daemon(true)
+                .priority(Thread.MIN_PRIORITY).build());
+        this.blobCollector.scheduleWithFixedDelay(this::collectBlobs, 1, BLOB_GC_INTERVAL, TimeUnit.HOURS);
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.blobCollector != null) {
+            this.blobCollector.shutdownNow();
+        }
+    }
+
+    private void deduplicateStore(File directory)
+    {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory() && !child.getName().equals(FilesystemBlobStore.BLOBS_DIR_NAME)) {
+                    if (child.getName().equals(ATTACHMENTS_DIR_NAME)
+                        || child.getName().equals(DELETED_ATTACHMENTS_DIR_NAME)) {
+                        deduplicateAttachments(child);
+                    } else {
+                        deduplicateStore(child);
+                    }
+                }
+            }
+        }
+    }
+
+    private void deduplicateAttachments(File directory)
+    {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    deduplicateAttachments(child);
+                } else if (!child.getName().contains(SPECIAL_FILE_MARKER)) {
+                    this.logger.debug("Deduplicating attachment file [{}]", child);
+
+                    this.blobStore.deduplicate(child);
+                }
+            }
+        }
+    }
+
+    private void collectBlobs()
+    {
+        try {
+            int count = this.blobStore.collectGarbage();
+
+            this.logger.debug("Removed [{}] unused blobs from the filesystem store", count);
+        } catch (Exception e) {
+            this.logger.error("Failed to remove the unused blobs from the filesystem store", e);
+        }
     }
 
     /**
@@ -212,6 +341,31 @@ public File getTempFile(final File storageFile)
         return new File(storageFile.getAbsolutePath() + TEMP_FILE_SUFFIX + RandomStringUtils.randomAlphanumeric(8));
     }
 
+    /**
+     * @return the store of the shared attachment contents or {@code null} if deduplication is disabled or not
+     *         supported by the filesystem
+     * @since 11.3RC1
+     */
+    public FilesystemBlobStore getBlobStore()
+    {
+        return this.blobStore;
+    }
+
+    /**
+     * Get the serializer to use to save an attachment content. When deduplication is enabled the saved file shares its
+     * content with the identical contents already stored.
+     *
+     * @param provider the provider of the attachment content
+     * @return the serializer to pass to the {@link org.xwiki.store.FileSaveTransactionRunnable}
+     * @since 11.3RC1
+     */
+    public FileSerializer getContentSerializer(StreamProvider provider)
+    {
+        FileSerializer serializer = new StreamProviderFileSerializer(provider);
+
+        return this.blobStore != null ? new DeduplicatingFileSerializer(serializer, this.blobStore) : serializer;
+    }
+
     /**
      * Get an instance of AttachmentFileProvider which will save everything to do with an attachment in a separate
      * location which is repeatable only with the same attachment name, containing document, and date of deletion.
@@ -31,8 +31,10 @@
 
 import org.suigeneris.jrcs.rcs.Version;
 import org.xwiki.store.FileSaveTransactionRunnable;
+import org.xwiki.store.FileSerializer;
 import org.xwiki.store.StartableTransactionRunnable;
 import org.xwiki.store.StreamProvider;
+import org.xwiki.store.StreamProviderFileSerializer;
 import org.xwiki.store.filesystem.internal.AttachmentFileProvider;
 import org.xwiki.store.filesystem.internal.FilesystemStoreTools;
 import org.xwiki.store.serialization.SerializationStreamProvider;
@@ -92,24 +94,26 @@ public AttachmentArchiveSaveRunnable(final XWikiAttachmentArchive archive,
             {
                 final StreamProvider contentProvider =
                     new AttachmentContentStreamProvider(attachVer, context);
-                addSaver(contentProvider, fileTools, provider.getAttachmentVersionContentFile(versionName));
+                addSaver(fileTools.getContentSerializer(contentProvider), fileTools,
+                    provider.getAttachmentVersionContentFile(versionName));
             }
         }
 
         // Then do the metadata.
         final StreamProvider metaProvider =
             new SerializationStreamProvider<List<XWikiAttachment>>(serializer, attachmentVersions);
-        addSaver(metaProvider, fileTools, provider.getAttachmentVersioningMetaFile());
+        addSaver(new StreamProviderFileSerializer(metaProvider), fileTools,
+            provider.getAttachmentVersioningMetaFile());
     }
 
     /**
      * Save some content safely in this runnable.
      *
-     * @param provider the means to get the content to save.
+     * @param serializer the means to write the content to save.
      * @param fileTools the means to get the backup file, temporary file, and lock.
      * @param saveHere the location to save the data.
      */
-    private void addSaver(final StreamProvider provider,
+    private void addSaver(final FileSerializer serializer,
         final FilesystemStoreTools fileTools,
         final File saveHere)
     {
@@ -117,6 +121,6 @@ private void addSaver(final StreamProvider provider,
             fileTools.getTempFile(saveHere),
             fileTools.getBackupFile(saveHere),
             fileTools.getLockForFile(saveHere),
-            provider).runIn(this);
+            serializer).runIn(this);
     }
 }
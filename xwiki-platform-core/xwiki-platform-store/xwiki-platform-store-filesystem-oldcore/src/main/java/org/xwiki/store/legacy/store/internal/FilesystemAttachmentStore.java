@@ -290,7 +290,8 @@ private class AttachmentSaveTransactionRunnable extends TransactionRunnable<XWik
             final ReadWriteLock lock) throws XWikiException
         {
             final StreamProvider provider = new AttachmentContentStreamProvider(attachment, context);
-            new FileSaveTransactionRunnable(attachFile, tempFile, backupFile, lock, provider).runIn(this);
+            new FileSaveTransactionRunnable(attachFile, tempFile, backupFile, lock,
+                fileTools.getContentSerializer(provider)).runIn(this);
 
             // If the versioning store supports TransactionRunnable then use it, otherwise don't.
             AttachmentVersioningStore avs = resolveAttachmentVersioningStore(attachment, context);
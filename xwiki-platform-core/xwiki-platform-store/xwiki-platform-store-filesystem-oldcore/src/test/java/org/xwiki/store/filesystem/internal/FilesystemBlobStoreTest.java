@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for {@link FilesystemBlobStore}.
+ *
+ * @version $Id$
+ */
+public class FilesystemBlobStoreTest
+{
+    private File storageLocation;
+
+    private FilesystemBlobStore blobStore;
+
+    @BeforeEach
+    public void setUp()
+    {
+        this.storageLocation =
+            new File(new File(System.getProperty("java.io.tmpdir")), "test-blob-storage-location");
+        this.blobStore = new FilesystemBlobStore(this.storageLocation);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        FileUtils.deleteDirectory(this.storageLocation);
+    }
+
+    private File write(String path, String content) throws IOException
+    {
+        File file = new File(this.storageLocation, path);
+        FileUtils.write(file, content, StandardCharsets.UTF_8);
+
+        return file;
+    }
+
+    @Test
+    public void deduplicateAndCollectGarbage() throws IOException
+    {
+        // The unused blobs can only be collected when the filesystem exposes the number of links
+        assumeTrue(FilesystemBlobStore.isSupported(this.storageLocation));
+
+        File file1 = write("wiki/a/f.txt", "content");
+        File file2 = write("wiki/b/f.txt", "content");
+        File file3 = write("wiki/c/f.txt", "other content");
+
+        assertTrue(this.blobStore.deduplicate(file1));
+        assertTrue(this.blobStore.deduplicate(file2));
+        assertTrue(this.blobStore.deduplicate(file3));
+
+        File blob = this.blobStore.getBlobFile(DigestUtils.sha256Hex("content"));
+        assertTrue(Files.isSameFile(file1.toPath(), blob.toPath()));
+        assertTrue(Files.isSameFile(file2.toPath(), blob.toPath()));
+        assertEquals("content", FileUtils.readFileToString(file2, StandardCharsets.UTF_8));
+        assertEquals("other content", FileUtils.readFileToString(file3, StandardCharsets.UTF_8));
+
+        // Deduplicating again is harmless
+        assertTrue(this.blobStore.deduplicate(file1));
+
+        assertEquals(0, this.blobStore.collectGarbage());
+
+        Files.delete(file1.toPath());
+        Files.delete(file3.toPath());
+
+        assertEquals(1, this.blobStore.collectGarbage());
+        assertTrue(blob.exists());
+        assertFalse(this.blobStore.getBlobFile(DigestUtils.sha256Hex("other content")).exists());
+
+        Files.delete(file2.toPath());
+
+        assertEquals(1, this.blobStore.collectGarbage());
+        assertFalse(blob.exists());
+    }
+}
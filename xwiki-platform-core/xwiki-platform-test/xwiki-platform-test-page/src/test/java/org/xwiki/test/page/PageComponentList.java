@@ -30,6 +30,7 @@
 import org.xwiki.display.internal.DefaultDisplayConfiguration;
 import org.xwiki.display.internal.DefaultDocumentDisplayer;
 import org.xwiki.display.internal.DocumentContentDisplayer;
+import org.xwiki.display.internal.DocumentDisplayerCache;
 import org.xwiki.display.internal.DocumentTitleDisplayer;
 import org.xwiki.localization.internal.DefaultContextualLocalizationManager;
 import org.xwiki.localization.internal.DefaultLocalizationManager;
@@ -153,6 +154,7 @@
     DefaultDocumentDisplayer.class,
     DocumentTitleDisplayer.class,
     DocumentContentDisplayer.class,
+    DocumentDisplayerCache.class,
     SheetDocumentDisplayer.class,
 
     // Sheet
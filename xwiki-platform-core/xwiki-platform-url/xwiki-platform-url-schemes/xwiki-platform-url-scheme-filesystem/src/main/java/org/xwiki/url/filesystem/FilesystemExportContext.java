@@ -21,9 +21,9 @@
 
 import java.io.File;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores states when generating Filesystem URLs. As we generate URLs for passed Resources we also export them to the
@@ -49,7 +49,7 @@
     /**
      * @see #getExportedPages()
      */
-    private Set<String> exportedPages = new HashSet<>();
+    private Set<String> exportedPages = ConcurrentHashMap.newKeySet();
 
     /**
      * @see #getExportDir()
@@ -59,12 +59,41 @@
     /**
      * @see #getNeededSkins()
      */
-    private Set<String> neededSkins = new HashSet<>();
+    private Set<String> neededSkins = ConcurrentHashMap.newKeySet();
 
     /**
      * @see #getExportedSkinFiles()
      */
-    private Set<String> exportedSkinFiles = new HashSet<>();
+    private Set<String> exportedSkinFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @see #addExportedFile(String)
+     */
+    private Set<String> exportedFiles = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a new empty context.
+     */
+    public FilesystemExportContext()
+    {
+    }
+
+    /**
+     * Create a new context sharing the export directory and the exported pages, skins and files of the passed context
+     * but with its own CSS and document levels. This allows rendering several documents in parallel as part of the
+     * same export.
+     *
+     * @param sharedContext the context of the export
+     * @since 11.3RC1
+     */
+    public FilesystemExportContext(FilesystemExportContext sharedContext)
+    {
+        this.exportDir = sharedContext.exportDir;
+        this.exportedPages = sharedContext.exportedPages;
+        this.neededSkins = sharedContext.neededSkins;
+        this.exportedSkinFiles = sharedContext.exportedSkinFiles;
+        this.exportedFiles = sharedContext.exportedFiles;
+    }
 
     /**
      * @return the number of relative parent levels in the path to find the CSS file
@@ -195,4 +224,18 @@ public void addExportedSkinFile(String filePath)
     {
         this.exportedSkinFiles.add(filePath);
     }
+
+    /**
+     * Register a file which is going to be written in the export directory. Only the first caller is expected to
+     * actually write the file, which makes sure the same file is not written several times (possibly at the same
+     * time).
+     *
+     * @param filePath the path of the file, relative to the export directory
+     * @return true if the file was not already registered and should be written by the caller
+     * @since 11.3RC1
+     */
+    public boolean addExportedFile(String filePath)
+    {
+        return this.exportedFiles.add(filePath);
+    }
 }
@@ -39,7 +39,12 @@
 @Singleton
 public class FilesystemExportContextProvider implements Provider<FilesystemExportContext>
 {
-    private static final String CONTEXT_KEY = "filesystemExportContext";
+    /**
+     * The name of the Execution Context property containing the {@link FilesystemExportContext}.
+     *
+     * @since 11.3RC1
+     */
+    public static final String CONTEXT_KEY = "filesystemExportContext";
 
     @Inject
     private Execution execution;
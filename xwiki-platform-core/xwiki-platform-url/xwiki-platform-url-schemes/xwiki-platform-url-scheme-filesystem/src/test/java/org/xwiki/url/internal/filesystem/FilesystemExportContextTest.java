@@ -23,6 +23,8 @@
 import org.xwiki.url.filesystem.FilesystemExportContext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for {@link org.xwiki.url.filesystem.FilesystemExportContext}.
@@ -38,4 +40,24 @@ public void getSetDocParentLevels()
         context.setDocParentLevels(5);
         assertEquals(5, context.getDocParentLevel());
     }
+
+    @Test
+    public void sharedContext()
+    {
+        FilesystemExportContext context = new FilesystemExportContext();
+        context.setDocParentLevels(2);
+        context.addExportedPage("page");
+
+        FilesystemExportContext sharedContext = new FilesystemExportContext(context);
+        sharedContext.setDocParentLevels(3);
+        sharedContext.addNeededSkin("skin");
+
+        assertEquals(2, context.getDocParentLevel());
+        assertEquals(3, sharedContext.getDocParentLevel());
+        assertTrue(sharedContext.hasExportedPage("page"));
+        assertTrue(context.getNeededSkins().contains("skin"));
+
+        assertTrue(context.addExportedFile("file"));
+        assertFalse(sharedContext.addExportedFile("file"));
+    }
 }
@@ -107,7 +107,7 @@ void copyResourceFromJAR(String resourcePrefix, String resourceName, String targ
                     // for example?
                     String targetPath = targetPrefix + entry.getName().substring(resourcePrefix.length());
                     File targetLocation = new File(exportContext.getExportDir(), targetPath);
-                    if (!targetLocation.exists()) {
+                    if (exportContext.addExportedFile(targetPath) && !targetLocation.exists()) {
                         targetLocation.getParentFile().mkdirs();
                         InputStream is = jar.getInputStream(entry);
                         try (FileOutputStream fos = new FileOutputStream(targetLocation)) {
@@ -20,6 +20,7 @@
 package org.xwiki.wiki.configuration;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration options for the Wiki module.
@@ -35,4 +36,25 @@
      * when path mode is used.
      */
     String getAliasSuffix();
+
+    /**
+     * @return the number of threads used to copy the documents of a wiki, when creating a wiki from a template for
+     *         example
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getCopyThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the number of documents loaded together when copying the documents of a wiki
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getCopyBatchSize()
+    {
+        return 100;
+    }
 }
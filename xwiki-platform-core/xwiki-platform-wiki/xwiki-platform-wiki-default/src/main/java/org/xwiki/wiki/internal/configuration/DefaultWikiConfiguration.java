@@ -54,4 +54,16 @@ public String getAliasSuffix()
     {
         return configuration.getProperty(PREFIX + "alias.suffix", "");
     }
+
+    @Override
+    public int getCopyThreads()
+    {
+        return configuration.getProperty(PREFIX + "copy.threads", 1);
+    }
+
+    @Override
+    public int getCopyBatchSize()
+    {
+        return configuration.getProperty(PREFIX + "copy.batchSize", 100);
+    }
 }
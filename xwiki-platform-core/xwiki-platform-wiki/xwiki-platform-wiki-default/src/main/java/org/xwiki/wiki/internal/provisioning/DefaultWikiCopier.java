@@ -19,15 +19,28 @@
  */
 package org.xwiki.wiki.internal.provisioning;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -35,6 +48,7 @@
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
+import org.xwiki.wiki.configuration.WikiConfiguration;
 import org.xwiki.wiki.manager.WikiManagerException;
 import org.xwiki.wiki.provisioning.WikiCopier;
 
@@ -44,6 +58,9 @@
 
 /**
  * Default implementation for {@link WikiCopier}.
+ * <p>
+ * The documents are copied by batches: the documents of a batch are loaded from the source wiki with a few requests
+ * and, when several threads are configured, the batches are copied in parallel.
  * 
  * @version $Id$
  * @since 7.0M2
@@ -52,6 +69,8 @@
 @Singleton
 public class DefaultWikiCopier implements WikiCopier
 {
+    private static final String FAILED_COPY_MESSAGE = "Failed to copy documents.";
+
     @Inject
     private QueryManager queryManager;
 
@@ -65,15 +84,21 @@ public class DefaultWikiCopier implements WikiCopier
     @Inject
     private JobProgressManager progress;
 
+    @Inject
+    private WikiConfiguration configuration;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
     @Inject
     private Logger logger;
 
     @Override
     public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistory) throws WikiManagerException
     {
-        XWikiContext context = xcontextProvider.get();
-        XWiki xwiki = context.getWiki();
-
         this.progress.pushLevelProgress(2, this);
 
         try {
@@ -85,6 +110,18 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
             query.setWiki(fromWikiId);
             List<String> documentFullnames = query.execute();
 
+            WikiReference fromWikiReference = new WikiReference(fromWikiId);
+            List<List<DocumentReference>> batches = new ArrayList<>();
+            int batchSize = Math.max(1, this.configuration.getCopyBatchSize());
+            for (int i = 0; i < documentFullnames.size(); i += batchSize) {
+                List<DocumentReference> batch = new ArrayList<>(batchSize);
+                for (String documentFullName : documentFullnames.subList(i,
+                    Math.min(i + batchSize, documentFullnames.size()))) {
+                    batch.add(documentReferenceResolver.resolve(documentFullName, fromWikiReference));
+                }
+                batches.add(batch);
+            }
+
             this.progress.endStep(this);
 
             // Copy documents
@@ -92,21 +129,14 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
             this.progress.startStep(this, "Copy documents");
             this.progress.pushLevelProgress(documentFullnames.size(), this);
 
-            WikiReference fromWikiReference = new WikiReference(fromWikiId);
-
             try {
-                for (String documentFullName : documentFullnames) {
-                    this.progress.startStep(this);
-
-                    DocumentReference origDocReference =
-                        documentReferenceResolver.resolve(documentFullName, fromWikiReference);
-                    DocumentReference newDocReference = origDocReference.setWikiReference(new WikiReference(toWikiId));
-
-                    logger.info("Copying document [{}] to [{}].", origDocReference, newDocReference);
-                    xwiki.copyDocument(origDocReference, newDocReference, null, !withHistory, true, context);
-                    logger.info("Done copying document [{}] to [{}].", origDocReference, newDocReference);
-
-                    this.progress.endStep(this);
+                int threads = Math.min(this.configuration.getCopyThreads(), batches.size());
+                if (threads > 1) {
+                    copyDocuments(batches, fromWikiId, toWikiId, withHistory, threads);
+                } else {
+                    for (List<DocumentReference> batch : batches) {
+                        copyDocuments(batch, fromWikiId, toWikiId, withHistory, true, xcontextProvider.get());
+                    }
                 }
             } finally {
                 this.progress.popLevelProgress(this);
@@ -118,7 +148,7 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
             logger.error(thrownException.getMessage(), thrownException);
             throw thrownException;
         } catch (XWikiException e) {
-            WikiManagerException thrownException = new WikiManagerException("Failed to copy documents.", e);
+            WikiManagerException thrownException = new WikiManagerException(FAILED_COPY_MESSAGE, e);
             logger.error(thrownException.getMessage(), thrownException);
             throw thrownException;
         } finally {
@@ -126,6 +156,122 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
         }
     }
 
+    private void copyDocuments(List<List<DocumentReference>> batches, String fromWikiId, String toWikiId,
+        boolean withHistory, int threads) throws XWikiException, WikiManagerException
+    {
+        BasicThreadFactory factory = new BasicThreadFactory.Builder()
+            .namingPattern("XWiki wiki copy thread [" + fromWikiId + "] -> [" + toWikiId + "] %d").daemon(true)
+            .build();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, factory);
+
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(batches.size());
+            for (int i = 0; i < batches.size(); ++i) {
+                futures.add(new CompletableFuture<>());
+            }
+
+            // The workers take the next batch to copy until there is none left or one of them failed
+            AtomicInteger nextBatch = new AtomicInteger();
+            AtomicBoolean failed = new AtomicBoolean();
+            for (int i = 0; i < threads; ++i) {
+                // Each worker is executed with its own copy of the current contexts
+                ExecutionContext executionContext = this.executionContextManager.clone(this.execution.getContext());
+                XWikiContext xcontext = this.xcontextProvider.get().clone();
+                xcontext.declareInExecutionContext(executionContext);
+
+                executor.execute(() -> {
+                    this.execution.setContext(executionContext);
+
+                    try {
+                        // Check the failure before claiming a batch since the job thread waits for every batch
+                        // preceding the one which failed
+                        while (!failed.get()) {
+                            int index = nextBatch.getAndIncrement();
+                            if (index >= batches.size()) {
+                                break;
+                            }
+
+                            try {
+                                copyDocuments(batches.get(index), fromWikiId, toWikiId, withHistory, false, xcontext);
+
+                                futures.get(index).complete(null);
+                            } catch (Throwable e) {
+                                failed.set(true);
+
+                                futures.get(index).completeExceptionally(e);
+                            }
+                        }
+                    } finally {
+                        this.execution.removeContext();
+                    }
+                });
+            }
+
+            // The job progress is only listened in the job thread
+            for (int i = 0; i < batches.size(); ++i) {
+                waitFor(futures.get(i));
+
+                for (int j = 0; j < batches.get(i).size(); ++j) {
+                    this.progress.startStep(this);
+                    this.progress.endStep(this);
+                }
+            }
+        } catch (ExecutionContextException e) {
+            throw new WikiManagerException("Failed to initialize the execution context of the copy threads.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void waitFor(Future<Void> future) throws XWikiException, WikiManagerException
+    {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new WikiManagerException("Interrupted while copying documents.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            }
+
+            throw new WikiManagerException(FAILED_COPY_MESSAGE, e.getCause());
+        }
+    }
+
+    private void copyDocuments(List<DocumentReference> batch, String fromWikiId, String toWikiId,
+        boolean withHistory, boolean reportProgress, XWikiContext context) throws XWikiException
+    {
+        XWiki xwiki = context.getWiki();
+
+        // Load all the documents of the batch at once so that the copy finds them in the document cache
+        String currentWikiId = context.getWikiId();
+        try {
+            context.setWikiId(fromWikiId);
+            xwiki.getStore().loadXWikiDocs(batch, context);
+        } finally {
+            context.setWikiId(currentWikiId);
+        }
+
+        WikiReference toWikiReference = new WikiReference(toWikiId);
+        for (DocumentReference origDocReference : batch) {
+            if (reportProgress) {
+                this.progress.startStep(this);
+            }
+
+            DocumentReference newDocReference = origDocReference.setWikiReference(toWikiReference);
+
+            logger.info("Copying document [{}] to [{}].", origDocReference, newDocReference);
+            xwiki.copyDocument(origDocReference, newDocReference, null, !withHistory, true, context);
+            logger.info("Done copying document [{}] to [{}].", origDocReference, newDocReference);
+
+            if (reportProgress) {
+                this.progress.endStep(this);
+            }
+        }
+    }
+
     @Override
     public void copyDeletedDocuments(String fromWikiId, String toWikiId) throws WikiManagerException
     {
@@ -57,4 +57,14 @@ public void getAliasSuffix() throws Exception
         when(configuration.getProperty("wiki.alias.suffix", "")).thenReturn("blabla.org");
         assertEquals("blabla.org", mocker.getComponentUnderTest().getAliasSuffix());
     }
+
+    @Test
+    public void getCopyThreads() throws Exception
+    {
+        when(configuration.getProperty("wiki.copy.threads", 1)).thenReturn(1);
+        assertEquals(1, mocker.getComponentUnderTest().getCopyThreads());
+
+        when(configuration.getProperty("wiki.copy.threads", 1)).thenReturn(4);
+        assertEquals(4, mocker.getComponentUnderTest().getCopyThreads());
+    }
 }
@@ -21,6 +21,8 @@
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Provider;
 
@@ -29,6 +31,9 @@
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.slf4j.Logger;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -36,12 +41,20 @@
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.configuration.WikiConfiguration;
+import org.xwiki.wiki.manager.WikiManagerException;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiStoreInterface;
 
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -68,6 +81,10 @@
 
     private com.xpn.xwiki.XWiki xwiki;
 
+    private XWikiStoreInterface store;
+
+    private WikiConfiguration configuration;
+
     @Before
     public void setUp() throws Exception
     {
@@ -78,6 +95,9 @@ public void setUp() throws Exception
         when(xcontextProvider.get()).thenReturn(xcontext);
         xwiki = mock(com.xpn.xwiki.XWiki.class);
         when(xcontext.getWiki()).thenReturn(xwiki);
+        store = mock(XWikiStoreInterface.class);
+        when(xwiki.getStore()).thenReturn(store);
+        configuration = mocker.getInstance(WikiConfiguration.class);
 
         documentReferenceResolver = mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "current");
     }
@@ -129,4 +149,96 @@ public void copyDocuments() throws Exception
 
         inOrder.verify(progress).popLevelProgress(mocker.getComponentUnderTest());
     }
+
+    @Test
+    public void copyDocumentsInParallel() throws Exception
+    {
+        when(configuration.getCopyThreads()).thenReturn(2);
+        when(configuration.getCopyBatchSize()).thenReturn(1);
+
+        Execution execution = mocker.getInstance(Execution.class);
+        ExecutionContextManager executionContextManager = mocker.getInstance(ExecutionContextManager.class);
+        when(executionContextManager.clone(any())).then(invocation -> new ExecutionContext());
+        when(xcontext.clone()).thenReturn(xcontext);
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select distinct doc.fullName from Document as doc", Query.XWQL)).thenReturn(
+            query);
+        when(query.<String>execute()).thenReturn(Arrays.asList("Space.Doc1", "Space.Doc2", "Space.Doc3"));
+
+        WikiReference fromWikiReference = new WikiReference("wikiA");
+        DocumentReference docRef1 = new DocumentReference("wikiA", "Space", "Doc1");
+        DocumentReference docRef2 = new DocumentReference("wikiA", "Space", "Doc2");
+        DocumentReference docRef3 = new DocumentReference("wikiA", "Space", "Doc3");
+        when(documentReferenceResolver.resolve(eq("Space.Doc1"), eq(fromWikiReference))).thenReturn(docRef1);
+        when(documentReferenceResolver.resolve(eq("Space.Doc2"), eq(fromWikiReference))).thenReturn(docRef2);
+        when(documentReferenceResolver.resolve(eq("Space.Doc3"), eq(fromWikiReference))).thenReturn(docRef3);
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", true);
+
+        // Each batch is loaded at once
+        verify(store).loadXWikiDocs(Arrays.asList(docRef1), xcontext);
+        verify(store).loadXWikiDocs(Arrays.asList(docRef2), xcontext);
+        verify(store).loadXWikiDocs(Arrays.asList(docRef3), xcontext);
+
+        verify(xwiki).copyDocument(docRef1, new DocumentReference("wikiB", "Space", "Doc1"), null, false, true,
+            xcontext);
+        verify(xwiki).copyDocument(docRef2, new DocumentReference("wikiB", "Space", "Doc2"), null, false, true,
+            xcontext);
+        verify(xwiki).copyDocument(docRef3, new DocumentReference("wikiB", "Space", "Doc3"), null, false, true,
+            xcontext);
+
+        // The contexts are cloned only once for each worker thread
+        verify(executionContextManager, times(2)).clone(any());
+        verify(xcontext, times(2)).clone();
+        verify(execution, times(2)).setContext(any());
+        verify(execution, times(2)).removeContext();
+
+        // The progress is reported from the calling thread
+        verify(progress, times(3)).startStep(mocker.getComponentUnderTest());
+    }
+
+    @Test(timeout = 10000)
+    public void copyDocumentsInParallelWhenALaterBatchFails() throws Exception
+    {
+        when(configuration.getCopyThreads()).thenReturn(2);
+        when(configuration.getCopyBatchSize()).thenReturn(1);
+
+        ExecutionContextManager executionContextManager = mocker.getInstance(ExecutionContextManager.class);
+        when(executionContextManager.clone(any())).then(invocation -> new ExecutionContext());
+        when(xcontext.clone()).thenReturn(xcontext);
+
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select distinct doc.fullName from Document as doc", Query.XWQL)).thenReturn(
+            query);
+        when(query.<String>execute()).thenReturn(Arrays.asList("Space.Doc1", "Space.Doc2", "Space.Doc3"));
+
+        WikiReference fromWikiReference = new WikiReference("wikiA");
+        DocumentReference docRef1 = new DocumentReference("wikiA", "Space", "Doc1");
+        DocumentReference docRef2 = new DocumentReference("wikiA", "Space", "Doc2");
+        DocumentReference docRef3 = new DocumentReference("wikiA", "Space", "Doc3");
+        when(documentReferenceResolver.resolve(eq("Space.Doc1"), eq(fromWikiReference))).thenReturn(docRef1);
+        when(documentReferenceResolver.resolve(eq("Space.Doc2"), eq(fromWikiReference))).thenReturn(docRef2);
+        when(documentReferenceResolver.resolve(eq("Space.Doc3"), eq(fromWikiReference))).thenReturn(docRef3);
+
+        // The first batch is still being copied when the second one fails
+        CountDownLatch secondBatchFailed = new CountDownLatch(1);
+        DocumentReference copyDocRef1 = new DocumentReference("wikiB", "Space", "Doc1");
+        doAnswer(invocation -> secondBatchFailed.await(5, TimeUnit.SECONDS)).when(xwiki).copyDocument(docRef1,
+            copyDocRef1, null, false, true, xcontext);
+        doAnswer(invocation -> {
+            secondBatchFailed.countDown();
+            throw new XWikiException();
+        }).when(xwiki).copyDocument(docRef2, new DocumentReference("wikiB", "Space", "Doc2"), null, false, true,
+            xcontext);
+
+        try {
+            mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", true);
+            fail("The copy should have failed");
+        } catch (WikiManagerException expected) {
+            // The job doesn't wait forever for a batch which has been claimed
+        }
+
+        verify(xwiki).copyDocument(docRef1, copyDocRef1, null, false, true, xcontext);
+    }
 }